@@ -0,0 +1,65 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.benchmarks;
+
+import com.google.api.services.sheets.v4.model.GridRange;
+import com.pivotal.google.docs.GoogleDocsUtils;
+import com.pivotal.google.docs.GoogleException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsing of A1 ranges into grid ranges, which is done for every range passed to the library.
+ * Parsed ranges are cached, so getGridRange measures a cache hit and getGridRangeUncached cycles
+ * through more distinct ranges of the same shape than the cache holds, so that every call is parsed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class A1NotationBenchmark {
+
+    // Power of two and well over the number of ranges that GoogleDocsUtils caches
+    private static final int DISTINCT = 65536;
+    private static final Pattern ROW = Pattern.compile("\\d+");
+
+    @Param({"A1", "B2:D10", "AA100:ZZ5000", "A5:C", "$A$1:$C$3"})
+    public String range;
+
+    private final String[] ranges = new String[DISTINCT];
+    private int next;
+
+    @Setup
+    public void setup() {
+
+        // Same shape as the range, with the rows moved down
+        for (int i = 0; i < DISTINCT; i++) {
+            Matcher matcher = ROW.matcher(range);
+            StringBuffer buffer = new StringBuffer();
+            while (matcher.find()) {
+                matcher.appendReplacement(buffer, String.valueOf(Integer.parseInt(matcher.group()) + i));
+            }
+            matcher.appendTail(buffer);
+            ranges[i] = buffer.toString();
+        }
+    }
+
+    @Benchmark
+    public GridRange getGridRange() throws GoogleException {
+        return GoogleDocsUtils.getGridRange(0, range);
+    }
+
+    @Benchmark
+    public GridRange getGridRangeUncached() throws GoogleException {
+        return GoogleDocsUtils.getGridRange(0, ranges[next++ & (DISTINCT - 1)]);
+    }
+}
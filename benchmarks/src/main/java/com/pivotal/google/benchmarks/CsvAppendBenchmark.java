@@ -0,0 +1,63 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.benchmarks;
+
+import com.pivotal.google.docs.GoogleException;
+import com.pivotal.google.docs.GoogleSheet;
+import com.pivotal.google.docs.GoogleSpreadsheet;
+import com.pivotal.google.emulator.GoogleEmulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending CSV text to a sheet on the in-memory emulator with no latency, so the time is
+ * the parsing, type inference and JSON encoding done by the client plus the emulator
+ * storing the rows. The sheet is cleared after each append so that it doesn't grow
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvAppendBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean inferTypes;
+
+    private GoogleSheet sheet;
+    private String csv;
+
+    @Setup
+    public void setup() throws GoogleException {
+        sheet = GoogleSpreadsheet.create(new GoogleEmulator().newContext(), "benchmark", null).getSheets().get(0);
+        StringBuilder builder = new StringBuilder("id,name,amount,active,created,time\n");
+        for (int row = 0; row < rows; row++) {
+            builder.append(row).append(",\"Name, ").append(row).append("\",")
+                    .append(row * 1.25).append(',')
+                    .append(row % 2 == 0).append(',')
+                    .append(String.format("2024-%02d-%02d", row % 12 + 1, row % 28 + 1)).append(',')
+                    .append(String.format("%02d:%02d:00", row % 24, row % 60)).append('\n');
+        }
+        csv = builder.toString();
+    }
+
+    @Benchmark
+    public void appendCsvValues() throws GoogleException {
+        sheet.appendCsvValues(null, new StringReader(csv), true, inferTypes);
+    }
+
+    @TearDown(Level.Invocation)
+    public void clear() throws GoogleException {
+        sheet.clearData();
+    }
+}
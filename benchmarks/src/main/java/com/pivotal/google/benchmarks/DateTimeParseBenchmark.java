@@ -0,0 +1,54 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.benchmarks;
+
+import com.pivotal.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of free format dates and times, which CSV type inference does for every cell of
+ * a date or time column
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeParseBenchmark {
+
+    /**
+     * Dates in each of the common forms, including one that isn't a date
+     */
+    @State(Scope.Benchmark)
+    public static class Dates {
+        @Param({"2024-03-15", "15/03/2024", "15 March 2024", "15-Mar-24", "not a date"})
+        public String date;
+    }
+
+    /**
+     * Times in each of the common forms, including one that isn't a time
+     */
+    @State(Scope.Benchmark)
+    public static class Times {
+        @Param({"12:34", "12:34:56", "1:05 PM", "12:34:56.789", "not a time"})
+        public String time;
+    }
+
+    @Benchmark
+    public LocalDate parseDate(Dates dates) {
+        return Utils.parseDate(dates.date, true);
+    }
+
+    @Benchmark
+    public LocalTime parseTime(Times times) {
+        return Utils.parseTime(times.time);
+    }
+}
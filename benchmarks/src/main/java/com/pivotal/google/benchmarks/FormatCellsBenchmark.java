@@ -0,0 +1,54 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.benchmarks;
+
+import com.pivotal.google.docs.GoogleException;
+import com.pivotal.google.docs.GoogleSheet;
+import com.pivotal.google.docs.GoogleSpreadsheet;
+import com.pivotal.google.emulator.GoogleEmulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the requests for formatting cells. The sheet is on the in-memory emulator and
+ * the requests go into a batch that is thrown away, so nothing is sent and only the
+ * building of the requests is timed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatCellsBenchmark {
+
+    private GoogleSheet sheet;
+
+    @Setup
+    public void setup() throws GoogleException {
+        sheet = GoogleSpreadsheet.create(new GoogleEmulator().newContext(), "benchmark", null).getSheets().get(0);
+    }
+
+    @Benchmark
+    public void formatCells() throws GoogleException {
+        sheet.batchStart();
+        sheet.formatCells("A1:Z1", "A2:A1000", "C2:C1000")
+                .backgroundColor(Color.YELLOW)
+                .foregroundColor(Color.BLACK)
+                .bold()
+                .fontSize(12)
+                .alignCenter()
+                .wrapClip()
+                .number()
+                .numberPattern("#,##0.00")
+                .padding(2)
+                .apply();
+        sheet.batchClear();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.benchmarks;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.sheets.v4.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of the large payloads the library sends, a block of values for an append
+ * and a batch of formatting requests, and parsing of a block of values read back
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private static final JsonFactory JSON = GsonFactory.getDefaultInstance();
+    private static final int COLUMNS = 20;
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private ValueRange values;
+    private BatchUpdateSpreadsheetRequest batch;
+    private byte[] valuesJson;
+
+    @Setup
+    public void setup() throws IOException {
+        List<List<Object>> data = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            List<Object> rowValues = new ArrayList<>();
+            for (int column = 0; column < COLUMNS; column++) {
+                switch (column % 4) {
+                    case 0:
+                        rowValues.add("Text value " + row + '-' + column);
+                        break;
+                    case 1:
+                        rowValues.add(row * 1.5 + column);
+                        break;
+                    case 2:
+                        rowValues.add(row % 2 == 0);
+                        break;
+                    default:
+                        rowValues.add(row * column);
+                        break;
+                }
+            }
+            data.add(rowValues);
+        }
+        values = new ValueRange().setRange("Sheet1!A1").setValues(data);
+        valuesJson = JSON.toByteArray(values);
+
+        // One formatting request per row, which is what formatting a row at a time produces
+        List<Request> requests = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            CellFormat format = new CellFormat()
+                    .setBackgroundColor(new Color().setRed(1F).setGreen(0.9F).setBlue(0.8F))
+                    .setTextFormat(new TextFormat().setBold(true).setFontSize(10))
+                    .setHorizontalAlignment("CENTER")
+                    .setNumberFormat(new NumberFormat().setType("NUMBER").setPattern("#,##0.00"));
+            requests.add(new Request().setRepeatCell(new RepeatCellRequest()
+                    .setRange(new GridRange().setSheetId(0).setStartRowIndex(row).setEndRowIndex(row + 1).setStartColumnIndex(0).setEndColumnIndex(COLUMNS))
+                    .setCell(new CellData().setUserEnteredFormat(format))
+                    .setFields("userEnteredFormat(backgroundColor,textFormat,horizontalAlignment,numberFormat)")));
+        }
+        batch = new BatchUpdateSpreadsheetRequest().setRequests(requests);
+    }
+
+    @Benchmark
+    public byte[] serializeValues() throws IOException {
+        return JSON.toByteArray(values);
+    }
+
+    @Benchmark
+    public byte[] serializeBatchUpdate() throws IOException {
+        return JSON.toByteArray(batch);
+    }
+
+    @Benchmark
+    public ValueRange parseValues() throws IOException {
+        return JSON.fromInputStream(new ByteArrayInputStream(valuesJson), StandardCharsets.UTF_8, ValueRange.class);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.benchmarks;
+
+import com.pivotal.google.GoogleServiceContext;
+import com.pivotal.google.docs.*;
+import com.pivotal.google.emulator.GoogleEmulator;
+
+import java.awt.Color;
+import java.util.*;
+
+/**
+ * Runs whole workflows through GoogleSheet, GoogleSpreadsheet and GoogleFile against the
+ * in-memory emulator, with latency and quotas like Google's, and reports the throughput,
+ * call latencies, calls made, bytes sent each way and the number of 429s.
+ * Only the workflow itself is measured, anything it needs to already exist, such as the
+ * tabs of the report or the files of the folder, is created first with no latency.
+ * The settings are given as name=value arguments e.g.
+ * <pre>
+ *     java -Xmx4g -cp benchmarks/target/benchmarks.jar com.pivotal.google.benchmarks.LoadHarness scenarios=append,list latency=50
+ * </pre>
+ * <ul>
+ *     <li>scenarios - comma separated list of append, bulk-load, format and list (all of them)</li>
+ *     <li>rows - rows to append or bulk load (1000000)</li>
+ *     <li>tabs - tabs in the report to format (50)</li>
+ *     <li>files - files in the folder to list (10000)</li>
+ *     <li>latency - milliseconds per call (20) and jitter - most random milliseconds added to that (10)</li>
+ *     <li>readQuota and writeQuota - Sheets calls allowed per quotaWindow milliseconds (300, 300, 60000)</li>
+ *     <li>throttleProbability - chance of any call being refused (0)</li>
+ *     <li>clientLimiter - true to use the library's own rate limiter rather than relying on retries (false)</li>
+ * </ul>
+ */
+public class LoadHarness {
+
+    private static final int COLUMNS = 6;
+
+    private final Map<String, String> settings;
+    private final GoogleEmulator emulator = new GoogleEmulator();
+    private final GoogleServiceContext context;
+
+    /**
+     * A workflow to run
+     */
+    private interface Scenario {
+        /**
+         * Creates anything the workflow needs, which isn't measured
+         *
+         * @throws GoogleException If the setup fails
+         */
+        void setup() throws GoogleException;
+
+        /**
+         * Runs the workflow
+         *
+         * @return Number of items (rows, tabs or files) processed
+         * @throws GoogleException If the workflow fails
+         */
+        long run() throws GoogleException;
+    }
+
+    /**
+     * Creates the harness and the emulator it runs against
+     *
+     * @param settings Settings from the command line
+     */
+    public LoadHarness(Map<String, String> settings) {
+        this.settings = settings;
+        emulator.readQuota(getInt("readQuota", 300))
+                .writeQuota(getInt("writeQuota", 300))
+                .quotaWindow(getInt("quotaWindow", 60000))
+                .throttleProbability(Double.parseDouble(get("throttleProbability", "0")))
+                .seed(getInt("seed", 1));
+        context = GoogleServiceContext.builder()
+                .noCredentials()
+                .transport(emulator)
+                .rateLimiter(Boolean.parseBoolean(get("clientLimiter", "false")) ? new RateLimiter() : RateLimiter.unlimited())
+                .build();
+    }
+
+    /**
+     * Runs the scenarios given on the command line
+     *
+     * @param args Settings as name=value
+     * @throws GoogleException If a scenario fails
+     */
+    public static void main(String[] args) throws GoogleException {
+        Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Settings must be name=value: " + arg);
+            }
+            settings.put(arg.substring(0, equals).trim(), arg.substring(equals + 1).trim());
+        }
+        LoadHarness harness = new LoadHarness(settings);
+        for (String scenario : harness.get("scenarios", "append,bulk-load,format,list").split(",")) {
+            harness.run(scenario.trim());
+        }
+    }
+
+    /**
+     * Sets up and runs a scenario and prints its results
+     *
+     * @param name Name of the scenario
+     * @throws GoogleException If the scenario fails
+     */
+    public void run(String name) throws GoogleException {
+        Scenario scenario;
+        String unit;
+        switch (name) {
+            case "append":
+                scenario = appendScenario(false);
+                unit = "rows";
+                break;
+            case "bulk-load":
+                scenario = appendScenario(true);
+                unit = "rows";
+                break;
+            case "format":
+                scenario = formatScenario();
+                unit = "tabs";
+                break;
+            case "list":
+                scenario = listScenario();
+                unit = "files";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + name);
+        }
+
+        // Set up without latency, then measure just the workflow
+        emulator.latency(0).jitter(0);
+        scenario.setup();
+        emulator.latency(getInt("latency", 20)).jitter(getInt("jitter", 10));
+        emulator.resetStats();
+        long start = System.nanoTime();
+        long items = scenario.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report(name, items, unit, seconds);
+    }
+
+    /**
+     * Appends rows to a new spreadsheet, either in order with appendValues or in parallel with bulkLoad
+     *
+     * @param bulk True to use bulkLoad
+     * @return Scenario
+     */
+    private Scenario appendScenario(boolean bulk) {
+        return new Scenario() {
+            private GoogleSheet sheet;
+            private List<List<Object>> rows;
+
+            @Override
+            public void setup() throws GoogleException {
+                sheet = GoogleSpreadsheet.create(context, bulk ? "bulk-load" : "append", null).getSheets().get(0);
+                rows = getRows(getInt("rows", 1000000));
+            }
+
+            @Override
+            public long run() throws GoogleException {
+                if (bulk) {
+                    sheet.bulkLoad(null, rows);
+                }
+                else {
+                    sheet.appendValues(null, rows);
+                }
+                return rows.size();
+            }
+        };
+    }
+
+    /**
+     * Formats every tab of a report as a single batch, as a report generator would
+     *
+     * @return Scenario
+     */
+    private Scenario formatScenario() {
+        return new Scenario() {
+            private GoogleSpreadsheet spreadsheet;
+            private List<GoogleSheet> sheets;
+
+            @Override
+            public void setup() throws GoogleException {
+                spreadsheet = GoogleSpreadsheet.create(context, "report", null);
+                List<List<Object>> rows = getRows(200);
+                for (int tab = 1; tab <= getInt("tabs", 50); tab++) {
+                    spreadsheet.addSheet("Tab " + tab).appendValues(null, rows);
+                }
+                sheets = spreadsheet.getSheets();
+            }
+
+            @Override
+            public long run() throws GoogleException {
+                spreadsheet.batchStart(BatchLimits.payloadSafe());
+                for (GoogleSheet sheet : sheets) {
+                    sheet.formatCells("A1:F1").backgroundColor(Color.DARK_GRAY).foregroundColor(Color.WHITE).bold().alignCenter().apply();
+                    sheet.formatCells("C2:C201").number().numberPattern("#,##0.00").alignRight().apply();
+                    sheet.formatCells("E2:E201").date().apply();
+                    sheet.formatCells("A2:F201").fontSize(10).wrapClip().padding(2).apply();
+                    sheet.freezeRowsAndColumns(1, 1);
+                    sheet.setColumnWidth(120, 0, COLUMNS);
+                }
+                spreadsheet.batchExecute();
+                return sheets.size();
+            }
+        };
+    }
+
+    /**
+     * Lists a folder of files, opening each of them as GoogleFile.list() does
+     *
+     * @return Scenario
+     */
+    private Scenario listScenario() {
+        return new Scenario() {
+            private GoogleFile folder;
+
+            @Override
+            public void setup() throws GoogleException {
+                folder = GoogleFile.createFolder(context, "folder", null);
+                for (int file = 0; file < getInt("files", 10000); file++) {
+                    GoogleFile.createFolder(context, String.format("file-%06d", file), folder.getFileId());
+                }
+            }
+
+            @Override
+            public long run() {
+                return folder.list().size();
+            }
+        };
+    }
+
+    /**
+     * Prints the results of a scenario
+     *
+     * @param name    Name of the scenario
+     * @param items   Number of items processed
+     * @param unit    What the items are
+     * @param seconds How long it took
+     */
+    private void report(String name, long items, String unit, double seconds) {
+        long requests = emulator.getRequestCount();
+        System.out.printf("%nScenario %s: %,d %s%n", name, items, unit);
+        System.out.printf("  Elapsed         %,.3f s%n", seconds);
+        System.out.printf("  Throughput      %,.1f %s/s, %,.1f requests/s%n", items / seconds, unit, requests / seconds);
+        System.out.printf("  Requests        %,d (%,d refused with 429)%n", requests, emulator.getThrottledCount());
+        System.out.printf("  Bytes sent      %,d%n", emulator.getBytesReceived());
+        System.out.printf("  Bytes received  %,d%n", emulator.getBytesSent());
+        System.out.printf("  Latency ms      p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                emulator.getLatencyPercentile(null, 50), emulator.getLatencyPercentile(null, 90),
+                emulator.getLatencyPercentile(null, 99), emulator.getLatencyPercentile(null, 100));
+        for (Map.Entry<String, Long> entry : emulator.getOperationCounts().entrySet()) {
+            System.out.printf("    %-28s %,8d calls  p50 %.1f  p99 %.1f ms%n", entry.getKey(), entry.getValue(),
+                    emulator.getLatencyPercentile(entry.getKey(), 50), emulator.getLatencyPercentile(entry.getKey(), 99));
+        }
+    }
+
+    /**
+     * Returns rows of typical data, an ID, some text, an amount, a flag, a date and a code
+     *
+     * @param count Number of rows
+     * @return Rows of values
+     */
+    private static List<List<Object>> getRows(int count) {
+        List<List<Object>> rows = new ArrayList<>(count);
+        for (int row = 0; row < count; row++) {
+            rows.add(Arrays.asList(row, "Customer " + (row % 5000), row * 1.25, row % 3 == 0, String.format("2024-%02d-%02d", row % 12 + 1, row % 28 + 1), "C" + (row % 97)));
+        }
+        return rows;
+    }
+
+    /**
+     * Returns a setting
+     *
+     * @param name         Name of the setting
+     * @param defaultValue Value to use if it isn't given
+     * @return Value
+     */
+    private String get(String name, String defaultValue) {
+        return settings.getOrDefault(name, defaultValue);
+    }
+
+    /**
+     * Returns a whole number setting
+     *
+     * @param name         Name of the setting
+     * @param defaultValue Value to use if it isn't given
+     * @return Value
+     */
+    private int getInt(String name, int defaultValue) {
+        return Integer.parseInt(get(name, String.valueOf(defaultValue)));
+    }
+}
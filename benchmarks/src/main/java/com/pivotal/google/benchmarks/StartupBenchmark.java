@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.benchmarks;
+
+import com.pivotal.google.GoogleServiceContext;
+import com.pivotal.google.docs.GoogleException;
+import com.pivotal.google.docs.GoogleSpreadsheet;
+import com.pivotal.google.emulator.GoogleEmulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of starting up, measured once in each of a number of fresh JVMs so that class loading
+ * and the building of the Sheets and Drive clients are included. Creating a context should be
+ * cheap because the services are built on first use, and the first request pays for them
+ * unless the context was warmed up beforehand
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+
+    /**
+     * A context created before the measurement, optionally warmed up
+     */
+    @State(Scope.Benchmark)
+    public static class Started {
+
+        @Param({"false", "true"})
+        public boolean warmUp;
+
+        private GoogleServiceContext context;
+
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            context = new GoogleEmulator().newContext();
+            if (warmUp) {
+                context.warmUp();
+            }
+        }
+    }
+
+    @Benchmark
+    public GoogleServiceContext createContext() {
+        return new GoogleEmulator().newContext();
+    }
+
+    @Benchmark
+    public GoogleServiceContext createContextAndWarmUp() throws IOException {
+        GoogleServiceContext context = new GoogleEmulator().newContext();
+        context.warmUp();
+        return context;
+    }
+
+    @Benchmark
+    public GoogleSpreadsheet firstRequest(Started started) throws GoogleException {
+        return GoogleSpreadsheet.create(started.context, "startup", null);
+    }
+}
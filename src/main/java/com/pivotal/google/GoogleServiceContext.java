@@ -0,0 +1,323 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.DriveScopes;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.SheetsScopes;
+import com.google.auth.Credentials;
+import com.google.auth.http.HttpCredentialsAdapter;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.pivotal.google.docs.DeferredBackOff;
+import com.pivotal.google.docs.RateLimiter;
+import com.pivotal.google.docs.RetryPolicy;
+import com.pivotal.utils.EzGdocs4jException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The credentials, transport and settings used to talk to the Google APIs along with
+ * the services built from them.
+ * Every GoogleSpreadsheet, GoogleSheet and GoogleFile is bound to a context, which allows
+ * multiple service accounts to be used in the same JVM, or the APIs to be pointed at
+ * a local server for testing. Anything not bound to a specific context uses
+ * {@link GoogleServiceFactory#getDefaultContext()}
+ * The Sheets and Drive services are each built the first time they are needed, so a
+ * tool that only uses one of them doesn't pay for the other
+ */
+@Slf4j
+@Getter
+public class GoogleServiceContext {
+
+    public static final String DEFAULT_APPLICATION_NAME = "ezgdocs4j";
+    public static final List<String> DEFAULT_SCOPES = Collections.unmodifiableList(Arrays.asList(SheetsScopes.SPREADSHEETS, DriveScopes.DRIVE, "https://www.googleapis.com/auth/cloud-billing.readonly"));
+
+    private final Credentials credentials;
+    private final HttpTransport transport;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final String applicationName;
+    private final String rootUrl;
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    @Getter(AccessLevel.NONE)
+    private final HttpRequestInitializer requestInitializer;
+    private volatile Sheets.Spreadsheets sheetsService = null;
+    private volatile Drive.Files filesService = null;
+
+    /**
+     * Creates the context from the builder, the services are created on first use
+     *
+     * @param builder Builder with the settings
+     */
+    private GoogleServiceContext(Builder builder) {
+        this.credentials = builder.credentials;
+        this.transport = builder.transport == null ? new NetHttpTransport() : builder.transport;
+        this.connectTimeout = builder.connectTimeout;
+        this.readTimeout = builder.readTimeout;
+        this.applicationName = builder.applicationName;
+        this.rootUrl = builder.rootUrl;
+        this.rateLimiter = builder.rateLimiter == null ? new RateLimiter() : builder.rateLimiter;
+        this.retryPolicy = builder.retryPolicy == null ? new RetryPolicy() : builder.retryPolicy;
+        this.requestInitializer = new RequestInitializer();
+    }
+
+    /**
+     * Returns the Sheets service, creating it if this is the first time it has been used
+     *
+     * @return Sheets service
+     */
+    public Sheets.Spreadsheets getSheetsService() {
+        if (sheetsService == null) {
+            synchronized (this) {
+                if (sheetsService == null) {
+                    Sheets.Builder sheetsBuilder = new Sheets.Builder(transport, GsonFactory.getDefaultInstance(), requestInitializer).setApplicationName(applicationName);
+                    if (rootUrl != null) {
+                        sheetsBuilder.setRootUrl(rootUrl);
+                    }
+                    sheetsService = sheetsBuilder.build().spreadsheets();
+                }
+            }
+        }
+        return sheetsService;
+    }
+
+    /**
+     * Returns the Drive files service, creating it if this is the first time it has been used
+     *
+     * @return Drive files service
+     */
+    public Drive.Files getFilesService() {
+        if (filesService == null) {
+            synchronized (this) {
+                if (filesService == null) {
+                    Drive.Builder driveBuilder = new Drive.Builder(transport, GsonFactory.getDefaultInstance(), requestInitializer).setApplicationName(applicationName);
+                    if (rootUrl != null) {
+                        driveBuilder.setRootUrl(rootUrl);
+                    }
+                    filesService = driveBuilder.build().files();
+                }
+            }
+        }
+        return filesService;
+    }
+
+    /**
+     * Creates both services and fetches an access token up front, for servers that would
+     * rather pay the cost at startup than on the first request
+     *
+     * @throws IOException If the access token cannot be fetched
+     */
+    public void warmUp() throws IOException {
+        getSheetsService();
+        getFilesService();
+        if (credentials != null) {
+            credentials.getRequestMetadata();
+        }
+    }
+
+    /**
+     * Returns a builder to configure a new context
+     *
+     * @return Builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Initialises every request with the credentials and timeouts for this context
+     */
+    private class RequestInitializer implements HttpRequestInitializer {
+        private final HttpCredentialsAdapter credentialsAdapter = credentials == null ? null : new HttpCredentialsAdapter(credentials);
+
+        @Override
+        public void initialize(HttpRequest request) throws IOException {
+            if (credentialsAdapter != null) {
+                credentialsAdapter.initialize(request);
+            }
+            request.setConnectTimeout(connectTimeout);
+            request.setReadTimeout(readTimeout);
+            request.setResponseInterceptor(DeferredBackOff::recordResponse);
+        }
+    }
+
+    /**
+     * Builds a GoogleServiceContext, only the settings that differ from the defaults
+     * need to be set but credentials are required unless noCredentials() is used
+     */
+    @SuppressWarnings("unused")
+    public static class Builder {
+        private Credentials credentials = null;
+        private boolean anonymous = false;
+        private HttpTransport transport = null;
+        private int connectTimeout = GoogleServiceFactory.CONNECT_TIMEOUT;
+        private int readTimeout = GoogleServiceFactory.READ_TIMEOUT;
+        private String applicationName = DEFAULT_APPLICATION_NAME;
+        private String rootUrl = null;
+        private RateLimiter rateLimiter = null;
+        private RetryPolicy retryPolicy = null;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the credentials to use, Google credentials that need scoping are given the default scopes
+         *
+         * @param credentials Credentials
+         * @return Builder for chaining
+         */
+        public Builder credentials(Credentials credentials) {
+            if (credentials instanceof GoogleCredentials && ((GoogleCredentials) credentials).createScopedRequired()) {
+                credentials = ((GoogleCredentials) credentials).createScoped(DEFAULT_SCOPES);
+            }
+            this.credentials = credentials;
+            return this;
+        }
+
+        /**
+         * Reads the credentials from a JSON stream e.g. a service account key
+         *
+         * @param stream Stream to read, it is not closed
+         * @return Builder for chaining
+         * @throws IOException If the credentials cannot be read
+         */
+        public Builder credentials(InputStream stream) throws IOException {
+            return credentials(GoogleCredentials.fromStream(stream));
+        }
+
+        /**
+         * Reads the credentials from a JSON file e.g. a service account key
+         *
+         * @param filename File to read
+         * @return Builder for chaining
+         * @throws IOException If the credentials cannot be read
+         */
+        public Builder credentialsFile(String filename) throws IOException {
+            try (InputStream stream = Files.newInputStream(Paths.get(filename))) {
+                return credentials(stream);
+            }
+        }
+
+        /**
+         * Sends requests without any credentials, only useful for local test servers
+         *
+         * @return Builder for chaining
+         */
+        public Builder noCredentials() {
+            this.credentials = null;
+            this.anonymous = true;
+            return this;
+        }
+
+        /**
+         * Sets the HTTP transport, the default is a new NetHttpTransport
+         *
+         * @param transport Transport to use
+         * @return Builder for chaining
+         */
+        public Builder transport(HttpTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Sets the connection timeout
+         *
+         * @param connectTimeout Milliseconds
+         * @return Builder for chaining
+         */
+        public Builder connectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the read timeout
+         *
+         * @param readTimeout Milliseconds
+         * @return Builder for chaining
+         */
+        public Builder readTimeout(int readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the application name sent to Google with each request
+         *
+         * @param applicationName Name of the application
+         * @return Builder for chaining
+         */
+        public Builder applicationName(String applicationName) {
+            this.applicationName = applicationName;
+            return this;
+        }
+
+        /**
+         * Sets the root URL of both the Sheets and Drive services e.g. http://localhost:8080/
+         *
+         * @param rootUrl URL of the server
+         * @return Builder for chaining
+         */
+        public Builder rootUrl(String rootUrl) {
+            this.rootUrl = rootUrl == null || rootUrl.endsWith("/") ? rootUrl : rootUrl + "/";
+            return this;
+        }
+
+        /**
+         * Sets the rate limiter shared by every call made through the context, the default
+         * is a limiter with the standard Google quotas. Use {@link RateLimiter#unlimited()}
+         * to turn client side limiting off
+         *
+         * @param rateLimiter Rate limiter to use
+         * @return Builder for chaining
+         */
+        public Builder rateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sets the policy used to retry failed calls made through the context
+         *
+         * @param retryPolicy Retry policy to use
+         * @return Builder for chaining
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Creates the context
+         *
+         * @return GoogleServiceContext
+         */
+        public GoogleServiceContext build() {
+            if (credentials == null && !anonymous) {
+                throw new EzGdocs4jException("No credentials have been specified for the Google service context");
+            }
+            return new GoogleServiceContext(this);
+        }
+    }
+}
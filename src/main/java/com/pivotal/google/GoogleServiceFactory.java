@@ -6,30 +6,15 @@
  */
 package com.pivotal.google;
 
-import com.google.api.client.http.HttpRequest;
-import com.google.api.client.http.HttpRequestInitializer;
-import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.drive.Drive;
-import com.google.api.services.drive.DriveScopes;
 import com.google.api.services.sheets.v4.Sheets;
-import com.google.api.services.sheets.v4.SheetsScopes;
-import com.google.auth.Credentials;
-import com.google.auth.http.HttpCredentialsAdapter;
-import com.google.auth.oauth2.GoogleCredentials;
 import com.pivotal.utils.EzGdocs4jException;
 import lombok.AccessLevel;
-import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Locale;
 
 /**
@@ -43,73 +28,114 @@ public class GoogleServiceFactory {
     public static final int CONNECT_TIMEOUT = 20000;
     public static final int READ_TIMEOUT = 360000;
 
-    // Efficient multi-threaded HTTP client
-    private static final HttpTransport httpTransport = new NetHttpTransport();
+    // The context used by anything that isn't bound to a specific one, created on first use
+    private static volatile GoogleServiceContext defaultContext = null;
 
-    @Getter(AccessLevel.PUBLIC)
-    private static Sheets.Spreadsheets sheetsService = null;
+    /**
+     * Returns the context that is used by anything not bound to a specific context
+     * The first call looks for the credentials file in the known locations and creates the
+     * context, if that fails, the exception is thrown to the caller and the next call tries again
+     *
+     * @return Default context
+     */
+    public static GoogleServiceContext getDefaultContext() {
+        GoogleServiceContext context = defaultContext;
+        if (context == null) {
+            synchronized (GoogleServiceFactory.class) {
+                context = defaultContext;
+                if (context == null) {
+                    context = createDefaultContext();
+                    defaultContext = context;
+                }
+            }
+        }
+        return context;
+    }
 
-    @Getter(AccessLevel.PUBLIC)
-    private static Drive.Files filesService = null;
+    /**
+     * Creates the default context and its services and fetches an access token so that
+     * the cost isn't paid by the first request
+     *
+     * @throws IOException If the access token cannot be fetched
+     */
+    public static void warmUp() throws IOException {
+        getDefaultContext().warmUp();
+    }
 
-    // Initialise the credentials by looking for the token filename in multiple places
-    static {
+    /**
+     * Replaces the default context e.g. to point everything at a test server
+     *
+     * @param context Context to use by default
+     */
+    public static void setDefaultContext(GoogleServiceContext context) {
+        defaultContext = context;
+    }
 
-        // Get the token filename from the known locations, starting with a system variable
-        String tokenFilename = System.getProperty(SYSTEM_GOOGLE_CREDENTIALS_FILENAME);
-        if (tokenFilename == null || tokenFilename.isEmpty() || !new File(tokenFilename).exists()) {
+    /**
+     * Returns the Sheets service of the default context
+     *
+     * @return Sheets service
+     */
+    public static Sheets.Spreadsheets getSheetsService() {
+        return getDefaultContext().getSheetsService();
+    }
 
-            // Now try an environment variable
-            tokenFilename = System.getenv(ENV_GOOGLE_CREDENTIALS_FILENAME);
-            if (tokenFilename == null || tokenFilename.isEmpty() || !new File(tokenFilename).exists()) {
+    /**
+     * Returns the Drive files service of the default context
+     *
+     * @return Drive files service
+     */
+    public static Drive.Files getFilesService() {
+        return getDefaultContext().getFilesService();
+    }
 
-                // Now try a known directory
-                String os = System.getProperty("os.name", "generic").toLowerCase(Locale.ENGLISH);
-                boolean isWindows = os.contains("win");
-                tokenFilename = System.getenv(isWindows ? "USERPROFILE" : "HOME") + (isWindows ? "\\.google\\" : "/.google/") + "credentials.json";
-                if (!new File(tokenFilename).exists()) {
-                    String error = String.format("Cannot find Google credentials token filename in %s, %s or a file called %s", SYSTEM_GOOGLE_CREDENTIALS_FILENAME, ENV_GOOGLE_CREDENTIALS_FILENAME, tokenFilename);
-                    log.error(error);
-                    throw new EzGdocs4jException("error");
-                }
-            }
+    /**
+     * Creates the default context by looking for the token filename in multiple places
+     *
+     * @return Default context
+     */
+    private static GoogleServiceContext createDefaultContext() {
+        String tokenFilename = getCredentialsFilename();
+        if (tokenFilename == null) {
+            String error = String.format("Cannot find Google credentials token filename in %s, %s or a file called credentials.json in the .google folder of the users home directory", SYSTEM_GOOGLE_CREDENTIALS_FILENAME, ENV_GOOGLE_CREDENTIALS_FILENAME);
+            log.error(error);
+            throw new EzGdocs4jException(error);
         }
 
-        // If we have a token filename, then create the required services for all the other
+        // If we have a token filename, then create the context for all the services
         try {
-            List<String> scopes = Arrays.asList(SheetsScopes.SPREADSHEETS, DriveScopes.DRIVE, "https://www.googleapis.com/auth/cloud-billing.readonly");
-            GoogleCredentials credentials = GoogleCredentials.fromStream(Files.newInputStream(Paths.get(tokenFilename))).createScoped(scopes);
-            HttpRequestInitializer requestInitializer = new LocalHttpCredentialsAdapter(credentials);
-
-            // Create a sheets service to use
-            Sheets sheets = new Sheets.Builder(httpTransport, GsonFactory.getDefaultInstance(), requestInitializer).setApplicationName("ezgdocs4j").build();
-            sheetsService = sheets.spreadsheets();
-
-            // Create a files service that connects us to the default drive
-            Drive drive = new Drive.Builder(httpTransport, GsonFactory.getDefaultInstance(), requestInitializer).setApplicationName("ezgdocs4j").build();
-            filesService = drive.files();
+            return GoogleServiceContext.builder().credentialsFile(tokenFilename).build();
         }
         catch (IOException e) {
-            log.error("Cannot initialise Google Sheets API service", e);
+            log.error("Cannot initialise Google API services", e);
             throw new EzGdocs4jException(e);
         }
     }
 
     /**
-     * Subclass of the standard Credentials Adapter to allow us to modify the
-     * transport timeouts
+     * Gets the credentials token filename from the known locations, starting with a system
+     * variable, then an environment variable and finally a known directory
+     *
+     * @return Filename or null if none of the locations have a file
      */
-    private static class LocalHttpCredentialsAdapter extends HttpCredentialsAdapter {
-        public LocalHttpCredentialsAdapter(Credentials credentials) {
-            super(credentials);
-        }
+    protected static String getCredentialsFilename() {
+        String tokenFilename = System.getProperty(SYSTEM_GOOGLE_CREDENTIALS_FILENAME);
+        if (tokenFilename == null || tokenFilename.isEmpty() || !new File(tokenFilename).exists()) {
+
+            // Now try an environment variable
+            tokenFilename = System.getenv(ENV_GOOGLE_CREDENTIALS_FILENAME);
+            if (tokenFilename == null || tokenFilename.isEmpty() || !new File(tokenFilename).exists()) {
 
-        @Override
-        public void initialize(HttpRequest request) throws IOException {
-            super.initialize(request);
-            request.setConnectTimeout(CONNECT_TIMEOUT);
-            request.setReadTimeout(READ_TIMEOUT);
+                // Now try a known directory
+                String os = System.getProperty("os.name", "generic").toLowerCase(Locale.ENGLISH);
+                boolean isWindows = os.contains("win");
+                tokenFilename = System.getenv(isWindows ? "USERPROFILE" : "HOME") + (isWindows ? "\\.google\\" : "/.google/") + "credentials.json";
+                if (!new File(tokenFilename).exists()) {
+                    return null;
+                }
+            }
         }
+        return tokenFilename;
     }
 
 }
@@ -0,0 +1,241 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetResponse;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous view of a GoogleSheet where every call returns a CompletableFuture
+ * Operations on the same instance are run one at a time, in the order they were called,
+ * so that things like batches behave as they do in the blocking API. Operations on
+ * different instances run concurrently on the executor
+ */
+public class AsyncGoogleSheet {
+
+    @Getter
+    private final GoogleSheet sheet;
+    @Getter
+    private final GoogleAsyncExecutor executor;
+
+    private CompletableFuture<?> last = CompletableFuture.completedFuture(null);
+
+    /**
+     * An operation on the underlying sheet
+     *
+     * @param <T> Type of the result
+     */
+    @FunctionalInterface
+    public interface SheetOperation<T> {
+        T apply(GoogleSheet sheet) throws GoogleException;
+    }
+
+    /**
+     * Wraps the sheet using the default executor
+     *
+     * @param sheet Sheet to wrap
+     */
+    public AsyncGoogleSheet(GoogleSheet sheet) {
+        this(sheet, GoogleAsyncExecutor.getDefault());
+    }
+
+    /**
+     * Wraps the sheet using the given executor
+     *
+     * @param sheet    Sheet to wrap
+     * @param executor Executor to run the operations on
+     */
+    public AsyncGoogleSheet(GoogleSheet sheet, GoogleAsyncExecutor executor) {
+        this.sheet = sheet;
+        this.executor = executor;
+    }
+
+    /**
+     * Runs any operation against the sheet after all the previous ones have finished
+     * e.g. {@code async.call(sheet -> { sheet.formatCells("A1:C1").bold().apply(); return null; })}
+     *
+     * @param operation Operation to run
+     * @param <T>       Type of the result
+     * @return Future that completes with the result of the operation
+     */
+    public synchronized <T> CompletableFuture<T> call(SheetOperation<T> operation) {
+        CompletableFuture<T> future = executor.submitAfter(last, () -> operation.apply(sheet));
+        last = future;
+        return future;
+    }
+
+    /**
+     * Returns the name of the sheet
+     *
+     * @return Name of the sheet
+     */
+    public String getName() {
+        return sheet.getName();
+    }
+
+    /**
+     * Returns the values from the given range
+     *
+     * @param range        A1 notation range to get
+     * @param renderOption How to render the values
+     * @return Future of the list of rows
+     */
+    public CompletableFuture<List<List<Object>>> getData(String range, GoogleSheet.ValueRenderOption renderOption) {
+        return call(sheet -> sheet.getData(range, renderOption));
+    }
+
+    /**
+     * Appends the rows of values to the sheet
+     *
+     * @param rangeStart Where to start appending e.g. A1 or null for the end of the data
+     * @param values     Rows of values
+     * @return Future that completes when the values have been appended
+     */
+    public CompletableFuture<Void> appendValues(String rangeStart, List<List<Object>> values) {
+        return call(sheet -> {
+            sheet.appendValues(rangeStart, values);
+            return null;
+        });
+    }
+
+    /**
+     * Appends the CSV text to the sheet
+     *
+     * @param rangeStart    Where to start appending e.g. A1 or null for the end of the data
+     * @param csvText       CSV text to append
+     * @param includeHeader True if the first line should be included
+     * @return Future that completes when the values have been appended
+     */
+    public CompletableFuture<Void> appendCsvValues(String rangeStart, String csvText, boolean includeHeader) {
+        return call(sheet -> {
+            sheet.appendCsvValues(rangeStart, csvText, includeHeader);
+            return null;
+        });
+    }
+
+    /**
+     * Clears the values and formatting from the whole sheet
+     *
+     * @return Future that completes when the sheet is cleared
+     */
+    public CompletableFuture<Void> clear() {
+        return call(sheet -> {
+            sheet.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Clears the values from the whole sheet
+     *
+     * @return Future that completes when the values are cleared
+     */
+    public CompletableFuture<Void> clearData() {
+        return call(sheet -> {
+            sheet.clearData();
+            return null;
+        });
+    }
+
+    /**
+     * Renames the sheet
+     *
+     * @param name New name
+     * @return Future that completes when the sheet is renamed
+     */
+    public CompletableFuture<Void> rename(String name) {
+        return call(sheet -> {
+            sheet.rename(name);
+            return null;
+        });
+    }
+
+    /**
+     * Deletes the sheet from the spreadsheet
+     *
+     * @return Future that completes when the sheet is deleted
+     */
+    public CompletableFuture<Void> delete() {
+        return call(sheet -> {
+            sheet.delete();
+            return null;
+        });
+    }
+
+    /**
+     * Duplicates the sheet within the spreadsheet
+     *
+     * @param name Name of the new sheet
+     * @return Future of the new sheet
+     */
+    public CompletableFuture<AsyncGoogleSheet> duplicate(String name) {
+        return call(sheet -> wrap(sheet.duplicate(name)));
+    }
+
+    /**
+     * Copies the sheet to another spreadsheet
+     *
+     * @param targetSpreadsheetId Spreadsheet to copy to
+     * @return Future of the new sheet
+     */
+    public CompletableFuture<AsyncGoogleSheet> copyTo(String targetSpreadsheetId) {
+        return call(sheet -> wrap(sheet.copyTo(targetSpreadsheetId)));
+    }
+
+    /**
+     * Returns the number of rows in the sheet
+     *
+     * @return Future of the row count
+     */
+    public CompletableFuture<Integer> getRowCount() {
+        return call(GoogleSheet::getRowCount);
+    }
+
+    /**
+     * Returns the number of columns in the sheet
+     *
+     * @return Future of the column count
+     */
+    public CompletableFuture<Integer> getColumnCount() {
+        return call(GoogleSheet::getColumnCount);
+    }
+
+    /**
+     * Starts a batch on the sheet, see {@link GoogleSheet#batchStart(BatchLimits)}
+     *
+     * @param limits Thresholds at which to send the pending requests
+     * @return Future that completes when the batch has been started
+     */
+    public CompletableFuture<Void> batchStart(BatchLimits limits) {
+        return call(sheet -> {
+            sheet.batchStart(limits);
+            return null;
+        });
+    }
+
+    /**
+     * Executes the batch on the sheet, see {@link GoogleSheet#batchExecute()}
+     *
+     * @return Future of the response or null if there was nothing to send
+     */
+    public CompletableFuture<BatchUpdateSpreadsheetResponse> batchExecute() {
+        return call(GoogleSheet::batchExecute);
+    }
+
+    /**
+     * Wraps a sheet returned by an operation using the same executor
+     *
+     * @param sheet Sheet to wrap
+     * @return Async sheet or null if there is no sheet
+     */
+    private AsyncGoogleSheet wrap(GoogleSheet sheet) {
+        return sheet == null ? null : new AsyncGoogleSheet(sheet, executor);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous view of a GoogleSpreadsheet where every call returns a CompletableFuture
+ * Operations on the same instance are run one at a time, in the order they were called.
+ * This makes it easy to fan out over many spreadsheets without a thread for each of them
+ * e.g.
+ * <pre>
+ * List&lt;CompletableFuture&lt;Void&gt;&gt; futures = ids.stream()
+ *         .map(id -&gt; AsyncGoogleSpreadsheet.open(id)
+ *                 .thenCompose(ss -&gt; ss.getSheetByName("Summary"))
+ *                 .thenCompose(sheet -&gt; sheet.appendValues(null, rows)))
+ *         .collect(Collectors.toList());
+ * CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+ * </pre>
+ */
+public class AsyncGoogleSpreadsheet {
+
+    @Getter
+    private final GoogleSpreadsheet spreadsheet;
+    @Getter
+    private final GoogleAsyncExecutor executor;
+
+    private CompletableFuture<?> last = CompletableFuture.completedFuture(null);
+
+    /**
+     * An operation on the underlying spreadsheet
+     *
+     * @param <T> Type of the result
+     */
+    @FunctionalInterface
+    public interface SpreadsheetOperation<T> {
+        T apply(GoogleSpreadsheet spreadsheet) throws GoogleException;
+    }
+
+    /**
+     * Wraps the spreadsheet using the default executor
+     *
+     * @param spreadsheet Spreadsheet to wrap
+     */
+    public AsyncGoogleSpreadsheet(GoogleSpreadsheet spreadsheet) {
+        this(spreadsheet, GoogleAsyncExecutor.getDefault());
+    }
+
+    /**
+     * Wraps the spreadsheet using the given executor
+     *
+     * @param spreadsheet Spreadsheet to wrap
+     * @param executor    Executor to run the operations on
+     */
+    public AsyncGoogleSpreadsheet(GoogleSpreadsheet spreadsheet, GoogleAsyncExecutor executor) {
+        this.spreadsheet = spreadsheet;
+        this.executor = executor;
+    }
+
+    /**
+     * Opens a spreadsheet using the default executor
+     *
+     * @param spreadsheetId Unique ID
+     * @return Future of the opened spreadsheet
+     */
+    public static CompletableFuture<AsyncGoogleSpreadsheet> open(String spreadsheetId) {
+        return open(spreadsheetId, GoogleAsyncExecutor.getDefault());
+    }
+
+    /**
+     * Opens a spreadsheet using the given executor
+     *
+     * @param spreadsheetId Unique ID
+     * @param executor      Executor to run the operations on
+     * @return Future of the opened spreadsheet
+     */
+    public static CompletableFuture<AsyncGoogleSpreadsheet> open(String spreadsheetId, GoogleAsyncExecutor executor) {
+        return executor.submit(() -> new AsyncGoogleSpreadsheet(new GoogleSpreadsheet(spreadsheetId), executor));
+    }
+
+    /**
+     * Creates a new spreadsheet in the given folder using the default executor
+     *
+     * @param name     Name to give the spreadsheet
+     * @param folderId Drive folder to create it in or null for the root folder
+     * @return Future of the new spreadsheet
+     */
+    public static CompletableFuture<AsyncGoogleSpreadsheet> create(String name, String folderId) {
+        GoogleAsyncExecutor executor = GoogleAsyncExecutor.getDefault();
+        return executor.submit(() -> new AsyncGoogleSpreadsheet(GoogleSpreadsheet.create(name, folderId), executor));
+    }
+
+    /**
+     * Runs any operation against the spreadsheet after all the previous ones have finished
+     *
+     * @param operation Operation to run
+     * @param <T>       Type of the result
+     * @return Future that completes with the result of the operation
+     */
+    public synchronized <T> CompletableFuture<T> call(SpreadsheetOperation<T> operation) {
+        CompletableFuture<T> future = executor.submitAfter(last, () -> operation.apply(spreadsheet));
+        last = future;
+        return future;
+    }
+
+    /**
+     * Returns the name of the spreadsheet
+     *
+     * @return Future of the name
+     */
+    public CompletableFuture<String> getName() {
+        return call(GoogleSpreadsheet::getName);
+    }
+
+    /**
+     * Returns the sheet with the given name
+     *
+     * @param name Name of the sheet
+     * @return Future of the sheet or null if it doesn't exist
+     */
+    public CompletableFuture<AsyncGoogleSheet> getSheetByName(String name) {
+        return call(spreadsheet -> wrap(spreadsheet.getSheetByName(name)));
+    }
+
+    /**
+     * Returns the sheet with the given ID
+     *
+     * @param sheetId ID of the sheet
+     * @return Future of the sheet or null if it doesn't exist
+     */
+    public CompletableFuture<AsyncGoogleSheet> getSheetById(int sheetId) {
+        return call(spreadsheet -> wrap(spreadsheet.getSheetById(sheetId)));
+    }
+
+    /**
+     * Returns all the sheets in the spreadsheet
+     *
+     * @return Future of the list of sheets
+     */
+    public CompletableFuture<List<AsyncGoogleSheet>> getSheets() {
+        return call(spreadsheet -> {
+            List<AsyncGoogleSheet> ret = new ArrayList<>();
+            for (GoogleSheet sheet : spreadsheet.getSheets()) {
+                ret.add(wrap(sheet));
+            }
+            return ret;
+        });
+    }
+
+    /**
+     * Adds a sheet to the spreadsheet, see {@link GoogleSpreadsheet#addSheet(String, int, boolean)}
+     *
+     * @param name           Name of the sheet
+     * @param position       Position of the sheet
+     * @param deleteIfExists True if an existing sheet with this name should be replaced
+     * @return Future of the new sheet
+     */
+    public CompletableFuture<AsyncGoogleSheet> addSheet(String name, int position, boolean deleteIfExists) {
+        return call(spreadsheet -> wrap(spreadsheet.addSheet(name, position, deleteIfExists)));
+    }
+
+    /**
+     * Copies a sheet from another spreadsheet
+     *
+     * @param fromSpreadsheetId Spreadsheet to copy from
+     * @param sheetName         Name of the sheet to copy
+     * @return Future of the new sheet or null if the sheet doesn't exist
+     */
+    public CompletableFuture<AsyncGoogleSheet> copyFrom(String fromSpreadsheetId, String sheetName) {
+        return call(spreadsheet -> wrap(spreadsheet.copyFrom(fromSpreadsheetId, sheetName)));
+    }
+
+    /**
+     * Renames the spreadsheet
+     *
+     * @param name New name
+     * @return Future that completes when the spreadsheet is renamed
+     */
+    public CompletableFuture<Void> rename(String name) {
+        return call(spreadsheet -> {
+            spreadsheet.rename(name);
+            return null;
+        });
+    }
+
+    /**
+     * Moves the spreadsheet to another folder
+     *
+     * @param folderId Folder to move to
+     * @return Future that completes when the spreadsheet is moved
+     */
+    public CompletableFuture<Void> move(String folderId) {
+        return call(spreadsheet -> {
+            spreadsheet.move(folderId);
+            return null;
+        });
+    }
+
+    /**
+     * Removes all the sheets from the spreadsheet
+     *
+     * @return Future that completes when the spreadsheet is cleared
+     */
+    public CompletableFuture<Void> clear() {
+        return call(spreadsheet -> {
+            spreadsheet.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Deletes the spreadsheet
+     *
+     * @return Future that completes when the spreadsheet is deleted
+     */
+    public CompletableFuture<Void> delete() {
+        return call(spreadsheet -> {
+            spreadsheet.delete();
+            return null;
+        });
+    }
+
+    /**
+     * Wraps a sheet returned by an operation using the same executor
+     *
+     * @param sheet Sheet to wrap
+     * @return Async sheet or null if there is no sheet
+     */
+    private AsyncGoogleSheet wrap(GoogleSheet sheet) {
+        return sheet == null ? null : new AsyncGoogleSheet(sheet, executor);
+    }
+}
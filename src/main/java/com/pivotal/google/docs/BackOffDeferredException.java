@@ -0,0 +1,33 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.Getter;
+
+/**
+ * Thrown instead of sleeping when an operation running on the {@link GoogleAsyncExecutor}
+ * is rate limited, it tells the executor how long to wait before running the operation again
+ */
+@Getter
+public class BackOffDeferredException extends GoogleException {
+
+    private final long delay;
+    private final int retries;
+
+    /**
+     * Constructs a {@code BackOffDeferredException} for the rate limit error
+     *
+     * @param delay   Milliseconds to wait before the next attempt
+     * @param retries Number of retries made so far
+     * @param cause   Rate limit error from the server
+     */
+    public BackOffDeferredException(long delay, int retries, Throwable cause) {
+        super(String.format("Rate limited, retry %d deferred for %dms", retries, delay), cause);
+        this.delay = delay;
+        this.retries = retries;
+    }
+}
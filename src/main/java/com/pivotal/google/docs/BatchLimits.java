@@ -0,0 +1,90 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The thresholds at which a batch of requests is automatically sent to the server
+ * It uses a builder pattern so that only the limits of interest need to be set,
+ * a limit of zero means that the threshold is not used
+ */
+@SuppressWarnings("unused")
+@Getter
+@ToString
+public class BatchLimits {
+
+    // By default, we leave plenty of headroom below the maximum payload
+    public static final long DEFAULT_MAX_BYTES = GoogleDocsUtils.MAX_PAYLOAD_SIZE / 2;
+
+    private int maxRequests = 0;
+    private long maxBytes = 0;
+    private long maxAge = 0;
+
+    /**
+     * Returns limits that never flush automatically, the batch is only sent
+     * when it is executed
+     *
+     * @return BatchLimits with no thresholds
+     */
+    public static BatchLimits unbounded() {
+        return new BatchLimits();
+    }
+
+    /**
+     * Returns limits that keep each batch request safely within the maximum payload size
+     *
+     * @return BatchLimits with a byte threshold
+     */
+    public static BatchLimits payloadSafe() {
+        return new BatchLimits().maxBytes(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Sets the maximum number of requests to hold before sending them
+     *
+     * @param maxRequests Number of requests
+     * @return BatchLimits for chaining
+     */
+    public BatchLimits maxRequests(int maxRequests) {
+        this.maxRequests = Math.max(0, maxRequests);
+        return this;
+    }
+
+    /**
+     * Sets the maximum estimated size of the serialized requests to hold before sending them
+     *
+     * @param maxBytes Number of bytes (must be less than GoogleDocsUtils.MAX_PAYLOAD_SIZE)
+     * @return BatchLimits for chaining
+     */
+    public BatchLimits maxBytes(long maxBytes) {
+        this.maxBytes = Math.min(Math.max(0, maxBytes), GoogleDocsUtils.MAX_PAYLOAD_SIZE);
+        return this;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds that a request can be held before it is sent
+     * This is checked whenever a request is added to the batch
+     *
+     * @param maxAge Milliseconds
+     * @return BatchLimits for chaining
+     */
+    public BatchLimits maxAge(long maxAge) {
+        this.maxAge = Math.max(0, maxAge);
+        return this;
+    }
+
+    /**
+     * Returns true if any threshold is set
+     *
+     * @return True if the batch will flush automatically
+     */
+    public boolean isBounded() {
+        return maxRequests > 0 || maxBytes > 0 || maxAge > 0;
+    }
+}
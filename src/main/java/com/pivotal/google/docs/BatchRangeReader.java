@@ -0,0 +1,311 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.*;
+
+/**
+ * Reads many ranges from the sheets of a spreadsheet in as few requests as possible.
+ * The ranges are grouped into batches so that no batch is expected to return more than a
+ * target number of bytes, based on the size of each range and the edges of its sheet.
+ * A batch is read with values.batchGet if its ranges fit in the URL, otherwise it is posted
+ * with values.batchGetByDataFilter, which has no limit on the number of ranges.
+ * The values are returned keyed on the ranges as they were asked for, not the ranges that
+ * Google reports back, which are normalised and clipped to the data
+ */
+@Slf4j
+public class BatchRangeReader {
+
+    // Aim for responses of around this many bytes
+    public static final long DEFAULT_TARGET_BYTES = 2000000;
+
+    // Longest query string of ranges that will be sent with a GET
+    public static final int MAX_URL_RANGES_LENGTH = 2000;
+
+    // Rough size of a cell in a response, used to turn a range into bytes
+    private static final int ESTIMATED_CELL_BYTES = 20;
+
+    private static final String RANGES_PARAMETER = "&ranges=";
+
+    private final GoogleSpreadsheet spreadsheet;
+    private final GoogleSheet.ValueRenderOption renderOption;
+    private final long targetBytes;
+
+    /**
+     * A requested range with its fully qualified form and estimated size
+     */
+    protected static class RangeRequest {
+        private final String sheetName;
+        private final String range;
+        private final String qualifiedRange;
+        private final long cells;
+        private final int urlLength;
+
+        protected RangeRequest(String sheetName, String range, String qualifiedRange, long cells) {
+            this.sheetName = sheetName;
+            this.range = range;
+            this.qualifiedRange = qualifiedRange;
+            this.cells = cells;
+            this.urlLength = RANGES_PARAMETER.length() + encode(qualifiedRange).length();
+        }
+    }
+
+    /**
+     * Creates a reader for the spreadsheet
+     *
+     * @param spreadsheet  Spreadsheet to read
+     * @param renderOption How the values should be rendered
+     * @param targetBytes  Approximate size of each response in bytes
+     */
+    protected BatchRangeReader(GoogleSpreadsheet spreadsheet, GoogleSheet.ValueRenderOption renderOption, long targetBytes) {
+        this.spreadsheet = spreadsheet;
+        this.renderOption = renderOption;
+        this.targetBytes = Math.max(1, targetBytes);
+    }
+
+    /**
+     * Reads the ranges and returns their values keyed on the sheet name and then the
+     * range exactly as they were requested
+     * A null range, or a null or empty list of ranges, reads the whole sheet and is returned
+     * under a null range. Ranges with no data are returned as empty lists
+     *
+     * @param ranges Map of sheet names to the ranges to read from them in A1 notation
+     * @return Map of sheet names to maps of ranges to their rows of values
+     * @throws GoogleException If a sheet doesn't exist or the ranges cannot be read
+     */
+    public Map<String, Map<String, List<List<Object>>>> read(Map<String, List<String>> ranges) throws GoogleException {
+        Map<String, Map<String, List<List<Object>>>> ret = new LinkedHashMap<>();
+        if (ranges == null || ranges.isEmpty()) {
+            return ret;
+        }
+
+        // Work out what to ask for
+        Map<String, GoogleSheet> sheets = spreadsheet.getSheetsMap();
+        List<RangeRequest> requests = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : ranges.entrySet()) {
+            GoogleSheet sheet = sheets.get(entry.getKey());
+            if (sheet == null) {
+                throw new GoogleException("Sheet %s does not exist in spreadsheet %s", entry.getKey(), spreadsheet.getSpreadsheetId());
+            }
+            ret.put(entry.getKey(), new LinkedHashMap<>());
+            List<String> sheetRanges = entry.getValue() == null || entry.getValue().isEmpty() ? Collections.singletonList(null) : entry.getValue();
+            for (String range : sheetRanges) {
+                requests.add(new RangeRequest(entry.getKey(), range, getQualifiedRange(entry.getKey(), range), estimateCells(sheet, range)));
+            }
+        }
+
+        // Read each batch and file the values under the range they were asked for
+        List<List<RangeRequest>> batches = split(requests, Math.max(1, targetBytes / ESTIMATED_CELL_BYTES));
+        for (List<RangeRequest> batch : batches) {
+            List<ValueRange> values = readBatch(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                RangeRequest request = batch.get(i);
+                ValueRange valueRange = i < values.size() ? values.get(i) : null;
+                List<List<Object>> rows = valueRange == null || valueRange.getValues() == null ? new ArrayList<>() : valueRange.getValues();
+                ret.get(request.sheetName).put(request.range, rows);
+            }
+        }
+        log.debug("Read {} ranges from {} in {} requests", requests.size(), spreadsheet.getSpreadsheetId(), batches.size());
+        return ret;
+    }
+
+    /**
+     * Groups the requests into batches, keeping them in order, so that each batch is
+     * expected to return no more than maxCells. A range that is larger than maxCells
+     * on its own is given a batch by itself
+     * Batches aren't split because of the length of the URL, as a batch that is too long
+     * for a GET is posted instead, which is still one round trip
+     *
+     * @param requests Ranges to read
+     * @param maxCells Largest number of cells to read in one batch
+     * @return List of batches
+     */
+    protected static List<List<RangeRequest>> split(List<RangeRequest> requests, long maxCells) {
+        List<List<RangeRequest>> ret = new ArrayList<>();
+        List<RangeRequest> batch = new ArrayList<>();
+        long cells = 0;
+        for (RangeRequest request : requests) {
+            if (!batch.isEmpty() && cells + request.cells > maxCells) {
+                ret.add(batch);
+                batch = new ArrayList<>();
+                cells = 0;
+            }
+            batch.add(request);
+            cells += request.cells;
+        }
+        if (!batch.isEmpty()) {
+            ret.add(batch);
+        }
+        return ret;
+    }
+
+    /**
+     * Reads a batch of ranges, returning the values in the same order
+     *
+     * @param batch Ranges to read
+     * @return List of values, one for each range
+     * @throws GoogleException If the ranges cannot be read
+     */
+    private List<ValueRange> readBatch(List<RangeRequest> batch) throws GoogleException {
+        Sheets.Spreadsheets.Values valuesService = spreadsheet.getContext().getSheetsService().values();
+        String spreadsheetId = spreadsheet.getSpreadsheetId();
+        String dateTimeRenderOption = renderOption.equals(GoogleSheet.ValueRenderOption.FORMATTED_VALUE) ? "FORMATTED_STRING" : "SERIAL_NUMBER";
+        List<String> qualifiedRanges = new ArrayList<>();
+        for (RangeRequest request : batch) {
+            qualifiedRanges.add(request.qualifiedRange);
+        }
+        try {
+            if (!isFilterBatch(batch, MAX_URL_RANGES_LENGTH)) {
+                BatchGetValuesResponse response = GoogleDocsUtils.execute(spreadsheet.getContext(), spreadsheetId, valuesService.batchGet(spreadsheetId)
+                        .setRanges(qualifiedRanges)
+                        .setValueRenderOption(renderOption.toString())
+                        .setDateTimeRenderOption(dateTimeRenderOption)
+                        .setMajorDimension("ROWS"));
+                return response == null || response.getValueRanges() == null ? Collections.emptyList() : response.getValueRanges();
+            }
+
+            // Too many ranges for the URL so post them as filters
+            List<DataFilter> filters = new ArrayList<>();
+            for (String range : qualifiedRanges) {
+                filters.add(new DataFilter().setA1Range(range));
+            }
+            BatchGetValuesByDataFilterRequest request = new BatchGetValuesByDataFilterRequest()
+                    .setDataFilters(filters)
+                    .setValueRenderOption(renderOption.toString())
+                    .setDateTimeRenderOption(dateTimeRenderOption)
+                    .setMajorDimension("ROWS");
+            BatchGetValuesByDataFilterResponse response = GoogleDocsUtils.execute(spreadsheet.getContext(), spreadsheetId, valuesService.batchGetByDataFilter(spreadsheetId, request));
+            return getFilteredValues(qualifiedRanges, response);
+        }
+        catch (IOException e) {
+            throw new GoogleException("Cannot get data for %d ranges from %s - %s", e, batch.size(), spreadsheetId, e.getMessage());
+        }
+    }
+
+    /**
+     * Matches the values returned for data filters back to the ranges they were asked for,
+     * using the filters that each one reports it matched rather than relying on their order
+     *
+     * @param qualifiedRanges Ranges that were asked for
+     * @param response        Response to the request
+     * @return List of values, one for each range
+     */
+    private static List<ValueRange> getFilteredValues(List<String> qualifiedRanges, BatchGetValuesByDataFilterResponse response) {
+        List<ValueRange> ret = new ArrayList<>(Collections.nCopies(qualifiedRanges.size(), (ValueRange) null));
+        if (response == null || response.getValueRanges() == null) {
+            return ret;
+        }
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = qualifiedRanges.size() - 1; i >= 0; i--) {
+            indexes.put(qualifiedRanges.get(i), i);
+        }
+        List<MatchedValueRange> matched = response.getValueRanges();
+        for (int i = 0; i < matched.size(); i++) {
+            MatchedValueRange match = matched.get(i);
+            Integer index = null;
+            if (match.getDataFilters() != null) {
+                for (DataFilter filter : match.getDataFilters()) {
+                    if (index == null && filter.getA1Range() != null) {
+                        index = indexes.get(filter.getA1Range());
+                    }
+                }
+            }
+            index = index == null ? Integer.valueOf(i) : index;
+            if (index < ret.size()) {
+                ret.set(index, match.getValueRange());
+            }
+        }
+
+        // The same range may have been asked for more than once
+        for (int i = 0; i < ret.size(); i++) {
+            if (ret.get(i) == null) {
+                ret.set(i, ret.get(indexes.get(qualifiedRanges.get(i))));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns true if the ranges of the batch are too long to send in the URL
+     *
+     * @param batch       Ranges to read
+     * @param maxUrlChars Longest query string of ranges for a GET
+     * @return True if the batch has to be posted as data filters
+     */
+    private static boolean isFilterBatch(List<RangeRequest> batch, int maxUrlChars) {
+        int length = 0;
+        for (RangeRequest request : batch) {
+            length += request.urlLength;
+        }
+        return length > maxUrlChars;
+    }
+
+    /**
+     * Estimates the number of cells a range covers, open-ended ranges stop at the edge of the grid
+     *
+     * @param sheet Sheet the range is on
+     * @param range Range in A1 notation or null for the whole sheet
+     * @return Number of cells
+     * @throws GoogleException If the sheet cannot be opened
+     */
+    private static long estimateCells(GoogleSheet sheet, String range) throws GoogleException {
+        int rows = sheet.getRowCount();
+        int columns = sheet.getColumnCount();
+        if (range != null) {
+            try {
+                GridRange gridRange = GoogleDocsUtils.getGridRange(sheet.getSheetId(), range);
+                int startRow = gridRange.getStartRowIndex() == null ? 0 : gridRange.getStartRowIndex();
+                int endRow = gridRange.getEndRowIndex() == null ? rows : Math.min(rows, gridRange.getEndRowIndex());
+                int startColumn = gridRange.getStartColumnIndex() == null ? 0 : gridRange.getStartColumnIndex();
+                int endColumn = gridRange.getEndColumnIndex() == null ? columns : Math.min(columns, gridRange.getEndColumnIndex());
+                rows = Math.max(0, endRow - startRow);
+                columns = Math.max(0, endColumn - startColumn);
+            }
+            catch (GoogleException e) {
+
+                // Named ranges and the like can't be sized, so assume the whole sheet and let the server decide
+                log.debug("Cannot size range {} - assuming the whole sheet", range);
+            }
+        }
+        return Math.max(1, (long) rows * columns);
+    }
+
+    /**
+     * Returns the range qualified with its sheet name, which is always quoted so that
+     * names with spaces or punctuation work
+     *
+     * @param sheetName Name of the sheet
+     * @param range     Range in A1 notation or null for the whole sheet
+     * @return Qualified range
+     */
+    protected static String getQualifiedRange(String sheetName, String range) {
+        String ret = '\'' + sheetName.replace("'", "''") + '\'';
+        return range == null ? ret : ret + '!' + range;
+    }
+
+    /**
+     * URL encodes the value
+     *
+     * @param value Value to encode
+     * @return Encoded value
+     */
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads a large number of rows into a sheet by writing chunks of them in parallel.
+ * An append has to wait for the previous one to finish because the server works out where
+ * it goes, so instead the grid is grown once up front and every chunk is written to its own
+ * explicit range. The chunks are shared out between a fixed number of lanes, each of which
+ * writes its chunks one after the other, so no more than that many requests are in flight.
+ * As each chunk has its own range the rows end up in order whatever order the chunks finish in,
+ * and because writing to a fixed range is idempotent a chunk that fails ambiguously can be
+ * retried without duplicating any rows
+ */
+@Slf4j
+public class BulkLoader {
+
+    // Number of chunks written at the same time by default
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private final GoogleSheet sheet;
+    private final GoogleAsyncExecutor executor;
+    private final int parallelism;
+    private final ValueChunker chunker;
+    private final ProgressListener listener;
+
+    /**
+     * Notified each time a chunk of rows has been written
+     * It is called from the threads that write the chunks, so it must be thread safe
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(int rowsWritten, int totalRows);
+    }
+
+    /**
+     * Creates a loader for the sheet
+     *
+     * @param sheet       Sheet to load
+     * @param executor    Executor to write the chunks on
+     * @param parallelism Maximum number of chunks to write at the same time
+     * @param chunker     Chunker to split the rows with
+     * @param listener    Listener to notify of progress or null
+     */
+    protected BulkLoader(GoogleSheet sheet, GoogleAsyncExecutor executor, int parallelism, ValueChunker chunker, ProgressListener listener) {
+        this.sheet = sheet;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.chunker = chunker;
+        this.listener = listener;
+    }
+
+    /**
+     * Writes the values to the sheet starting at the given cell
+     * If rangeStart is null, the first chunk is appended to the end of the current data
+     * to find out where it is, and the rest follow on from there
+     *
+     * @param rangeStart Top left cell to write to in A1 notation or null to append
+     * @param values     Rows of values
+     * @throws GoogleException If any of the rows cannot be written
+     */
+    public void load(String rangeStart, List<List<Object>> values) throws GoogleException {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        int total = values.size();
+        List<List<List<Object>>> chunks = chunker.split(values);
+        AtomicInteger written = new AtomicInteger();
+        int startRow;
+        int startColumn;
+        int first = 0;
+        if (rangeStart == null) {
+            first = chunks.remove(0).size();
+            GridRange appended;
+            try {
+                appended = sheet.appendValuesBatch(sheet.getContext().getSheetsService().values(), null, values, 0, first, GoogleSheet.ValueInputOption.USER_ENTERED);
+            }
+            catch (IOException e) {
+                throw new GoogleException("Cannot append data to %s - %s", e, sheet.getName(), e.getMessage());
+            }
+            if (appended == null || appended.getStartRowIndex() == null) {
+                throw new GoogleException("Cannot work out where the data was appended to %s", sheet.getName());
+            }
+            startRow = appended.getStartRowIndex();
+            startColumn = appended.getStartColumnIndex() == null ? 0 : appended.getStartColumnIndex();
+            progress(written, first, total);
+        }
+        else {
+            GridRange start = GoogleDocsUtils.getGridRange(sheet.getSheetId(), rangeStart);
+            startRow = start.getStartRowIndex() == null ? 0 : start.getStartRowIndex();
+            startColumn = start.getStartColumnIndex() == null ? 0 : start.getStartColumnIndex();
+        }
+        if (first < total) {
+            growGrid(startRow + total, startColumn + getMaxWidth(values));
+            writeChunks(chunks, first, startRow, startColumn, written, total);
+        }
+        log.debug("Loaded {} rows into {} starting at row {}", total, sheet.getName(), startRow + 1);
+    }
+
+    /**
+     * Writes the chunks in parallel lanes and waits for them all
+     *
+     * @param chunks      Chunks of rows to write
+     * @param first       Index of the first row of the first chunk within the values
+     * @param startRow    Sheet row that the values start at
+     * @param startColumn Sheet column that the values start at
+     * @param written     Count of the rows written so far
+     * @param total       Total number of rows
+     * @throws GoogleException If any of the chunks cannot be written
+     */
+    private void writeChunks(List<List<List<Object>>> chunks, int first, int startRow, int startColumn, AtomicInteger written, int total) throws GoogleException {
+
+        // The chunks are written on other threads, so if this is a deferred operation it has to
+        // be told that it is writing, or a rate limit later on would have it load everything again
+        DeferredBackOff.recordWrite();
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            lanes.add(CompletableFuture.completedFuture(null));
+        }
+        int lane = 0;
+        int offset = first;
+        for (List<List<Object>> chunk : chunks) {
+            String range = sheet.getName() + '!' + GoogleDocsUtils.getColumnName(startColumn) + (startRow + offset + 1);
+            CompletableFuture<Void> previous = lanes.get(lane);
+
+            // Once a chunk has failed there is no point sending the rest of its lane
+            lanes.set(lane, previous.thenCompose(ignored -> executor.<Void>submit(() -> {
+                writeChunk(range, chunk);
+                progress(written, chunk.size(), total);
+                return null;
+            })));
+            lane = (lane + 1) % parallelism;
+            offset += chunk.size();
+        }
+        try {
+            CompletableFuture.allOf(lanes.toArray(new CompletableFuture[0])).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoogleException("Interrupted while loading data into %s", sheet.getName());
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof GoogleException || e.getCause() == null ? e.getCause() : e.getCause().getCause();
+            if (cause instanceof GoogleException) {
+                throw (GoogleException) cause;
+            }
+            throw new GoogleException("Cannot load data into %s", e, sheet.getName());
+        }
+    }
+
+    /**
+     * Writes a chunk of rows to an explicit range
+     *
+     * @param range Top left cell of the chunk including the sheet name
+     * @param chunk Rows to write
+     * @throws GoogleException If the chunk cannot be written
+     */
+    private void writeChunk(String range, List<List<Object>> chunk) throws GoogleException {
+        Sheets.Spreadsheets.Values valuesService = sheet.getContext().getSheetsService().values();
+        BatchUpdateValuesRequest request = new BatchUpdateValuesRequest()
+                .setValueInputOption("USER_ENTERED")
+                .setData(Collections.singletonList(new ValueRange().setRange(range).setValues(chunk)));
+        try {
+            GoogleDocsUtils.execute(sheet.getContext(), sheet.getSpreadsheetId(), valuesService.batchUpdate(sheet.getSpreadsheetId(), request));
+        }
+        catch (IOException e) {
+            throw new GoogleException("Cannot write data to %s - %s", e, range, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds rows and columns to the sheet so that the grid is at least the given size
+     * This is sent straight away even if the sheet is batching requests, because the
+     * chunks can't be written until the grid is big enough to hold them
+     *
+     * @param rows    Number of rows needed
+     * @param columns Number of columns needed
+     * @throws GoogleException If the grid cannot be grown
+     */
+    private void growGrid(int rows, int columns) throws GoogleException {
+        List<Request> requests = new ArrayList<>();
+        int rowCount = sheet.getRowCount();
+        if (rows > rowCount) {
+            requests.add(new Request().setAppendDimension(new AppendDimensionRequest().setSheetId(sheet.getSheetId()).setDimension("ROWS").setLength(rows - rowCount)));
+        }
+        int columnCount = sheet.getColumnCount();
+        if (columns > columnCount) {
+            requests.add(new Request().setAppendDimension(new AppendDimensionRequest().setSheetId(sheet.getSheetId()).setDimension("COLUMNS").setLength(columns - columnCount)));
+        }
+        if (!requests.isEmpty()) {
+            log.debug("Growing {} to {} rows and {} columns", sheet.getName(), Math.max(rows, rowCount), Math.max(columns, columnCount));
+            GoogleDocsUtils.executeBatchRequest(sheet.getContext(), sheet.getSpreadsheetId(), requests.toArray(new Request[0]));
+        }
+    }
+
+    /**
+     * Adds to the count of rows written and tells the listener
+     *
+     * @param written Count of the rows written so far
+     * @param rows    Number of rows just written
+     * @param total   Total number of rows
+     */
+    private void progress(AtomicInteger written, int rows, int total) {
+        int count = written.addAndGet(rows);
+        if (listener != null) {
+            listener.progress(count, total);
+        }
+    }
+
+    /**
+     * Returns the number of columns in the widest row
+     *
+     * @param values Rows of values
+     * @return Number of columns
+     */
+    private static int getMaxWidth(List<List<Object>> values) {
+        int ret = 0;
+        for (List<Object> row : values) {
+            ret = Math.max(ret, row == null ? 0 : row.size());
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.GridRange;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Appends CSV data to a sheet as it is parsed, so that files of any size can be imported
+ * without reading them into memory first.
+ * Rows are collected into a chunk until the chunker says it is full, then the chunk is
+ * appended in the background while the next one is being parsed. Appends have to be made
+ * one after the other, so a chunk isn't sent until the previous one has arrived, which means
+ * that no more than two chunks are ever held in memory.
+ * If types are inferred, the first rows are held back until the types of the columns have
+ * been worked out from them, and the values are then sent as numbers, booleans and date serials
+ * with the RAW input option so that Google doesn't have to parse them
+ */
+@Slf4j
+public class CsvImporter {
+
+    // Number of rows used to work out the types of the columns
+    public static final int SAMPLE_ROWS = 1000;
+
+    // Format given to the columns of dates, which would otherwise show as serial numbers
+    public static final String DATE_PATTERN = "yyyy-mm-dd";
+
+    private final GoogleSheet sheet;
+    private final GoogleAsyncExecutor executor;
+    private final ValueChunker chunker;
+    private final boolean includeHeader;
+    private final boolean inferTypes;
+
+    // State of the import in progress
+    private CompletableFuture<GridRange> upload;
+    private List<List<Object>> chunk;
+    private long bytes;
+    private String range;
+    private GridRange appended;
+
+    /**
+     * Creates an importer for the sheet that sends all the values as they are
+     *
+     * @param sheet         Sheet to append to
+     * @param executor      Executor to append the chunks on
+     * @param chunker       Chunker that decides how big each chunk is
+     * @param includeHeader True if the first line should be imported
+     */
+    protected CsvImporter(GoogleSheet sheet, GoogleAsyncExecutor executor, ValueChunker chunker, boolean includeHeader) {
+        this(sheet, executor, chunker, includeHeader, false);
+    }
+
+    /**
+     * Creates an importer for the sheet
+     *
+     * @param sheet         Sheet to append to
+     * @param executor      Executor to append the chunks on
+     * @param chunker       Chunker that decides how big each chunk is
+     * @param includeHeader True if the first line should be imported
+     * @param inferTypes    True if the values should be converted to the types of their columns
+     */
+    protected CsvImporter(GoogleSheet sheet, GoogleAsyncExecutor executor, ValueChunker chunker, boolean includeHeader, boolean inferTypes) {
+        this.sheet = sheet;
+        this.executor = executor;
+        this.chunker = chunker;
+        this.includeHeader = includeHeader;
+        this.inferTypes = inferTypes;
+    }
+
+    /**
+     * Parses the CSV and appends it to the sheet, the reader is closed when it has been read
+     *
+     * @param rangeStart Where to start to append the data from R1C1 notation or null for the end of the data
+     * @param reader     CSV to read
+     * @return Number of rows appended
+     * @throws GoogleException If the CSV cannot be read or appended
+     */
+    public synchronized long importCsv(String rangeStart, Reader reader) throws GoogleException {
+        upload = CompletableFuture.completedFuture(null);
+        chunk = new ArrayList<>();
+        bytes = 0;
+        range = rangeStart;
+        appended = null;
+        long count = 0;
+        CsvSchema schema = null;
+        try (CSVReader csv = new CSVReader(reader)) {
+            String[] header = csv.readNext();
+            if (header != null && includeHeader) {
+                add(Arrays.asList(header));
+                count++;
+            }
+
+            // Hold back the first rows until we know what types the columns are
+            List<String[]> sample = new ArrayList<>();
+            String[] values = header == null ? null : csv.readNext();
+            if (inferTypes) {
+                while (values != null && sample.size() < SAMPLE_ROWS) {
+                    sample.add(values);
+                    values = sample.size() < SAMPLE_ROWS ? csv.readNext() : null;
+                }
+                schema = CsvSchema.infer(sample);
+                log.debug("Inferred CSV column types {} from {} rows", schema.getColumnTypes(), sample.size());
+                for (String[] row : sample) {
+                    add(schema.convert(row));
+                    count++;
+                }
+                values = sample.size() < SAMPLE_ROWS ? null : csv.readNext();
+            }
+            while (values != null) {
+                add(schema == null ? Arrays.asList(values) : schema.convert(values));
+                count++;
+                values = csv.readNext();
+            }
+            if (!chunk.isEmpty()) {
+                send();
+            }
+            record(await(upload));
+        }
+        catch (IOException | CsvValidationException e) {
+            throw new GoogleException("Cannot read CSV data", e);
+        }
+        if (schema != null) {
+            formatDates(schema);
+        }
+        log.debug("Imported {} CSV rows into {}", count, sheet.getName());
+        return count;
+    }
+
+    /**
+     * Adds a row to the current chunk, sending the chunk first if it is full
+     *
+     * @param row Row of values
+     * @throws GoogleException If the previous chunk could not be appended
+     */
+    private void add(List<Object> row) throws GoogleException {
+        long rowBytes = ValueChunker.estimateRowBytes(row) + 1;
+        if (!chunk.isEmpty() && chunker.isFull(chunk.size(), bytes, rowBytes)) {
+            send();
+            chunk = new ArrayList<>();
+            bytes = 0;
+        }
+        chunk.add(row);
+        bytes += rowBytes;
+    }
+
+    /**
+     * Waits for the previous chunk to be appended and then starts appending the current one
+     * Only the first chunk is appended at rangeStart, the rest follow on from the end of the data
+     *
+     * @throws GoogleException If the previous chunk could not be appended
+     */
+    private void send() throws GoogleException {
+        record(await(upload));
+        List<List<Object>> rows = chunk;
+        String rangeStart = range;
+        GoogleSheet.ValueInputOption inputOption = inferTypes ? GoogleSheet.ValueInputOption.RAW : GoogleSheet.ValueInputOption.USER_ENTERED;
+        log.debug("Appending chunk of {} CSV rows to {}", rows.size(), sheet.getName());
+
+        // The chunk is appended on another thread, so if this is a deferred operation it has to be
+        // told that it is writing, or a rate limit later on would have it import everything again
+        DeferredBackOff.recordWrite();
+        upload = executor.submit(() -> {
+            try {
+                return sheet.appendValuesBatch(sheet.getContext().getSheetsService().values(), rangeStart, rows, 0, rows.size(), inputOption);
+            }
+            catch (IOException e) {
+                throw new GoogleException("Cannot append data to %s at location %s - %s", e, sheet.getName(), rangeStart, e.getLocalizedMessage());
+            }
+        });
+        range = null;
+    }
+
+    /**
+     * Keeps track of the rows that the CSV has been written to
+     *
+     * @param gridRange Range that a chunk was appended to or null
+     */
+    private void record(GridRange gridRange) {
+        if (gridRange == null || gridRange.getStartRowIndex() == null || gridRange.getEndRowIndex() == null) {
+            return;
+        }
+        if (appended == null) {
+            appended = gridRange.clone();
+        }
+        else {
+            appended.setStartRowIndex(Math.min(appended.getStartRowIndex(), gridRange.getStartRowIndex()));
+            appended.setEndRowIndex(Math.max(appended.getEndRowIndex(), gridRange.getEndRowIndex()));
+        }
+    }
+
+    /**
+     * Gives the date columns a date format, because RAW date serials would otherwise
+     * show as plain numbers
+     *
+     * @param schema Types of the columns
+     * @throws GoogleException If the format cannot be applied
+     */
+    private void formatDates(CsvSchema schema) throws GoogleException {
+        if (appended == null) {
+            return;
+        }
+        int startColumn = appended.getStartColumnIndex() == null ? 0 : appended.getStartColumnIndex();
+        for (int i = 0; i < schema.getColumnTypes().size(); i++) {
+            if (schema.getColumnType(i) == CsvSchema.ColumnType.DATE) {
+                sheet.formatCells(appended.getStartRowIndex(), startColumn + i, appended.getEndRowIndex(), startColumn + i + 1,
+                        null, null, null, null, null, null, null, GoogleSheet.NumberType.DATE, DATE_PATTERN, null, null, null, null);
+            }
+        }
+    }
+
+    /**
+     * Waits for an append to finish
+     *
+     * @param upload Append to wait for
+     * @return Range that the rows were appended to or null if it isn't known
+     * @throws GoogleException If the append failed
+     */
+    private GridRange await(CompletableFuture<GridRange> upload) throws GoogleException {
+        try {
+            return upload.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoogleException("Interrupted while appending CSV data to %s", sheet.getName());
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof GoogleException) {
+                throw (GoogleException) e.getCause();
+            }
+            throw new GoogleException("Cannot append CSV data to %s", e.getCause(), sheet.getName());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.pivotal.utils.Utils;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The types of the columns of some CSV data, worked out from a sample of its rows.
+ * Converting the values to their types before they are sent means that they can be written
+ * with the RAW input option, so Google doesn't have to parse every cell again and numbers aren't
+ * sent as quoted strings. Dates are sent as Google date serial numbers.
+ * A column only gets a type if every non-empty value in the sample has that type, and any value
+ * later on that doesn't fit its column is sent as it is
+ */
+@Getter
+@ToString
+public class CsvSchema {
+
+    // Numbers with leading zeros are left as text because they are usually codes or IDs
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("^-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][-+]?[0-9]+)?$");
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("^-?(0|[1-9][0-9]{0,17})$");
+    private static final Pattern DIGITS_PATTERN = Pattern.compile("^[0-9]+$");
+
+    /**
+     * The type of a column
+     */
+    public enum ColumnType {
+        STRING, NUMBER, BOOLEAN, DATE
+    }
+
+    private final List<ColumnType> columnTypes;
+
+    /**
+     * Creates a schema with the given column types
+     *
+     * @param columnTypes Type of each column, columns beyond the end are treated as strings
+     */
+    public CsvSchema(ColumnType... columnTypes) {
+        this.columnTypes = Collections.unmodifiableList(Arrays.asList(columnTypes));
+    }
+
+    /**
+     * Works out the type of each column from a sample of rows
+     *
+     * @param sample Rows of CSV values
+     * @return Schema
+     */
+    public static CsvSchema infer(List<String[]> sample) {
+        int columns = 0;
+        for (String[] row : sample) {
+            columns = Math.max(columns, row.length);
+        }
+        ColumnType[] types = new ColumnType[columns];
+        for (int column = 0; column < columns; column++) {
+            types[column] = inferColumn(sample, column);
+        }
+        return new CsvSchema(types);
+    }
+
+    /**
+     * Returns the type of the column, or STRING if the column is beyond the schema
+     *
+     * @param column Zero based column index
+     * @return Type of the column
+     */
+    public ColumnType getColumnType(int column) {
+        return column < columnTypes.size() ? columnTypes.get(column) : ColumnType.STRING;
+    }
+
+    /**
+     * Converts a row of CSV values to their column types
+     *
+     * @param values CSV values
+     * @return Row of converted values
+     */
+    public List<Object> convert(String[] values) {
+        List<Object> ret = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            ret.add(convert(values[i], getColumnType(i)));
+        }
+        return ret;
+    }
+
+    /**
+     * Converts a single value to the type, values that don't fit are returned as they are
+     *
+     * @param value CSV value
+     * @param type  Type to convert to
+     * @return Converted value
+     */
+    protected static Object convert(String value, ColumnType type) {
+        if (value == null || value.isEmpty() || type == ColumnType.STRING) {
+            return value;
+        }
+        String trimmed = value.trim();
+        switch (type) {
+            case NUMBER:
+                if (INTEGER_PATTERN.matcher(trimmed).matches()) {
+                    return Long.parseLong(trimmed);
+                }
+                return NUMBER_PATTERN.matcher(trimmed).matches() ? (Object) Double.parseDouble(trimmed) : value;
+            case BOOLEAN:
+                return "true".equalsIgnoreCase(trimmed) || "false".equalsIgnoreCase(trimmed) ? (Object) Boolean.parseBoolean(trimmed) : value;
+            case DATE:
+                LocalDate date = parseDate(trimmed);
+                return date == null ? value : (Object) GoogleDocsUtils.getGoogleDateValue(date);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Works out the type of one column, the first type that fits all the values wins
+     *
+     * @param sample Rows of CSV values
+     * @param column Zero based column index
+     * @return Type of the column
+     */
+    private static ColumnType inferColumn(List<String[]> sample, int column) {
+        boolean number = true;
+        boolean bool = true;
+        boolean date = true;
+        boolean empty = true;
+        for (String[] row : sample) {
+            String value = column < row.length && row[column] != null ? row[column].trim() : "";
+            if (!value.isEmpty()) {
+                empty = false;
+                number = number && NUMBER_PATTERN.matcher(value).matches();
+                bool = bool && ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value));
+                date = date && parseDate(value) != null;
+                if (!number && !bool && !date) {
+                    break;
+                }
+            }
+        }
+        if (empty) {
+            return ColumnType.STRING;
+        }
+        return number ? ColumnType.NUMBER : bool ? ColumnType.BOOLEAN : date ? ColumnType.DATE : ColumnType.STRING;
+    }
+
+    /**
+     * Parses a date, plain numbers are not treated as dates even though some of them
+     * match the compact date formats
+     *
+     * @param value Value to parse
+     * @return Date or null if it isn't one
+     */
+    private static LocalDate parseDate(String value) {
+        if (DIGITS_PATTERN.matcher(value).matches() || value.indexOf(':') >= 0) {
+            return null;
+        }
+        try {
+            return Utils.parseDate(value);
+        }
+        catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
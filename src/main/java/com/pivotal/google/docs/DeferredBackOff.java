@@ -0,0 +1,92 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpResponse;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tracks the operations being run by the {@link GoogleAsyncExecutor} on the current thread
+ * so that a rate limit back-off can be handed back to the executor to schedule, instead
+ * of parking the thread.
+ * An operation can only be re-run from the start if it hasn't already changed anything on
+ * the server (or in a pending batch), so every write on the thread is counted and once there
+ * has been one, back-offs revert to sleeping
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class DeferredBackOff {
+
+    private static final ThreadLocal<DeferredBackOff> CURRENT = new ThreadLocal<>();
+
+    private int retries;
+    private int writes;
+
+    /**
+     * Marks the start of an operation on this thread
+     *
+     * @param retries Number of retries already made by previous attempts
+     */
+    static void start(int retries) {
+        DeferredBackOff state = new DeferredBackOff();
+        state.retries = retries;
+        CURRENT.set(state);
+    }
+
+    /**
+     * Marks the end of an operation on this thread
+     */
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns the number of retries already made by previous attempts of the
+     * current operation
+     *
+     * @return Retries or 0 if there is no deferred operation on this thread
+     */
+    static int getRetries() {
+        DeferredBackOff state = CURRENT.get();
+        return state == null ? 0 : state.retries;
+    }
+
+    /**
+     * Returns true if a back-off can be handed back to the executor i.e. we are
+     * running a deferred operation and it has not written anything yet
+     *
+     * @return True if the back-off can be deferred
+     */
+    static boolean canDefer() {
+        DeferredBackOff state = CURRENT.get();
+        return state != null && state.writes == 0;
+    }
+
+    /**
+     * Records a change that would be repeated if the current operation was re-run
+     * e.g. a request added to a pending batch
+     */
+    static void recordWrite() {
+        DeferredBackOff state = CURRENT.get();
+        if (state != null) {
+            state.writes++;
+        }
+    }
+
+    /**
+     * Called by the HTTP request initializer for every response so that successful
+     * writes made by a deferred operation are counted
+     *
+     * @param response Response from the server
+     */
+    public static void recordResponse(HttpResponse response) {
+        if (response.isSuccessStatusCode() && !HttpMethods.GET.equals(response.getRequest().getRequestMethod())) {
+            recordWrite();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking Google operations on a pool of worker threads and returns their results as
+ * CompletableFutures.
+ * When an operation is rate limited, the back-off is scheduled on a ScheduledExecutorService
+ * and the operation re-run when it expires, so no thread is parked while we wait.
+ * Operations that have already written something to the server when they are rate limited
+ * can't be safely re-run, so they fall back to sleeping on the worker thread
+ */
+@Slf4j
+public class GoogleAsyncExecutor {
+
+    // Default number of operations that can be talking to the server at the same time
+    public static final int DEFAULT_THREADS = 16;
+
+    private static volatile GoogleAsyncExecutor defaultExecutor = null;
+    private static volatile GoogleAsyncExecutor pipelineExecutor = null;
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * A blocking operation that talks to the server
+     *
+     * @param <T> Type of the result
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+        T run() throws GoogleException;
+    }
+
+    /**
+     * Creates an executor with its own daemon worker and scheduler threads
+     *
+     * @param threads Maximum number of operations to run at the same time
+     */
+    public GoogleAsyncExecutor(int threads) {
+        this(Executors.newFixedThreadPool(Math.max(1, threads), daemonThreadFactory("ezgdocs4j-async")),
+                Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("ezgdocs4j-backoff")));
+    }
+
+    /**
+     * Creates an executor that uses the given services, the caller is responsible for shutting them down
+     *
+     * @param workers   Service to run the operations on
+     * @param scheduler Service to schedule the back-off delays on
+     */
+    public GoogleAsyncExecutor(ExecutorService workers, ScheduledExecutorService scheduler) {
+        this.workers = workers;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns the shared executor that is used when one isn't specified
+     *
+     * @return Default executor
+     */
+    public static GoogleAsyncExecutor getDefault() {
+        if (defaultExecutor == null) {
+            synchronized (GoogleAsyncExecutor.class) {
+                if (defaultExecutor == null) {
+                    defaultExecutor = new GoogleAsyncExecutor(DEFAULT_THREADS);
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Returns the shared executor for the background work of a single operation, such as
+     * the windows prefetched by a row reader or the chunks of a bulk load.
+     * These operations wait for their background work and are often run on the default
+     * executor themselves, so the work can't go on the default executor too or every worker
+     * could end up waiting for work that is queued behind it
+     *
+     * @return Pipeline executor
+     */
+    static GoogleAsyncExecutor getPipeline() {
+        if (pipelineExecutor == null) {
+            synchronized (GoogleAsyncExecutor.class) {
+                if (pipelineExecutor == null) {
+                    pipelineExecutor = new GoogleAsyncExecutor(Executors.newFixedThreadPool(DEFAULT_THREADS, daemonThreadFactory("ezgdocs4j-pipeline")),
+                            Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("ezgdocs4j-pipeline-backoff")));
+                }
+            }
+        }
+        return pipelineExecutor;
+    }
+
+    /**
+     * Runs the operation on a worker thread
+     *
+     * @param operation Operation to run
+     * @param <T>       Type of the result
+     * @return Future that completes with the result of the operation
+     */
+    public <T> CompletableFuture<T> submit(Operation<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        attempt(operation, future, 0);
+        return future;
+    }
+
+    /**
+     * Runs the operation on a worker thread once the previous future has completed,
+     * regardless of whether it succeeded or not
+     *
+     * @param previous  Future to wait for
+     * @param operation Operation to run
+     * @param <T>       Type of the result
+     * @return Future that completes with the result of the operation
+     */
+    public <T> CompletableFuture<T> submitAfter(CompletableFuture<?> previous, Operation<T> operation) {
+        return previous.handle((result, e) -> null).thenCompose(ignored -> submit(operation));
+    }
+
+    /**
+     * Stops the worker and scheduler threads, pending operations are completed
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        workers.shutdown();
+    }
+
+    /**
+     * Runs an attempt at the operation, scheduling another if it is rate limited
+     *
+     * @param operation Operation to run
+     * @param future    Future to complete
+     * @param retries   Number of retries made by previous attempts
+     * @param <T>       Type of the result
+     */
+    private <T> void attempt(Operation<T> operation, CompletableFuture<T> future, int retries) {
+        try {
+            workers.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                DeferredBackOff.start(retries);
+                try {
+                    future.complete(operation.run());
+                }
+                catch (Throwable e) {
+                    BackOffDeferredException backOff = getBackOff(e);
+                    if (backOff != null) {
+                        log.debug("Rescheduling operation in {}ms after a rate limit error", backOff.getDelay());
+                        schedule(operation, future, backOff);
+                    }
+                    else {
+                        future.completeExceptionally(e);
+                    }
+                }
+                finally {
+                    DeferredBackOff.end();
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Schedules the next attempt at the operation after the back-off delay
+     *
+     * @param operation Operation to run
+     * @param future    Future to complete
+     * @param backOff   Back-off that caused the re-run
+     * @param <T>       Type of the result
+     */
+    private <T> void schedule(Operation<T> operation, CompletableFuture<T> future, BackOffDeferredException backOff) {
+        try {
+            scheduler.schedule(() -> attempt(operation, future, backOff.getRetries()), backOff.getDelay(), TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            future.completeExceptionally(backOff);
+        }
+    }
+
+    /**
+     * Returns the back-off exception if the operation failed because of one, it may have
+     * been wrapped on the way out of the operation
+     *
+     * @param e Exception thrown by the operation
+     * @return Back-off exception or null if the failure is real
+     */
+    private static BackOffDeferredException getBackOff(Throwable e) {
+        while (e != null) {
+            if (e instanceof BackOffDeferredException) {
+                return (BackOffDeferredException) e;
+            }
+            e = e.getCause();
+        }
+        return null;
+    }
+
+    /**
+     * Creates a thread factory for daemon threads so that the executor doesn't stop the JVM exiting
+     *
+     * @param prefix Prefix for the thread names
+     * @return Thread factory
+     */
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -7,7 +7,14 @@
 package com.pivotal.google.docs;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.GenericData;
+import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.*;
+import com.pivotal.google.GoogleServiceContext;
 import com.pivotal.google.GoogleServiceFactory;
 import com.pivotal.utils.Utils;
 import lombok.AccessLevel;
@@ -18,6 +25,8 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -33,6 +42,65 @@ public class GoogleDocsUtils {
     public static final double MAXIMUM_RETRY_SLEEP = 32000.0;
     public static final int MAX_PAYLOAD_SIZE = 10000000; // 10MB
 
+    // Parsed A1 ranges, which don't depend on the sheet, emptied when it gets too big
+    private static final int MAX_CACHED_RANGES = 10000;
+    private static final Map<String, ParsedRange> rangeCache = new ConcurrentHashMap<>();
+
+    /**
+     * A parsed range, zero based and end exclusive with nulls for open ends
+     * Entries are never modified so they can be shared by all the threads
+     */
+    private static class ParsedRange {
+        private final Integer startRow;
+        private final Integer startColumn;
+        private final Integer endRow;
+        private final Integer endColumn;
+
+        private ParsedRange(Integer startRow, Integer startColumn, Integer endRow, Integer endColumn) {
+            this.startRow = startRow;
+            this.startColumn = startColumn;
+            this.endRow = endRow;
+            this.endColumn = endColumn;
+        }
+    }
+
+    /**
+     * How much of the spreadsheet resource to retrieve from the server
+     * Each profile sets the fields mask on the get request so that we don't download
+     * conditional formats, protected ranges, banding etc. when we only need the sheet properties
+     */
+    public enum FetchProfile {
+        PROPERTIES("spreadsheetId,properties,sheets.properties"),                    // Spreadsheet and sheet properties only
+        FILTER_VIEWS("spreadsheetId,properties,sheets(properties,filterViews)"),     // Sheet properties plus the filter views
+        FULL(null);                                                                  // The whole spreadsheet resource
+
+        private final String fields;
+
+        FetchProfile(String fields) {
+            this.fields = fields;
+        }
+
+        /**
+         * Returns the fields mask to send with the request
+         *
+         * @return Fields mask or null for everything
+         */
+        public String getFields() {
+            return fields;
+        }
+
+        /**
+         * Returns true if a spreadsheet retrieved with this profile contains everything
+         * that the other profile would retrieve
+         *
+         * @param other Profile to check
+         * @return True if this profile is a superset of the other
+         */
+        public boolean includes(FetchProfile other) {
+            return ordinal() >= other.ordinal();
+        }
+    }
+
     /**
      * Useful set of criteria types when building FilterCriteria
      * @noinspection unused
@@ -73,18 +141,121 @@ public class GoogleDocsUtils {
      * @throws GoogleException If the batch fails
      */
     public static BatchUpdateSpreadsheetResponse executeBatchRequest(String spreadsheetId, Request... request) throws GoogleException {
+        return executeBatchRequest(GoogleServiceFactory.getDefaultContext(), spreadsheetId, request);
+    }
+
+    /**
+     * Takes the requests and executes them as a batch using the services of the given context
+     *
+     * @param context       Context to use
+     * @param spreadsheetId Spreadsheet to work on
+     * @param request       Requests (can be multiple)
+     * @return BatchUpdateSpreadsheetResponse Response to get returned values
+     * @throws GoogleException If the batch fails
+     */
+    public static BatchUpdateSpreadsheetResponse executeBatchRequest(GoogleServiceContext context, String spreadsheetId, Request... request) throws GoogleException {
         BatchUpdateSpreadsheetRequest batchRequest = new BatchUpdateSpreadsheetRequest();
         batchRequest.setRequests(Arrays.asList(request));
 
-        // We are going to retry up to 5 times with an exponential time based back-off
-        // if we get the dreaded rate limits
+        // Rate limit errors are retried by execute, but a batch is never repeated after
+        // an ambiguous failure in case some of it has already been applied
+        try {
+            BatchUpdateSpreadsheetResponse response = execute(context, spreadsheetId, context.getSheetsService().batchUpdate(spreadsheetId, batchRequest));
+            SpreadsheetMetadataCache.update(context, spreadsheetId, batchRequest.getRequests(), response);
+            return response;
+        }
+        catch (IOException e) {
+            throw new GoogleException("Cannot run Google API request [%s]", e, e.getMessage());
+        }
+    }
+
+    /**
+     * Executes a Sheets request once the rate limiter of the context allows it, retrying
+     * it according to the retry policy of the context
+     * If the request is being made by an operation on the GoogleAsyncExecutor that can be
+     * re-run, the waits are handed back to the executor instead of sleeping
+     *
+     * @param context       Context to use
+     * @param spreadsheetId Spreadsheet the request is for or null if it isn't for one
+     * @param request       Request to execute
+     * @param <T>           Type of the response
+     * @return Response from the server
+     * @throws IOException     If the request fails and cannot be retried
+     * @throws GoogleException If a wait has been deferred
+     */
+    protected static <T> T execute(GoogleServiceContext context, String spreadsheetId, AbstractGoogleClientRequest<T> request) throws IOException, GoogleException {
+        return execute(context, RateLimiter.Api.SHEETS, spreadsheetId, request);
+    }
+
+    /**
+     * Executes a Drive request once the rate limiter of the context allows it, retrying
+     * it according to the retry policy of the context
+     *
+     * @param context Context to use
+     * @param request Request to execute
+     * @param <T>     Type of the response
+     * @return Response from the server
+     * @throws IOException If the request fails and cannot be retried
+     */
+    protected static <T> T execute(GoogleServiceContext context, AbstractGoogleClientRequest<T> request) throws IOException {
+        try {
+            return execute(context, RateLimiter.Api.DRIVE, null, request);
+        }
+        catch (GoogleException e) {
+            // Drive calls always sleep rather than defer, so this shouldn't happen
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Executes the request, reporting each outcome to the rate limiter and retrying it
+     * for as long as the retry policy allows
+     *
+     * @param context       Context to use
+     * @param api           API being called
+     * @param spreadsheetId Spreadsheet the request is for or null if it isn't for one
+     * @param request       Request to execute
+     * @param <T>           Type of the response
+     * @return Response from the server
+     * @throws IOException     If the request fails and cannot be retried
+     * @throws GoogleException If a wait has been deferred
+     */
+    private static <T> T execute(GoogleServiceContext context, RateLimiter.Api api, String spreadsheetId, AbstractGoogleClientRequest<T> request) throws IOException, GoogleException {
+        RateLimiter limiter = context.getRateLimiter();
+        RetryPolicy policy = context.getRetryPolicy();
+        boolean write = !HttpMethods.GET.equals(request.getRequestMethod());
+        boolean idempotent = RetryPolicy.isIdempotent(request);
+        long start = System.currentTimeMillis();
         int retries = 0;
         while (true) {
+            if (api == RateLimiter.Api.SHEETS) {
+                limiter.acquire(spreadsheetId, write);
+            }
+            else {
+                limiter.acquireDrive();
+            }
             try {
-                return GoogleServiceFactory.getSheetsService().batchUpdate(spreadsheetId, batchRequest).execute();
+                T response = request.execute();
+                limiter.record(api, spreadsheetId, write, false);
+                return response;
             }
             catch (IOException e) {
-                retries = sleepWithBackOff(e, retries);
+                if (e instanceof HttpResponseException && ((HttpResponseException) e).getStatusCode() == GAPI_RETRY_ERROR_CODE) {
+                    limiter.record(api, spreadsheetId, write, true);
+                }
+
+                // Retries made by earlier runs of a deferred operation count towards the total
+                int totalRetries = retries + DeferredBackOff.getRetries();
+                long delay = policy.getRetryDelay(e, totalRetries, idempotent, System.currentTimeMillis() - start);
+                if (delay < 0) {
+                    throw e;
+                }
+                retries++;
+                log.warn("Retrying API request after {} [{} of {}]", e instanceof HttpResponseException ? "error " + ((HttpResponseException) e).getStatusCode() : e.getClass().getSimpleName(), totalRetries + 1, policy.getMaxAttempts() - 1);
+                if (api == RateLimiter.Api.SHEETS && DeferredBackOff.canDefer()) {
+                    throw new BackOffDeferredException(delay, totalRetries + 1, e);
+                }
+                Utils.sleep((int) delay);
             }
         }
     }
@@ -92,25 +263,80 @@ public class GoogleDocsUtils {
     /**
      * Returns a spreadsheet by retrieving it from the server
      *
+     * @param context       Context to use
      * @param spreadsheetId ID of the spreadsheet
      * @return Spreadsheet object
      * @throws GoogleException If the spreadsheet cannot be found/opened
      */
-    protected static Spreadsheet getSpreadsheet(String spreadsheetId) throws GoogleException {
-        int retries = 0;
-        while (true) {
-            try {
-                return GoogleServiceFactory.getSheetsService().get(spreadsheetId).execute();
-            }
-            catch (IOException e) {
-                retries = sleepWithBackOff(e, retries);
+    protected static Spreadsheet getSpreadsheet(GoogleServiceContext context, String spreadsheetId) throws GoogleException {
+        return getSpreadsheet(context, spreadsheetId, FetchProfile.FULL);
+    }
+
+    /**
+     * Returns a spreadsheet by retrieving only the parts of it described by the profile
+     * from the server
+     *
+     * @param context       Context to use
+     * @param spreadsheetId ID of the spreadsheet
+     * @param profile       How much of the spreadsheet to retrieve
+     * @return Spreadsheet object
+     * @throws GoogleException If the spreadsheet cannot be found/opened
+     */
+    protected static Spreadsheet getSpreadsheet(GoogleServiceContext context, String spreadsheetId, FetchProfile profile) throws GoogleException {
+        try {
+            Sheets.Spreadsheets.Get get = context.getSheetsService().get(spreadsheetId);
+            if (profile.getFields() != null) {
+                get.setFields(profile.getFields());
             }
+            return execute(context, spreadsheetId, get);
+        }
+        catch (IOException e) {
+            throw new GoogleException("Cannot get spreadsheet %s - %s", e, spreadsheetId, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the spreadsheet sheet properties from the cache if they are fresh,
+     * otherwise retrieves them from the server and caches them
+     * The returned object is shared and must not be modified
+     *
+     * @param context       Context to use
+     * @param spreadsheetId ID of the spreadsheet
+     * @return Spreadsheet object
+     * @throws GoogleException If the spreadsheet cannot be found/opened
+     */
+    protected static Spreadsheet getCachedSpreadsheet(GoogleServiceContext context, String spreadsheetId) throws GoogleException {
+        return getCachedSpreadsheet(context, spreadsheetId, FetchProfile.PROPERTIES);
+    }
+
+    /**
+     * Returns the spreadsheet metadata from the cache if it is fresh and contains
+     * at least the profile requested, otherwise retrieves it from the server and caches it
+     * The returned object is shared and must not be modified
+     *
+     * @param context       Context to use
+     * @param spreadsheetId ID of the spreadsheet
+     * @param profile       How much of the spreadsheet is needed
+     * @return Spreadsheet object
+     * @throws GoogleException If the spreadsheet cannot be found/opened
+     */
+    protected static Spreadsheet getCachedSpreadsheet(GoogleServiceContext context, String spreadsheetId, FetchProfile profile) throws GoogleException {
+        Spreadsheet spreadsheet = SpreadsheetMetadataCache.get(context, spreadsheetId, profile);
+        if (spreadsheet == null) {
+            spreadsheet = getSpreadsheet(context, spreadsheetId, profile);
+            SpreadsheetMetadataCache.put(context, spreadsheetId, spreadsheet, profile);
         }
+        return spreadsheet;
     }
 
     /**
      * Used to do a managed sleep to exponentially back off from sending
      * more requests if we are exceeding the rate limit
+     * All the calls made by this library are retried according to the {@link RetryPolicy}
+     * of their context, this is kept for callers making their own requests
+     *
+     * If the operation is being run by the GoogleAsyncExecutor and hasn't changed anything
+     * yet, the sleep is handed back to the executor to schedule by throwing a BackOffDeferredException
      *
      * @param e       Exception thrown by the
      * @param retries Number of retries we have made
@@ -119,15 +345,19 @@ public class GoogleDocsUtils {
      */
     public static int sleepWithBackOff(IOException e, int retries) throws GoogleException {
         retries++;
-        if (retries > MAX_RATE_LIMIT_RETRIES) {
+        int totalRetries = retries + DeferredBackOff.getRetries();
+        if (totalRetries > MAX_RATE_LIMIT_RETRIES) {
             throw new GoogleException("Rate limit retry attempts exceeded", e);
         }
 
         // Check if this is actually a proper response
         if (e instanceof GoogleJsonResponseException) {
-            if (((GoogleJsonResponseException) e).getDetails().getCode() == GAPI_RETRY_ERROR_CODE) {
-                log.warn("Retrying API request after a rate limit error [{} of {}]", retries, MAX_RATE_LIMIT_RETRIES);
-                double sleep = Math.min((Math.pow(2, retries) + Math.random()) * 1000, MAXIMUM_RETRY_SLEEP);
+            if (((GoogleJsonResponseException) e).getStatusCode() == GAPI_RETRY_ERROR_CODE) {
+                log.warn("Retrying API request after a rate limit error [{} of {}]", totalRetries, MAX_RATE_LIMIT_RETRIES);
+                double sleep = Math.min((Math.pow(2, totalRetries) + Math.random()) * 1000, MAXIMUM_RETRY_SLEEP);
+                if (DeferredBackOff.canDefer()) {
+                    throw new BackOffDeferredException((long) sleep, totalRetries, e);
+                }
                 Utils.sleep((int) sleep);
             }
             else {
@@ -141,19 +371,36 @@ public class GoogleDocsUtils {
     }
 
     /**
-     * Retrieves the sheet by name by first getting the spreadsheet from the server
+     * Retrieves the sheet by ID from the cached spreadsheet metadata
+     * The returned Sheet is a copy that the caller is free to modify
+     *
+     * @param context       Context to use
+     * @param spreadsheetId ID of the spreadsheet
+     * @param sheetId       Name of the sheet
+     * @return A Sheet object if the sheet exists, null otherwise
+     * @throws GoogleException If the spreadsheet cannot be found/opened
+     */
+    protected static Sheet getSheetById(GoogleServiceContext context, String spreadsheetId, int sheetId) throws GoogleException {
+        return getSheetById(context, spreadsheetId, sheetId, FetchProfile.PROPERTIES);
+    }
+
+    /**
+     * Retrieves the sheet by ID from the cached spreadsheet metadata
+     * The returned Sheet is a copy that the caller is free to modify
      *
+     * @param context       Context to use
      * @param spreadsheetId ID of the spreadsheet
      * @param sheetId       Name of the sheet
+     * @param profile       How much of the sheet is needed
      * @return A Sheet object if the sheet exists, null otherwise
      * @throws GoogleException If the spreadsheet cannot be found/opened
      */
-    protected static Sheet getSheetById(String spreadsheetId, int sheetId) throws GoogleException {
-        List<Sheet> sheets = getSpreadsheet(spreadsheetId).getSheets();
+    protected static Sheet getSheetById(GoogleServiceContext context, String spreadsheetId, int sheetId, FetchProfile profile) throws GoogleException {
+        List<Sheet> sheets = getCachedSpreadsheet(context, spreadsheetId, profile).getSheets();
         if (sheets != null) {
             for (Sheet sheet : sheets) {
                 if (sheet.getProperties().getSheetId() == sheetId) {
-                    return sheet;
+                    return sheet.clone();
                 }
             }
         }
@@ -161,25 +408,96 @@ public class GoogleDocsUtils {
     }
 
     /**
-     * Retrieves thw sheet by name by first getting the spreadsheet from the server
+     * Retrieves the sheet by name from the cached spreadsheet metadata
+     * The returned Sheet is a copy that the caller is free to modify
      *
+     * @param context       Context to use
      * @param spreadsheetId ID of the spreadsheet
      * @param name          Name of the sheet
      * @return A Sheet object if the sheet exists, null otherwise
      * @throws GoogleException If the spreadsheet cannot be found/opened
      */
-    protected static Sheet getSheetByName(String spreadsheetId, String name) throws GoogleException {
-        List<Sheet> sheets = getSpreadsheet(spreadsheetId).getSheets();
+    protected static Sheet getSheetByName(GoogleServiceContext context, String spreadsheetId, String name) throws GoogleException {
+        List<Sheet> sheets = getCachedSpreadsheet(context, spreadsheetId).getSheets();
         if (sheets != null) {
             for (Sheet sheet : sheets) {
                 if (sheet.getProperties().getTitle().equalsIgnoreCase(name)) {
-                    return sheet;
+                    return sheet.clone();
                 }
             }
         }
         return null;
     }
 
+    /**
+     * Returns the estimated size in bytes of the object when it is serialized to JSON
+     * for sending to the server
+     *
+     * @param object Model object to measure
+     * @return Number of characters in the JSON form
+     */
+    public static long estimateSize(Object object) {
+        if (object == null) {
+            return 0;
+        }
+        try {
+            return GsonFactory.getDefaultInstance().toString(object).length();
+        }
+        catch (IOException e) {
+            log.debug("Cannot serialize {} to estimate its size - {}", object.getClass().getSimpleName(), e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Copies the value of a field mask path e.g. "gridProperties.frozenRowCount" from
+     * one model object to another, creating any intermediate objects on the way
+     * A missing value in the source clears the value in the destination
+     *
+     * @param from Object to copy from
+     * @param to   Object to copy to
+     * @param path Dotted field path
+     */
+    protected static void copyField(GenericData from, GenericData to, String path) {
+        int dot = path.indexOf('.');
+        if (dot < 0) {
+            to.set(path, from.get(path));
+            return;
+        }
+        String name = path.substring(0, dot);
+        Object fromChild = from.get(name);
+        Object toChild = to.get(name);
+        if (fromChild instanceof GenericData || toChild instanceof GenericData) {
+
+            // Whichever side is missing the intermediate object gets an empty one
+            if (!(fromChild instanceof GenericData)) {
+                fromChild = newInstance((GenericData) toChild);
+            }
+            if (!(toChild instanceof GenericData)) {
+                toChild = newInstance((GenericData) fromChild);
+                to.set(name, toChild);
+            }
+            copyField((GenericData) fromChild, (GenericData) toChild, path.substring(dot + 1));
+        }
+    }
+
+    /**
+     * Creates an empty model object of the same type as the one given
+     *
+     * @param template Object to get the type from
+     * @return Empty object
+     */
+    private static GenericData newInstance(GenericData template) {
+        try {
+            return template.getClass().getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException e) {
+            GenericData ret = template.clone();
+            ret.clear();
+            return ret;
+        }
+    }
+
     /**
      * Convenience method for converting a standard Java Color into a Google Color
      *
@@ -262,6 +580,10 @@ public class GoogleDocsUtils {
 
     /**
      * Gets a grid using the specified coordinates
+     * The range can be in A1 notation e.g. A1, A1:C5, A:C, A5:C, 2:4 or $A$1:$C$5, or in R1C1
+     * notation e.g. R1C1:R5C3, and can be qualified with a sheet name e.g. 'My Sheet'!A1:C5,
+     * which is ignored in favour of the sheet ID. Parsed ranges are cached, so the same range
+     * used again is only parsed once
      *
      * @param sheetId    Sheet ID to assign
      * @param a1Notation Range specified as A1 type notation
@@ -274,72 +596,147 @@ public class GoogleDocsUtils {
         if (a1Notation == null || a1Notation.isEmpty()) {
             throw new GoogleException("A1Notation is required");
         }
-        a1Notation = a1Notation.replaceAll("(?i)[^A-Z:0-9]", "");
-        if (!a1Notation.matches("(?i)[A-Z]+(\\d+)?(:[A-Z]+(\\d+)?)?")) {
-            throw new GoogleException("A1Notation is required");
+
+        // The GridRange is mutable so each caller gets their own copy of the cached range
+        ParsedRange range = rangeCache.get(a1Notation);
+        if (range == null) {
+            range = parseRange(a1Notation);
+            if (rangeCache.size() >= MAX_CACHED_RANGES) {
+                rangeCache.clear();
+            }
+            rangeCache.put(a1Notation, range);
         }
+        return getGridRange(sheetId, range.startRow, range.startColumn, range.endRow, range.endColumn);
+    }
+
+    /**
+     * Parses a range in a single pass over its characters, see {@link #getGridRange(int, String)}
+     *
+     * @param a1Notation Range specified as A1 or R1C1 notation
+     * @return Zero based, end exclusive range
+     * @throws GoogleException if the range specification is invalid
+     */
+    private static ParsedRange parseRange(String a1Notation) throws GoogleException {
 
-        Integer startRow = null;
-        Integer startColumn = null;
-        Integer endRow = null;
-        Integer endColumn = null;
+        // Skip the sheet name, which may be quoted with any quotes inside it doubled
+        int length = a1Notation.length();
+        int start;
+        if (a1Notation.charAt(0) == '\'') {
+            int i = 1;
+            while (i < length && (a1Notation.charAt(i) != '\'' || (i + 1 < length && a1Notation.charAt(i + 1) == '\''))) {
+                i += a1Notation.charAt(i) == '\'' ? 2 : 1;
+            }
+            if (i + 1 >= length || a1Notation.charAt(i + 1) != '!') {
+                throw new GoogleException("A1Notation %s is invalid", a1Notation);
+            }
+            start = i + 2;
+        }
+        else {
+            start = a1Notation.lastIndexOf('!') + 1;
+        }
 
-        // Get the first part
-        String part = a1Notation.contains(":") ? a1Notation.split(":", 2)[0] : a1Notation;
-        String col = part.replaceAll("(?i)[^A-Z]", "");
-        if (col.isEmpty()) {
+        // Split into the two parts of the range
+        int colon = a1Notation.indexOf(':', start);
+        if (colon >= 0 && a1Notation.indexOf(':', colon + 1) >= 0) {
             throw new GoogleException("A1Notation %s is invalid", a1Notation);
         }
-        startColumn = parseANotationString(col);
-        String row = part.replaceAll("(?i)\\D", "");
-        if (!row.isEmpty()) {
-            startRow = Integer.parseInt(row) - 1;
-        }
+        long first = parsePart(a1Notation, start, colon < 0 ? length : colon);
+        int firstColumn = (int) (first >>> 32);
+        int firstRow = (int) first;
+        Integer startRow = firstRow == 0 ? null : firstRow - 1;
+        Integer startColumn = firstColumn == 0 ? null : firstColumn - 1;
+        Integer endRow;
+        Integer endColumn;
 
-        // Get the second part
-        if (a1Notation.contains(":")) {
-            part = a1Notation.split(":", 2)[1];
-            col = part.replaceAll("(?i)[^A-Z]", "");
-            if (col.isEmpty()) {
+        // No second part, so the range is the single cell or column
+        if (colon < 0) {
+            if (firstColumn == 0) {
                 throw new GoogleException("A1Notation %s is invalid", a1Notation);
             }
-            endColumn = parseANotationString(col) + 1;
-            row = part.replaceAll("(?i)\\D", "");
-            if (!row.isEmpty()) {
-                endRow = Integer.parseInt(row);
-            }
+            endColumn = firstColumn;
+            endRow = firstRow == 0 ? null : firstRow;
         }
 
-        // No second part, so adjust the range
+        // Either both parts have a column or both are just rows e.g. 2:4
         else {
-            endColumn = startColumn + 1;
-            if (startRow != null) {
-                endRow = startRow + 1;
+            long second = parsePart(a1Notation, colon + 1, length);
+            int secondColumn = (int) (second >>> 32);
+            int secondRow = (int) second;
+            if (firstColumn == 0 ? (secondColumn != 0 || firstRow == 0 || secondRow == 0) : secondColumn == 0) {
+                throw new GoogleException("A1Notation %s is invalid", a1Notation);
             }
+            endColumn = secondColumn == 0 ? null : secondColumn;
+            endRow = secondRow == 0 ? null : secondRow;
         }
-
-        // Set the range to affect
         log.debug("Converted [{}] into {},{},{},{}", a1Notation, startRow, startColumn, endRow, endColumn);
-        return getGridRange(sheetId, startRow, startColumn, endRow, endColumn);
+        return new ParsedRange(startRow, startColumn, endRow, endColumn);
     }
 
     /**
-     * Turns the column specification into a numeric value e.g. AZ == 51
+     * Parses one side of a range e.g. AB12, AB, 12 or R12C28, ignoring any $ signs and spaces
+     * The column and row are returned packed into a long to avoid allocating anything
      *
-     * @param val String in normal A1 type notation e.g. 'A', 'AAZ' etc.
-     * @return Numeric column number
+     * @param a1Notation Whole range
+     * @param start      Index of the first character of the part
+     * @param end        Index after the last character of the part
+     * @return One based column in the upper 32 bits and one based row in the lower 32 bits, 0 if missing
+     * @throws GoogleException if the part is invalid
      */
-    private static int parseANotationString(String val) {
-        int ret = 0;
-        if (val != null) {
-            val = val.toLowerCase();
-            for (int i = 0; i < val.length(); i++) {
-                if (i > 0) {
-                    ret = (ret + 1) * 26;
+    private static long parsePart(String a1Notation, int start, int end) throws GoogleException {
+        long column = 0;
+        long row = 0;
+        boolean rowDigits = false;
+        boolean r1c1 = false;
+        for (int i = start; i < end; i++) {
+            char c = a1Notation.charAt(i);
+            if (c == '$' || c == ' ') {
+                continue;
+            }
+            if (c >= 'a' && c <= 'z') {
+                c = (char) (c - 'a' + 'A');
+            }
+            if (c >= '0' && c <= '9') {
+                if (r1c1) {
+                    column = column * 10 + (c - '0');
+                }
+                else {
+                    row = row * 10 + (c - '0');
+                    rowDigits = true;
                 }
-                ret += val.charAt(i) - 'a';
             }
+            else if (c >= 'A' && c <= 'Z' && !rowDigits) {
+                column = column * 26 + (c - 'A' + 1);
+            }
+
+            // A C after R and its digits is the R1C1 form, so the R wasn't a column after all
+            else if (c == 'C' && rowDigits && !r1c1 && column == 'R' - 'A' + 1) {
+                r1c1 = true;
+                column = 0;
+            }
+            else {
+                throw new GoogleException("A1Notation %s is invalid", a1Notation);
+            }
+            if (row > Integer.MAX_VALUE || column > Integer.MAX_VALUE) {
+                throw new GoogleException("A1Notation %s is out of range", a1Notation);
+            }
+        }
+        if ((column == 0 && row == 0) || (rowDigits && row == 0) || (r1c1 && column == 0)) {
+            throw new GoogleException("A1Notation %s is invalid", a1Notation);
+        }
+        return (column << 32) | row;
+    }
+
+    /**
+     * Turns a zero based column index into its A1 notation name e.g. 51 == AZ
+     *
+     * @param column Zero based column index
+     * @return Column name
+     */
+    public static String getColumnName(int column) {
+        StringBuilder ret = new StringBuilder();
+        for (int i = column + 1; i > 0; i = (i - 1) / 26) {
+            ret.insert(0, (char) ('A' + (i - 1) % 26));
         }
-        return ret;
+        return ret.toString();
     }
 }
@@ -8,6 +8,7 @@ package com.pivotal.google.docs;
 
 import com.google.api.services.drive.model.File;
 import com.google.api.services.drive.model.FileList;
+import com.pivotal.google.GoogleServiceContext;
 import com.pivotal.google.GoogleServiceFactory;
 import com.pivotal.utils.EzGdocs4jException;
 import lombok.AccessLevel;
@@ -36,14 +37,16 @@ public class GoogleFile {
     @Getter(AccessLevel.PROTECTED)
     private com.google.api.services.drive.model.File file = null;
 
+    @Getter(AccessLevel.PROTECTED)
+    private final GoogleServiceContext context;
+
     /**
      * Creates an instance of the root folder
      *
      * @throws com.pivotal.google.docs.GoogleException If the file doesn't exist or no permission to access it
      */
     public GoogleFile() throws com.pivotal.google.docs.GoogleException {
-        this.fileId = "root";
-        initFile();
+        this(GoogleServiceFactory.getDefaultContext(), "root");
     }
 
     /**
@@ -53,6 +56,18 @@ public class GoogleFile {
      * @throws com.pivotal.google.docs.GoogleException If the file doesn't exist or no permission to access it
      */
     public GoogleFile(String fileId) throws com.pivotal.google.docs.GoogleException {
+        this(GoogleServiceFactory.getDefaultContext(), fileId);
+    }
+
+    /**
+     * Creates an instance of the file using the specified ID and the services of the given context
+     *
+     * @param context Context to use
+     * @param fileId  Unique ID of the file
+     * @throws com.pivotal.google.docs.GoogleException If the file doesn't exist or no permission to access it
+     */
+    public GoogleFile(GoogleServiceContext context, String fileId) throws com.pivotal.google.docs.GoogleException {
+        this.context = context;
         this.fileId = fileId;
         initFile();
     }
@@ -77,6 +92,19 @@ public class GoogleFile {
      * @throws com.pivotal.google.docs.GoogleException If it cannot create the folder
      */
     public static GoogleFile createFolder(String name, String folderId) throws com.pivotal.google.docs.GoogleException {
+        return createFolder(GoogleServiceFactory.getDefaultContext(), name, folderId);
+    }
+
+    /**
+     * Create a folder in the given folder or root if null using the services of the given context
+     *
+     * @param context  Context to use
+     * @param name     Name to give the folder
+     * @param folderId Id of the destination folder
+     * @return GoogleFile of type folder
+     * @throws com.pivotal.google.docs.GoogleException If it cannot create the folder
+     */
+    public static GoogleFile createFolder(GoogleServiceContext context, String name, String folderId) throws com.pivotal.google.docs.GoogleException {
         File fileMetadata = new File();
         fileMetadata.setName(name);
         fileMetadata.setMimeType("application/vnd.google-apps.folder");
@@ -84,10 +112,9 @@ public class GoogleFile {
             fileMetadata.setParents(Collections.singletonList(folderId));
         }
         try {
-            File file = GoogleServiceFactory.getFilesService().create(fileMetadata)
-                    .setFields("id")
-                    .execute();
-            return new GoogleFile(file.getId());
+            File file = GoogleDocsUtils.execute(context, context.getFilesService().create(fileMetadata)
+                    .setFields("id"));
+            return new GoogleFile(context, file.getId());
         }
         catch (IOException e) {
             throw new com.pivotal.google.docs.GoogleException("Failed to create folder [%s] - %s", name, e.getMessage());
@@ -103,7 +130,20 @@ public class GoogleFile {
      * @throws com.pivotal.google.docs.GoogleException If the folder doesn't exist
      */
     public static GoogleFile getFileFromFolderByName(String fileName, String folderId) throws com.pivotal.google.docs.GoogleException {
-        GoogleFile folder = new GoogleFile(folderId);
+        return getFileFromFolderByName(GoogleServiceFactory.getDefaultContext(), fileName, folderId);
+    }
+
+    /**
+     * Finds the first file in the folder that has the specified name using the services of the given context
+     *
+     * @param context  Context to use
+     * @param fileName Name of the file to get
+     * @param folderId ID of the folder to search
+     * @return Null if the file doesn't exist
+     * @throws com.pivotal.google.docs.GoogleException If the folder doesn't exist
+     */
+    public static GoogleFile getFileFromFolderByName(GoogleServiceContext context, String fileName, String folderId) throws com.pivotal.google.docs.GoogleException {
+        GoogleFile folder = new GoogleFile(context, folderId);
         List<GoogleFile> files = folder.list((dir, name) -> name.equalsIgnoreCase(fileName));
         if (!files.isEmpty()) {
             return files.get(0);
@@ -129,7 +169,7 @@ public class GoogleFile {
         List<GoogleFile> ret = new ArrayList<>();
         for (String parentId : file.getParents()) {
             try {
-                ret.add(new GoogleFile(parentId));
+                ret.add(new GoogleFile(context, parentId));
             }
             catch (com.pivotal.google.docs.GoogleException e) {
                 log.warn("Cannot get parent file {} - {}", parentId, e.getMessage());
@@ -220,27 +260,29 @@ public class GoogleFile {
         List<GoogleFile> ret = new ArrayList<>();
         try {
             FileList result;
+            String pageToken = null;
             do {
-                // Get a page of results
-                result = GoogleServiceFactory.getFilesService().list()
+                // Get a page of results, carrying on from the previous page
+                result = GoogleDocsUtils.execute(context, context.getFilesService().list()
                         .setPageSize(100)
+                        .setPageToken(pageToken)
                         .setQ(String.format("'%s' in parents", fileId))
                         .setOrderBy("name")
-                        .setFields("nextPageToken, files(id, name)")
-                        .execute();
+                        .setFields("nextPageToken, files(id, name)"));
+                pageToken = result.getNextPageToken();
 
                 // Add them to the list
                 for (File foundFile : result.getFiles()) {
                     try {
                         if (filter == null || filter.accept(null, foundFile.getName())) {
-                            ret.add(new GoogleFile(foundFile.getId()));
+                            ret.add(new GoogleFile(context, foundFile.getId()));
                         }
                     }
                     catch (com.pivotal.google.docs.GoogleException e) {
                         log.error(e.getMessage());
                     }
                 }
-            } while (result.getNextPageToken() != null);
+            } while (pageToken != null);
         }
         catch (IOException e) {
             log.debug("Cannot list files from {} - {}", fileId, e.getMessage());
@@ -258,9 +300,8 @@ public class GoogleFile {
         try {
             File localFile = new File();
             localFile.setName(name);
-            GoogleServiceFactory.getFilesService().update(fileId, localFile)
-                    .setFields("name")
-                    .execute();
+            GoogleDocsUtils.execute(context, context.getFilesService().update(fileId, localFile)
+                    .setFields("name"));
             initFile();
         }
         catch (IOException e) {
@@ -281,22 +322,21 @@ public class GoogleFile {
             try {
 
                 // Is this actually a folder
-                GoogleFile folder = new GoogleFile(folderId);
+                GoogleFile folder = new GoogleFile(context, folderId);
                 if (!folder.isFolder()) {
                     throw new com.pivotal.google.docs.GoogleException("Destination %s [%s] isn't a folder", folder.getName(), folderId);
                 }
 
                 // Retrieve the existing parents to remove
-                GoogleFile googleFile = new GoogleFile(fileId);
+                GoogleFile googleFile = new GoogleFile(context, fileId);
                 String previousParents = String.join(",", googleFile.getFile().getParents());
                 try {
 
                     // Move the file to the folder
-                    GoogleServiceFactory.getFilesService().update(fileId, null)
+                    GoogleDocsUtils.execute(context, context.getFilesService().update(fileId, null)
                             .setAddParents(folderId)
                             .setRemoveParents(previousParents)
-                            .setFields("id, parents")
-                            .execute();
+                            .setFields("id, parents"));
                 }
                 catch (IOException e) {
                     throw new com.pivotal.google.docs.GoogleException("Cannot move file %s to folder %s", e, fileId, folderId);
@@ -316,7 +356,8 @@ public class GoogleFile {
      */
     public void delete() throws com.pivotal.google.docs.GoogleException {
         try {
-            GoogleServiceFactory.getFilesService().delete(fileId).execute();
+            GoogleDocsUtils.execute(context, context.getFilesService().delete(fileId));
+            SpreadsheetMetadataCache.invalidate(fileId);
         }
         catch (IOException e) {
             throw new com.pivotal.google.docs.GoogleException("Failed to delete file [%s] (%s) - %s", file.getName(), fileId, e.getMessage());
@@ -331,9 +372,8 @@ public class GoogleFile {
      */
     private void initFile() throws com.pivotal.google.docs.GoogleException {
         try {
-            file = GoogleServiceFactory.getFilesService().get(fileId)
-                    .setFields("kind,id,name,mimeType,starred,trashed,spaces,webViewLink,createdTime,modifiedTime,owners,lastModifyingUser,capabilities,size,quotaBytesUsed,permissions")
-                    .execute();
+            file = GoogleDocsUtils.execute(context, context.getFilesService().get(fileId)
+                    .setFields("kind,id,name,mimeType,starred,trashed,spaces,webViewLink,createdTime,modifiedTime,owners,lastModifyingUser,capabilities,size,quotaBytesUsed,permissions"));
         }
         catch (IOException e) {
             throw new com.pivotal.google.docs.GoogleException("Cannot get file %s", e, fileId);
@@ -347,10 +387,20 @@ public class GoogleFile {
      * @return True if it can be accessed/opened
      */
     public static boolean exists(String fileId) {
+        return exists(GoogleServiceFactory.getDefaultContext(), fileId);
+    }
+
+    /**
+     * Convenience method to check if a file exists using the services of the given context
+     *
+     * @param context Context to use
+     * @param fileId  File ID to check
+     * @return True if it can be accessed/opened
+     */
+    public static boolean exists(GoogleServiceContext context, String fileId) {
         try {
-            GoogleServiceFactory.getFilesService().get(fileId)
-                    .setFields("id")
-                    .execute();
+            GoogleDocsUtils.execute(context, context.getFilesService().get(fileId)
+                    .setFields("id"));
             return true;
         }
         catch (IOException e) {
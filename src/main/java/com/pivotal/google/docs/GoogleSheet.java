@@ -8,17 +8,25 @@ package com.pivotal.google.docs;
 
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.*;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvValidationException;
+import com.pivotal.google.GoogleServiceContext;
 import com.pivotal.google.GoogleServiceFactory;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A metaphor for a Google sheet
@@ -41,7 +49,14 @@ public class GoogleSheet {
 
     @Getter(AccessLevel.PROTECTED)
     private final String spreadsheetId;
-    private List<Request> batchedRequestList = null;
+    @Getter(AccessLevel.PROTECTED)
+    private final GoogleServiceContext context;
+    private volatile RequestBatch batch = null;
+    private final GoogleSpreadsheet spreadsheet;
+    private ValueWriteBuffer valueBuffer = null;
+    private volatile WriteBehindWriter writeBehind = null;
+    private volatile List<List<Object>> syncSnapshot = null;
+    private volatile SheetKeyIndex keyIndex = null;
 
     public enum ValueRenderOption {
         FORMATTED_VALUE,   // Values will be calculated & formatted in the response according to the cell's formatting
@@ -49,6 +64,11 @@ public class GoogleSheet {
         FORMULA            // Values will not be calculated
     }
 
+    public enum ValueInputOption {
+        RAW,          // Values are stored exactly as they are sent
+        USER_ENTERED  // Values are parsed as if they had been typed in, so strings may become numbers, dates or formulas
+    }
+
     public enum MergeType {
         MERGE_ALL,       // Merge all cells in the range
         MERGE_COLUMNS,   // Merge just the columns
@@ -83,6 +103,9 @@ public class GoogleSheet {
     // Default size of batch rows when appending data
     public static final int DEFAULT_BATCH_ROWS = 5000;
 
+    // Size of the buffer used when reading CSV streams
+    private static final int CSV_BUFFER_SIZE = 1 << 20;
+
     /**
      * Creates a GoogleSheet object belonging to the specified spreadsheet
      *
@@ -90,7 +113,44 @@ public class GoogleSheet {
      * @param sheet         The Sheet object to get data from
      */
     protected GoogleSheet(String spreadsheetId, Sheet sheet) {
+        this(GoogleServiceFactory.getDefaultContext(), spreadsheetId, sheet);
+    }
+
+    /**
+     * Creates a GoogleSheet object belonging to the specified spreadsheet that uses
+     * the services of the given context
+     *
+     * @param context       Context to use
+     * @param spreadsheetId Spreadsheet ID
+     * @param sheet         The Sheet object to get data from
+     */
+    protected GoogleSheet(GoogleServiceContext context, String spreadsheetId, Sheet sheet) {
+        this(context, spreadsheetId, sheet, null);
+    }
+
+    /**
+     * Creates a GoogleSheet object belonging to the given spreadsheet, which enlists
+     * its requests in the batch of the spreadsheet whenever one has been started
+     *
+     * @param spreadsheet Spreadsheet the sheet belongs to
+     * @param sheet       The Sheet object to get data from
+     */
+    protected GoogleSheet(GoogleSpreadsheet spreadsheet, Sheet sheet) {
+        this(spreadsheet.getContext(), spreadsheet.getSpreadsheetId(), sheet, spreadsheet);
+    }
+
+    /**
+     * Creates a GoogleSheet object
+     *
+     * @param context       Context to use
+     * @param spreadsheetId Spreadsheet ID
+     * @param sheet         The Sheet object to get data from
+     * @param spreadsheet   Spreadsheet whose batch to use or null
+     */
+    private GoogleSheet(GoogleServiceContext context, String spreadsheetId, Sheet sheet, GoogleSpreadsheet spreadsheet) {
+        this.context = context;
         this.spreadsheetId = spreadsheetId;
+        this.spreadsheet = spreadsheet;
         SheetProperties props = sheet.getProperties();
         this.name = props.getTitle();
         this.sheetId = props.getSheetId();
@@ -105,7 +165,7 @@ public class GoogleSheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public void delete() throws GoogleException {
-        Sheet sheet = GoogleDocsUtils.getSheetById(spreadsheetId, sheetId);
+        Sheet sheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, sheetId);
         if (sheet != null) {
             DeleteSheetRequest req = new DeleteSheetRequest();
             req.setSheetId(sheetId);
@@ -126,7 +186,7 @@ public class GoogleSheet {
     public GoogleSheet duplicate(String name) throws GoogleException {
 
         // Check if the sheet already exists
-        Sheet sheet = GoogleDocsUtils.getSheetByName(spreadsheetId, name);
+        Sheet sheet = GoogleDocsUtils.getSheetByName(context, spreadsheetId, name);
         if (sheet == null) {
             DuplicateSheetRequest req = new DuplicateSheetRequest();
             req.setNewSheetName(name);
@@ -138,14 +198,14 @@ public class GoogleSheet {
             if (resp != null) {
                 List<Response> replies = resp.getReplies();
                 if (replies != null && !replies.isEmpty()) {
-                    sheet = GoogleDocsUtils.getSheetById(spreadsheetId, replies.get(0).getDuplicateSheet().getProperties().getSheetId());
+                    sheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, replies.get(0).getDuplicateSheet().getProperties().getSheetId());
                 }
             }
-            if (sheet == null && batchedRequestList != null) {
+            if (sheet == null && getActiveBatch() == null) {
                 throw new GoogleException("New sheet not found");
             }
         }
-        return sheet == null ? null : new GoogleSheet(spreadsheetId, sheet);
+        return sheet == null ? null : new GoogleSheet(context, spreadsheetId, sheet, spreadsheet);
     }
 
     /**
@@ -159,21 +219,22 @@ public class GoogleSheet {
     public GoogleSheet copyTo(String targetSpreadsheetId) throws GoogleException {
 
         // Check if the sheet already exists
-        Sheet sheet = GoogleDocsUtils.getSheetByName(targetSpreadsheetId, name);
+        Sheet sheet = GoogleDocsUtils.getSheetByName(context, targetSpreadsheetId, name);
         if (sheet == null) {
             CopySheetToAnotherSpreadsheetRequest req = new CopySheetToAnotherSpreadsheetRequest();
             req.setDestinationSpreadsheetId(targetSpreadsheetId);
             try {
-                SheetProperties resp = GoogleServiceFactory.getSheetsService().sheets().copyTo(spreadsheetId, sheetId, req).execute();
+                SheetProperties resp = GoogleDocsUtils.execute(context, spreadsheetId, context.getSheetsService().sheets().copyTo(spreadsheetId, sheetId, req));
                 if (resp != null) {
-                    sheet = GoogleDocsUtils.getSheetById(targetSpreadsheetId, resp.getSheetId());
+                    SpreadsheetMetadataCache.addSheet(context, targetSpreadsheetId, resp);
+                    sheet = GoogleDocsUtils.getSheetById(context, targetSpreadsheetId, resp.getSheetId());
                 }
             }
             catch (IOException e) {
                 throw new GoogleException("Cannot execute batch command on %s", e, spreadsheetId);
             }
         }
-        return sheet == null ? null : new GoogleSheet(targetSpreadsheetId, sheet);
+        return sheet == null ? null : new GoogleSheet(context, targetSpreadsheetId, sheet);
     }
 
     /**
@@ -187,14 +248,13 @@ public class GoogleSheet {
      * @throws GoogleException If it cannot get the data or the range is not correctly specified
      */
     public List<List<Object>> getData(String range, ValueRenderOption renderOption) throws GoogleException {
-        Sheets.Spreadsheets.Values valuesService = GoogleServiceFactory.getSheetsService().values();
+        Sheets.Spreadsheets.Values valuesService = context.getSheetsService().values();
         String canonicalRange = name + (range == null ? "" : ("!" + range));
         try {
-            ValueRange values = valuesService.get(spreadsheetId, canonicalRange)
+            ValueRange values = GoogleDocsUtils.execute(context, spreadsheetId, valuesService.get(spreadsheetId, canonicalRange)
                     .setValueRenderOption(renderOption.toString())
                     .setDateTimeRenderOption(renderOption.equals(ValueRenderOption.FORMATTED_VALUE) ? "FORMATTED_STRING" : "SERIAL_NUMBER")
-                    .setMajorDimension("ROWS")
-                    .execute();
+                    .setMajorDimension("ROWS"));
             return values.getValues();
         }
         catch (IOException e) {
@@ -202,6 +262,34 @@ public class GoogleSheet {
         }
     }
 
+    /**
+     * Returns a reader that streams the rows of the range a window at a time, for sheets
+     * that are too large to read in one go with getData()
+     * The reader should be closed if it isn't read to the end
+     *
+     * @param range        Range e.g. A1:C or null for the whole sheet
+     * @param renderOption How the returned data should be formatted
+     * @return Reader of the rows
+     * @throws GoogleException If the sheet cannot be read or the range is not correctly specified
+     */
+    public SheetRowReader getDataReader(String range, ValueRenderOption renderOption) throws GoogleException {
+        return new SheetRowReader(this, range, renderOption, GoogleAsyncExecutor.getPipeline(), SheetRowReader.DEFAULT_TARGET_BYTES);
+    }
+
+    /**
+     * Returns a stream of the rows of the range, see {@link #getDataReader(String, ValueRenderOption)}
+     * The stream should be closed if it isn't read to the end e.g. by using it in a try-with-resources
+     *
+     * @param range        Range e.g. A1:C or null for the whole sheet
+     * @param renderOption How the returned data should be formatted
+     * @return Stream of rows
+     * @throws GoogleException If the sheet cannot be read or the range is not correctly specified
+     */
+    public Stream<List<Object>> streamData(String range, ValueRenderOption renderOption) throws GoogleException {
+        SheetRowReader reader = getDataReader(range, renderOption);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(reader::close);
+    }
+
     /**
      * Hides/unhides the sheet
      * Doesn't do anything if the sheet doesn't exist
@@ -237,18 +325,18 @@ public class GoogleSheet {
      * Renames the sheet to a new name
      * If the new name exists, the operation cancels
      *
-     * @param name        Name to set the sheet to
-     * @param requestList Optional list to add the request to
+     * @param name         Name to set the sheet to
+     * @param requestBatch Optional batch to add the request to
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
-    protected void rename(String name, List<Request> requestList) throws GoogleException {
+    protected void rename(String name, RequestBatch requestBatch) throws GoogleException {
 
         // Check if the sheet already exists
-        Sheet sheet = GoogleDocsUtils.getSheetByName(spreadsheetId, name);
+        Sheet sheet = GoogleDocsUtils.getSheetByName(context, spreadsheetId, name);
         if (sheet == null) {
 
             // Get the values for current sheet
-            sheet = GoogleDocsUtils.getSheetById(spreadsheetId, sheetId);
+            sheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, sheetId);
             if (sheet != null) {
                 SheetProperties props = sheet.getProperties();
                 props.setTitle(name);
@@ -259,8 +347,8 @@ public class GoogleSheet {
                 request.setUpdateSheetProperties(req);
 
                 // Check to see how to execute it
-                if (requestList != null) {
-                    requestList.add(request);
+                if (requestBatch != null) {
+                    requestBatch.add(request);
                 }
                 else {
                     executeBatchRequest(request);
@@ -296,6 +384,8 @@ public class GoogleSheet {
         req.setFields("*");
         Request request = new Request();
         request.setUpdateCells(req);
+        keyIndex = null;
+        syncSnapshot = null;
         executeBatchRequest(request);
     }
 
@@ -315,9 +405,11 @@ public class GoogleSheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public void clearData(String range) throws GoogleException {
-        Sheets.Spreadsheets.Values valuesService = GoogleServiceFactory.getSheetsService().values();
+        Sheets.Spreadsheets.Values valuesService = context.getSheetsService().values();
+        keyIndex = null;
+        syncSnapshot = null;
         try {
-            valuesService.clear(spreadsheetId, name + (range == null ? "" : ("!" + range)), new ClearValuesRequest()).execute();
+            GoogleDocsUtils.execute(context, spreadsheetId, valuesService.clear(spreadsheetId, name + (range == null ? "" : ("!" + range)), new ClearValuesRequest()));
         }
         catch (IOException e) {
             throw new GoogleException("Cannot clear sheet data for %s", e, name);
@@ -372,22 +464,93 @@ public class GoogleSheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public void appendCsvValues(String rangeStart, String csvText, boolean includeHeader) throws GoogleException {
-        try (CSVReader reader = new CSVReader(new StringReader(csvText))) {
-
-            // Buffer for the sheet data
-            List<List<Object>> rows = new ArrayList<>();
-            String[] values;
-            boolean firstRow = true;
-            while ((values = reader.readNext()) != null) {
-                if (!firstRow || includeHeader) {
-                    rows.add(Arrays.asList(values));
-                }
-                firstRow = false;
-            }
-            appendValues(rangeStart, rows);
+        appendCsvValues(rangeStart, new StringReader(csvText), includeHeader);
+    }
+
+    /**
+     * Appends CSV data read from a Reader, the data is appended in chunks as it is parsed
+     * so the whole of it is never held in memory
+     * If rangeStart is null, then the data is appended to the end of the
+     * current data range
+     *
+     * @param rangeStart    Where to start to append the data from R1C1 notation
+     * @param reader        CSV data, closed when it has been read
+     * @param includeHeader True if the header should be included
+     * @throws GoogleException If the spreadsheet cannot be opened/found or the CSV cannot be read
+     */
+    public void appendCsvValues(String rangeStart, Reader reader, boolean includeHeader) throws GoogleException {
+        appendCsvValues(rangeStart, reader, includeHeader, false);
+    }
+
+    /**
+     * Appends CSV data read from a Reader, see {@link #appendCsvValues(String, Reader, boolean)}
+     * If inferTypes is true, the type of each column is worked out from the first rows and the values
+     * are sent as numbers, booleans and dates using the RAW input option, which makes the request
+     * smaller and saves Google from parsing every cell. Text columns are then stored exactly as they
+     * are, so values that look like formulas or percentages are not interpreted
+     *
+     * @param rangeStart    Where to start to append the data from R1C1 notation
+     * @param reader        CSV data, closed when it has been read
+     * @param includeHeader True if the header should be included
+     * @param inferTypes    True if the values should be converted to the types of their columns
+     * @throws GoogleException If the spreadsheet cannot be opened/found or the CSV cannot be read
+     */
+    public void appendCsvValues(String rangeStart, Reader reader, boolean includeHeader, boolean inferTypes) throws GoogleException {
+        new CsvImporter(this, GoogleAsyncExecutor.getPipeline(), new ValueChunker(), includeHeader, inferTypes).importCsv(rangeStart, reader);
+    }
+
+    /**
+     * Appends UTF-8 encoded CSV data read from a stream, see {@link #appendCsvValues(String, Reader, boolean)}
+     *
+     * @param rangeStart    Where to start to append the data from R1C1 notation
+     * @param stream        CSV data, closed when it has been read
+     * @param includeHeader True if the header should be included
+     * @throws GoogleException If the spreadsheet cannot be opened/found or the CSV cannot be read
+     */
+    public void appendCsvValues(String rangeStart, InputStream stream, boolean includeHeader) throws GoogleException {
+        appendCsvValues(rangeStart, stream, includeHeader, false);
+    }
+
+    /**
+     * Appends UTF-8 encoded CSV data read from a stream, see {@link #appendCsvValues(String, Reader, boolean, boolean)}
+     *
+     * @param rangeStart    Where to start to append the data from R1C1 notation
+     * @param stream        CSV data, closed when it has been read
+     * @param includeHeader True if the header should be included
+     * @param inferTypes    True if the values should be converted to the types of their columns
+     * @throws GoogleException If the spreadsheet cannot be opened/found or the CSV cannot be read
+     */
+    public void appendCsvValues(String rangeStart, InputStream stream, boolean includeHeader, boolean inferTypes) throws GoogleException {
+        appendCsvValues(rangeStart, new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), CSV_BUFFER_SIZE), includeHeader, inferTypes);
+    }
+
+    /**
+     * Appends the contents of a UTF-8 encoded CSV file, see {@link #appendCsvValues(String, Reader, boolean)}
+     *
+     * @param rangeStart    Where to start to append the data from R1C1 notation
+     * @param file          CSV file
+     * @param includeHeader True if the header should be included
+     * @throws GoogleException If the spreadsheet cannot be opened/found or the file cannot be read
+     */
+    public void appendCsvValues(String rangeStart, Path file, boolean includeHeader) throws GoogleException {
+        appendCsvValues(rangeStart, file, includeHeader, false);
+    }
+
+    /**
+     * Appends the contents of a UTF-8 encoded CSV file, see {@link #appendCsvValues(String, Reader, boolean, boolean)}
+     *
+     * @param rangeStart    Where to start to append the data from R1C1 notation
+     * @param file          CSV file
+     * @param includeHeader True if the header should be included
+     * @param inferTypes    True if the values should be converted to the types of their columns
+     * @throws GoogleException If the spreadsheet cannot be opened/found or the file cannot be read
+     */
+    public void appendCsvValues(String rangeStart, Path file, boolean includeHeader, boolean inferTypes) throws GoogleException {
+        try {
+            appendCsvValues(rangeStart, Files.newInputStream(file), includeHeader, inferTypes);
         }
-        catch (IOException | CsvValidationException e) {
-            throw new GoogleException("Cannot read CSV data", e);
+        catch (IOException e) {
+            throw new GoogleException("Cannot open CSV file %s", e, file);
         }
     }
 
@@ -416,7 +579,7 @@ public class GoogleSheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public void appendValues(String rangeStart, List<List<Object>> values) throws GoogleException {
-        appendValues(rangeStart, values, DEFAULT_BATCH_ROWS);
+        appendValues(rangeStart, values, new ValueChunker());
     }
 
     /**
@@ -432,15 +595,65 @@ public class GoogleSheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public void appendValues(String rangeStart, List<List<Object>> values, int batchSize) throws GoogleException {
-        Sheets.Spreadsheets.Values valuesService = GoogleServiceFactory.getSheetsService().values();
+        appendValues(rangeStart, values, new ValueChunker().maxRows(batchSize));
+    }
+
+    /**
+     * Appends the List of Lists of Object values to the sheet
+     * If rangeStart is null, then the data is appended to the end of the
+     * current data range
+     * The chunker decides how many rows to send in each append so that every
+     * request is as large as it can safely be
+     *
+     * @param rangeStart Where to start to append the data from R1C1 notation
+     * @param values     List of List of Objects
+     * @param chunker    Chunker to split the values with
+     * @throws GoogleException If the spreadsheet cannot be opened/found
+     */
+    public void appendValues(String rangeStart, List<List<Object>> values, ValueChunker chunker) throws GoogleException {
+        appendValues(rangeStart, values, chunker, ValueInputOption.USER_ENTERED);
+    }
+
+    /**
+     * Appends the List of Lists of Object values to the sheet, see {@link #appendValues(String, List, ValueChunker)}
+     * RAW is quicker when the values are already numbers, booleans or date serials because
+     * Google doesn't have to parse them, but strings are then never turned into numbers or formulas
+     *
+     * @param rangeStart  Where to start to append the data from R1C1 notation
+     * @param values      List of List of Objects
+     * @param chunker     Chunker to split the values with
+     * @param inputOption How Google should interpret the values
+     * @throws GoogleException If the spreadsheet cannot be opened/found
+     */
+    public void appendValues(String rangeStart, List<List<Object>> values, ValueChunker chunker, ValueInputOption inputOption) throws GoogleException {
+        WriteBehindWriter writer = writeBehind;
+        if (writer != null && !writer.isClosed() && inputOption == ValueInputOption.USER_ENTERED) {
+            writer.append(rangeStart, values);
+        }
+        else {
+            appendValuesNow(rangeStart, values, chunker, inputOption);
+        }
+    }
+
+    /**
+     * Appends the List of Lists of Object values to the sheet straight away, whether
+     * or not the sheet is in write-behind mode
+     *
+     * @param rangeStart  Where to start to append the data from R1C1 notation
+     * @param values      List of List of Objects
+     * @param chunker     Chunker to split the values with
+     * @param inputOption How Google should interpret the values
+     * @throws GoogleException If the spreadsheet cannot be opened/found
+     */
+    protected void appendValuesNow(String rangeStart, List<List<Object>> values, ValueChunker chunker, ValueInputOption inputOption) throws GoogleException {
+        Sheets.Spreadsheets.Values valuesService = context.getSheetsService().values();
         try {
-            // There is a limit on the POST size (134217728), so we may need to split this into multiple appends
+            // There is a limit on the POST size, so we may need to split this into multiple appends
             int start = 0;
-            while (start < values.size()) {
-                batchSize = Math.min(values.size() - start, batchSize);
-                log.debug("Appending batch of {} rows of {} left", batchSize, values.size());
-                appendValuesBatch(valuesService, start == 0 ? rangeStart : null, values, start, batchSize);
-                start += batchSize;
+            for (List<List<Object>> chunk : chunker.split(values)) {
+                log.debug("Appending batch of {} rows of {} left", chunk.size(), values.size() - start);
+                appendValuesBatch(valuesService, start == 0 ? rangeStart : null, values, start, chunk.size(), inputOption);
+                start += chunk.size();
             }
         }
         catch (IOException e) {
@@ -448,6 +661,201 @@ public class GoogleSheet {
         }
     }
 
+    /**
+     * Loads a large number of rows into the sheet by writing chunks of them in parallel,
+     * which is much quicker than appendValues() for hundreds of thousands of rows
+     * Unlike appendValues(), the values are written at exactly rangeStart, replacing anything already there
+     * If rangeStart is null, the values are appended to the end of the current data
+     *
+     * @param rangeStart Top left cell to write to in A1 notation or null to append
+     * @param values     List of List of Objects
+     * @throws GoogleException If any of the rows cannot be written
+     */
+    public void bulkLoad(String rangeStart, List<List<Object>> values) throws GoogleException {
+        bulkLoad(rangeStart, values, BulkLoader.DEFAULT_PARALLELISM, null);
+    }
+
+    /**
+     * Loads a large number of rows into the sheet by writing chunks of them in parallel,
+     * see {@link #bulkLoad(String, List)}
+     * The grid is grown to fit the values before any of them are written and the request
+     * to do so is sent straight away, even in batch mode
+     *
+     * @param rangeStart  Top left cell to write to in A1 notation or null to append
+     * @param values      List of List of Objects
+     * @param parallelism Maximum number of chunks to write at the same time
+     * @param listener    Listener to notify as each chunk is written or null
+     * @throws GoogleException If any of the rows cannot be written
+     */
+    public void bulkLoad(String rangeStart, List<List<Object>> values, int parallelism, BulkLoader.ProgressListener listener) throws GoogleException {
+        keyIndex = null;
+        syncSnapshot = null;
+        new BulkLoader(this, GoogleAsyncExecutor.getPipeline(), parallelism, new ValueChunker().maxRows(DEFAULT_BATCH_ROWS), listener).load(rangeStart, values);
+    }
+
+    /**
+     * Makes the sheet hold exactly the desired values, starting at A1, by sending only what
+     * has changed rather than clearing and rewriting everything
+     * The first call reads the current values, later calls compare with the values given to
+     * the previous call, so the sheet should not be changed in any other way in between, see
+     * {@link #sync(List, boolean)}. Changing the sheet through this object makes the next call
+     * read the values again. The changes are sent straight away, so any changes queued in
+     * write-behind mode are sent first and it cannot be used in batch mode
+     *
+     * @param desired Rows of values, strings starting with = are formulas
+     * @return The changes that were made
+     * @throws GoogleException If the sheet cannot be read or the changes cannot be written
+     */
+    public SheetDiff sync(List<List<Object>> desired) throws GoogleException {
+        return sync(desired, false);
+    }
+
+    /**
+     * Makes the sheet hold exactly the desired values, see {@link #sync(List)}
+     * Unchanged rows are left alone, rows that have been added or removed above the end
+     * of the data are inserted or deleted so that the rows below them only move, and only
+     * the cells that differ are written. Rows removed from the end of the data are cleared.
+     * Formatting is left as it is
+     *
+     * @param desired Rows of values, strings starting with = are formulas
+     * @param reread  True to read the current values rather than use those from the last sync
+     * @return The changes that were made
+     * @throws GoogleException If a batch is active, or the sheet cannot be read or the changes cannot be written
+     */
+    public SheetDiff sync(List<List<Object>> desired, boolean reread) throws GoogleException {
+
+        // The values must not be read or written ahead of changes that haven't been sent yet
+        if (getActiveBatch() != null) {
+            throw new GoogleException("Cannot sync %s while a batch is active", name);
+        }
+        writeBehindFlush();
+
+        List<List<Object>> current = syncSnapshot;
+        if (current == null || reread) {
+            current = getData(null, ValueRenderOption.FORMULA);
+        }
+        SheetDiff diff = new SheetDiff(current, desired);
+        log.debug("Syncing {} with {} inserted rows, {} deleted rows and {} changed cells", name, diff.getInsertedRows(), diff.getDeletedRows(), diff.getChangedCells());
+
+        // Forget the snapshot until we know the sheet matches it again
+        syncSnapshot = null;
+        keyIndex = null;
+
+        // Move the rows first so that the cells are written to their final positions
+        if (!diff.getRowChanges().isEmpty()) {
+            RequestBatch rowBatch = new RequestBatch(context, spreadsheetId, BatchLimits.payloadSafe());
+            for (SheetDiff.RowChange change : diff.getRowChanges()) {
+                rowBatch.add(change.isInsert() ? getInsertDimensionRequest("ROWS", change.getStartRow(), change.getCount()) : getDeleteDimensionRequest("ROWS", change.getStartRow(), change.getCount()));
+            }
+            rowBatch.execute();
+        }
+        writeCells(diff.getCells());
+        syncSnapshot = diff.getNormalized();
+        return diff;
+    }
+
+    /**
+     * Writes rows to the sheet, updating the row that has the same value in the key column
+     * or adding the row after the data if the key is new
+     * The first call reads the key column to find the row of each key, later calls use the
+     * index built from it, which is kept in step with rows inserted and deleted through this
+     * object, so no more reads are needed. Anything else that moves the rows, such as clearing
+     * or appending, drops the index so that it is read again next time
+     * All the rows are sent together with values.batchUpdate straight away, so any changes
+     * queued in write-behind mode are sent first and it cannot be used in batch mode
+     *
+     * @param keyColumn Zero based index of the key column
+     * @param rows      Rows of values starting at column A, strings starting with = are formulas
+     * @return Number of rows that were added
+     * @throws GoogleException If a batch is active, a row has no key, or the sheet cannot be read or written
+     */
+    public int upsertRows(int keyColumn, List<List<Object>> rows) throws GoogleException {
+
+        // The rows must not be written ahead of changes that would move them
+        if (getActiveBatch() != null) {
+            throw new GoogleException("Cannot upsert rows into %s while a batch is active", name);
+        }
+        writeBehindFlush();
+        syncSnapshot = null;
+
+        SheetKeyIndex index = keyIndex;
+        if (index == null || index.getKeyColumn() != keyColumn) {
+            String column = GoogleDocsUtils.getColumnName(keyColumn);
+            index = new SheetKeyIndex(keyColumn, getData(column + ':' + column, ValueRenderOption.UNFORMATTED_VALUE));
+            log.debug("Built index of {} keys in column {} of {}", index.size(), column, name);
+            keyIndex = index;
+        }
+
+        // Work out where each row goes
+        SortedMap<Long, Object> cells = new TreeMap<>();
+        int added = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            List<Object> row = rows.get(i);
+            Object key = row == null || keyColumn >= row.size() ? null : row.get(keyColumn);
+            if (SheetKeyIndex.getKey(key) == null) {
+                throw new GoogleException("Row %d has no value in key column %s", i, GoogleDocsUtils.getColumnName(keyColumn));
+            }
+            if (index.getRow(key) == null) {
+                added++;
+            }
+            int rowIndex = index.add(key);
+            for (int column = 0; column < row.size(); column++) {
+                cells.put(ValueWriteBuffer.getKey(rowIndex, column), row.get(column) == null ? "" : row.get(column));
+            }
+        }
+        try {
+            writeCells(cells);
+        }
+        catch (GoogleException e) {
+
+            // The new keys may not have been written, so the index can't be trusted
+            keyIndex = null;
+            throw e;
+        }
+        return added;
+    }
+
+    /**
+     * Drops the index of keys used by upsertRows() and the values remembered by sync() so that
+     * they are read again on the next call, which is needed if the rows have been changed by
+     * something other than this object
+     */
+    public void keyIndexClear() {
+        keyIndex = null;
+        syncSnapshot = null;
+    }
+
+    /**
+     * Writes cells to the sheet with values.batchUpdate, strings starting with = are written as formulas
+     *
+     * @param cells Values keyed on ValueWriteBuffer.getKey()
+     * @throws GoogleException If the cells cannot be written
+     */
+    private void writeCells(SortedMap<Long, Object> cells) throws GoogleException {
+        if (cells.isEmpty()) {
+            return;
+        }
+        ValueWriteBuffer buffer = new ValueWriteBuffer(context, spreadsheetId);
+        int rows = 0;
+        int columns = 0;
+        for (Map.Entry<Long, Object> cell : cells.entrySet()) {
+            int row = ValueWriteBuffer.getRow(cell.getKey());
+            int column = ValueWriteBuffer.getColumn(cell.getKey());
+            if (cell.getValue() instanceof String && ((String) cell.getValue()).startsWith("=")) {
+                buffer.setFormula(name, row, column, (String) cell.getValue());
+            }
+            else {
+                buffer.setValue(name, row, column, cell.getValue());
+            }
+            rows = Math.max(rows, row + 1);
+            columns = Math.max(columns, column + 1);
+        }
+        buffer.flush();
+
+        // Writing values silently grows the grid, so keep the cached size in step
+        SpreadsheetMetadataCache.growGrid(context, spreadsheetId, sheetId, rows, columns);
+    }
+
     /**
      * Appends a batch of values to the sheet
      *
@@ -456,15 +864,37 @@ public class GoogleSheet {
      * @param batchValues   List of List of Objects
      * @param start         Start index within values
      * @param length        Length of batch
-     * @throws IOException If the append fails
-     */
-    private void appendValuesBatch(Sheets.Spreadsheets.Values valuesService, String rangeStart, List<List<Object>> values, int start, int length) throws IOException {
-        log.debug("Appending {} rows starting at {}", length - start, rangeStart == null ? "last row" : rangeStart);
+     * @param inputOption   How Google should interpret the values
+     * @return Range that the values were written to or null if it isn't known
+     * @throws IOException     If the append fails
+     * @throws GoogleException If the wait for the rate limiter has been deferred
+     */
+    protected GridRange appendValuesBatch(Sheets.Spreadsheets.Values valuesService, String rangeStart, List<List<Object>> values, int start, int length, ValueInputOption inputOption) throws IOException, GoogleException {
+        log.debug("Appending {} rows starting at {}", length, rangeStart == null ? "last row" : rangeStart);
+        keyIndex = null;
+        syncSnapshot = null;
         List<List<Object>> batchValues = values.subList(start, start + length);
         Sheets.Spreadsheets.Values.Append append = valuesService.append(spreadsheetId, name + (rangeStart == null ? "" : ("!" + rangeStart)), new ValueRange().setValues(batchValues));
-        append.setValueInputOption("USER_ENTERED");
+        append.setValueInputOption(inputOption.toString());
         append.setIncludeValuesInResponse(false);
-        append.execute();
+        AppendValuesResponse response = GoogleDocsUtils.execute(context, spreadsheetId, append);
+
+        // Appending silently grows the grid, so keep the cached size in step
+        if (response != null && response.getUpdates() != null && response.getUpdates().getUpdatedRange() != null) {
+            String updatedRange = response.getUpdates().getUpdatedRange();
+            try {
+                GridRange gridRange = GoogleDocsUtils.getGridRange(sheetId, updatedRange.substring(updatedRange.lastIndexOf('!') + 1));
+                if (gridRange.getEndRowIndex() != null && gridRange.getEndColumnIndex() != null) {
+                    SpreadsheetMetadataCache.growGrid(context, spreadsheetId, sheetId, gridRange.getEndRowIndex(), gridRange.getEndColumnIndex());
+                }
+                return gridRange;
+            }
+            catch (GoogleException e) {
+                log.debug("Cannot parse appended range {} - invalidating cached metadata", updatedRange);
+                SpreadsheetMetadataCache.invalidate(spreadsheetId);
+            }
+        }
+        return null;
     }
 
     /**
@@ -717,7 +1147,7 @@ public class GoogleSheet {
      */
     public Map<String, FilterView> getFilterMap() throws GoogleException {
         Map<String, FilterView> ret = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-        Sheet sheet = GoogleDocsUtils.getSheetById(spreadsheetId, sheetId);
+        Sheet sheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, sheetId, GoogleDocsUtils.FetchProfile.FILTER_VIEWS);
         if (sheet != null) {
             List<FilterView> views = sheet.getFilterViews();
             if (views != null) {
@@ -1010,19 +1440,15 @@ public class GoogleSheet {
             return;
         }
 
-        // Create a request for the sheet
-        DeleteDimensionRequest req = new DeleteDimensionRequest();
-        DimensionRange range = new DimensionRange();
-        range.setSheetId(sheetId);
-        range.setDimension("ROWS");
-        range.setStartIndex(startRow);
-        range.setEndIndex(startRow + count);
-        req.setRange(range);
-
-        // Execute the request on the spreadsheet
-        Request request = new Request();
-        request.setDeleteDimension(req);
-        executeBatchRequest(request, true);
+        // Execute the request on the spreadsheet and keep the key index in step, but only
+        // once the rows have really gone, a queued or failed request means it is read again
+        SheetKeyIndex index = keyIndex;
+        keyIndex = null;
+        syncSnapshot = null;
+        if (executeBatchRequest(getDeleteDimensionRequest("ROWS", startRow, count), true) != null && index != null) {
+            index.deleteRows(startRow, count);
+            keyIndex = index;
+        }
     }
 
     /**
@@ -1050,19 +1476,8 @@ public class GoogleSheet {
             return;
         }
 
-        // Create a request for the sheet
-        DeleteDimensionRequest req = new DeleteDimensionRequest();
-        DimensionRange range = new DimensionRange();
-        range.setSheetId(sheetId);
-        range.setDimension("COLUMNS");
-        range.setStartIndex(startColumn);
-        range.setEndIndex(startColumn + count);
-        req.setRange(range);
-
         // Execute the request on the spreadsheet
-        Request request = new Request();
-        request.setDeleteDimension(req);
-        executeBatchRequest(request, true);
+        executeBatchRequest(getDeleteDimensionRequest("COLUMNS", startColumn, count), true);
     }
 
     /**
@@ -1074,19 +1489,15 @@ public class GoogleSheet {
      */
     public void insertRows(int startRow, int count) throws GoogleException {
 
-        // Create a request for the sheet
-        InsertDimensionRequest req = new InsertDimensionRequest();
-        DimensionRange range = new DimensionRange();
-        range.setSheetId(sheetId);
-        range.setDimension("ROWS");
-        range.setStartIndex(startRow);
-        range.setEndIndex(startRow + count);
-        req.setRange(range);
-
-        // Execute the request on the spreadsheet
-        Request request = new Request();
-        request.setInsertDimension(req);
-        executeBatchRequest(request);
+        // Execute the request on the spreadsheet and keep the key index in step, but only
+        // once the rows have really moved, a queued or failed request means it is read again
+        SheetKeyIndex index = keyIndex;
+        keyIndex = null;
+        syncSnapshot = null;
+        if (executeBatchRequest(getInsertDimensionRequest("ROWS", startRow, count)) != null && index != null) {
+            index.insertRows(startRow, count);
+            keyIndex = index;
+        }
     }
 
     /**
@@ -1098,19 +1509,42 @@ public class GoogleSheet {
      */
     public void insertColumns(int startColumn, int count) throws GoogleException {
 
-        // Create a request for the sheet
-        InsertDimensionRequest req = new InsertDimensionRequest();
+        // Execute the request on the spreadsheet
+        executeBatchRequest(getInsertDimensionRequest("COLUMNS", startColumn, count));
+    }
+
+    /**
+     * Creates a request to delete rows or columns
+     *
+     * @param dimension  ROWS or COLUMNS
+     * @param startIndex First row or column to delete
+     * @param count      Number of rows or columns to delete
+     * @return Request
+     */
+    private Request getDeleteDimensionRequest(String dimension, int startIndex, int count) {
         DimensionRange range = new DimensionRange();
         range.setSheetId(sheetId);
-        range.setDimension("COLUMNS");
-        range.setStartIndex(startColumn);
-        range.setEndIndex(startColumn + count);
-        req.setRange(range);
+        range.setDimension(dimension);
+        range.setStartIndex(startIndex);
+        range.setEndIndex(startIndex + count);
+        return new Request().setDeleteDimension(new DeleteDimensionRequest().setRange(range));
+    }
 
-        // Execute the request on the spreadsheet
-        Request request = new Request();
-        request.setInsertDimension(req);
-        executeBatchRequest(request);
+    /**
+     * Creates a request to insert rows or columns
+     *
+     * @param dimension  ROWS or COLUMNS
+     * @param startIndex Row or column to insert before
+     * @param count      Number of rows or columns to insert
+     * @return Request
+     */
+    private Request getInsertDimensionRequest(String dimension, int startIndex, int count) {
+        DimensionRange range = new DimensionRange();
+        range.setSheetId(sheetId);
+        range.setDimension(dimension);
+        range.setStartIndex(startIndex);
+        range.setEndIndex(startIndex + count);
+        return new Request().setInsertDimension(new InsertDimensionRequest().setRange(range));
     }
 
     /**
@@ -1120,7 +1554,7 @@ public class GoogleSheet {
      * @throws GoogleException If the sheet cannot be opened
      */
     public int getRowCount() throws GoogleException {
-        Sheet sheet = GoogleDocsUtils.getSheetById(spreadsheetId, sheetId);
+        Sheet sheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, sheetId);
         if (sheet != null) {
             return sheet.getProperties().getGridProperties().getRowCount();
         }
@@ -1134,7 +1568,7 @@ public class GoogleSheet {
      * @throws GoogleException If the sheet cannot be opened
      */
     public int getColumnCount() throws GoogleException {
-        Sheet sheet = GoogleDocsUtils.getSheetById(spreadsheetId, sheetId);
+        Sheet sheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, sheetId);
         if (sheet != null) {
             return sheet.getProperties().getGridProperties().getColumnCount();
         }
@@ -1342,30 +1776,184 @@ public class GoogleSheet {
      * Starts a batch so that all subsequent batch updates are captured
      */
     public void batchStart() {
-        batchedRequestList = new ArrayList<>();
+        batchStart(BatchLimits.unbounded());
+    }
+
+    /**
+     * Starts a batch so that all subsequent batch updates are captured and
+     * automatically sent as sub-batches whenever one of the limits is reached
+     * e.g. BatchLimits.payloadSafe() to avoid exceeding the maximum payload
+     *
+     * @param limits Thresholds at which to send the pending requests
+     */
+    public void batchStart(BatchLimits limits) {
+        batchStart(limits, true);
+    }
+
+    /**
+     * Starts a batch with the given limits and specifies whether redundant formatting
+     * requests are coalesced before they are sent
+     *
+     * @param limits   Thresholds at which to send the pending requests
+     * @param optimize True to pass the requests through the RequestOptimizer
+     */
+    public void batchStart(BatchLimits limits, boolean optimize) {
+        batch = new RequestBatch(context, spreadsheetId, limits);
+        batch.setOptimize(optimize);
     }
 
     /**
      * Clears the current batch list of requests pending execution
+     * Any sub-batches that have already been sent are not affected
      */
     public void batchClear() {
-        batchedRequestList = null;
+        batch = null;
     }
 
     /**
      * If we are in batch mode (there are some pending requests) executes
      * them as a single transaction
+     * If the batch has been sending sub-batches, the replies from all of them are
+     * returned in the same order as the requests
+     * Other threads may keep adding requests while this runs, anything added before it
+     * was called is sent by it and anything added afterwards is sent straight away
      *
      * @return BatchUpdateSpreadsheetResponse Response from server or null if no requests
      * @throws GoogleException If there was a problem with batch requests
      */
     public BatchUpdateSpreadsheetResponse batchExecute() throws GoogleException {
-        if (batchedRequestList != null && !batchedRequestList.isEmpty()) {
-            BatchUpdateSpreadsheetResponse resp = GoogleDocsUtils.executeBatchRequest(spreadsheetId, batchedRequestList.toArray(new Request[0]));
-            batchedRequestList = null;
-            return resp;
+        RequestBatch requestBatch = batch;
+        if (requestBatch == null || !requestBatch.hasRequests()) {
+            return null;
         }
-        return null;
+
+        // Detach the batch before closing it so that other threads start sending their
+        // requests elsewhere, and wait for any adds that were already under way
+        batch = null;
+        requestBatch.close();
+        try {
+            return requestBatch.execute();
+        }
+        catch (GoogleException e) {
+
+            // Put the batch back so that the caller can try again
+            requestBatch.reopen();
+            if (batch == null) {
+                batch = requestBatch;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts buffering cell values so that setValue(), setText(), setBoolean(), setDate() and
+     * setFormula() on bounded ranges are collected and sent by valueBufferExecute() using
+     * values.batchUpdate, with adjacent cells merged into rectangles, instead of as one
+     * RepeatCellRequest per call. Open-ended ranges and formulas for more than one cell
+     * are still sent as RepeatCellRequests
+     * The values are sent separately from any batch of other requests, so formatting that
+     * depends on them should be executed after them
+     */
+    public void valueBufferStart() {
+        valueBufferStart(0);
+    }
+
+    /**
+     * Starts buffering cell values, see {@link #valueBufferStart()}, sending them
+     * automatically whenever the given number of cells are waiting
+     *
+     * @param maxCells Number of pending cells to send at (0 means only when executed)
+     */
+    public void valueBufferStart(int maxCells) {
+        valueBuffer = new ValueWriteBuffer(context, spreadsheetId).maxCells(maxCells);
+    }
+
+    /**
+     * Sends any buffered cell values and stops buffering
+     *
+     * @return Number of cells sent
+     * @throws GoogleException If the values cannot be written
+     */
+    public int valueBufferExecute() throws GoogleException {
+        if (valueBuffer == null) {
+            return 0;
+        }
+        int ret = valueBuffer.flush();
+        valueBuffer = null;
+        return ret;
+    }
+
+    /**
+     * Starts write-behind mode, see {@link #writeBehindStart(BatchLimits, int, WriteBehindWriter.FailureListener)},
+     * using the default limits and capacity and logging any failures
+     */
+    public void writeBehindStart() {
+        writeBehindStart(null, WriteBehindWriter.DEFAULT_CAPACITY, null);
+    }
+
+    /**
+     * Starts write-behind mode, where batch updates and appended rows are queued and sent by
+     * a background thread whenever the number of queued changes reaches limits.maxRequests
+     * or the oldest has waited for limits.maxAge milliseconds
+     * When the queue is full, callers wait until there is room. A batch started with batchStart()
+     * takes precedence, and appends using RAW input are always sent straight away, as are requests
+     * whose reply is needed, such as duplicating the sheet, once everything queued before them has been
+     * Because changes are sent later, failures are reported to the listener rather than the caller
+     *
+     * @param limits   Number of changes and age at which to send, null for the defaults
+     * @param capacity Most changes that can be queued before callers are made to wait
+     * @param listener Listener to tell about changes that could not be sent, null to log them
+     */
+    public void writeBehindStart(BatchLimits limits, int capacity, WriteBehindWriter.FailureListener listener) {
+        WriteBehindWriter previous = writeBehind;
+        writeBehind = new WriteBehindWriter(this, limits, capacity, listener);
+        if (previous != null) {
+            try {
+                previous.close();
+            }
+            catch (GoogleException e) {
+                log.warn("Cannot close the previous write-behind writer for {} - {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Waits until all the changes queued in write-behind mode have been sent, or have failed
+     *
+     * @throws GoogleException If the wait is interrupted
+     */
+    public void writeBehindFlush() throws GoogleException {
+        WriteBehindWriter writer = writeBehind;
+        if (writer != null && !writer.isClosed()) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Sends all the queued changes and stops write-behind mode, so that
+     * changes are once more sent straight away
+     *
+     * @throws GoogleException If the wait is interrupted
+     */
+    public void writeBehindStop() throws GoogleException {
+        WriteBehindWriter writer = writeBehind;
+        if (writer != null) {
+            writeBehind = null;
+            writer.close();
+        }
+    }
+
+    /**
+     * Returns the batch that requests should be added to, which is the batch of this sheet
+     * if one has been started, otherwise the batch of the spreadsheet it was obtained from
+     *
+     * @return Batch or null if requests should be sent straight away
+     */
+    private RequestBatch getActiveBatch() {
+        if (batch != null) {
+            return batch;
+        }
+        return spreadsheet == null ? null : spreadsheet.getBatch();
     }
 
     /**
@@ -1390,15 +1978,32 @@ public class GoogleSheet {
      * @throws GoogleException If the batch fails
      */
     private BatchUpdateSpreadsheetResponse executeBatchRequest(Request request, boolean absorbException) throws GoogleException {
-        if (batchedRequestList != null) {
-            batchedRequestList.add(request);
+        syncSnapshot = null;
+
+        // A batch that is being executed refuses new requests, by which time it has been
+        // detached, so we look again rather than lose the request
+        RequestBatch activeBatch = getActiveBatch();
+        while (activeBatch != null && !activeBatch.offer(request)) {
+            RequestBatch next = getActiveBatch();
+            activeBatch = next == activeBatch ? null : next;
         }
-        else {
+        WriteBehindWriter writer = writeBehind;
+        boolean writing = writer != null && !writer.isClosed();
+        if (activeBatch == null && writing && !isReplyNeeded(request)) {
+            writer.add(request);
+        }
+        else if (activeBatch == null) {
+
+            // Requests that we need the reply to can't be queued, but they must still follow
+            // the changes that already have been
+            if (writing) {
+                writer.flush();
+            }
             try {
-                return GoogleDocsUtils.executeBatchRequest(spreadsheetId, request);
+                return GoogleDocsUtils.executeBatchRequest(context, spreadsheetId, request);
             }
             catch (GoogleException e) {
-                if (!absorbException) {
+                if (!absorbException || e instanceof BackOffDeferredException) {
                     throw e;
                 }
                 else {
@@ -1409,6 +2014,16 @@ public class GoogleSheet {
         return null;
     }
 
+    /**
+     * Returns true if the caller needs the reply to the request, so it can't be queued in write-behind mode
+     *
+     * @param request Request to check
+     * @return True if the request must be sent straight away
+     */
+    private static boolean isReplyNeeded(Request request) {
+        return request.getDuplicateSheet() != null;
+    }
+
     /**
      * Executes a data request on the specified range
      * If only a row is specified then the whole row is updated, only a column then
@@ -1423,6 +2038,25 @@ public class GoogleSheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     private void executeDataRequest(int sheetId, Integer startRow, Integer startColumn, Integer endRow, Integer endColumn, ExtendedValue extendedValue) throws GoogleException {
+        syncSnapshot = null;
+
+        // Values for a bounded range can go into the value buffer, but not formulas for more than one
+        // cell because a RepeatCellRequest adjusts their relative references from cell to cell
+        boolean bounded = startRow != null && startColumn != null && endRow != null && endColumn != null;
+        boolean singleCell = bounded && endRow - startRow == 1 && endColumn - startColumn == 1;
+        if (valueBuffer != null && bounded && (extendedValue.getFormulaValue() == null || singleCell)) {
+            String range = GoogleDocsUtils.getColumnName(startColumn) + (startRow + 1) + ':' + GoogleDocsUtils.getColumnName(endColumn - 1) + endRow;
+            if (extendedValue.getFormulaValue() != null) {
+                valueBuffer.setFormula(name, range, extendedValue.getFormulaValue());
+            }
+            else {
+                Object value = extendedValue.getStringValue();
+                value = value == null ? extendedValue.getNumberValue() : value;
+                value = value == null ? extendedValue.getBoolValue() : value;
+                valueBuffer.setValue(name, range, value);
+            }
+            return;
+        }
 
         // Create a request for the sheet
         RepeatCellRequest req = GoogleDocsUtils.getRepeatCellRequest(sheetId, startRow, startColumn, endRow, endColumn);
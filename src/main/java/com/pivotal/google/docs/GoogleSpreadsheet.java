@@ -8,7 +8,9 @@ package com.pivotal.google.docs;
 
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.*;
+import com.pivotal.google.GoogleServiceContext;
 import com.pivotal.google.GoogleServiceFactory;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +29,10 @@ import java.util.*;
 public class GoogleSpreadsheet {
 
     private String spreadsheetId;
+    private final GoogleServiceContext context;
+    @Getter(AccessLevel.PROTECTED)
+    @Setter(AccessLevel.NONE)
+    private volatile RequestBatch batch = null;
 
     /**
      * Opens a spreadsheet using the specified ID
@@ -35,11 +41,25 @@ public class GoogleSpreadsheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public GoogleSpreadsheet(String spreadsheetId) throws GoogleException {
+        this(GoogleServiceFactory.getDefaultContext(), spreadsheetId);
+    }
+
+    /**
+     * Opens a spreadsheet using the specified ID and the services of the given context
+     *
+     * @param context       Context to use
+     * @param spreadsheetId Unique ID
+     * @throws GoogleException If the spreadsheet cannot be opened/found
+     */
+    public GoogleSpreadsheet(GoogleServiceContext context, String spreadsheetId) throws GoogleException {
+        this.context = context;
         try {
-            GoogleServiceFactory.getSheetsService().get(spreadsheetId).execute();
+
+            // Opening the spreadsheet primes the metadata cache for the sheet lookups
+            GoogleDocsUtils.getCachedSpreadsheet(context, spreadsheetId);
             this.spreadsheetId = spreadsheetId;
         }
-        catch (IOException e) {
+        catch (GoogleException e) {
             throw new GoogleException("Cannot open spreadsheet %s", e, spreadsheetId);
         }
     }
@@ -66,6 +86,20 @@ public class GoogleSpreadsheet {
      * @throws GoogleException If there is some sort of error
      */
     public static GoogleSpreadsheet create(String name, String folderId) throws GoogleException {
+        return create(GoogleServiceFactory.getDefaultContext(), name, folderId);
+    }
+
+    /**
+     * Creates a new spreadsheet in the given folder using the services of the given context
+     * If the spreadsheet already exists, then it simply returns it
+     *
+     * @param context  Context to use
+     * @param name     Name to give the spreadsheet
+     * @param folderId Drive folder to create it in
+     * @return GoogleSpreadsheet to continue working with it
+     * @throws GoogleException If there is some sort of error
+     */
+    public static GoogleSpreadsheet create(GoogleServiceContext context, String name, String folderId) throws GoogleException {
 
         // Create the spreadsheet in the ROOT folder
         Spreadsheet requestBody = new Spreadsheet();
@@ -73,9 +107,9 @@ public class GoogleSpreadsheet {
         properties.setTitle(name);
         requestBody.setProperties(properties);
         try {
-            Sheets.Spreadsheets.Create req = GoogleServiceFactory.getSheetsService().create(requestBody);
-            Spreadsheet spreadsheet = req.setFields("spreadsheetId").execute();
-            GoogleSpreadsheet ret = new GoogleSpreadsheet(spreadsheet.getSpreadsheetId());
+            Sheets.Spreadsheets.Create req = context.getSheetsService().create(requestBody);
+            Spreadsheet spreadsheet = GoogleDocsUtils.execute(context, null, req.setFields("spreadsheetId"));
+            GoogleSpreadsheet ret = new GoogleSpreadsheet(context, spreadsheet.getSpreadsheetId());
 
             // Now attempt to move the sheet to the folder
             if (folderId != null && !folderId.isEmpty()) {
@@ -103,7 +137,7 @@ public class GoogleSpreadsheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public GoogleSheet copyFrom(String fromSpreadsheetId, String sheetName) throws GoogleException {
-        Sheet sheet = GoogleDocsUtils.getSheetByName(fromSpreadsheetId, sheetName);
+        Sheet sheet = GoogleDocsUtils.getSheetByName(context, fromSpreadsheetId, sheetName);
         if (sheet != null) {
             return copyFrom(fromSpreadsheetId, sheet.getProperties().getSheetId());
         }
@@ -122,21 +156,22 @@ public class GoogleSpreadsheet {
     public GoogleSheet copyFrom(String fromSpreadsheetId, int sheetId) throws GoogleException {
 
         // Check if the sheet already exists
-        Sheet sheet = GoogleDocsUtils.getSheetById(fromSpreadsheetId, sheetId);
+        Sheet sheet = GoogleDocsUtils.getSheetById(context, fromSpreadsheetId, sheetId);
         if (sheet != null) {
             CopySheetToAnotherSpreadsheetRequest req = new CopySheetToAnotherSpreadsheetRequest();
             req.setDestinationSpreadsheetId(spreadsheetId);
             try {
-                SheetProperties resp = GoogleServiceFactory.getSheetsService().sheets().copyTo(fromSpreadsheetId, sheetId, req).execute();
+                SheetProperties resp = GoogleDocsUtils.execute(context, fromSpreadsheetId, context.getSheetsService().sheets().copyTo(fromSpreadsheetId, sheetId, req));
                 if (resp != null) {
-                    sheet = GoogleDocsUtils.getSheetById(spreadsheetId, resp.getSheetId());
+                    SpreadsheetMetadataCache.addSheet(context, spreadsheetId, resp);
+                    sheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, resp.getSheetId());
                 }
             }
             catch (IOException e) {
                 throw new GoogleException("Cannot execute batch command on %s", e, fromSpreadsheetId);
             }
         }
-        return sheet == null ? null : new GoogleSheet(spreadsheetId, sheet);
+        return sheet == null ? null : new GoogleSheet(this, sheet);
     }
 
     /**
@@ -152,22 +187,21 @@ public class GoogleSpreadsheet {
             try {
 
                 // Is this actually a folder
-                GoogleFile folder = new GoogleFile(folderId);
+                GoogleFile folder = new GoogleFile(context, folderId);
                 if (!folder.isFolder()) {
                     throw new GoogleException("Destination %s [%s] isn't a folder", folder.getName(), folderId);
                 }
 
                 // Retrieve the existing parents to remove
-                GoogleFile file = new GoogleFile(spreadsheetId);
+                GoogleFile file = new GoogleFile(context, spreadsheetId);
                 String previousParents = file.getFile().getParents() == null ? "" : String.join(",", file.getFile().getParents());
                 try {
 
                     // Move the file to the folder
-                    GoogleServiceFactory.getFilesService().update(spreadsheetId, null)
+                    GoogleDocsUtils.execute(context, context.getFilesService().update(spreadsheetId, null)
                             .setAddParents(folderId)
                             .setRemoveParents(previousParents)
-                            .setFields("id, parents")
-                            .execute();
+                            .setFields("id, parents"));
                 }
                 catch (IOException e) {
                     throw new GoogleException("Cannot move file %s to folder %s", e, spreadsheetId, folderId);
@@ -189,8 +223,9 @@ public class GoogleSpreadsheet {
     public void delete() throws GoogleException {
 
         // Deleting files can only be done using the Files API
-        GoogleFile file = new GoogleFile(spreadsheetId);
+        GoogleFile file = new GoogleFile(context, spreadsheetId);
         file.delete();
+        SpreadsheetMetadataCache.invalidate(spreadsheetId);
     }
 
     /**
@@ -202,7 +237,7 @@ public class GoogleSpreadsheet {
     public void rename(String name) throws GoogleException {
 
         // Renaming files can only be done using the Files API
-        GoogleFile file = new GoogleFile(spreadsheetId);
+        GoogleFile file = new GoogleFile(context, spreadsheetId);
         file.renameTo(name);
     }
 
@@ -213,12 +248,13 @@ public class GoogleSpreadsheet {
      * @throws GoogleException If cannot locate file
      */
     public String getName() throws GoogleException {
-        GoogleFile file = new GoogleFile(spreadsheetId);
+        GoogleFile file = new GoogleFile(context, spreadsheetId);
         return file.getName();
     }
 
     /**
      * Deletes all the sheets from the spreadsheet
+     * If a batch has been started, the requests are added to it, otherwise they are sent straight away
      *
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
@@ -229,13 +265,13 @@ public class GoogleSpreadsheet {
 
         // We need to batch these requests so that we don't exhaust the dreaded read request
         // rate limits
-        List<Request> batchedRequestList = new LinkedList<>();
+        RequestBatch requestBatch = batch == null ? new RequestBatch(context, spreadsheetId, BatchLimits.unbounded()) : batch;
 
         // See if we have a Sheet1 - we can't delete all sheets, there has to be at least
         // one in a spreadsheet so rename sheet1 if it exists and add a new one
         GoogleSheet firstSheet = sheets.get("Sheet1");
         if (firstSheet != null) {
-            firstSheet.rename("old_" + System.currentTimeMillis(), batchedRequestList);
+            firstSheet.rename("old_" + System.currentTimeMillis(), requestBatch);
         }
 
         // Add a default sheet
@@ -243,7 +279,7 @@ public class GoogleSpreadsheet {
         addSheetRequest.setProperties(new SheetProperties().setTitle("Sheet1"));
         Request request = new Request();
         request.setAddSheet(addSheetRequest);
-        batchedRequestList.add(request);
+        requestBatch.add(request);
 
         // Delete all the other sheets
         for (GoogleSheet sheet : sheets.values()) {
@@ -251,11 +287,101 @@ public class GoogleSpreadsheet {
             req.setSheetId(sheet.getSheetId());
             request = new Request();
             request.setDeleteSheet(req);
-            batchedRequestList.add(request);
+            requestBatch.add(request);
+        }
+
+        // Execute the batch unless it belongs to the caller
+        if (requestBatch != batch) {
+            requestBatch.execute();
         }
+    }
 
-        // Execute the batch
-        BatchUpdateSpreadsheetResponse resp = GoogleDocsUtils.executeBatchRequest(spreadsheetId, batchedRequestList.toArray(new Request[0]));
+    /**
+     * Starts a batch that collects the requests of every sheet obtained from this spreadsheet,
+     * so that changes across many sheets are sent in a single batch update
+     * Sheets that have started their own batch keep using it
+     */
+    public void batchStart() {
+        batchStart(BatchLimits.unbounded());
+    }
+
+    /**
+     * Starts a batch across the sheets, see {@link #batchStart()}, that is automatically
+     * sent as sub-batches whenever one of the limits is reached
+     *
+     * @param limits Thresholds at which to send the pending requests
+     */
+    public void batchStart(BatchLimits limits) {
+        batchStart(limits, true);
+    }
+
+    /**
+     * Starts a batch across the sheets with the given limits and specifies whether redundant
+     * formatting requests are coalesced before they are sent
+     *
+     * @param limits   Thresholds at which to send the pending requests
+     * @param optimize True to pass the requests through the RequestOptimizer
+     */
+    public void batchStart(BatchLimits limits, boolean optimize) {
+        RequestBatch requestBatch = new RequestBatch(context, spreadsheetId, limits);
+        requestBatch.setOptimize(optimize);
+        batch = requestBatch;
+    }
+
+    /**
+     * Clears the spreadsheet batch of requests pending execution
+     * Any sub-batches that have already been sent are not affected
+     */
+    public void batchClear() {
+        batch = null;
+    }
+
+    /**
+     * Executes the requests collected from all the sheets since the batch was started
+     * as a single batch update and ends the batch
+     *
+     * @return BatchUpdateSpreadsheetResponse Response from server or null if no requests
+     * @throws GoogleException If there was a problem with batch requests
+     */
+    public BatchUpdateSpreadsheetResponse batchExecute() throws GoogleException {
+        RequestBatch requestBatch = batch;
+        if (requestBatch == null || !requestBatch.hasRequests()) {
+            batch = null;
+            return null;
+        }
+
+        // Detach the batch before closing it so that the sheets start sending their
+        // requests elsewhere, and wait for any adds that were already under way
+        batch = null;
+        requestBatch.close();
+        try {
+            return requestBatch.execute();
+        }
+        catch (GoogleException e) {
+
+            // Put the batch back so that the caller can try again
+            requestBatch.reopen();
+            if (batch == null) {
+                batch = requestBatch;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads many ranges from the sheets of the spreadsheet in as few requests as possible,
+     * rather than one request per range with GoogleSheet.getData()
+     * The values are keyed on the sheet name and then the range exactly as it was requested.
+     * A null or empty list of ranges reads the whole sheet, which is returned under a null range.
+     * The ranges are split over several requests if the response would be too large
+     *
+     * @param ranges       Map of sheet names to the ranges to read from them e.g. A1:C or null for the whole sheet
+     * @param renderOption How the returned data should be formatted
+     * @return Map of sheet names to maps of ranges to their rows of values
+     * @throws GoogleException If a sheet doesn't exist or the ranges cannot be read
+     */
+    public Map<String, Map<String, List<List<Object>>>> getData(Map<String, List<String>> ranges, GoogleSheet.ValueRenderOption renderOption) throws GoogleException {
+        return new BatchRangeReader(this, renderOption, BatchRangeReader.DEFAULT_TARGET_BYTES).read(ranges);
     }
 
     /**
@@ -266,8 +392,8 @@ public class GoogleSpreadsheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public GoogleSheet getSheetByName(String name) throws GoogleException {
-        Sheet sheet = GoogleDocsUtils.getSheetByName(spreadsheetId, name);
-        return sheet == null ? null : new GoogleSheet(spreadsheetId, sheet);
+        Sheet sheet = GoogleDocsUtils.getSheetByName(context, spreadsheetId, name);
+        return sheet == null ? null : new GoogleSheet(this, sheet);
     }
 
     /**
@@ -278,8 +404,8 @@ public class GoogleSpreadsheet {
      * @throws GoogleException If the spreadsheet cannot be opened/found
      */
     public GoogleSheet getSheetById(int sheetId) throws GoogleException {
-        Sheet sheet = GoogleDocsUtils.getSheetById(spreadsheetId, sheetId);
-        return sheet == null ? null : new GoogleSheet(spreadsheetId, sheet);
+        Sheet sheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, sheetId);
+        return sheet == null ? null : new GoogleSheet(this, sheet);
     }
 
     /**
@@ -314,7 +440,7 @@ public class GoogleSpreadsheet {
         if (sheet == null) {
 
             // Make sure the index is in range
-            int size = GoogleDocsUtils.getSpreadsheet(spreadsheetId).getSheets().size();
+            int size = GoogleDocsUtils.getCachedSpreadsheet(context, spreadsheetId).getSheets().size();
             position = Math.min(position, size);
 
             // Add the sheet
@@ -322,15 +448,15 @@ public class GoogleSpreadsheet {
             addSheetRequest.setProperties(new SheetProperties().setTitle(name).setIndex(position));
             Request request = new Request();
             request.setAddSheet(addSheetRequest);
-            BatchUpdateSpreadsheetResponse resp = GoogleDocsUtils.executeBatchRequest(spreadsheetId, request);
+            BatchUpdateSpreadsheetResponse resp = GoogleDocsUtils.executeBatchRequest(context, spreadsheetId, request);
 
             // Get the new sheet
-            Sheet newSheet = GoogleDocsUtils.getSheetById(spreadsheetId, resp.getReplies().get(0).getAddSheet().getProperties().getSheetId());
+            Sheet newSheet = GoogleDocsUtils.getSheetById(context, spreadsheetId, resp.getReplies().get(0).getAddSheet().getProperties().getSheetId());
             if (newSheet == null) {
                 throw new GoogleException("New sheet not found");
             }
             else {
-                sheet = new GoogleSheet(spreadsheetId, newSheet);
+                sheet = new GoogleSheet(this, newSheet);
             }
         }
         return sheet;
@@ -354,10 +480,10 @@ public class GoogleSpreadsheet {
      */
     public Map<String, GoogleSheet> getSheetsMap() throws GoogleException {
         Map<String, GoogleSheet> ret = new LinkedHashMap<>();
-        List<Sheet> sheets = GoogleDocsUtils.getSpreadsheet(spreadsheetId).getSheets();
+        List<Sheet> sheets = GoogleDocsUtils.getCachedSpreadsheet(context, spreadsheetId).getSheets();
         if (sheets != null) {
             for (Sheet sheet : sheets) {
-                GoogleSheet tmp = new GoogleSheet(spreadsheetId, sheet);
+                GoogleSheet tmp = new GoogleSheet(this, sheet);
                 ret.put(tmp.getName(), tmp);
             }
         }
@@ -0,0 +1,429 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.pivotal.utils.Utils;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client side token bucket rate limiter that is consulted before every call to the API.
+ * There is a read and a write bucket for Sheets for the whole service context (which is
+ * one account, so it matches the Google per-user quotas), a read and a write bucket for each
+ * spreadsheet and a bucket for Drive calls.
+ * The rates adapt to what the server will actually accept - every rate limit error halves
+ * the rate of the buckets involved and every successful call nudges it back up towards the
+ * configured limit (AIMD), so that parallel callers slow down together instead of all hitting
+ * the quota wall and backing off in lockstep.
+ * The limits must be set before the limiter is used, a limit of zero means no limit
+ */
+@Slf4j
+@Getter
+@SuppressWarnings("unused")
+public class RateLimiter {
+
+    // Google Sheets allows 60 reads and 60 writes per minute per user per project
+    public static final int DEFAULT_READS_PER_MINUTE = 60;
+    public static final int DEFAULT_WRITES_PER_MINUTE = 60;
+
+    // Google Drive allows 12,000 queries per minute per user
+    public static final int DEFAULT_DRIVE_REQUESTS_PER_MINUTE = 12000;
+
+    // The rate never drops below this fraction of the limit
+    private static final double MIN_RATE_FRACTION = 1.0 / 32;
+
+    // Each successful call increases the rate by this fraction of the limit
+    private static final double INCREASE_FRACTION = 1.0 / 50;
+
+    // A burst of rate limit errors only reduces the rate once in this period
+    private static final long DECREASE_INTERVAL_NANOS = 1000000000L;
+
+    // Spreadsheets idle for longer than this are dropped once we're tracking too many
+    private static final int MAX_SPREADSHEETS = 1000;
+    private static final long IDLE_NANOS = 60000000000L;
+
+    /**
+     * Which API a call is being made to
+     */
+    public enum Api {
+        SHEETS, DRIVE
+    }
+
+    private int readsPerMinute = DEFAULT_READS_PER_MINUTE;
+    private int writesPerMinute = DEFAULT_WRITES_PER_MINUTE;
+    private int spreadsheetReadsPerMinute = DEFAULT_READS_PER_MINUTE;
+    private int spreadsheetWritesPerMinute = DEFAULT_WRITES_PER_MINUTE;
+    private int driveRequestsPerMinute = DEFAULT_DRIVE_REQUESTS_PER_MINUTE;
+
+    @Getter(AccessLevel.NONE)
+    private volatile TokenBucket readBucket = null;
+    @Getter(AccessLevel.NONE)
+    private volatile TokenBucket writeBucket = null;
+    @Getter(AccessLevel.NONE)
+    private volatile TokenBucket driveBucket = null;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, TokenBucket[]> spreadsheetBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a limiter that never holds anything back
+     *
+     * @return RateLimiter with no limits
+     */
+    public static RateLimiter unlimited() {
+        return new RateLimiter().readsPerMinute(0).writesPerMinute(0).spreadsheetReadsPerMinute(0).spreadsheetWritesPerMinute(0).driveRequestsPerMinute(0);
+    }
+
+    /**
+     * Sets the maximum number of Sheets reads per minute for the whole context
+     *
+     * @param readsPerMinute Number of reads
+     * @return RateLimiter for chaining
+     */
+    public RateLimiter readsPerMinute(int readsPerMinute) {
+        this.readsPerMinute = Math.max(0, readsPerMinute);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of Sheets writes per minute for the whole context
+     *
+     * @param writesPerMinute Number of writes
+     * @return RateLimiter for chaining
+     */
+    public RateLimiter writesPerMinute(int writesPerMinute) {
+        this.writesPerMinute = Math.max(0, writesPerMinute);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of reads per minute for each spreadsheet
+     *
+     * @param spreadsheetReadsPerMinute Number of reads
+     * @return RateLimiter for chaining
+     */
+    public RateLimiter spreadsheetReadsPerMinute(int spreadsheetReadsPerMinute) {
+        this.spreadsheetReadsPerMinute = Math.max(0, spreadsheetReadsPerMinute);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of writes per minute for each spreadsheet
+     *
+     * @param spreadsheetWritesPerMinute Number of writes
+     * @return RateLimiter for chaining
+     */
+    public RateLimiter spreadsheetWritesPerMinute(int spreadsheetWritesPerMinute) {
+        this.spreadsheetWritesPerMinute = Math.max(0, spreadsheetWritesPerMinute);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of Drive calls per minute for the whole context
+     *
+     * @param driveRequestsPerMinute Number of calls
+     * @return RateLimiter for chaining
+     */
+    public RateLimiter driveRequestsPerMinute(int driveRequestsPerMinute) {
+        this.driveRequestsPerMinute = Math.max(0, driveRequestsPerMinute);
+        return this;
+    }
+
+    /**
+     * Waits until a Sheets call is allowed by all the buckets that apply to it
+     * If the call is being made by an operation on the GoogleAsyncExecutor that can be
+     * re-run, the wait is handed back to the executor instead of sleeping
+     *
+     * @param spreadsheetId Spreadsheet the call is for or null if it isn't for one
+     * @param write         True if the call changes anything
+     * @throws GoogleException If the wait has been deferred
+     */
+    public void acquire(String spreadsheetId, boolean write) throws GoogleException {
+        List<TokenBucket> buckets = getBuckets(Api.SHEETS, spreadsheetId, write);
+        if (!buckets.isEmpty() && DeferredBackOff.canDefer()) {
+            long wait = tryAcquire(buckets, System.nanoTime());
+            if (wait > 0) {
+                throw new BackOffDeferredException(toMillis(wait), DeferredBackOff.getRetries(), null);
+            }
+        }
+        else {
+            reserve(buckets, Api.SHEETS);
+        }
+    }
+
+    /**
+     * Waits until a Drive call is allowed
+     * Drive calls always wait in line because the Drive quota is generous enough
+     * that the wait is never long
+     */
+    public void acquireDrive() {
+        reserve(getBuckets(Api.DRIVE, null, false), Api.DRIVE);
+    }
+
+    /**
+     * Tells the limiter how a call went so that it can adapt the rates
+     *
+     * @param api           API that was called
+     * @param spreadsheetId Spreadsheet the call was for or null if it isn't for one
+     * @param write         True if the call changes anything
+     * @param rateLimited   True if the server rejected the call with a rate limit error
+     */
+    public void record(Api api, String spreadsheetId, boolean write, boolean rateLimited) {
+        long now = System.nanoTime();
+        for (TokenBucket bucket : getBuckets(api, spreadsheetId, write)) {
+            if (rateLimited) {
+                bucket.decrease(now);
+            }
+            else {
+                bucket.increase();
+            }
+        }
+    }
+
+    /**
+     * Returns the current rate of the context wide bucket in calls per minute
+     *
+     * @param api   API to check
+     * @param write True for the write bucket
+     * @return Current rate or 0 if there is no limit
+     */
+    public double getCurrentRate(Api api, boolean write) {
+        List<TokenBucket> buckets = getBuckets(api, null, write);
+        return buckets.isEmpty() ? 0 : buckets.get(0).getRate() * 60;
+    }
+
+    /**
+     * Returns the buckets that a call has to get a token from
+     *
+     * @param api           API being called
+     * @param spreadsheetId Spreadsheet the call is for or null if it isn't for one
+     * @param write         True if the call changes anything
+     * @return List of buckets which may be empty
+     */
+    private List<TokenBucket> getBuckets(Api api, String spreadsheetId, boolean write) {
+        List<TokenBucket> ret = new ArrayList<>(2);
+        if (api == Api.DRIVE) {
+            addIfLimited(ret, getDriveBucket());
+        }
+        else {
+            addIfLimited(ret, write ? getWriteBucket() : getReadBucket());
+            if (spreadsheetId != null) {
+                addIfLimited(ret, getSpreadsheetBuckets(spreadsheetId)[write ? 1 : 0]);
+            }
+        }
+        return ret;
+    }
+
+    private static void addIfLimited(List<TokenBucket> buckets, TokenBucket bucket) {
+        if (bucket.isLimited()) {
+            buckets.add(bucket);
+        }
+    }
+
+    private TokenBucket getReadBucket() {
+        if (readBucket == null) {
+            synchronized (this) {
+                if (readBucket == null) {
+                    readBucket = TokenBucket.create(readsPerMinute);
+                }
+            }
+        }
+        return readBucket;
+    }
+
+    private TokenBucket getWriteBucket() {
+        if (writeBucket == null) {
+            synchronized (this) {
+                if (writeBucket == null) {
+                    writeBucket = TokenBucket.create(writesPerMinute);
+                }
+            }
+        }
+        return writeBucket;
+    }
+
+    private TokenBucket getDriveBucket() {
+        if (driveBucket == null) {
+            synchronized (this) {
+                if (driveBucket == null) {
+                    driveBucket = TokenBucket.create(driveRequestsPerMinute);
+                }
+            }
+        }
+        return driveBucket;
+    }
+
+    /**
+     * Returns the read and write buckets for the spreadsheet, creating them if necessary
+     *
+     * @param spreadsheetId Spreadsheet ID
+     * @return Array of the read and write buckets
+     */
+    private TokenBucket[] getSpreadsheetBuckets(String spreadsheetId) {
+        TokenBucket[] buckets = spreadsheetBuckets.get(spreadsheetId);
+        if (buckets == null) {
+            if (spreadsheetBuckets.size() >= MAX_SPREADSHEETS) {
+                long now = System.nanoTime();
+                spreadsheetBuckets.values().removeIf(value -> value[0].isIdle(now) && value[1].isIdle(now));
+            }
+            buckets = spreadsheetBuckets.computeIfAbsent(spreadsheetId, key -> new TokenBucket[]{TokenBucket.create(spreadsheetReadsPerMinute), TokenBucket.create(spreadsheetWritesPerMinute)});
+        }
+        return buckets;
+    }
+
+    /**
+     * Takes a token from each of the buckets and sleeps until the last of them is due
+     *
+     * @param buckets Buckets to take tokens from
+     * @param api     API being called
+     */
+    private static void reserve(List<TokenBucket> buckets, Api api) {
+        long now = System.nanoTime();
+        long wait = 0;
+        for (TokenBucket bucket : buckets) {
+            wait = Math.max(wait, bucket.reserve(now));
+        }
+        if (wait > 0) {
+            log.debug("Waiting {}ms for the {} rate limit", toMillis(wait), api);
+            Utils.sleep((int) toMillis(wait));
+        }
+    }
+
+    /**
+     * Takes a token from all the buckets if they all have one
+     *
+     * @param buckets Buckets to take tokens from
+     * @param now     Current time in nanoseconds
+     * @return Zero if the tokens were taken, otherwise the time until they might be available
+     */
+    private static long tryAcquire(List<TokenBucket> buckets, long now) {
+        for (int i = 0; i < buckets.size(); i++) {
+            long wait = buckets.get(i).tryTake(now);
+            if (wait > 0) {
+
+                // Give back the tokens we've already taken
+                for (int j = 0; j < i; j++) {
+                    buckets.get(j).giveBack();
+                }
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    private static long toMillis(long nanos) {
+        return Math.max(1, nanos / 1000000);
+    }
+
+    /**
+     * A token bucket whose refill rate can be adjusted, the tokens can go negative when
+     * callers reserve ahead, which makes them queue behind each other
+     */
+    static class TokenBucket {
+        private final double maxRate;
+        private final double capacity;
+        private double rate;
+        private double tokens;
+        private long lastRefill;
+        private long lastDecrease;
+        private long lastUsed;
+
+        /**
+         * Creates a bucket that refills at the given rate and can hold a full minute of tokens
+         *
+         * @param perMinute Tokens per minute
+         * @return TokenBucket
+         */
+        static TokenBucket create(int perMinute) {
+            return new TokenBucket(perMinute / 60.0, perMinute, System.nanoTime());
+        }
+
+        TokenBucket(double perSecond, double capacity, long now) {
+            this.maxRate = perSecond;
+            this.rate = perSecond;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = now;
+            this.lastDecrease = now - DECREASE_INTERVAL_NANOS;
+            this.lastUsed = now;
+        }
+
+        boolean isLimited() {
+            return maxRate > 0;
+        }
+
+        synchronized double getRate() {
+            return rate;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now - lastUsed > IDLE_NANOS;
+        }
+
+        /**
+         * Takes a token, whether there is one or not
+         *
+         * @param now Current time in nanoseconds
+         * @return Nanoseconds to wait before the token can be used
+         */
+        synchronized long reserve(long now) {
+            refill(now);
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+        }
+
+        /**
+         * Takes a token only if there is one available
+         *
+         * @param now Current time in nanoseconds
+         * @return Zero if the token was taken, otherwise nanoseconds until there will be one
+         */
+        synchronized long tryTake(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) ((1 - tokens) / rate * 1e9);
+        }
+
+        synchronized void giveBack() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        /**
+         * Halves the rate and empties the bucket, but only once per interval so that a
+         * burst of errors from parallel callers counts as a single signal
+         *
+         * @param now Current time in nanoseconds
+         */
+        synchronized void decrease(long now) {
+            if (now - lastDecrease >= DECREASE_INTERVAL_NANOS) {
+                refill(now);
+                rate = Math.max(maxRate * MIN_RATE_FRACTION, rate / 2);
+                tokens = Math.min(tokens, 0);
+                lastDecrease = now;
+                log.debug("Rate limited - reduced rate to {} per minute", Math.round(rate * 60));
+            }
+        }
+
+        synchronized void increase() {
+            rate = Math.min(maxRate, rate + maxRate * INCREASE_FRACTION);
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / 1e9 * rate);
+            lastRefill = now;
+            lastUsed = now;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetResponse;
+import com.google.api.services.sheets.v4.model.Request;
+import com.google.api.services.sheets.v4.model.Response;
+import com.pivotal.google.GoogleServiceContext;
+import com.pivotal.google.GoogleServiceFactory;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Accumulates batch update requests for a spreadsheet and sends them to the server
+ * as sub-batches whenever one of the limits is reached.
+ * When the batch is executed, the replies from all the sub-batches are returned in a
+ * single response in the same order as the requests were sent
+ * By default, each sub-batch is passed through the {@link RequestOptimizer} before it is
+ * sent, requests that are optimised away get an empty reply
+ * <p>
+ * Any number of threads can add requests at the same time. Adding is lock-free, the requests
+ * go onto a queue that is drained by one flushing thread at a time, so requests are sent in the
+ * order they were added - those added by one thread keep their order, and those added by different
+ * threads are interleaved in the order their adds completed. A thread that reaches a limit while
+ * another is flushing leaves its requests for that flush, or the next one, to pick up.
+ * Once a batch is closed, adds are refused so that an owner can execute it knowing that nothing
+ * will be added behind its back
+ */
+@Slf4j
+public class RequestBatch {
+
+    @Getter
+    private final GoogleServiceContext context;
+    @Getter
+    private final String spreadsheetId;
+    @Getter
+    private final BatchLimits limits;
+
+    // Requests waiting to be sent, added without locking
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private volatile long oldestRequestTime = 0;
+
+    // Threads part way through adding a request, so that close() can wait for them
+    private final AtomicInteger adding = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    // Everything below is only changed by the thread holding the flush lock
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final List<Pending> failed = new ArrayList<>();
+    private volatile int failedCount = 0;
+    private final List<Response> replies = new ArrayList<>();
+    private volatile int sentCount = 0;
+    @Getter
+    private volatile int flushCount = 0;
+    @Getter
+    @Setter
+    private volatile boolean optimize = true;
+    @Getter
+    private volatile long requestCount = 0;
+    @Getter
+    private volatile long transmittedCount = 0;
+
+    /**
+     * A request waiting to be sent along with its estimated size
+     */
+    private static class Pending {
+        private final Request request;
+        private final long size;
+
+        private Pending(Request request, long size) {
+            this.request = request;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Creates a batch that is only sent when it is executed
+     *
+     * @param spreadsheetId Spreadsheet the requests are for
+     */
+    public RequestBatch(String spreadsheetId) {
+        this(GoogleServiceFactory.getDefaultContext(), spreadsheetId, BatchLimits.unbounded());
+    }
+
+    /**
+     * Creates a batch that sends sub-batches when any of the limits are reached
+     *
+     * @param spreadsheetId Spreadsheet the requests are for
+     * @param limits        Thresholds to flush at
+     */
+    public RequestBatch(String spreadsheetId, BatchLimits limits) {
+        this(GoogleServiceFactory.getDefaultContext(), spreadsheetId, limits);
+    }
+
+    /**
+     * Creates a batch that sends sub-batches using the services of the given context
+     * when any of the limits are reached
+     *
+     * @param context       Context to use
+     * @param spreadsheetId Spreadsheet the requests are for
+     * @param limits        Thresholds to flush at
+     */
+    public RequestBatch(GoogleServiceContext context, String spreadsheetId, BatchLimits limits) {
+        this.context = context;
+        this.spreadsheetId = spreadsheetId;
+        this.limits = limits == null ? BatchLimits.unbounded() : limits;
+    }
+
+    /**
+     * Adds a request to the batch, sending the pending requests first if adding this
+     * one would take the batch over its byte limit, or afterwards if the count or
+     * age limits have been reached
+     * If a send fails, the pending requests are kept so that the caller can decide what to do
+     *
+     * @param request Request to add
+     * @throws GoogleException If the batch has been closed or an automatic flush fails
+     */
+    public void add(Request request) throws GoogleException {
+        if (!offer(request)) {
+            throw new GoogleException("Cannot add a request to the closed batch for %s", spreadsheetId);
+        }
+    }
+
+    /**
+     * Adds a request to the batch unless it has been closed, see {@link #add(Request)}
+     *
+     * @param request Request to add
+     * @return True if the request was added, false if the batch has been closed
+     * @throws GoogleException If an automatic flush fails
+     */
+    public boolean offer(Request request) throws GoogleException {
+        long size = limits.getMaxBytes() > 0 ? GoogleDocsUtils.estimateSize(request) : 0;
+        if (limits.getMaxBytes() > 0 && queuedCount.get() > 0 && queuedBytes.get() + size > limits.getMaxBytes()) {
+            tryFlush();
+        }
+
+        // The closed flag is checked after announcing the add, so close() either sees
+        // this thread and waits for it, or this thread sees that the batch is closed
+        adding.incrementAndGet();
+        try {
+            if (closed) {
+                return false;
+            }
+            queuedBytes.addAndGet(size);
+            if (queuedCount.getAndIncrement() == 0) {
+                oldestRequestTime = System.currentTimeMillis();
+            }
+            queue.add(new Pending(request, size));
+        }
+        finally {
+            adding.decrementAndGet();
+        }
+        DeferredBackOff.recordWrite();
+        if ((limits.getMaxRequests() > 0 && queuedCount.get() >= limits.getMaxRequests()) ||
+                (limits.getMaxAge() > 0 && System.currentTimeMillis() - oldestRequestTime >= limits.getMaxAge())) {
+            tryFlush();
+        }
+        return true;
+    }
+
+    /**
+     * Stops any more requests being added and waits for any adds that are under way to finish,
+     * so that everything that was added is sent by the next execute
+     */
+    public void close() {
+        closed = true;
+        while (adding.get() > 0) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Allows requests to be added again after the batch has been closed
+     */
+    public void reopen() {
+        closed = false;
+    }
+
+    /**
+     * Returns true if the batch has been closed
+     *
+     * @return True if adds are refused
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Sends any pending requests to the server as sub-batches within the limits and
+     * keeps the replies for the aggregated response
+     * Only one thread flushes at a time, others wait their turn
+     *
+     * @throws GoogleException If the batch fails
+     */
+    public void flush() throws GoogleException {
+        flushLock.lock();
+        try {
+            drain();
+        }
+        finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes unless another thread is already flushing, in which case it will pick
+     * up the requests that are waiting
+     *
+     * @throws GoogleException If the batch fails
+     */
+    private void tryFlush() throws GoogleException {
+        if (flushLock.tryLock()) {
+            try {
+                drain();
+            }
+            finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Sends sub-batches until the queue is empty, must be called with the flush lock held
+     *
+     * @throws GoogleException If a sub-batch fails, its requests are kept to be sent first next time
+     */
+    private void drain() throws GoogleException {
+        List<Pending> pending = takeSubBatch();
+        while (!pending.isEmpty()) {
+            try {
+                send(pending);
+            }
+            catch (GoogleException e) {
+                failed.addAll(0, pending);
+                failedCount = failed.size();
+                throw e;
+            }
+            pending = takeSubBatch();
+        }
+    }
+
+    /**
+     * Takes the next sub-batch off the queue, requests that failed to send last time go first
+     * A sub-batch stays within the byte and request limits unless a single request is over them
+     *
+     * @return Requests to send, empty if there are none
+     */
+    private List<Pending> takeSubBatch() {
+        List<Pending> ret = new ArrayList<>();
+        long bytes = 0;
+        if (!failed.isEmpty()) {
+            ret.addAll(failed);
+            failed.clear();
+            failedCount = 0;
+            return ret;
+        }
+        Pending next;
+        while ((next = queue.peek()) != null) {
+            if (!ret.isEmpty() && ((limits.getMaxRequests() > 0 && ret.size() >= limits.getMaxRequests()) ||
+                    (limits.getMaxBytes() > 0 && bytes + next.size > limits.getMaxBytes()))) {
+                break;
+            }
+
+            // Only this thread takes from the queue, so the head can't have changed
+            queue.poll();
+            ret.add(next);
+            bytes += next.size;
+            queuedBytes.addAndGet(-next.size);
+            if (queuedCount.decrementAndGet() > 0) {
+                oldestRequestTime = System.currentTimeMillis();
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Sends a sub-batch as a single batch update, must be called with the flush lock held
+     *
+     * @param pending Requests to send
+     * @throws GoogleException If the batch fails
+     */
+    private void send(List<Pending> pending) throws GoogleException {
+        List<Request> original = new ArrayList<>(pending.size());
+        long bytes = 0;
+        for (Pending item : pending) {
+            original.add(item.request);
+            bytes += item.size;
+        }
+        List<Request> requests = optimize ? RequestOptimizer.optimize(original) : original;
+        log.debug("Flushing {} requests (~{} bytes) to {} as {} requests", original.size(), bytes, spreadsheetId, requests.size());
+        BatchUpdateSpreadsheetResponse resp = GoogleDocsUtils.executeBatchRequest(context, spreadsheetId, requests.toArray(new Request[0]));
+        List<Response> sentReplies = resp == null || resp.getReplies() == null ? new ArrayList<>() : resp.getReplies();
+
+        // Keep the replies aligned with the original requests, the optimiser keeps the
+        // survivors in order so anything it dropped gets an empty reply
+        int next = 0;
+        for (Request request : original) {
+            if (next < requests.size() && requests.get(next) == request) {
+                replies.add(next < sentReplies.size() ? sentReplies.get(next) : new Response());
+                next++;
+            }
+            else {
+                replies.add(new Response());
+            }
+        }
+        sentCount += original.size();
+        requestCount += original.size();
+        transmittedCount += requests.size();
+        flushCount++;
+    }
+
+    /**
+     * Sends any remaining requests and returns the replies from every sub-batch
+     * sent since the batch was created or last executed
+     * Requests that are added by other threads while this is running may be sent by
+     * it or left for the next execute, close the batch first to be sure of sending everything
+     *
+     * @return BatchUpdateSpreadsheetResponse with all the replies or null if nothing was sent
+     * @throws GoogleException If the batch fails
+     */
+    public BatchUpdateSpreadsheetResponse execute() throws GoogleException {
+        flushLock.lock();
+        try {
+            drain();
+            if (sentCount == 0) {
+                return null;
+            }
+            if (requestCount > transmittedCount) {
+                log.info("Sent {} requests to {} as {} requests", requestCount, spreadsheetId, transmittedCount);
+            }
+            BatchUpdateSpreadsheetResponse ret = new BatchUpdateSpreadsheetResponse();
+            ret.setSpreadsheetId(spreadsheetId);
+            ret.setReplies(new ArrayList<>(replies));
+            replies.clear();
+            sentCount = 0;
+            flushCount = 0;
+            return ret;
+        }
+        finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Discards the pending requests and any replies received so far
+     */
+    public void clear() {
+        flushLock.lock();
+        try {
+            while (queue.poll() != null) {
+                queuedCount.decrementAndGet();
+            }
+            queuedBytes.set(0);
+            failed.clear();
+            failedCount = 0;
+            replies.clear();
+            sentCount = 0;
+            flushCount = 0;
+        }
+        finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests removed by the optimiser since the batch was created
+     * The request and transmitted counts are kept across executes so that they can be used
+     * to measure the savings over the life of the batch
+     *
+     * @return Number of requests that did not need to be sent
+     */
+    public long getOptimizedCount() {
+        return requestCount - transmittedCount;
+    }
+
+    /**
+     * Returns the number of requests waiting to be sent
+     *
+     * @return Number of pending requests
+     */
+    public int getPendingCount() {
+        return queuedCount.get() + failedCount;
+    }
+
+    /**
+     * Returns the number of requests sent since the batch was created or last executed
+     *
+     * @return Number of requests sent
+     */
+    public int getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Returns true if there are requests pending or already sent that have not
+     * been returned by an execute
+     *
+     * @return True if the batch has any requests
+     */
+    public boolean hasRequests() {
+        return getPendingCount() > 0 || sentCount > 0;
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.sheets.v4.model.ExtendedValue;
+import com.google.api.services.sheets.v4.model.GridRange;
+import com.google.api.services.sheets.v4.model.RepeatCellRequest;
+import com.google.api.services.sheets.v4.model.Request;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reduces the number of repeat cell requests in a batch without changing the end result.
+ * It works on runs of consecutive repeat cell requests (anything else in the batch might
+ * shift or read the cells, so it is treated as a barrier) and within each run it;
+ * <ul>
+ *     <li>drops requests that are completely overwritten by a later request</li>
+ *     <li>folds successive updates to the same range into a single request</li>
+ *     <li>merges requests with identical content on adjacent or contained ranges, other than formulas</li>
+ * </ul>
+ * A request is only moved past another if they don't touch the same fields of the same cells.
+ * The surviving requests are kept in their original order and may be modified in place
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class RequestOptimizer {
+
+    // Safety net on the number of passes over a run
+    private static final int MAX_PASSES = 10;
+    private static final long UNBOUNDED = Long.MAX_VALUE;
+
+    /**
+     * A repeat cell request with its range and fields unpacked to make the comparisons cheap
+     */
+    private static class Item {
+        private final Request request;
+        private final RepeatCellRequest repeat;
+        private Set<String> fields;
+        private int sheetId;
+        private long startRow;
+        private long endRow;
+        private long startColumn;
+        private long endColumn;
+        private String content;
+        private boolean removed;
+
+        private Item(Request request) {
+            this.request = request;
+            this.repeat = request.getRepeatCell();
+            this.fields = parseFields(repeat.getFields());
+            setRange(repeat.getRange());
+        }
+
+        private void setRange(GridRange range) {
+            sheetId = range.getSheetId() == null ? 0 : range.getSheetId();
+            startRow = range.getStartRowIndex() == null ? 0 : range.getStartRowIndex();
+            endRow = range.getEndRowIndex() == null ? UNBOUNDED : range.getEndRowIndex();
+            startColumn = range.getStartColumnIndex() == null ? 0 : range.getStartColumnIndex();
+            endColumn = range.getEndColumnIndex() == null ? UNBOUNDED : range.getEndColumnIndex();
+        }
+
+        private String getContent() {
+            if (content == null) {
+                try {
+                    content = GsonFactory.getDefaultInstance().toString(repeat.getCell());
+                }
+                catch (IOException e) {
+
+                    // Something we can't compare is never equal to anything else
+                    content = String.valueOf(System.identityHashCode(this));
+                }
+            }
+            return content;
+        }
+
+        private boolean hasFormula() {
+            ExtendedValue value = repeat.getCell().getUserEnteredValue();
+            return value != null && value.getFormulaValue() != null;
+        }
+
+        private boolean sameRange(Item other) {
+            return sheetId == other.sheetId && startRow == other.startRow && endRow == other.endRow && startColumn == other.startColumn && endColumn == other.endColumn;
+        }
+
+        private boolean overlaps(Item other) {
+            return sheetId == other.sheetId &&
+                    startRow < other.endRow && other.startRow < endRow &&
+                    startColumn < other.endColumn && other.startColumn < endColumn;
+        }
+
+        private boolean contains(Item other) {
+            return sheetId == other.sheetId &&
+                    startRow <= other.startRow && endRow >= other.endRow &&
+                    startColumn <= other.startColumn && endColumn >= other.endColumn;
+        }
+    }
+
+    /**
+     * Returns an optimised list of requests that has the same effect as the original
+     *
+     * @param requests Requests in the order they would be executed
+     * @return Optimised list, which may be the same size as the original
+     */
+    public static List<Request> optimize(List<Request> requests) {
+        if (requests == null || requests.size() < 2) {
+            return requests;
+        }
+
+        // Split the list into runs of repeat cell requests, everything else passes straight through
+        List<Request> ret = new ArrayList<>(requests.size());
+        List<Item> run = new ArrayList<>();
+        for (Request request : requests) {
+            if (isOptimizable(request)) {
+                run.add(new Item(request));
+            }
+            else {
+                flushRun(run, ret);
+                ret.add(request);
+            }
+        }
+        flushRun(run, ret);
+        if (ret.size() < requests.size()) {
+            log.debug("Optimised batch of {} requests down to {}", requests.size(), ret.size());
+        }
+        return ret;
+    }
+
+    /**
+     * Optimises the run and adds the survivors to the list
+     *
+     * @param run Run of repeat cell requests
+     * @param ret List to add the survivors to
+     */
+    private static void flushRun(List<Item> run, List<Request> ret) {
+        if (!run.isEmpty()) {
+            optimizeRun(run);
+            for (Item item : run) {
+                if (!item.removed) {
+                    ret.add(item.request);
+                }
+            }
+            run.clear();
+        }
+    }
+
+    /**
+     * Returns true if this is a repeat cell request that we understand well enough
+     * to merge with others. Masks with sub-field lists e.g. userEnteredFormat(textFormat,padding)
+     * can't be split on commas, so they are left as they are
+     *
+     * @param request Request to check
+     * @return True if the request can be optimised
+     */
+    private static boolean isOptimizable(Request request) {
+        RepeatCellRequest repeat = request.getRepeatCell();
+        return repeat != null && repeat.getRange() != null && repeat.getCell() != null &&
+                repeat.getFields() != null && !repeat.getFields().isEmpty() &&
+                !repeat.getFields().contains("*") && repeat.getFields().indexOf('(') < 0;
+    }
+
+    /**
+     * Repeatedly applies the optimisations to the run until nothing changes
+     *
+     * @param run Run of repeat cell requests
+     */
+    private static void optimizeRun(List<Item> run) {
+        boolean changed = true;
+        for (int pass = 0; pass < MAX_PASSES && changed; pass++) {
+            changed = dropOverwritten(run) | foldSameRange(run) | mergeIdentical(run);
+        }
+    }
+
+    /**
+     * Drops any request whose fields and cells are all overwritten by a later request
+     *
+     * @param run Run of repeat cell requests
+     * @return True if anything was dropped
+     */
+    private static boolean dropOverwritten(List<Item> run) {
+        boolean changed = false;
+        for (int i = 0; i < run.size(); i++) {
+            Item earlier = run.get(i);
+            if (!earlier.removed) {
+                for (int j = i + 1; j < run.size(); j++) {
+                    Item later = run.get(j);
+                    if (!later.removed && later.contains(earlier) && covers(later.fields, earlier.fields)) {
+                        earlier.removed = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Folds later updates to exactly the same range into the earlier request
+     *
+     * @param run Run of repeat cell requests
+     * @return True if anything was folded
+     */
+    private static boolean foldSameRange(List<Item> run) {
+        boolean changed = false;
+        for (int i = 0; i < run.size(); i++) {
+            Item earlier = run.get(i);
+            if (earlier.removed) {
+                continue;
+            }
+            for (int j = i + 1; j < run.size(); j++) {
+                Item later = run.get(j);
+                if (!later.removed && later.sameRange(earlier) && canMoveBack(run, i, j, later)) {
+                    for (String field : later.fields) {
+                        GoogleDocsUtils.copyField(later.repeat.getCell(), earlier.repeat.getCell(), field);
+                    }
+                    earlier.fields = mergeFields(earlier.fields, later.fields);
+                    earlier.repeat.setFields(String.join(",", earlier.fields));
+                    earlier.content = null;
+                    later.removed = true;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Merges later requests that set exactly the same content into the earlier request
+     * when the two ranges can be combined into a single rectangle.
+     * Formulas are never merged because a repeat cell request shifts their relative
+     * references from cell to cell, so the merged range would not set the same formula
+     *
+     * @param run Run of repeat cell requests
+     * @return True if anything was merged
+     */
+    private static boolean mergeIdentical(List<Item> run) {
+        boolean changed = false;
+        for (int i = 0; i < run.size(); i++) {
+            Item earlier = run.get(i);
+            if (earlier.removed || earlier.hasFormula()) {
+                continue;
+            }
+            for (int j = i + 1; j < run.size(); j++) {
+                Item later = run.get(j);
+                if (!later.removed && later.sheetId == earlier.sheetId &&
+                        later.fields.equals(earlier.fields) && isRectangle(earlier, later) &&
+                        later.getContent().equals(earlier.getContent()) && canMoveBack(run, i, j, later)) {
+                    GridRange range = earlier.repeat.getRange();
+                    range.setStartRowIndex(toStart(Math.min(earlier.startRow, later.startRow)));
+                    range.setEndRowIndex(toEnd(Math.max(earlier.endRow, later.endRow)));
+                    range.setStartColumnIndex(toStart(Math.min(earlier.startColumn, later.startColumn)));
+                    range.setEndColumnIndex(toEnd(Math.max(earlier.endColumn, later.endColumn)));
+                    earlier.setRange(range);
+                    later.removed = true;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns true if the effect of the request at position j can be moved back to
+     * position i without any request in between seeing a different result
+     *
+     * @param run   Run of repeat cell requests
+     * @param i     Position to move to
+     * @param j     Position of the request
+     * @param later Request at position j
+     * @return True if nothing in between touches the same fields of the same cells
+     */
+    private static boolean canMoveBack(List<Item> run, int i, int j, Item later) {
+        for (int k = i + 1; k < j; k++) {
+            Item between = run.get(k);
+            if (!between.removed && between.overlaps(later) && intersects(between.fields, later.fields)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the union of the two ranges is itself a rectangle i.e. one
+     * contains the other or they share a full edge or overlap along one
+     *
+     * @param a First range
+     * @param b Second range
+     * @return True if the ranges can be combined
+     */
+    private static boolean isRectangle(Item a, Item b) {
+        if (a.contains(b) || b.contains(a)) {
+            return true;
+        }
+        if (a.startColumn == b.startColumn && a.endColumn == b.endColumn) {
+            return a.startRow <= b.endRow && b.startRow <= a.endRow;
+        }
+        if (a.startRow == b.startRow && a.endRow == b.endRow) {
+            return a.startColumn <= b.endColumn && b.startColumn <= a.endColumn;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if every field in the second set is the same as, or inside of,
+     * a field in the first set
+     *
+     * @param outer Fields that would overwrite
+     * @param inner Fields that would be overwritten
+     * @return True if all the inner fields are covered
+     */
+    private static boolean covers(Set<String> outer, Set<String> inner) {
+        for (String field : inner) {
+            if (!isCovered(outer, field)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCovered(Set<String> fields, String field) {
+        for (String candidate : fields) {
+            if (field.equals(candidate) || field.startsWith(candidate + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if any field in one set is the same as, inside of or contains
+     * any field in the other
+     *
+     * @param a First set of fields
+     * @param b Second set of fields
+     * @return True if the sets touch the same data
+     */
+    private static boolean intersects(Set<String> a, Set<String> b) {
+        for (String field : a) {
+            for (String other : b) {
+                if (field.equals(other) || field.startsWith(other + ".") || other.startsWith(field + ".")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Combines two field masks, dropping any field already covered by a wider one
+     *
+     * @param a First set of fields
+     * @param b Second set of fields
+     * @return Combined set
+     */
+    private static Set<String> mergeFields(Set<String> a, Set<String> b) {
+        Set<String> all = new LinkedHashSet<>(a);
+        all.addAll(b);
+        Set<String> ret = new LinkedHashSet<>();
+        for (String field : all) {
+            boolean covered = false;
+            for (String other : all) {
+                if (field.startsWith(other + ".")) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                ret.add(field);
+            }
+        }
+        return ret;
+    }
+
+    private static Set<String> parseFields(String fields) {
+        Set<String> ret = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            if (!field.trim().isEmpty()) {
+                ret.add(field.trim());
+            }
+        }
+        return ret;
+    }
+
+    private static Integer toStart(long value) {
+        return (int) value;
+    }
+
+    private static Integer toEnd(long value) {
+        return value == UNBOUNDED ? null : (int) value;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpMethods;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.sheets.v4.Sheets;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides whether a failed API call should be tried again and how long to wait first
+ * It uses a builder pattern so that only the settings of interest need to be changed.
+ * Requests that aren't idempotent e.g. appends and batch updates are only retried when
+ * the server definitely didn't act on them (a rate limit error or a connection that was
+ * never made), so that an ambiguous failure can't duplicate the rows or sheets they add
+ */
+@SuppressWarnings("unused")
+@Getter
+@ToString
+public class RetryPolicy {
+
+    public static final Set<Integer> DEFAULT_RETRYABLE_STATUS_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(GoogleDocsUtils.GAPI_RETRY_ERROR_CODE, 500, 502, 503, 504)));
+    public static final long DEFAULT_INITIAL_DELAY = 1000;
+    public static final long DEFAULT_DEADLINE = 300000;
+
+    private Set<Integer> retryableStatusCodes = DEFAULT_RETRYABLE_STATUS_CODES;
+    private int maxAttempts = GoogleDocsUtils.MAX_RATE_LIMIT_RETRIES + 1;
+    private long initialDelay = DEFAULT_INITIAL_DELAY;
+    private long maxDelay = (long) GoogleDocsUtils.MAXIMUM_RETRY_SLEEP;
+    private long deadline = DEFAULT_DEADLINE;
+    private boolean retryNetworkErrors = true;
+    private boolean honourRetryAfter = true;
+
+    /**
+     * Returns a policy that never retries anything
+     *
+     * @return RetryPolicy with a single attempt
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy().maxAttempts(1);
+    }
+
+    /**
+     * Sets the HTTP status codes that are worth retrying
+     *
+     * @param retryableStatusCodes Status codes
+     * @return RetryPolicy for chaining
+     */
+    public RetryPolicy retryableStatusCodes(Integer... retryableStatusCodes) {
+        this.retryableStatusCodes = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(retryableStatusCodes)));
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of times a call is made, including the first one
+     *
+     * @param maxAttempts Number of attempts
+     * @return RetryPolicy for chaining
+     */
+    public RetryPolicy maxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        return this;
+    }
+
+    /**
+     * Sets the delay before the first retry, it doubles with every retry after that
+     * and up to the same again is added at random so that parallel callers spread out
+     *
+     * @param initialDelay Milliseconds
+     * @return RetryPolicy for chaining
+     */
+    public RetryPolicy initialDelay(long initialDelay) {
+        this.initialDelay = Math.max(0, initialDelay);
+        return this;
+    }
+
+    /**
+     * Sets the longest delay between retries
+     *
+     * @param maxDelay Milliseconds
+     * @return RetryPolicy for chaining
+     */
+    public RetryPolicy maxDelay(long maxDelay) {
+        this.maxDelay = Math.max(0, maxDelay);
+        return this;
+    }
+
+    /**
+     * Sets the total time that a call can spend retrying, zero means no deadline
+     *
+     * @param deadline Milliseconds
+     * @return RetryPolicy for chaining
+     */
+    public RetryPolicy deadline(long deadline) {
+        this.deadline = Math.max(0, deadline);
+        return this;
+    }
+
+    /**
+     * Sets whether timeouts and dropped connections are retried
+     *
+     * @param retryNetworkErrors True to retry them
+     * @return RetryPolicy for chaining
+     */
+    public RetryPolicy retryNetworkErrors(boolean retryNetworkErrors) {
+        this.retryNetworkErrors = retryNetworkErrors;
+        return this;
+    }
+
+    /**
+     * Sets whether the Retry-After header sent by the server is used instead of the back-off
+     *
+     * @param honourRetryAfter True to use the header
+     * @return RetryPolicy for chaining
+     */
+    public RetryPolicy honourRetryAfter(boolean honourRetryAfter) {
+        this.honourRetryAfter = honourRetryAfter;
+        return this;
+    }
+
+    /**
+     * Returns true if sending the request twice has the same effect as sending it once
+     *
+     * @param request Request to check
+     * @return True if the request can safely be repeated after an ambiguous failure
+     */
+    public static boolean isIdempotent(AbstractGoogleClientRequest<?> request) {
+        String method = request.getRequestMethod();
+        return HttpMethods.GET.equals(method) || HttpMethods.PUT.equals(method) || HttpMethods.DELETE.equals(method) || HttpMethods.PATCH.equals(method)
+                || request instanceof Sheets.Spreadsheets.Values.Clear || request instanceof Sheets.Spreadsheets.Values.BatchClear
+                || request instanceof Sheets.Spreadsheets.Values.BatchUpdate || request instanceof Sheets.Spreadsheets.Values.BatchGetByDataFilter;
+    }
+
+    /**
+     * Returns how long to wait before retrying a failed call
+     *
+     * @param e          Error from the call
+     * @param retries    Number of retries already made
+     * @param idempotent True if the request can safely be repeated
+     * @param elapsed    Milliseconds spent on the call so far
+     * @return Milliseconds to wait or -1 if the call shouldn't be retried
+     */
+    public long getRetryDelay(IOException e, int retries, boolean idempotent, long elapsed) {
+        if (retries + 1 >= maxAttempts || !isRetryable(e, idempotent)) {
+            return -1;
+        }
+        long delay = -1;
+        if (honourRetryAfter && e instanceof HttpResponseException) {
+            delay = getRetryAfter(((HttpResponseException) e).getHeaders());
+        }
+        if (delay < 0) {
+            delay = (long) Math.min(initialDelay * (Math.pow(2, retries) + Math.random()), maxDelay);
+        }
+        if (deadline > 0 && elapsed + delay > deadline) {
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * Returns true if the error is one that may go away if the call is repeated
+     *
+     * @param e          Error from the call
+     * @param idempotent True if the request can safely be repeated
+     * @return True if it is worth retrying
+     */
+    public boolean isRetryable(IOException e, boolean idempotent) {
+        if (e instanceof HttpResponseException) {
+            int statusCode = ((HttpResponseException) e).getStatusCode();
+
+            // A rate limit error means the server has not done anything
+            return retryableStatusCodes.contains(statusCode) && (idempotent || statusCode == GoogleDocsUtils.GAPI_RETRY_ERROR_CODE);
+        }
+
+        // A refused connection never reached the server but a timeout may have
+        if (retryNetworkErrors && e instanceof ConnectException) {
+            return true;
+        }
+        return retryNetworkErrors && idempotent && (e instanceof SocketTimeoutException || e instanceof SocketException);
+    }
+
+    /**
+     * Reads the Retry-After header, which can be a number of seconds or an HTTP date
+     *
+     * @param headers Response headers
+     * @return Milliseconds to wait or -1 if there isn't a usable header
+     */
+    protected static long getRetryAfter(HttpHeaders headers) {
+        String value = headers == null ? null : headers.getFirstHeaderStringValue("Retry-After");
+        if (value != null && !value.trim().isEmpty()) {
+            value = value.trim();
+            try {
+                return Math.max(0, Long.parseLong(value) * 1000);
+            }
+            catch (NumberFormatException e) {
+                try {
+                    return Math.max(0, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - System.currentTimeMillis());
+                }
+                catch (DateTimeParseException e1) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Works out the smallest set of changes that turns the current values of a sheet into the
+ * desired values.
+ * The rows are first aligned so that rows that haven't changed are kept where they are, rows
+ * that have been added are inserted and rows that have gone are deleted, then the cells of
+ * the remaining rows are compared one by one. Rows added or removed at the end of the data
+ * are just written or cleared, so the grid is only changed when rows below need to move.
+ * Values are compared the way Google returns them, so numbers are equal whatever their type
+ * or scale, dates are compared as date serials and empty cells are the same as empty strings
+ */
+public class SheetDiff {
+
+    // Largest number of row pairs that are aligned exactly, bigger changes are compared row by row
+    protected static final long MAX_ALIGN_CELLS = 4000000;
+
+    /**
+     * A change to the rows of the grid, in the order they are to be made
+     */
+    @Getter
+    protected static class RowChange {
+        private final boolean insert;
+        private final int startRow;
+        private final int count;
+
+        protected RowChange(boolean insert, int startRow, int count) {
+            this.insert = insert;
+            this.startRow = startRow;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return (insert ? "insert " : "delete ") + count + " at " + startRow;
+        }
+    }
+
+    // Row inserts and deletes, from the bottom of the sheet up so that each uses the original row numbers
+    @Getter
+    private final List<RowChange> rowChanges = new ArrayList<>();
+
+    // Cells to write once the rows have been changed, keyed on their final position, empty strings clear a cell
+    @Getter
+    private final SortedMap<Long, Object> cells = new TreeMap<>();
+
+    // The desired values as they will be returned by Google
+    @Getter
+    private final List<List<Object>> normalized;
+
+    @Getter
+    private int insertedRows = 0;
+    @Getter
+    private int deletedRows = 0;
+
+    /**
+     * Compares the current values with the desired values
+     *
+     * @param current Current values of the sheet starting at A1, rows may be short or null
+     * @param desired Desired values of the sheet starting at A1
+     */
+    protected SheetDiff(List<List<Object>> current, List<List<Object>> desired) {
+        List<List<Object>> from = normalize(current);
+        normalized = normalize(desired);
+        List<int[]> gaps = getGaps(from, normalized);
+
+        // Work from the bottom up so that the row numbers above each change stay the same
+        for (int i = gaps.size() - 1; i >= 0; i--) {
+            int[] gap = gaps.get(i);
+            boolean tail = i == gaps.size() - 1;
+            int fromStart = gap[0];
+            int fromCount = gap[1];
+            int toStart = gap[2];
+            int toCount = gap[3];
+            int paired = Math.min(fromCount, toCount);
+
+            // Rows in both are changed in place
+            for (int row = 0; row < paired; row++) {
+                compare(from.get(fromStart + row), toStart + row, desired, normalized.get(toStart + row));
+            }
+
+            // Rows that have gone are cleared if they are at the end, otherwise deleted
+            if (fromCount > toCount) {
+                if (tail) {
+                    for (int row = paired; row < fromCount; row++) {
+                        compare(from.get(fromStart + row), toStart + row, desired, Collections.emptyList());
+                    }
+                }
+                else {
+                    rowChanges.add(new RowChange(false, fromStart + paired, fromCount - toCount));
+                    deletedRows += fromCount - toCount;
+                }
+            }
+
+            // New rows are written, with room made for them first unless they are at the end
+            else if (toCount > fromCount) {
+                if (!tail) {
+                    rowChanges.add(new RowChange(true, fromStart + paired, toCount - fromCount));
+                    insertedRows += toCount - fromCount;
+                }
+                for (int row = paired; row < toCount; row++) {
+                    compare(Collections.emptyList(), toStart + row, desired, normalized.get(toStart + row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cells that need to be written
+     *
+     * @return Number of changed cells
+     */
+    public int getChangedCells() {
+        return cells.size();
+    }
+
+    /**
+     * Returns true if the sheet already has the desired values
+     *
+     * @return True if there is nothing to do
+     */
+    public boolean isEmpty() {
+        return cells.isEmpty() && rowChanges.isEmpty();
+    }
+
+    /**
+     * Adds the cells of a row that differ to the cells to write
+     *
+     * @param from    Current normalized row
+     * @param row     Final row index
+     * @param desired Desired values as they were given
+     * @param to      Desired normalized row
+     */
+    private void compare(List<Object> from, int row, List<List<Object>> desired, List<Object> to) {
+        for (int column = 0; column < Math.max(from.size(), to.size()); column++) {
+            Object fromValue = column < from.size() ? from.get(column) : "";
+            Object toValue = column < to.size() ? to.get(column) : "";
+            if (!fromValue.equals(toValue)) {
+                Object value = "";
+                if (column < to.size()) {
+                    List<Object> desiredRow = desired.get(row);
+                    value = desiredRow.get(column) == null ? "" : desiredRow.get(column);
+                }
+                cells.put(ValueWriteBuffer.getKey(row, column), value);
+            }
+        }
+    }
+
+    /**
+     * Aligns the rows and returns the runs of rows between the ones that are unchanged
+     * Each gap is the first current row, the number of current rows, the first desired
+     * row and the number of desired rows, the last gap is always the one at the end
+     *
+     * @param from Current normalized rows
+     * @param to   Desired normalized rows
+     * @return List of gaps in order
+     */
+    protected static List<int[]> getGaps(List<List<Object>> from, List<List<Object>> to) {
+        int n = from.size();
+        int m = to.size();
+
+        // Rows that are the same at the start and end are matched straight away
+        int prefix = 0;
+        while (prefix < n && prefix < m && from.get(prefix).equals(to.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < n - prefix && suffix < m - prefix && from.get(n - 1 - suffix).equals(to.get(m - 1 - suffix))) {
+            suffix++;
+        }
+
+        List<int[]> matches = new ArrayList<>();
+        for (int i = 0; i < prefix; i++) {
+            matches.add(new int[]{i, i});
+        }
+        matches.addAll(align(from.subList(prefix, n - suffix), to.subList(prefix, m - suffix), prefix, prefix));
+        for (int i = suffix; i > 0; i--) {
+            matches.add(new int[]{n - i, m - i});
+        }
+        matches.add(new int[]{n, m});
+
+        // Turn the matches into the runs of rows between them
+        List<int[]> ret = new ArrayList<>();
+        int fromNext = 0;
+        int toNext = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            int[] match = matches.get(i);
+            if (match[0] > fromNext || match[1] > toNext || i == matches.size() - 1) {
+                ret.add(new int[]{fromNext, match[0] - fromNext, toNext, match[1] - toNext});
+            }
+            fromNext = match[0] + 1;
+            toNext = match[1] + 1;
+        }
+        return ret;
+    }
+
+    /**
+     * Finds the longest run of rows that are in both lists in the same order, if there
+     * aren't too many to compare
+     *
+     * @param from       Current rows
+     * @param to         Desired rows
+     * @param fromOffset Index of the first current row
+     * @param toOffset   Index of the first desired row
+     * @return Pairs of matching row indexes in order
+     */
+    private static List<int[]> align(List<List<Object>> from, List<List<Object>> to, int fromOffset, int toOffset) {
+        int n = from.size();
+        int m = to.size();
+        if (n == 0 || m == 0 || (long) n * m > MAX_ALIGN_CELLS) {
+            return Collections.emptyList();
+        }
+
+        // Compare hashes first as it is much quicker than comparing rows
+        int[] fromHashes = new int[n];
+        int[] toHashes = new int[m];
+        for (int i = 0; i < n; i++) {
+            fromHashes[i] = from.get(i).hashCode();
+        }
+        for (int j = 0; j < m; j++) {
+            toHashes[j] = to.get(j).hashCode();
+        }
+        int[][] lengths = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                if (fromHashes[i] == toHashes[j] && from.get(i).equals(to.get(j))) {
+                    lengths[i][j] = lengths[i + 1][j + 1] + 1;
+                }
+                else {
+                    lengths[i][j] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+                }
+            }
+        }
+        List<int[]> ret = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < n && j < m) {
+            if (fromHashes[i] == toHashes[j] && from.get(i).equals(to.get(j))) {
+                ret.add(new int[]{fromOffset + i, toOffset + j});
+                i++;
+                j++;
+            }
+            else if (lengths[i + 1][j] >= lengths[i][j + 1]) {
+                i++;
+            }
+            else {
+                j++;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Normalizes the values of all the rows
+     *
+     * @param values Rows of values, may be null
+     * @return Rows of normalized values
+     */
+    protected static List<List<Object>> normalize(List<List<Object>> values) {
+        List<List<Object>> ret = new ArrayList<>();
+        if (values != null) {
+            for (List<Object> row : values) {
+                ret.add(normalizeRow(row));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Normalizes the values of a row and drops any empty cells at the end, which Google never returns
+     *
+     * @param row Row of values, may be null
+     * @return Row of normalized values
+     */
+    protected static List<Object> normalizeRow(List<Object> row) {
+        List<Object> ret = new ArrayList<>();
+        if (row != null) {
+            for (Object value : row) {
+                ret.add(normalize(value));
+            }
+        }
+        while (!ret.isEmpty() && "".equals(ret.get(ret.size() - 1))) {
+            ret.remove(ret.size() - 1);
+        }
+        return ret;
+    }
+
+    /**
+     * Converts a value to the form Google returns it in so that it can be compared
+     * Numbers become BigDecimals without trailing zeros, dates become date serials,
+     * nulls become empty strings and anything else other than booleans becomes a string
+     *
+     * @param value Value to normalize
+     * @return Normalized value
+     */
+    protected static Object normalize(Object value) {
+        if (value == null) {
+            return "";
+        }
+        else if (value instanceof LocalDate) {
+            return normalize(GoogleDocsUtils.getGoogleDateValue((LocalDate) value));
+        }
+        else if (value instanceof BigDecimal) {
+            BigDecimal number = (BigDecimal) value;
+            return number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros();
+        }
+        else if (value instanceof Number) {
+            if ((value instanceof Double && !Double.isFinite((Double) value)) || (value instanceof Float && !Float.isFinite((Float) value))) {
+                return value.toString();
+            }
+            return normalize(new BigDecimal(value.toString()));
+        }
+        else if (value instanceof Boolean) {
+            return value;
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Remembers which row of a sheet holds each value of a key column, so that rows can be
+ * found and updated without reading the sheet again.
+ * The index is built from the values of the key column and then kept in step as rows are
+ * added, inserted and deleted through the library. Keys are compared the way SheetDiff
+ * compares values, so the number 7 and the value 7.0 read back from Google are the same key.
+ * If a key appears more than once, the first row is used
+ */
+public class SheetKeyIndex {
+
+    @Getter
+    private final int keyColumn;
+
+    // Row of each key
+    private final Map<String, Integer> rows = new HashMap<>();
+
+    // Row after the last row of data, where the next new key goes
+    @Getter
+    private int nextRow = 0;
+
+    /**
+     * Creates an empty index
+     *
+     * @param keyColumn Zero based index of the key column
+     */
+    protected SheetKeyIndex(int keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    /**
+     * Creates an index from the values of the key column
+     *
+     * @param keyColumn Zero based index of the key column
+     * @param values    Rows of the key column starting at the first row, each with a single value or none
+     */
+    protected SheetKeyIndex(int keyColumn, List<List<Object>> values) {
+        this(keyColumn);
+        if (values != null) {
+            for (int row = 0; row < values.size(); row++) {
+                List<Object> value = values.get(row);
+                String key = value == null || value.isEmpty() ? null : getKey(value.get(0));
+                if (key != null) {
+                    rows.putIfAbsent(key, row);
+                }
+            }
+            nextRow = values.size();
+        }
+    }
+
+    /**
+     * Returns the row of the key
+     *
+     * @param key Value of the key column
+     * @return Zero based row index or null if the key isn't in the sheet
+     */
+    public synchronized Integer getRow(Object key) {
+        return rows.get(getKey(key));
+    }
+
+    /**
+     * Returns the row of the key, giving it the next row after the data if it is new
+     * The key must not be empty
+     *
+     * @param key Value of the key column
+     * @return Zero based row index
+     */
+    protected synchronized int add(Object key) {
+        String value = getKey(key);
+        Integer row = rows.get(value);
+        if (row == null) {
+            row = nextRow++;
+            rows.put(value, row);
+        }
+        return row;
+    }
+
+    /**
+     * Moves the keys down to match rows inserted into the sheet
+     *
+     * @param startRow First row inserted
+     * @param count    Number of rows inserted
+     */
+    protected synchronized void insertRows(int startRow, int count) {
+        if (count <= 0 || startRow >= nextRow) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : rows.entrySet()) {
+            if (entry.getValue() >= startRow) {
+                entry.setValue(entry.getValue() + count);
+            }
+        }
+        nextRow += count;
+    }
+
+    /**
+     * Removes the keys of rows deleted from the sheet and moves the ones below them up
+     *
+     * @param startRow First row deleted
+     * @param count    Number of rows deleted
+     */
+    protected synchronized void deleteRows(int startRow, int count) {
+        if (count <= 0 || startRow >= nextRow) {
+            return;
+        }
+        Iterator<Map.Entry<String, Integer>> iterator = rows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Integer> entry = iterator.next();
+            if (entry.getValue() >= startRow + count) {
+                entry.setValue(entry.getValue() - count);
+            }
+            else if (entry.getValue() >= startRow) {
+                iterator.remove();
+            }
+        }
+        nextRow -= Math.min(count, nextRow - startRow);
+    }
+
+    /**
+     * Returns the number of keys in the index
+     *
+     * @return Number of keys
+     */
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    /**
+     * Returns the key for a value, which is its normalized form as a string
+     *
+     * @param value Value of the key column
+     * @return Key or null if the value is empty
+     */
+    protected static String getKey(Object value) {
+        String key = SheetDiff.normalize(value).toString();
+        return key.isEmpty() ? null : key;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.GridRange;
+import com.pivotal.utils.EzGdocs4jException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reads the rows of a sheet a window at a time so that very large sheets can be processed
+ * without holding all the data in memory or running into the read timeout.
+ * The size of each window is worked out from the size of the previous one so that every
+ * request returns roughly the same number of bytes, however wide the rows are. While the
+ * caller is working through one window, the next is fetched in the background.
+ * As with getData(), rows are returned as lists of cell values, empty rows within the data
+ * are returned as empty lists and empty rows at the end are not returned at all.
+ * The reader should be closed if it isn't read to the end so that the prefetch is cancelled
+ */
+@Slf4j
+public class SheetRowReader implements Iterator<List<Object>>, AutoCloseable {
+
+    // Aim for responses of around this many bytes
+    public static final long DEFAULT_TARGET_BYTES = 2000000;
+
+    public static final int INITIAL_WINDOW_ROWS = 1000;
+    public static final int MIN_WINDOW_ROWS = 100;
+    public static final int MAX_WINDOW_ROWS = 50000;
+
+    private final GoogleSheet sheet;
+    private final GoogleSheet.ValueRenderOption renderOption;
+    private final GoogleAsyncExecutor executor;
+    private final long targetBytes;
+    private final String startColumn;
+    private final String endColumn;
+    private final int endRow;
+
+    private int nextRow;
+    private int windowRows = INITIAL_WINDOW_ROWS;
+    private CompletableFuture<List<List<Object>>> prefetch = null;
+    private Iterator<List<Object>> current = Collections.emptyIterator();
+    private int blankRows = 0;
+    private int pendingBlankRows = 0;
+    private boolean closed = false;
+
+    @Getter
+    private long rowsRead = 0;
+    @Getter
+    private int windowsRead = 0;
+
+    /**
+     * Creates a reader for the range of the sheet
+     *
+     * @param sheet        Sheet to read
+     * @param range        Range in A1 notation or null for the whole sheet
+     * @param renderOption How the values should be rendered
+     * @param executor     Executor to prefetch the windows on
+     * @param targetBytes  Approximate size of each window in bytes
+     * @throws GoogleException If the sheet cannot be read or the range is invalid
+     */
+    protected SheetRowReader(GoogleSheet sheet, String range, GoogleSheet.ValueRenderOption renderOption, GoogleAsyncExecutor executor, long targetBytes) throws GoogleException {
+        this.sheet = sheet;
+        this.renderOption = renderOption;
+        this.executor = executor;
+        this.targetBytes = Math.max(1, targetBytes);
+
+        // Work out the bounds, anything open-ended stops at the edge of the grid
+        GridRange gridRange = range == null ? new GridRange() : GoogleDocsUtils.getGridRange(sheet.getSheetId(), range);
+        int rowCount = sheet.getRowCount();
+        int columnCount = sheet.getColumnCount();
+        int firstColumn = gridRange.getStartColumnIndex() == null ? 0 : gridRange.getStartColumnIndex();
+        int lastColumn = gridRange.getEndColumnIndex() == null ? columnCount : gridRange.getEndColumnIndex();
+        this.startColumn = GoogleDocsUtils.getColumnName(firstColumn);
+        this.endColumn = GoogleDocsUtils.getColumnName(Math.max(firstColumn, lastColumn - 1));
+        this.nextRow = gridRange.getStartRowIndex() == null ? 0 : gridRange.getStartRowIndex();
+        this.endRow = gridRange.getEndRowIndex() == null ? rowCount : Math.min(rowCount, gridRange.getEndRowIndex());
+        prefetchNext();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && blankRows == 0) {
+            if (prefetch == null) {
+                return false;
+            }
+            List<List<Object>> window = await(prefetch);
+            int requested = windowRows;
+            prefetch = null;
+            adjustWindow(window);
+            prefetchNext();
+            if (window != null && !window.isEmpty()) {
+
+                // Blank rows before this window turned out not to be at the end of the data
+                blankRows = pendingBlankRows;
+                pendingBlankRows = requested - window.size();
+                current = window.iterator();
+            }
+            else {
+                pendingBlankRows += requested;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        rowsRead++;
+        if (blankRows > 0) {
+            blankRows--;
+            return new ArrayList<>();
+        }
+        return current.next();
+    }
+
+    /**
+     * Cancels any window that is being fetched in the background
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (prefetch != null) {
+            prefetch.cancel(false);
+            prefetch = null;
+        }
+    }
+
+    /**
+     * Starts fetching the next window in the background if there is any more of the sheet left
+     */
+    private void prefetchNext() {
+        if (!closed && nextRow < endRow) {
+            int start = nextRow;
+            int rows = Math.min(windowRows, endRow - start);
+            String range = startColumn + (start + 1) + ':' + endColumn + (start + rows);
+            log.debug("Fetching rows {} to {} of {}", start + 1, start + rows, sheet.getName());
+            prefetch = executor.submit(() -> sheet.getData(range, renderOption));
+            windowRows = rows;
+            nextRow += rows;
+        }
+    }
+
+    /**
+     * Sizes the next window so that it returns about the target number of bytes
+     *
+     * @param window Rows from the last window
+     */
+    private void adjustWindow(List<List<Object>> window) {
+        windowsRead++;
+        if (window != null && !window.isEmpty()) {
+            long bytes = 0;
+            for (List<Object> row : window) {
+                bytes += ValueChunker.estimateRowBytes(row);
+            }
+            long bytesPerRow = Math.max(1, bytes / window.size());
+            windowRows = (int) Math.max(MIN_WINDOW_ROWS, Math.min(MAX_WINDOW_ROWS, targetBytes / bytesPerRow));
+        }
+        else {
+            // Nothing came back so we may as well jump as far as we can
+            windowRows = MAX_WINDOW_ROWS;
+        }
+    }
+
+    /**
+     * Waits for a window to arrive
+     *
+     * @param future Future of the window
+     * @return Rows in the window
+     */
+    private List<List<Object>> await(CompletableFuture<List<List<Object>>> future) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EzGdocs4jException("Interrupted while reading sheet data from %s", sheet.getName());
+        }
+        catch (ExecutionException e) {
+            throw new EzGdocs4jException("Cannot read sheet data from %s", e.getCause(), sheet.getName());
+        }
+    }
+}
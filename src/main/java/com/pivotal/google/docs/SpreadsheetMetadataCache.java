@@ -0,0 +1,502 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.*;
+import com.pivotal.google.GoogleServiceContext;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the spreadsheet metadata (sheet properties and filter views) keyed on
+ * the service context and the spreadsheet ID, so that a context only ever sees metadata
+ * that was retrieved with its own credentials. Only the partial fetch profiles are cached,
+ * the full spreadsheet is always retrieved from the server.
+ * Entries expire after a configurable time to live and can be invalidated explicitly,
+ * but structural changes made through this library are applied to the cached copy from
+ * the batch update replies, so that sheet lookups don't have to go back to the server
+ * every time. Changes made through one context drop the entries that other contexts hold
+ * for the same spreadsheet.
+ * Cached spreadsheets are shared and must be treated as read-only by the caller
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class SpreadsheetMetadataCache {
+
+    // Default time that an entry is considered fresh
+    public static final long DEFAULT_TIME_TO_LIVE = 60000;
+
+    // Contexts that are no longer used are dropped along with their entries
+    private static final Map<GoogleServiceContext, Map<String, Entry>> caches = Collections.synchronizedMap(new WeakHashMap<>());
+    private static volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    /**
+     * Holds a cached spreadsheet, how much of it was fetched and the time it goes stale
+     * Entries are never modified, any update replaces the entry with a new copy
+     */
+    private static class Entry {
+        private final Spreadsheet spreadsheet;
+        private final GoogleDocsUtils.FetchProfile profile;
+        private final long expires;
+
+        private Entry(Spreadsheet spreadsheet, GoogleDocsUtils.FetchProfile profile, long expires) {
+            this.spreadsheet = spreadsheet;
+            this.profile = profile;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Sets the time in milliseconds that the metadata for a spreadsheet is trusted
+     * before it is retrieved again from the server. Zero disables the cache
+     *
+     * @param milliseconds Time to live
+     */
+    public static void setTimeToLive(long milliseconds) {
+        timeToLive = Math.max(0, milliseconds);
+        if (timeToLive == 0) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Returns the time in milliseconds that the metadata for a spreadsheet is trusted
+     *
+     * @return Time to live
+     */
+    public static long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Removes the cached metadata for the spreadsheet so that the next lookup goes
+     * to the server e.g. when the spreadsheet has been changed by someone else
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     */
+    public static void invalidate(String spreadsheetId) {
+        if (spreadsheetId != null) {
+            synchronized (caches) {
+                for (Map<String, Entry> cache : caches.values()) {
+                    cache.remove(spreadsheetId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached metadata
+     */
+    public static void invalidateAll() {
+        caches.clear();
+    }
+
+    /**
+     * Returns the cached spreadsheet if it is still fresh and was fetched with
+     * at least the profile requested
+     *
+     * @param context       Context the spreadsheet is being retrieved with
+     * @param spreadsheetId ID of the spreadsheet
+     * @param profile       Minimum content required
+     * @return Spreadsheet or null if not cached, stale or not detailed enough
+     */
+    protected static Spreadsheet get(GoogleServiceContext context, String spreadsheetId, GoogleDocsUtils.FetchProfile profile) {
+        Map<String, Entry> cache = getCache(context);
+        Entry entry = cache.get(spreadsheetId);
+        if (entry != null) {
+            if (entry.expires <= System.currentTimeMillis()) {
+                cache.remove(spreadsheetId, entry);
+            }
+            else if (entry.profile.includes(profile)) {
+                return entry.spreadsheet;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the freshly retrieved spreadsheet to the cache
+     * Full spreadsheets are not cached because only the properties and filter
+     * views are kept up to date
+     *
+     * @param context       Context the spreadsheet was retrieved with
+     * @param spreadsheetId ID of the spreadsheet
+     * @param spreadsheet   Spreadsheet retrieved from the server
+     * @param profile       Profile used to retrieve the spreadsheet
+     */
+    protected static void put(GoogleServiceContext context, String spreadsheetId, Spreadsheet spreadsheet, GoogleDocsUtils.FetchProfile profile) {
+        if (timeToLive > 0 && spreadsheetId != null && spreadsheet != null && profile != GoogleDocsUtils.FetchProfile.FULL) {
+            getCache(context).put(spreadsheetId, new Entry(spreadsheet, profile, System.currentTimeMillis() + timeToLive));
+        }
+    }
+
+    /**
+     * Adds a sheet that has been created outside a batch update e.g. copied from
+     * another spreadsheet
+     *
+     * @param context       Context the sheet was created with
+     * @param spreadsheetId ID of the spreadsheet
+     * @param properties    Properties of the new sheet
+     */
+    protected static void addSheet(GoogleServiceContext context, String spreadsheetId, SheetProperties properties) {
+        invalidateOthers(context, spreadsheetId);
+        Map<String, Entry> cache = getCache(context);
+        Entry entry = cache.get(spreadsheetId);
+        if (entry != null && properties != null) {
+            Spreadsheet spreadsheet = entry.spreadsheet.clone();
+            insertSheet(spreadsheet, properties);
+            replace(cache, spreadsheetId, entry, spreadsheet);
+        }
+    }
+
+    /**
+     * Makes sure the cached grid of the sheet is at least the size specified
+     * Appending values will silently grow the grid of a sheet
+     *
+     * @param context       Context the values were written with
+     * @param spreadsheetId ID of the spreadsheet
+     * @param sheetId       ID of the sheet
+     * @param rows          Minimum number of rows
+     * @param columns       Minimum number of columns
+     */
+    protected static void growGrid(GoogleServiceContext context, String spreadsheetId, int sheetId, int rows, int columns) {
+        invalidateOthers(context, spreadsheetId);
+        Map<String, Entry> cache = getCache(context);
+        Entry entry = cache.get(spreadsheetId);
+        if (entry != null) {
+            Sheet sheet = findSheet(entry.spreadsheet, sheetId);
+            if (sheet != null) {
+                GridProperties grid = sheet.getProperties().getGridProperties();
+                if (grid != null && (value(grid.getRowCount()) < rows || value(grid.getColumnCount()) < columns)) {
+                    Spreadsheet spreadsheet = entry.spreadsheet.clone();
+                    grid = findSheet(spreadsheet, sheetId).getProperties().getGridProperties();
+                    grid.setRowCount(Math.max(value(grid.getRowCount()), rows));
+                    grid.setColumnCount(Math.max(value(grid.getColumnCount()), columns));
+                    replace(cache, spreadsheetId, entry, spreadsheet);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the effect of the batch requests to the cached metadata using the
+     * replies from the server. If an effect cannot be determined reliably, the
+     * entry is dropped so that it is retrieved again next time
+     *
+     * @param context       Context the requests were sent with
+     * @param spreadsheetId ID of the spreadsheet
+     * @param requests      Requests that were sent
+     * @param response      Response received
+     */
+    protected static void update(GoogleServiceContext context, String spreadsheetId, List<Request> requests, BatchUpdateSpreadsheetResponse response) {
+        if (requests == null || !affectsMetadata(requests)) {
+            return;
+        }
+        invalidateOthers(context, spreadsheetId);
+        Map<String, Entry> cache = getCache(context);
+        Entry entry = cache.get(spreadsheetId);
+        if (entry == null) {
+            return;
+        }
+
+        // Work on a copy so that readers never see a half updated spreadsheet
+        Spreadsheet spreadsheet = entry.spreadsheet.clone();
+        List<Response> replies = response == null ? null : response.getReplies();
+        boolean coherent = true;
+        boolean hasFilterViews = entry.profile.includes(GoogleDocsUtils.FetchProfile.FILTER_VIEWS);
+        for (int i = 0; i < requests.size() && coherent; i++) {
+            Response reply = replies != null && i < replies.size() ? replies.get(i) : null;
+            coherent = apply(spreadsheet, requests.get(i), reply, hasFilterViews);
+        }
+        if (coherent) {
+            replace(cache, spreadsheetId, entry, spreadsheet);
+        }
+        else {
+            log.debug("Cannot apply batch replies to cached spreadsheet {} - invalidating", spreadsheetId);
+            cache.remove(spreadsheetId, entry);
+        }
+    }
+
+    /**
+     * Returns the entries of the context, creating them if there are none yet
+     *
+     * @param context Context the entries belong to
+     * @return Entries keyed on the spreadsheet ID
+     */
+    private static Map<String, Entry> getCache(GoogleServiceContext context) {
+        return caches.computeIfAbsent(context, key -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Removes the entries that contexts other than the one given hold for the spreadsheet
+     * because they cannot see the change that has just been made through it
+     *
+     * @param context       Context the change was made with
+     * @param spreadsheetId ID of the spreadsheet
+     */
+    private static void invalidateOthers(GoogleServiceContext context, String spreadsheetId) {
+        if (spreadsheetId != null) {
+            synchronized (caches) {
+                for (Map.Entry<GoogleServiceContext, Map<String, Entry>> other : caches.entrySet()) {
+                    if (other.getKey() != context) {
+                        other.getValue().remove(spreadsheetId);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Swaps the entry for the updated spreadsheet, keeping the original expiry time
+     * If another thread got in first, the entry is dropped to be safe
+     *
+     * @param cache         Entries of the context
+     * @param spreadsheetId ID of the spreadsheet
+     * @param entry         Entry the update was based on
+     * @param spreadsheet   Updated spreadsheet
+     */
+    private static void replace(Map<String, Entry> cache, String spreadsheetId, Entry entry, Spreadsheet spreadsheet) {
+        if (!cache.replace(spreadsheetId, entry, new Entry(spreadsheet, entry.profile, entry.expires))) {
+            cache.remove(spreadsheetId);
+        }
+    }
+
+    /**
+     * Quick check to avoid copying the spreadsheet when none of the requests
+     * change the metadata e.g. formatting and values
+     *
+     * @param requests Requests to check
+     * @return True if any of the requests is structural
+     */
+    private static boolean affectsMetadata(List<Request> requests) {
+        for (Request request : requests) {
+            if (request.getAddSheet() != null || request.getDuplicateSheet() != null || request.getDeleteSheet() != null ||
+                    request.getUpdateSheetProperties() != null || request.getAppendDimension() != null ||
+                    request.getInsertDimension() != null || request.getDeleteDimension() != null ||
+                    request.getAddFilterView() != null || request.getDeleteFilterView() != null ||
+                    request.getUpdateFilterView() != null || request.getDuplicateFilterView() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies a single request to the spreadsheet
+     *
+     * @param spreadsheet    Spreadsheet to update
+     * @param request        Request that was executed
+     * @param reply          Corresponding reply (may be null)
+     * @param hasFilterViews True if the cached spreadsheet includes the filter views
+     * @return False if the effect of the request cannot be determined
+     */
+    private static boolean apply(Spreadsheet spreadsheet, Request request, Response reply, boolean hasFilterViews) {
+        if (request.getAddSheet() != null) {
+            if (reply == null || reply.getAddSheet() == null) {
+                return false;
+            }
+            insertSheet(spreadsheet, reply.getAddSheet().getProperties());
+        }
+        else if (request.getDuplicateSheet() != null) {
+
+            // Filter views are duplicated with new IDs that we don't know about
+            Sheet source = findSheet(spreadsheet, value(request.getDuplicateSheet().getSourceSheetId()));
+            if (reply == null || reply.getDuplicateSheet() == null || source == null || (hasFilterViews && !isEmpty(source.getFilterViews()))) {
+                return false;
+            }
+            insertSheet(spreadsheet, reply.getDuplicateSheet().getProperties());
+        }
+        else if (request.getDeleteSheet() != null) {
+            removeSheet(spreadsheet, value(request.getDeleteSheet().getSheetId()));
+        }
+        else if (request.getUpdateSheetProperties() != null) {
+            return updateSheetProperties(spreadsheet, request.getUpdateSheetProperties());
+        }
+        else if (request.getAppendDimension() != null) {
+            AppendDimensionRequest req = request.getAppendDimension();
+            return resizeGrid(spreadsheet, value(req.getSheetId()), req.getDimension(), value(req.getLength()), false);
+        }
+        else if (request.getInsertDimension() != null) {
+            DimensionRange range = request.getInsertDimension().getRange();
+            return resizeGrid(spreadsheet, value(range.getSheetId()), range.getDimension(), value(range.getEndIndex()) - value(range.getStartIndex()), true);
+        }
+        else if (request.getDeleteDimension() != null) {
+            DimensionRange range = request.getDeleteDimension().getRange();
+            return resizeGrid(spreadsheet, value(range.getSheetId()), range.getDimension(), value(range.getStartIndex()) - value(range.getEndIndex()), true);
+        }
+        else if (!hasFilterViews) {
+            return true;
+        }
+        else if (request.getAddFilterView() != null) {
+            if (reply == null || reply.getAddFilterView() == null) {
+                return false;
+            }
+            FilterView view = reply.getAddFilterView().getFilter();
+            Sheet sheet = view.getRange() == null ? null : findSheet(spreadsheet, value(view.getRange().getSheetId()));
+            if (sheet == null) {
+                return false;
+            }
+            List<FilterView> views = sheet.getFilterViews() == null ? new ArrayList<>() : new ArrayList<>(sheet.getFilterViews());
+            views.add(view);
+            sheet.setFilterViews(views);
+        }
+        else if (request.getDeleteFilterView() != null) {
+            int filterId = value(request.getDeleteFilterView().getFilterId());
+            for (Sheet sheet : spreadsheet.getSheets()) {
+                if (sheet.getFilterViews() != null) {
+                    sheet.getFilterViews().removeIf(view -> view.getFilterViewId() != null && view.getFilterViewId() == filterId);
+                }
+            }
+        }
+        else if (request.getUpdateFilterView() != null || request.getDuplicateFilterView() != null) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the masked fields of the update to the cached sheet properties
+     * Index changes re-order all the sheets so we don't attempt those, and nor do we
+     * attempt masks with sub-field lists e.g. gridProperties(frozenRowCount,frozenColumnCount)
+     *
+     * @param spreadsheet Spreadsheet to update
+     * @param req         Update request
+     * @return False if the update cannot be applied
+     */
+    private static boolean updateSheetProperties(Spreadsheet spreadsheet, UpdateSheetPropertiesRequest req) {
+        SheetProperties props = req.getProperties();
+        String fields = req.getFields();
+        if (props == null || fields == null || fields.isEmpty() || fields.indexOf('(') >= 0) {
+            return false;
+        }
+        Sheet sheet = findSheet(spreadsheet, value(props.getSheetId()));
+        if (sheet == null) {
+            return false;
+        }
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.equals("*") || field.equals("index") || field.equals("sheetId")) {
+                return false;
+            }
+            GoogleDocsUtils.copyField(props, sheet.getProperties(), field);
+        }
+        return true;
+    }
+
+    /**
+     * Changes the number of rows or columns in the grid of the sheet
+     *
+     * @param spreadsheet Spreadsheet to update
+     * @param sheetId     Sheet to change
+     * @param dimension   ROWS or COLUMNS
+     * @param delta       Number of rows/columns to add (negative to remove)
+     * @param shifts      True if existing cells are shifted (filter ranges would move)
+     * @return False if the change cannot be applied
+     */
+    private static boolean resizeGrid(Spreadsheet spreadsheet, int sheetId, String dimension, int delta, boolean shifts) {
+        Sheet sheet = findSheet(spreadsheet, sheetId);
+        if (sheet == null || (shifts && !isEmpty(sheet.getFilterViews()))) {
+            return false;
+        }
+        GridProperties grid = sheet.getProperties().getGridProperties();
+        if (grid == null) {
+            return false;
+        }
+        if ("ROWS".equals(dimension)) {
+            grid.setRowCount(Math.max(0, value(grid.getRowCount()) + delta));
+        }
+        else if ("COLUMNS".equals(dimension)) {
+            grid.setColumnCount(Math.max(0, value(grid.getColumnCount()) + delta));
+        }
+        else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Inserts a new sheet into the list at its index position and shuffles
+     * the others along
+     *
+     * @param spreadsheet Spreadsheet to update
+     * @param properties  Properties of the new sheet
+     */
+    private static void insertSheet(Spreadsheet spreadsheet, SheetProperties properties) {
+        List<Sheet> sheets = spreadsheet.getSheets() == null ? new ArrayList<>() : new ArrayList<>(spreadsheet.getSheets());
+        int index = properties.getIndex() == null ? sheets.size() : Math.min(properties.getIndex(), sheets.size());
+        for (Sheet sheet : sheets) {
+            SheetProperties props = sheet.getProperties();
+            if (value(props.getIndex()) >= index) {
+                props.setIndex(value(props.getIndex()) + 1);
+            }
+        }
+        sheets.add(index, new Sheet().setProperties(properties.clone().setIndex(index)));
+        spreadsheet.setSheets(sheets);
+    }
+
+    /**
+     * Removes the sheet from the list and closes up the index positions
+     *
+     * @param spreadsheet Spreadsheet to update
+     * @param sheetId     ID of the sheet to remove
+     */
+    private static void removeSheet(Spreadsheet spreadsheet, int sheetId) {
+        if (spreadsheet.getSheets() != null) {
+            List<Sheet> sheets = new ArrayList<>(spreadsheet.getSheets());
+            Iterator<Sheet> iterator = sheets.iterator();
+            while (iterator.hasNext()) {
+                Sheet sheet = iterator.next();
+                if (value(sheet.getProperties().getSheetId()) == sheetId) {
+                    int index = value(sheet.getProperties().getIndex());
+                    iterator.remove();
+                    for (Sheet other : sheets) {
+                        if (value(other.getProperties().getIndex()) > index) {
+                            other.getProperties().setIndex(value(other.getProperties().getIndex()) - 1);
+                        }
+                    }
+                    break;
+                }
+            }
+            spreadsheet.setSheets(sheets);
+        }
+    }
+
+    /**
+     * Finds the sheet in the spreadsheet
+     *
+     * @param spreadsheet Spreadsheet to search
+     * @param sheetId     ID of the sheet
+     * @return Sheet or null if not found
+     */
+    private static Sheet findSheet(Spreadsheet spreadsheet, int sheetId) {
+        if (spreadsheet.getSheets() != null) {
+            for (Sheet sheet : spreadsheet.getSheets()) {
+                if (value(sheet.getProperties().getSheetId()) == sheetId) {
+                    return sheet;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private static int value(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits rows of values into chunks that are each as large as they can be without the
+ * request to send them exceeding a byte budget.
+ * The size of each row is estimated from the JSON it will be serialized to, as the rows are
+ * scanned, so wide rows give smaller chunks and narrow rows give larger ones instead of every
+ * chunk having the same number of rows. It uses a builder pattern so that only the limits of
+ * interest need to be set, a limit of zero means that it is not used
+ */
+@SuppressWarnings("unused")
+@Getter
+@ToString
+public class ValueChunker {
+
+    // By default, we leave plenty of headroom below the maximum payload
+    public static final double DEFAULT_PAYLOAD_FRACTION = 0.5;
+
+    private long maxBytes = (long) (GoogleDocsUtils.MAX_PAYLOAD_SIZE * DEFAULT_PAYLOAD_FRACTION);
+    private int maxRows = 0;
+
+    /**
+     * Sets the byte budget of each chunk as a fraction of the maximum payload size
+     *
+     * @param payloadFraction Fraction of GoogleDocsUtils.MAX_PAYLOAD_SIZE between 0 and 1
+     * @return ValueChunker for chaining
+     */
+    public ValueChunker payloadFraction(double payloadFraction) {
+        return maxBytes((long) (GoogleDocsUtils.MAX_PAYLOAD_SIZE * Math.min(1, Math.max(0, payloadFraction))));
+    }
+
+    /**
+     * Sets the byte budget of each chunk
+     *
+     * @param maxBytes Number of bytes (must be less than GoogleDocsUtils.MAX_PAYLOAD_SIZE)
+     * @return ValueChunker for chaining
+     */
+    public ValueChunker maxBytes(long maxBytes) {
+        this.maxBytes = Math.min(Math.max(0, maxBytes), GoogleDocsUtils.MAX_PAYLOAD_SIZE);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of rows in each chunk
+     *
+     * @param maxRows Number of rows
+     * @return ValueChunker for chaining
+     */
+    public ValueChunker maxRows(int maxRows) {
+        this.maxRows = Math.max(0, maxRows);
+        return this;
+    }
+
+    /**
+     * Splits the values into chunks, a row that is larger than the budget on its own
+     * is put in a chunk by itself
+     * The chunks are views of the values, so the values must not be changed while they're in use
+     *
+     * @param values Rows of values
+     * @return List of chunks in the same order as the values
+     */
+    public List<List<List<Object>>> split(List<List<Object>> values) {
+        List<List<List<Object>>> ret = new ArrayList<>();
+        if (values != null) {
+            int start = 0;
+            long bytes = 0;
+            for (int i = 0; i < values.size(); i++) {
+                long rowBytes = estimateRowBytes(values.get(i)) + 1;
+                if (i > start && isFull(i - start, bytes, rowBytes)) {
+                    ret.add(values.subList(start, i));
+                    start = i;
+                    bytes = 0;
+                }
+                bytes += rowBytes;
+            }
+            if (start < values.size()) {
+                ret.add(values.subList(start, values.size()));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns true if a chunk can't take another row, for callers building chunks as they go
+     *
+     * @param rows     Number of rows already in the chunk
+     * @param bytes    Estimated size of the rows already in the chunk
+     * @param rowBytes Estimated size of the next row including its separator
+     * @return True if the next row should start a new chunk
+     */
+    public boolean isFull(int rows, long bytes, long rowBytes) {
+        return (maxBytes > 0 && bytes + rowBytes > maxBytes) || (maxRows > 0 && rows >= maxRows);
+    }
+
+    /**
+     * Returns an estimate of the number of bytes the row takes up when it is serialized
+     * to JSON as part of a ValueRange
+     *
+     * @param row Row of values
+     * @return Number of bytes
+     */
+    public static long estimateRowBytes(List<Object> row) {
+        long ret = 2;
+        if (row != null && !row.isEmpty()) {
+            ret += row.size() - 1;
+            for (Object value : row) {
+                ret += estimateValueBytes(value);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes the value takes up in JSON
+     *
+     * @param value Cell value
+     * @return Number of bytes
+     */
+    private static long estimateValueBytes(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString().length();
+        }
+
+        // Strings are quoted and escaped and anything outside ASCII takes more than one byte
+        String text = value.toString();
+        long ret = 2;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                ret += 2;
+            }
+            else if (c < 0x20) {
+                ret += 6;
+            }
+            else if (c < 0x80) {
+                ret += 1;
+            }
+            else if (c < 0x800 || Character.isSurrogate(c)) {
+                ret += 2;
+            }
+            else {
+                ret += 3;
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
+import com.google.api.services.sheets.v4.model.GridRange;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import com.pivotal.google.GoogleServiceContext;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Collects writes to scattered cells across the sheets of a spreadsheet and sends them with
+ * values.batchUpdate in as few calls as possible.
+ * Setting a cell value with a RepeatCellRequest sends the whole cell structure for every cell,
+ * whereas here the cells are merged into rectangles of adjacent cells and sent as plain rows
+ * of values. A cell that is written more than once only sends its last value.
+ * Values are written RAW so that text is never parsed into numbers or dates, and formulas are
+ * sent separately as USER_ENTERED so that they are evaluated. Dates are sent as Google date serials
+ * so, as with GoogleSheet.setDate(), the cells need a date format to show them as dates
+ */
+@Slf4j
+public class ValueWriteBuffer {
+
+    // Bits of a cell key used for the column, plenty for the 18278 column limit
+    private static final int COLUMN_BITS = 20;
+
+    // Rough overhead of each range in a request on top of its values
+    private static final int RANGE_OVERHEAD_BYTES = 64;
+
+    @Getter
+    private final GoogleServiceContext context;
+    @Getter
+    private final String spreadsheetId;
+    @Getter
+    private int maxCells = 0;
+    @Getter
+    private long maxBytes = (long) (GoogleDocsUtils.MAX_PAYLOAD_SIZE * ValueChunker.DEFAULT_PAYLOAD_FRACTION);
+
+    // Pending cells for each sheet, ordered by row and then column
+    private final Map<String, TreeMap<Long, Cell>> pending = new LinkedHashMap<>();
+    private int pendingCount = 0;
+    @Getter
+    private long cellCount = 0;
+    @Getter
+    private long requestCount = 0;
+
+    /**
+     * Value of a single cell
+     */
+    private static class Cell {
+        private final Object value;
+        private final boolean formula;
+
+        private Cell(Object value, boolean formula) {
+            this.value = value;
+            this.formula = formula;
+        }
+    }
+
+    /**
+     * A rectangle of adjacent cells that are all values or all formulas
+     */
+    protected static class Block {
+        private final int startRow;
+        private final int startColumn;
+        private final int width;
+        private final boolean formula;
+        private final List<List<Object>> rows = new ArrayList<>();
+
+        private Block(int startRow, int startColumn, int width, boolean formula) {
+            this.startRow = startRow;
+            this.startColumn = startColumn;
+            this.width = width;
+            this.formula = formula;
+        }
+
+        /**
+         * Returns the range of the block in A1 notation
+         *
+         * @return Range e.g. B2:D5
+         */
+        protected String getRange() {
+            return GoogleDocsUtils.getColumnName(startColumn) + (startRow + 1) + ':' + GoogleDocsUtils.getColumnName(startColumn + width - 1) + (startRow + rows.size());
+        }
+
+        protected List<List<Object>> getRows() {
+            return rows;
+        }
+
+        protected boolean isFormula() {
+            return formula;
+        }
+    }
+
+    /**
+     * Creates a buffer for the spreadsheet
+     *
+     * @param context       Context to use
+     * @param spreadsheetId Spreadsheet the cells are in
+     */
+    public ValueWriteBuffer(GoogleServiceContext context, String spreadsheetId) {
+        this.context = context;
+        this.spreadsheetId = spreadsheetId;
+    }
+
+    /**
+     * Sets the number of pending cells at which the buffer is flushed automatically
+     *
+     * @param maxCells Number of cells (0 means only flush when asked)
+     * @return ValueWriteBuffer for chaining
+     */
+    public ValueWriteBuffer maxCells(int maxCells) {
+        this.maxCells = Math.max(0, maxCells);
+        return this;
+    }
+
+    /**
+     * Sets the byte budget of each request, pending cells that need more are sent in several requests
+     *
+     * @param maxBytes Number of bytes (must be less than GoogleDocsUtils.MAX_PAYLOAD_SIZE)
+     * @return ValueWriteBuffer for chaining
+     */
+    public ValueWriteBuffer maxBytes(long maxBytes) {
+        this.maxBytes = Math.min(Math.max(1, maxBytes), GoogleDocsUtils.MAX_PAYLOAD_SIZE);
+        return this;
+    }
+
+    /**
+     * Sets the value of every cell in the range, the range must have an end row and column
+     * Strings are stored as text, numbers and booleans as they are and dates as date serials
+     *
+     * @param sheetName Name of the sheet
+     * @param range     A1 notation for the range
+     * @param value     Value to give the cells
+     * @throws GoogleException If the range is open-ended or invalid, or an automatic flush fails
+     */
+    public void setValue(String sheetName, String range, Object value) throws GoogleException {
+        set(sheetName, range, new Cell(convert(value), false));
+    }
+
+    /**
+     * Sets the value of a single cell, see {@link #setValue(String, String, Object)}
+     *
+     * @param sheetName Name of the sheet
+     * @param row       Zero based row index
+     * @param column    Zero based column index
+     * @param value     Value to give the cell
+     * @throws GoogleException If an automatic flush fails
+     */
+    public void setValue(String sheetName, int row, int column, Object value) throws GoogleException {
+        set(sheetName, row, row + 1, column, column + 1, new Cell(convert(value), false));
+    }
+
+    /**
+     * Sets the formula of every cell in the range, the range must have an end row and column
+     * The same formula is written to every cell, just as if it had been typed into each of them
+     *
+     * @param sheetName Name of the sheet
+     * @param range     A1 notation for the range
+     * @param formula   Formula e.g. =SUM(A1:A10)
+     * @throws GoogleException If the range is open-ended or invalid, or an automatic flush fails
+     */
+    public void setFormula(String sheetName, String range, String formula) throws GoogleException {
+        set(sheetName, range, new Cell(formula, true));
+    }
+
+    /**
+     * Sets the formula of a single cell, see {@link #setFormula(String, String, String)}
+     *
+     * @param sheetName Name of the sheet
+     * @param row       Zero based row index
+     * @param column    Zero based column index
+     * @param formula   Formula e.g. =SUM(A1:A10)
+     * @throws GoogleException If an automatic flush fails
+     */
+    public void setFormula(String sheetName, int row, int column, String formula) throws GoogleException {
+        set(sheetName, row, row + 1, column, column + 1, new Cell(formula, true));
+    }
+
+    /**
+     * Sends all the pending cells to the server
+     *
+     * @return Number of cells sent
+     * @throws GoogleException If the cells cannot be written, in which case they are kept
+     */
+    public synchronized int flush() throws GoogleException {
+        if (pendingCount == 0) {
+            return 0;
+        }
+        List<ValueRange> values = new ArrayList<>();
+        List<ValueRange> formulas = new ArrayList<>();
+        for (Map.Entry<String, TreeMap<Long, Cell>> entry : pending.entrySet()) {
+            for (Block block : getBlocks(entry.getValue())) {
+                ValueRange valueRange = new ValueRange().setRange(BatchRangeReader.getQualifiedRange(entry.getKey(), block.getRange())).setValues(block.getRows());
+                (block.isFormula() ? formulas : values).add(valueRange);
+            }
+        }
+        log.debug("Flushing {} cells to {} as {} ranges", pendingCount, spreadsheetId, values.size() + formulas.size());
+        send(values, GoogleSheet.ValueInputOption.RAW);
+        send(formulas, GoogleSheet.ValueInputOption.USER_ENTERED);
+        int ret = pendingCount;
+        cellCount += ret;
+        pending.clear();
+        pendingCount = 0;
+        return ret;
+    }
+
+    /**
+     * Discards the pending cells
+     */
+    public synchronized void clear() {
+        pending.clear();
+        pendingCount = 0;
+    }
+
+    /**
+     * Returns the number of cells waiting to be sent
+     *
+     * @return Number of pending cells
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Works out the rectangles of adjacent cells
+     * Each row is first split into runs of adjacent cells, and then runs that have exactly the
+     * same columns as a run on the row above are added to its rectangle
+     *
+     * @param cells Cells keyed on their position
+     * @return List of blocks ordered by their top left cell
+     */
+    protected static List<Block> getBlocks(SortedMap<Long, ?> cells) {
+        List<Block> ret = new ArrayList<>();
+        Map<Long, Block> open = new HashMap<>();
+        int runRow = -1;
+        int runStart = -1;
+        int runEnd = -1;
+        boolean runFormula = false;
+        List<Object> run = new ArrayList<>();
+        for (Map.Entry<Long, ?> entry : cells.entrySet()) {
+            int row = getRow(entry.getKey());
+            int column = getColumn(entry.getKey());
+            Object value = entry.getValue();
+            boolean formula = value instanceof Cell && ((Cell) value).formula;
+            if (row != runRow || column != runEnd || formula != runFormula) {
+                if (!run.isEmpty()) {
+                    addRun(ret, open, runRow, runStart, runFormula, run);
+                }
+                run = new ArrayList<>();
+                runRow = row;
+                runStart = column;
+                runFormula = formula;
+            }
+            run.add(value instanceof Cell ? ((Cell) value).value : value);
+            runEnd = column + 1;
+        }
+        if (!run.isEmpty()) {
+            addRun(ret, open, runRow, runStart, runFormula, run);
+        }
+        ret.sort(Comparator.comparingInt((Block block) -> block.startRow).thenComparingInt(block -> block.startColumn));
+        return ret;
+    }
+
+    /**
+     * Adds a run of cells to the block above it if it fits exactly, or starts a new block
+     *
+     * @param blocks  All the blocks
+     * @param open    Blocks that may still grow keyed on their columns and type
+     * @param row     Row of the run
+     * @param start   First column of the run
+     * @param formula True if the run is formulas
+     * @param run     Values of the run
+     */
+    private static void addRun(List<Block> blocks, Map<Long, Block> open, int row, int start, boolean formula, List<Object> run) {
+        long key = ((long) start << (COLUMN_BITS + 1)) | ((long) run.size() << 1) | (formula ? 1 : 0);
+        Block block = open.get(key);
+        if (block == null || block.startRow + block.rows.size() != row) {
+            block = new Block(row, start, run.size(), formula);
+            blocks.add(block);
+            open.put(key, block);
+        }
+        block.rows.add(run);
+    }
+
+    /**
+     * Sends the ranges in as few requests as the byte budget allows
+     *
+     * @param ranges      Ranges of values
+     * @param inputOption How Google should interpret the values
+     * @throws GoogleException If the values cannot be written
+     */
+    private void send(List<ValueRange> ranges, GoogleSheet.ValueInputOption inputOption) throws GoogleException {
+        List<ValueRange> data = new ArrayList<>();
+        long bytes = 0;
+        for (ValueRange range : ranges) {
+            long rangeBytes = RANGE_OVERHEAD_BYTES + range.getRange().length();
+            for (List<Object> row : range.getValues()) {
+                rangeBytes += ValueChunker.estimateRowBytes(row) + 1;
+            }
+            if (!data.isEmpty() && bytes + rangeBytes > maxBytes) {
+                sendRequest(data, inputOption);
+                data = new ArrayList<>();
+                bytes = 0;
+            }
+            data.add(range);
+            bytes += rangeBytes;
+        }
+        if (!data.isEmpty()) {
+            sendRequest(data, inputOption);
+        }
+    }
+
+    /**
+     * Sends a single values.batchUpdate request
+     *
+     * @param data        Ranges of values
+     * @param inputOption How Google should interpret the values
+     * @throws GoogleException If the values cannot be written
+     */
+    private void sendRequest(List<ValueRange> data, GoogleSheet.ValueInputOption inputOption) throws GoogleException {
+        Sheets.Spreadsheets.Values valuesService = context.getSheetsService().values();
+        BatchUpdateValuesRequest request = new BatchUpdateValuesRequest()
+                .setValueInputOption(inputOption.toString())
+                .setIncludeValuesInResponse(false)
+                .setData(data);
+        try {
+            GoogleDocsUtils.execute(context, spreadsheetId, valuesService.batchUpdate(spreadsheetId, request));
+            requestCount++;
+        }
+        catch (IOException e) {
+            throw new GoogleException("Cannot write %d ranges to %s - %s", e, data.size(), spreadsheetId, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a cell to every position in the range
+     *
+     * @param sheetName Name of the sheet
+     * @param range     A1 notation for the range
+     * @param cell      Cell to add
+     * @throws GoogleException If the range is open-ended or invalid, or an automatic flush fails
+     */
+    private void set(String sheetName, String range, Cell cell) throws GoogleException {
+        GridRange gridRange = GoogleDocsUtils.getGridRange(0, range);
+        if (gridRange.getStartRowIndex() == null || gridRange.getEndRowIndex() == null || gridRange.getStartColumnIndex() == null || gridRange.getEndColumnIndex() == null) {
+            throw new GoogleException("Range %s must have a start and end row and column to be buffered", range);
+        }
+        set(sheetName, gridRange.getStartRowIndex(), gridRange.getEndRowIndex(), gridRange.getStartColumnIndex(), gridRange.getEndColumnIndex(), cell);
+    }
+
+    /**
+     * Adds a cell to every position in the rectangle
+     *
+     * @param sheetName   Name of the sheet
+     * @param startRow    First row
+     * @param endRow      Row after the last row
+     * @param startColumn First column
+     * @param endColumn   Column after the last column
+     * @param cell        Cell to add
+     * @throws GoogleException If an automatic flush fails
+     */
+    private synchronized void set(String sheetName, int startRow, int endRow, int startColumn, int endColumn, Cell cell) throws GoogleException {
+        TreeMap<Long, Cell> cells = pending.computeIfAbsent(sheetName, name -> new TreeMap<>());
+        for (int row = startRow; row < endRow; row++) {
+            for (int column = startColumn; column < endColumn; column++) {
+                if (cells.put(getKey(row, column), cell) == null) {
+                    pendingCount++;
+                }
+            }
+        }
+        if (maxCells > 0 && pendingCount >= maxCells) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns the key of a cell, which sorts by row and then column
+     *
+     * @param row    Zero based row index
+     * @param column Zero based column index
+     * @return Key of the cell
+     */
+    protected static long getKey(int row, int column) {
+        return ((long) row << COLUMN_BITS) | column;
+    }
+
+    /**
+     * Returns the row of a cell key
+     *
+     * @param key Key from getKey()
+     * @return Zero based row index
+     */
+    protected static int getRow(long key) {
+        return (int) (key >>> COLUMN_BITS);
+    }
+
+    /**
+     * Returns the column of a cell key
+     *
+     * @param key Key from getKey()
+     * @return Zero based column index
+     */
+    protected static int getColumn(long key) {
+        return (int) (key & ((1 << COLUMN_BITS) - 1));
+    }
+
+    /**
+     * Converts a value to something that can be sent, dates become date serials
+     *
+     * @param value Value to convert
+     * @return Value to send
+     */
+    private static Object convert(Object value) {
+        if (value instanceof LocalDate) {
+            return GoogleDocsUtils.getGoogleDateValue((LocalDate) value);
+        }
+        return value == null ? "" : value;
+    }
+}
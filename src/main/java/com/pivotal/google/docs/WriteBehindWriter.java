@@ -0,0 +1,419 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.Request;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queues the changes made to a sheet and sends them from a background thread, so that callers
+ * making a steady stream of small updates don't wait for the server or have to manage batches.
+ * The queued changes are sent whenever the number waiting reaches the request limit, or the oldest
+ * has waited for the age limit. Consecutive requests go in one batch update and consecutive appended
+ * rows in one append, and the changes are sent in the order they were queued.
+ * The queue has a fixed capacity, when it is full callers block until the background thread has
+ * caught up. Failures are passed to the failure listener along with the changes that were lost,
+ * the writer carries on with the changes that follow
+ */
+@Slf4j
+public class WriteBehindWriter implements AutoCloseable {
+
+    // Most changes that can be waiting before callers are made to wait
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    // Send after this many changes or when the oldest has waited this long
+    public static final int DEFAULT_MAX_REQUESTS = 500;
+    public static final long DEFAULT_MAX_AGE = 2000;
+
+    private final GoogleSheet sheet;
+    private final int maxRequests;
+    private final long maxAge;
+    private final FailureListener listener;
+    private final BlockingQueue<Change> queue;
+    private final Thread thread;
+
+    // Threads part way through queuing a change, so that close() can wait for them
+    private final AtomicInteger adding = new AtomicInteger();
+    private volatile boolean closed = false;
+    private volatile boolean stopped = false;
+
+    @Getter
+    private final AtomicLong sentCount = new AtomicLong();
+    @Getter
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Told about changes that could not be sent
+     * It is called from the background thread, or from a caller that finds the thread has stopped
+     */
+    @FunctionalInterface
+    public interface FailureListener {
+        void flushFailed(GoogleException e, List<Request> requests, List<List<Object>> rows);
+    }
+
+    /**
+     * A queued change, a batch request, some rows to append or a marker to wait for
+     */
+    private static class Change {
+        private final Request request;
+        private final String rangeStart;
+        private final List<List<Object>> rows;
+        private final CompletableFuture<Void> marker;
+        private final boolean stop;
+
+        private Change(Request request, String rangeStart, List<List<Object>> rows, CompletableFuture<Void> marker, boolean stop) {
+            this.request = request;
+            this.rangeStart = rangeStart;
+            this.rows = rows;
+            this.marker = marker;
+            this.stop = stop;
+        }
+    }
+
+    /**
+     * Creates a writer for the sheet and starts its background thread
+     *
+     * @param sheet    Sheet to write to
+     * @param limits   Number of changes and age in milliseconds at which to send, zero for the defaults
+     * @param capacity Most changes that can be waiting before callers are made to wait
+     * @param listener Listener to tell about failures or null to just log them
+     */
+    protected WriteBehindWriter(GoogleSheet sheet, BatchLimits limits, int capacity, FailureListener listener) {
+        this.sheet = sheet;
+        this.maxRequests = limits == null || limits.getMaxRequests() <= 0 ? DEFAULT_MAX_REQUESTS : limits.getMaxRequests();
+        this.maxAge = limits == null || limits.getMaxAge() <= 0 ? DEFAULT_MAX_AGE : limits.getMaxAge();
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.thread = new Thread(this::run, "ezgdocs4j-write-behind-" + sheet.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a batch update request, blocking if the queue is full
+     *
+     * @param request Request to send
+     * @throws GoogleException If the writer has been closed or the wait is interrupted
+     */
+    public void add(Request request) throws GoogleException {
+        enqueue(new Change(request, null, null, null, false));
+        DeferredBackOff.recordWrite();
+    }
+
+    /**
+     * Queues rows to append, blocking if the queue is full
+     *
+     * @param rangeStart Where to start to append the data from R1C1 notation or null for the end of the data
+     * @param rows       Rows of values
+     * @throws GoogleException If the writer has been closed or the wait is interrupted
+     */
+    public void append(String rangeStart, List<List<Object>> rows) throws GoogleException {
+        if (rows != null && !rows.isEmpty()) {
+            enqueue(new Change(null, rangeStart, new ArrayList<>(rows), null, false));
+            DeferredBackOff.recordWrite();
+        }
+    }
+
+    /**
+     * Waits until everything queued before this call has been sent, or has failed
+     *
+     * @throws GoogleException If the writer has been closed or the wait is interrupted
+     */
+    public void flush() throws GoogleException {
+        CompletableFuture<Void> marker = new CompletableFuture<>();
+        enqueue(new Change(null, null, null, marker, false));
+        await(marker);
+    }
+
+    /**
+     * Sends everything that is queued and stops the background thread
+     * Nothing can be queued once this has been called
+     *
+     * @throws GoogleException If the wait is interrupted
+     */
+    @Override
+    public void close() throws GoogleException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        while (adding.get() > 0) {
+            Thread.yield();
+        }
+        CompletableFuture<Void> marker = new CompletableFuture<>();
+        try {
+            queue.put(new Change(null, null, null, marker, true));
+            if (stopped) {
+                abandonQueued();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoogleException("Interrupted while closing the writer for %s", sheet.getName());
+        }
+        await(marker);
+    }
+
+    /**
+     * Returns true if the writer has been closed
+     *
+     * @return True if nothing more can be queued
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the number of changes waiting to be sent
+     *
+     * @return Number of queued changes
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Puts a change on the queue, the closed flag is checked after announcing the
+     * add, so close() either sees this thread and waits for it, or this thread sees
+     * that the writer is closed
+     *
+     * @param change Change to queue
+     * @throws GoogleException If the writer has been closed or the wait is interrupted
+     */
+    private void enqueue(Change change) throws GoogleException {
+        adding.incrementAndGet();
+        try {
+            if (closed) {
+                throw new GoogleException("Writer for %s has been closed", sheet.getName());
+            }
+            if (stopped) {
+                throw new GoogleException("Writer for %s has stopped", sheet.getName());
+            }
+            queue.put(change);
+
+            // The background thread may have stopped while we were waiting for room
+            if (stopped) {
+                abandonQueued();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoogleException("Interrupted while queuing a change for %s", sheet.getName());
+        }
+        finally {
+            adding.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits for a marker to be reached by the background thread
+     *
+     * @param marker Marker to wait for
+     * @throws GoogleException If the wait is interrupted
+     */
+    private void await(CompletableFuture<Void> marker) throws GoogleException {
+        try {
+            marker.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoogleException("Interrupted while waiting for changes to %s to be sent", sheet.getName());
+        }
+        catch (ExecutionException e) {
+            throw new GoogleException("Cannot send changes to %s", e.getCause(), sheet.getName());
+        }
+    }
+
+    /**
+     * Body of the background thread, anything still queued when it stops for whatever reason is
+     * failed, so that callers waiting in flush() or close() don't wait forever
+     */
+    private void run() {
+        try {
+            process();
+        }
+        finally {
+            stopped = true;
+            abandonQueued();
+        }
+    }
+
+    /**
+     * Collects changes until a limit is reached and sends them, until told to stop
+     */
+    private void process() {
+        List<Change> pending = new ArrayList<>();
+        long deadline = 0;
+        while (true) {
+            Change change;
+            try {
+                change = pending.isEmpty() ? queue.take() : queue.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e) {
+                log.warn("Write-behind thread for {} interrupted with {} changes pending", sheet.getName(), pending.size());
+                send(pending);
+                return;
+            }
+            if (change != null && change.marker != null) {
+                try {
+                    send(pending);
+                    pending.clear();
+                }
+                finally {
+                    change.marker.complete(null);
+                }
+                if (change.stop) {
+                    return;
+                }
+                continue;
+            }
+            if (change != null) {
+                if (pending.isEmpty()) {
+                    deadline = System.currentTimeMillis() + maxAge;
+                }
+                pending.add(change);
+            }
+            if (change == null || pending.size() >= maxRequests || System.currentTimeMillis() >= deadline) {
+                send(pending);
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * Sends the changes in order, grouping consecutive requests into one batch update and
+     * consecutive rows for the same place into one append
+     *
+     * @param changes Changes to send
+     */
+    private void send(List<Change> changes) {
+        int i = 0;
+        while (i < changes.size()) {
+            Change first = changes.get(i);
+            int end = i + 1;
+            if (first.request != null) {
+                while (end < changes.size() && changes.get(end).request != null) {
+                    end++;
+                }
+                sendRequests(changes.subList(i, end));
+            }
+            else {
+                while (end < changes.size() && changes.get(end).rows != null && changes.get(end).rangeStart == null) {
+                    end++;
+                }
+                sendRows(first.rangeStart, changes.subList(i, end));
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * Sends a run of requests as a batch, split to keep within the payload size
+     *
+     * @param changes Changes holding the requests
+     */
+    private void sendRequests(List<Change> changes) {
+        List<Request> requests = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            requests.add(change.request);
+        }
+        try {
+            RequestBatch batch = new RequestBatch(sheet.getContext(), sheet.getSpreadsheetId(), BatchLimits.payloadSafe());
+            for (Request request : requests) {
+                batch.add(request);
+            }
+            batch.execute();
+            sentCount.addAndGet(requests.size());
+        }
+        catch (GoogleException e) {
+            failed(e, requests, Collections.emptyList());
+        }
+        catch (RuntimeException e) {
+            failed(new GoogleException("Cannot send requests to %s - %s", e, sheet.getName(), e.getMessage()), requests, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Appends a run of rows
+     *
+     * @param rangeStart Where to start to append the data or null for the end of the data
+     * @param changes    Changes holding the rows
+     */
+    private void sendRows(String rangeStart, List<Change> changes) {
+        List<List<Object>> rows = new ArrayList<>();
+        try {
+            for (Change change : changes) {
+                rows.addAll(change.rows);
+            }
+            sheet.appendValuesNow(rangeStart, rows, new ValueChunker(), GoogleSheet.ValueInputOption.USER_ENTERED);
+            sentCount.addAndGet(changes.size());
+        }
+        catch (GoogleException e) {
+            failed(e, Collections.emptyList(), rows);
+        }
+        catch (RuntimeException e) {
+            failed(new GoogleException("Cannot append rows to %s - %s", e, sheet.getName(), e.getMessage()), Collections.emptyList(), rows);
+        }
+    }
+
+    /**
+     * Removes everything from the queue once the background thread has stopped, telling the
+     * listener about the changes and failing the markers that callers are waiting on
+     */
+    private void abandonQueued() {
+        List<Request> requests = new ArrayList<>();
+        List<List<Object>> rows = new ArrayList<>();
+        Change change;
+        while ((change = queue.poll()) != null) {
+            if (change.marker != null) {
+                change.marker.completeExceptionally(new GoogleException("Writer for %s has stopped", sheet.getName()));
+            }
+            else if (change.request != null) {
+                requests.add(change.request);
+            }
+            else if (change.rows != null) {
+                rows.addAll(change.rows);
+            }
+        }
+        if (!requests.isEmpty() || !rows.isEmpty()) {
+            failed(new GoogleException("Writer for %s has stopped", sheet.getName()), requests, rows);
+        }
+    }
+
+    /**
+     * Tells the listener about changes that could not be sent
+     *
+     * @param e        Cause of the failure
+     * @param requests Requests that were not sent
+     * @param rows     Rows that were not appended
+     */
+    private void failed(GoogleException e, List<Request> requests, List<List<Object>> rows) {
+        failedCount.addAndGet(requests.size() + rows.size());
+        if (listener == null) {
+            log.error("Cannot send {} requests and {} rows to {} - {}", requests.size(), rows.size(), sheet.getName(), e.getMessage());
+            return;
+        }
+        try {
+            listener.flushFailed(e, requests, rows);
+        }
+        catch (RuntimeException listenerError) {
+            log.error("Write-behind failure listener for {} failed - {}", sheet.getName(), listenerError.getMessage());
+        }
+    }
+}
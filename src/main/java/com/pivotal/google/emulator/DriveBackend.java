@@ -0,0 +1,272 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.emulator;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.drive.model.File;
+import com.google.api.services.drive.model.FileList;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The files of the emulated Drive, held in memory
+ * Only the parts of the files API that the library uses are supported. Queries can
+ * use "in parents", "name =" and "mimeType =" terms, which are all ANDed together,
+ * and anything else in them is ignored. Callers must hold the emulator lock
+ */
+public class DriveBackend {
+
+    public static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
+    public static final String SPREADSHEET_MIME_TYPE = "application/vnd.google-apps.spreadsheet";
+    public static final String ROOT_ID = "root";
+
+    // Largest page that Drive will return
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final Pattern PARENT_TERM = Pattern.compile("'([^']*)'\\s+in\\s+parents");
+    private static final Pattern NAME_TERM = Pattern.compile("name\\s*=\\s*'((?:[^'\\\\]|\\\\.)*)'");
+    private static final Pattern MIME_TYPE_TERM = Pattern.compile("mimeType\\s*=\\s*'([^']*)'");
+
+    private final Map<String, File> files = new LinkedHashMap<>();
+
+    /**
+     * Creates an empty Drive with just the root folder
+     */
+    protected DriveBackend() {
+        File root = newFile(ROOT_ID, "My Drive", FOLDER_MIME_TYPE);
+        root.setParents(null);
+        files.put(ROOT_ID, root);
+    }
+
+    /**
+     * Creates a file from the metadata, there is never any content
+     *
+     * @param metadata Metadata of the file
+     * @return The new file
+     */
+    protected File create(File metadata) {
+        File file = newFile(UUID.randomUUID().toString(), metadata.getName(), metadata.getMimeType() == null ? "application/octet-stream" : metadata.getMimeType());
+        if (metadata.getParents() != null && !metadata.getParents().isEmpty()) {
+            file.setParents(new ArrayList<>(metadata.getParents()));
+        }
+        files.put(file.getId(), file);
+        return file.clone();
+    }
+
+    /**
+     * Adds the file for a spreadsheet that has just been created
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param title         Title of the spreadsheet
+     */
+    protected void addSpreadsheet(String spreadsheetId, String title) {
+        files.put(spreadsheetId, newFile(spreadsheetId, title, SPREADSHEET_MIME_TYPE));
+    }
+
+    /**
+     * Renames the file of a spreadsheet if there is one
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param title         New title
+     */
+    protected void renameSpreadsheet(String spreadsheetId, String title) {
+        File file = files.get(spreadsheetId);
+        if (file != null) {
+            file.setName(title);
+            file.setModifiedTime(new DateTime(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Returns a file
+     *
+     * @param fileId ID of the file
+     * @return The file
+     * @throws EmulatorException If there is no such file
+     */
+    protected File get(String fileId) throws EmulatorException {
+        return getFile(fileId).clone();
+    }
+
+    /**
+     * Returns a page of the files that match the query
+     *
+     * @param query     Query e.g. 'root' in parents
+     * @param pageSize  Most files to return or null for the default
+     * @param pageToken Token from the previous page or null for the first page
+     * @param orderBy   Sort order, only name is supported
+     * @return Page of files
+     * @throws EmulatorException If the page token is invalid
+     */
+    protected FileList list(String query, Integer pageSize, String pageToken, String orderBy) throws EmulatorException {
+        List<File> matches = new ArrayList<>();
+        for (File file : files.values()) {
+            if (!ROOT_ID.equals(file.getId()) && matches(file, query)) {
+                matches.add(file);
+            }
+        }
+        if (orderBy != null && orderBy.trim().startsWith("name")) {
+            matches.sort(Comparator.comparing(File::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
+        }
+
+        // Page tokens are just the index of the first file of the page
+        int start = 0;
+        if (pageToken != null) {
+            try {
+                start = Integer.parseInt(pageToken);
+            }
+            catch (NumberFormatException e) {
+                throw new EmulatorException(400, "Invalid Value: pageToken %s", pageToken);
+            }
+        }
+        int size = pageSize == null || pageSize <= 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+        int end = Math.min(matches.size(), start + size);
+        List<File> page = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            page.add(matches.get(i).clone());
+        }
+        FileList ret = new FileList().setKind("drive#fileList").setFiles(page).setIncompleteSearch(false);
+        if (end < matches.size()) {
+            ret.setNextPageToken(String.valueOf(end));
+        }
+        return ret;
+    }
+
+    /**
+     * Updates the name of a file and moves it between folders
+     *
+     * @param fileId        ID of the file
+     * @param metadata      New metadata, only the name is used
+     * @param addParents    Comma separated folders to add the file to or null
+     * @param removeParents Comma separated folders to remove the file from or null
+     * @return The updated file
+     * @throws EmulatorException If the file or a new parent doesn't exist
+     */
+    protected File update(String fileId, File metadata, String addParents, String removeParents) throws EmulatorException {
+        File file = getFile(fileId);
+        if (metadata != null && metadata.getName() != null) {
+            file.setName(metadata.getName());
+        }
+        List<String> parents = file.getParents() == null ? new ArrayList<>() : new ArrayList<>(file.getParents());
+        if (removeParents != null && !removeParents.isEmpty()) {
+            parents.removeAll(Arrays.asList(removeParents.split(",")));
+        }
+        if (addParents != null && !addParents.isEmpty()) {
+            for (String parent : addParents.split(",")) {
+                if (!getFile(parent).getMimeType().equals(FOLDER_MIME_TYPE)) {
+                    throw new EmulatorException(400, "File %s is not a folder", parent);
+                }
+                if (!parents.contains(parent)) {
+                    parents.add(parent);
+                }
+            }
+        }
+        file.setParents(parents);
+        file.setModifiedTime(new DateTime(System.currentTimeMillis()));
+        return file.clone();
+    }
+
+    /**
+     * Deletes a file, anything in a folder that is deleted is left where it is
+     *
+     * @param fileId ID of the file
+     * @throws EmulatorException If there is no such file
+     */
+    protected void delete(String fileId) throws EmulatorException {
+        getFile(fileId);
+        if (ROOT_ID.equals(fileId)) {
+            throw new EmulatorException(403, "The root folder cannot be deleted");
+        }
+        files.remove(fileId);
+    }
+
+    /**
+     * Returns the number of files, not counting the root folder
+     *
+     * @return Number of files
+     */
+    public int size() {
+        return files.size() - 1;
+    }
+
+    /**
+     * Returns the stored file
+     *
+     * @param fileId ID of the file
+     * @return The file
+     * @throws EmulatorException If there is no such file
+     */
+    private File getFile(String fileId) throws EmulatorException {
+        File file = files.get(fileId);
+        if (file == null) {
+            throw new EmulatorException(404, "File not found: %s.", fileId);
+        }
+        return file;
+    }
+
+    /**
+     * Returns true if the file matches all the terms of the query
+     *
+     * @param file  File to check
+     * @param query Query or null to match everything
+     * @return True if it matches
+     */
+    private static boolean matches(File file, String query) {
+        if (query == null) {
+            return true;
+        }
+        Matcher matcher = PARENT_TERM.matcher(query);
+        while (matcher.find()) {
+            if (file.getParents() == null || !file.getParents().contains(matcher.group(1))) {
+                return false;
+            }
+        }
+        matcher = NAME_TERM.matcher(query);
+        while (matcher.find()) {
+            if (!matcher.group(1).replaceAll("\\\\(.)", "$1").equals(file.getName())) {
+                return false;
+            }
+        }
+        matcher = MIME_TYPE_TERM.matcher(query);
+        while (matcher.find()) {
+            if (!matcher.group(1).equals(file.getMimeType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the metadata of a new file in the root folder
+     *
+     * @param fileId   ID of the file
+     * @param name     Name of the file
+     * @param mimeType Type of the file
+     * @return File
+     */
+    private static File newFile(String fileId, String name, String mimeType) {
+        DateTime now = new DateTime(System.currentTimeMillis());
+        return new File()
+                .setKind("drive#file")
+                .setId(fileId)
+                .setName(name)
+                .setMimeType(mimeType)
+                .setParents(new ArrayList<>(Collections.singletonList(ROOT_ID)))
+                .setStarred(false)
+                .setTrashed(false)
+                .setSpaces(Collections.singletonList("drive"))
+                .setCreatedTime(now)
+                .setModifiedTime(now)
+                .setSize(0L)
+                .setQuotaBytesUsed(0L)
+                .setWebViewLink("https://emulator.invalid/" + fileId)
+                .setCapabilities(new File.Capabilities().setCanModifyContent(true).setCanEdit(true));
+    }
+}
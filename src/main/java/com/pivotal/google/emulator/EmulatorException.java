@@ -0,0 +1,35 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.emulator;
+
+import lombok.Getter;
+
+/**
+ * An error that the emulator returns to the client as an HTTP error response
+ */
+@Getter
+public class EmulatorException extends Exception {
+
+    private final int statusCode;
+
+    /**
+     * Constructs an {@code EmulatorException} with the HTTP status and detail message.
+     *
+     * @param statusCode
+     *        HTTP status code to return e.g. 404
+     *
+     * @param message
+     *        The detail message, which is returned in the error body
+     *
+     * @param variables
+     *        Array of variables to substitute into the message
+     */
+    public EmulatorException(int statusCode, String message, Object... variables) {
+        super(String.format(message, variables));
+        this.statusCode = statusCode;
+    }
+}
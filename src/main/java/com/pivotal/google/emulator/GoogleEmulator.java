@@ -0,0 +1,818 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.emulator;
+
+import com.google.api.client.http.*;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.model.File;
+import com.google.api.services.sheets.v4.model.*;
+import com.pivotal.google.GoogleServiceContext;
+import com.pivotal.google.docs.RateLimiter;
+import com.pivotal.google.docs.RetryPolicy;
+import com.pivotal.utils.Utils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An in-memory stand in for the Sheets and Drive APIs, for developing and load testing
+ * without a Google account, network or quota.
+ * The emulator is an HTTP transport, so it is plugged into a context in place of the
+ * network and everything above it, including the Google client libraries, JSON encoding,
+ * retries and rate limiting, runs exactly as it would against Google e.g.
+ * <pre>
+ *     GoogleEmulator emulator = new GoogleEmulator().latency(50).throttleEvery(20);
+ *     GoogleSpreadsheet spreadsheet = GoogleSpreadsheet.create(emulator.newContext(), "test", null);
+ * </pre>
+ * Each call can be slowed down to mimic the round trip to Google and calls can be refused
+ * with a 429 to exercise the retry handling, either arbitrarily or when the Sheets read and
+ * write quotas are exceeded. The emulator counts the calls, refusals and bytes in each
+ * direction and times the calls so that the cost of an operation can be measured.
+ * See {@link SheetsBackend} for what is and isn't emulated
+ */
+@Slf4j
+public class GoogleEmulator extends HttpTransport {
+
+    private static final JsonFactory JSON = GsonFactory.getDefaultInstance();
+    private static final String SHEETS_PATH = "v4";
+    private static final String DRIVE_PATH = "drive";
+
+    @Getter
+    private final DriveBackend drive = new DriveBackend();
+    @Getter
+    private final SheetsBackend sheets = new SheetsBackend(drive);
+
+    private final Object lock = new Object();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final Map<String, AtomicLong> operationCounts = new ConcurrentHashMap<>();
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+
+    // Calls counted against the Sheets quotas in the current window
+    private final Object quotaLock = new Object();
+    private long quotaWindowStart = 0;
+    private int quotaReads = 0;
+    private int quotaWrites = 0;
+
+    @Getter
+    private volatile long latency = 0;
+    @Getter
+    private volatile long jitter = 0;
+    @Getter
+    private volatile int throttleEvery = 0;
+    @Getter
+    private volatile double throttleProbability = 0;
+    @Getter
+    private volatile int retryAfter = -1;
+    @Getter
+    private volatile int readQuota = 0;
+    @Getter
+    private volatile int writeQuota = 0;
+    @Getter
+    private volatile long quotaWindow = 60000;
+    private volatile Random random = new Random();
+
+    /**
+     * Sets how long each call takes, which is spent before the call is handled so that
+     * concurrent calls overlap as they would over a network
+     *
+     * @param latency Milliseconds per call
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator latency(long latency) {
+        this.latency = Math.max(0, latency);
+        return this;
+    }
+
+    /**
+     * Adds a random amount of up to the given time to the latency of each call, so that
+     * the call times are spread as they are over a real network
+     *
+     * @param jitter Most milliseconds to add to each call
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator jitter(long jitter) {
+        this.jitter = Math.max(0, jitter);
+        return this;
+    }
+
+    /**
+     * Refuses every nth call with a 429 as though a quota had been exceeded
+     *
+     * @param throttleEvery Calls between refusals or 0 to never refuse
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator throttleEvery(int throttleEvery) {
+        this.throttleEvery = Math.max(0, throttleEvery);
+        return this;
+    }
+
+    /**
+     * Refuses calls at random with a 429, use {@link #seed(long)} to make runs repeatable
+     *
+     * @param throttleProbability Chance of each call being refused, from 0 to 1
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator throttleProbability(double throttleProbability) {
+        this.throttleProbability = Math.max(0, Math.min(1, throttleProbability));
+        return this;
+    }
+
+    /**
+     * Seeds the random numbers used to refuse calls
+     *
+     * @param seed Seed
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator seed(long seed) {
+        this.random = new Random(seed);
+        return this;
+    }
+
+    /**
+     * Sets the Retry-After header sent with each refusal
+     *
+     * @param retryAfter Seconds to wait or -1 to not send the header
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator retryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Limits the number of Sheets reads in each quota window, the calls over the limit are
+     * refused with a 429 as Google does. Google allows 300 a minute for a project
+     *
+     * @param readQuota Reads allowed in each window or 0 for no limit
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator readQuota(int readQuota) {
+        this.readQuota = Math.max(0, readQuota);
+        return this;
+    }
+
+    /**
+     * Limits the number of Sheets writes in each quota window, the calls over the limit are
+     * refused with a 429 as Google does. Google allows 300 a minute for a project
+     *
+     * @param writeQuota Writes allowed in each window or 0 for no limit
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator writeQuota(int writeQuota) {
+        this.writeQuota = Math.max(0, writeQuota);
+        return this;
+    }
+
+    /**
+     * Sets the length of the window the quotas apply to, Google uses a minute but a
+     * shorter window lets a load test see the effect of the quotas without waiting
+     *
+     * @param quotaWindow Milliseconds
+     * @return This emulator for chaining
+     */
+    public GoogleEmulator quotaWindow(long quotaWindow) {
+        this.quotaWindow = Math.max(1, quotaWindow);
+        return this;
+    }
+
+    /**
+     * Returns a context that sends everything to this emulator, with no client side rate
+     * limiting and the default retry policy
+     *
+     * @return Context
+     */
+    public GoogleServiceContext newContext() {
+        return newContext(new RetryPolicy());
+    }
+
+    /**
+     * Returns a context that sends everything to this emulator, with no client side rate
+     * limiting and the given retry policy
+     *
+     * @param retryPolicy Retry policy to use
+     * @return Context
+     */
+    public GoogleServiceContext newContext(RetryPolicy retryPolicy) {
+        return GoogleServiceContext.builder()
+                .noCredentials()
+                .transport(this)
+                .rateLimiter(RateLimiter.unlimited())
+                .retryPolicy(retryPolicy)
+                .build();
+    }
+
+    /**
+     * Returns the number of calls received, including those that were refused
+     *
+     * @return Number of calls
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of calls refused with a 429
+     *
+     * @return Number of refused calls
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * Returns the number of bytes of request bodies received, after decompression
+     *
+     * @return Number of bytes
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Returns the number of bytes of response bodies sent
+     *
+     * @return Number of bytes
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Returns the number of calls made to each operation e.g. values.append, including refusals
+     *
+     * @return Map of operation name to number of calls
+     */
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> ret = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : operationCounts.entrySet()) {
+            ret.put(entry.getKey(), entry.getValue().get());
+        }
+        return ret;
+    }
+
+    /**
+     * Returns a percentile of the time taken to handle the calls, including the latency
+     * and the calls that were refused
+     *
+     * @param operation  Operation e.g. values.append or null for all the calls
+     * @param percentile Percentile from 0 to 100 e.g. 99
+     * @return Milliseconds or 0 if there haven't been any calls
+     */
+    public double getLatencyPercentile(String operation, double percentile) {
+        List<Long> times = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> entry : latencies.entrySet()) {
+            if (operation == null || operation.equals(entry.getKey())) {
+                synchronized (entry.getValue()) {
+                    times.addAll(entry.getValue());
+                }
+            }
+        }
+        if (times.isEmpty()) {
+            return 0;
+        }
+        Collections.sort(times);
+        int index = (int) Math.ceil(percentile / 100 * times.size()) - 1;
+        return times.get(Math.max(0, Math.min(times.size() - 1, index))) / 1000000.0;
+    }
+
+    /**
+     * Sets all the counts back to zero, the spreadsheets and files are kept
+     */
+    public void resetStats() {
+        requestCount.set(0);
+        throttledCount.set(0);
+        bytesReceived.set(0);
+        bytesSent.set(0);
+        operationCounts.clear();
+        latencies.clear();
+    }
+
+    @Override
+    public boolean supportsMethod(String method) {
+        return true;
+    }
+
+    @Override
+    protected LowLevelHttpRequest buildRequest(String method, String url) {
+        return new EmulatorRequest(method, url);
+    }
+
+    /**
+     * Handles a call, after the latency and any refusal
+     *
+     * @param method HTTP method
+     * @param url    URL of the call
+     * @param body   Request body, which may be empty
+     * @return Response
+     */
+    protected EmulatorResponse handle(String method, String url, byte[] body) {
+        long start = System.nanoTime();
+        long count = requestCount.incrementAndGet();
+        bytesReceived.addAndGet(body.length);
+        GenericUrl genericUrl = new GenericUrl(url);
+        List<String> path = new ArrayList<>();
+        for (String part : genericUrl.getPathParts()) {
+            if (part != null && !part.isEmpty()) {
+                path.add(part);
+            }
+        }
+        String operation = getOperation(method, path);
+        operationCounts.computeIfAbsent(operation, key -> new AtomicLong()).incrementAndGet();
+        long delay = latency + (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0);
+        if (delay > 0) {
+            Utils.sleep((int) delay);
+        }
+        EmulatorResponse response;
+        if (isThrottled(method, operation, count)) {
+            throttledCount.incrementAndGet();
+            response = error(new EmulatorException(429, "Quota exceeded for quota metric '%s' of service 'sheets.googleapis.com'.", operation));
+            if (retryAfter >= 0) {
+                response.headers.put("Retry-After", String.valueOf(retryAfter));
+            }
+        }
+        else {
+            try {
+                Object result;
+                synchronized (lock) {
+                    result = route(method, genericUrl, path, body);
+                }
+                response = result == null ? new EmulatorResponse(204, new byte[0]) : new EmulatorResponse(200, JSON.toByteArray(result));
+            }
+            catch (EmulatorException e) {
+                response = error(e);
+            }
+            catch (IOException | RuntimeException e) {
+                log.error("Emulator failed to handle {} {}", method, url, e);
+                response = error(new EmulatorException(500, "Internal error: %s", e.getMessage()));
+            }
+        }
+        bytesSent.addAndGet(response.content.length);
+        List<Long> times = latencies.computeIfAbsent(operation, key -> new ArrayList<>());
+        synchronized (times) {
+            times.add(System.nanoTime() - start);
+        }
+        return response;
+    }
+
+    /**
+     * Returns true if the call should be refused with a 429
+     *
+     * @param method    HTTP method
+     * @param operation Name of the operation being called
+     * @param count     Number of calls received, including this one
+     * @return True to refuse the call
+     */
+    protected boolean isThrottled(String method, String operation, long count) {
+        int every = throttleEvery;
+        if (every > 0 && count % every == 0) {
+            return true;
+        }
+        double probability = throttleProbability;
+        if (probability > 0 && random.nextDouble() < probability) {
+            return true;
+        }
+        // Reading by data filter is a POST but Google counts it as a read
+        boolean write = !HttpMethods.GET.equals(method) && !operation.equals("values.batchGetByDataFilter");
+        return !operation.startsWith("files.") && isOverQuota(write);
+    }
+
+    /**
+     * Counts a Sheets call against the read or write quota of the current window
+     * Refused calls are not counted, as they aren't by Google
+     *
+     * @param write True if the call is a write
+     * @return True if the quota has already been used up
+     */
+    protected boolean isOverQuota(boolean write) {
+        int quota = write ? writeQuota : readQuota;
+        synchronized (quotaLock) {
+            long now = System.currentTimeMillis();
+            if (now - quotaWindowStart >= quotaWindow) {
+                quotaWindowStart = now;
+                quotaReads = 0;
+                quotaWrites = 0;
+            }
+            int used = write ? quotaWrites : quotaReads;
+            if (quota > 0 && used >= quota) {
+                return true;
+            }
+            if (write) {
+                quotaWrites++;
+            }
+            else {
+                quotaReads++;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sends a call to the backend that handles it
+     *
+     * @param method HTTP method
+     * @param url    URL of the call
+     * @param path   Decoded parts of the path
+     * @param body   Request body
+     * @return Object to return as JSON or null for an empty response
+     * @throws EmulatorException If the call fails
+     * @throws IOException       If the body cannot be parsed
+     */
+    private Object route(String method, GenericUrl url, List<String> path, byte[] body) throws EmulatorException, IOException {
+        if (path.size() >= 2 && path.get(0).equals(SHEETS_PATH) && path.get(1).equals("spreadsheets")) {
+            return routeSheets(method, url, path.subList(2, path.size()), body);
+        }
+        else if (path.size() >= 3 && path.get(0).equals(DRIVE_PATH) && path.get(2).equals("files")) {
+            return routeDrive(method, url, path.subList(3, path.size()), body);
+        }
+        throw new EmulatorException(404, "Unknown path %s", url.getRawPath());
+    }
+
+    /**
+     * Handles the v4/spreadsheets calls
+     *
+     * @param method HTTP method
+     * @param url    URL of the call
+     * @param path   Parts of the path after v4/spreadsheets
+     * @param body   Request body
+     * @return Object to return as JSON
+     * @throws EmulatorException If the call fails
+     * @throws IOException       If the body cannot be parsed
+     */
+    private Object routeSheets(String method, GenericUrl url, List<String> path, byte[] body) throws EmulatorException, IOException {
+        if (path.isEmpty()) {
+            if (method.equals(HttpMethods.POST)) {
+                return sheets.create(parse(body, Spreadsheet.class));
+            }
+        }
+        else if (path.size() == 1) {
+            String id = path.get(0);
+            if (id.endsWith(":batchUpdate") && method.equals(HttpMethods.POST)) {
+                return sheets.batchUpdate(removeSuffix(id), parse(body, BatchUpdateSpreadsheetRequest.class));
+            }
+            else if (method.equals(HttpMethods.GET)) {
+                return sheets.get(id);
+            }
+        }
+        else if (path.get(1).startsWith("values")) {
+            String id = path.get(0);
+            String renderOption = getParameter(url, "valueRenderOption");
+            String inputOption = getParameter(url, "valueInputOption");
+            if (path.size() == 2) {
+                switch (path.get(1)) {
+                    case "values:batchGet":
+                        return sheets.batchGet(id, getParameters(url, "ranges"), renderOption);
+                    case "values:batchGetByDataFilter":
+                        return sheets.batchGetByDataFilter(id, parse(body, BatchGetValuesByDataFilterRequest.class));
+                    case "values:batchUpdate":
+                        return sheets.batchUpdateValues(id, parse(body, BatchUpdateValuesRequest.class));
+                    default:
+                        break;
+                }
+            }
+            else if (path.size() == 3) {
+                String range = path.get(2);
+                if (range.endsWith(":append") && method.equals(HttpMethods.POST)) {
+                    return sheets.append(id, removeSuffix(range), parse(body, ValueRange.class), inputOption);
+                }
+                else if (range.endsWith(":clear") && method.equals(HttpMethods.POST)) {
+                    return sheets.clear(id, removeSuffix(range));
+                }
+                else if (method.equals(HttpMethods.PUT)) {
+                    return sheets.update(id, range, parse(body, ValueRange.class), inputOption);
+                }
+                else if (method.equals(HttpMethods.GET)) {
+                    return sheets.getValues(id, range, renderOption);
+                }
+            }
+        }
+        else if (path.size() == 3 && path.get(1).equals("sheets") && path.get(2).endsWith(":copyTo")) {
+            try {
+                return sheets.copyTo(path.get(0), Integer.parseInt(removeSuffix(path.get(2))), parse(body, CopySheetToAnotherSpreadsheetRequest.class));
+            }
+            catch (NumberFormatException e) {
+                throw new EmulatorException(400, "Invalid sheet ID %s", path.get(2));
+            }
+        }
+        throw new EmulatorException(404, "Unknown Sheets call %s %s", method, url.getRawPath());
+    }
+
+    /**
+     * Handles the drive/v3/files calls, deleting a spreadsheet's file deletes the spreadsheet
+     *
+     * @param method HTTP method
+     * @param url    URL of the call
+     * @param path   Parts of the path after drive/v3/files
+     * @param body   Request body
+     * @return Object to return as JSON or null for an empty response
+     * @throws EmulatorException If the call fails
+     * @throws IOException       If the body cannot be parsed
+     */
+    private Object routeDrive(String method, GenericUrl url, List<String> path, byte[] body) throws EmulatorException, IOException {
+        if (path.isEmpty()) {
+            if (method.equals(HttpMethods.GET)) {
+                String pageSize = getParameter(url, "pageSize");
+                try {
+                    return drive.list(getParameter(url, "q"), pageSize == null ? null : Integer.valueOf(pageSize), getParameter(url, "pageToken"), getParameter(url, "orderBy"));
+                }
+                catch (NumberFormatException e) {
+                    throw new EmulatorException(400, "Invalid Value: pageSize %s", pageSize);
+                }
+            }
+            else if (method.equals(HttpMethods.POST)) {
+                return drive.create(parse(body, File.class));
+            }
+        }
+        else if (path.size() == 1) {
+            String fileId = path.get(0);
+            switch (method) {
+                case HttpMethods.GET:
+                    return drive.get(fileId);
+                case HttpMethods.PATCH:
+                    return drive.update(fileId, body.length == 0 ? null : parse(body, File.class), getParameter(url, "addParents"), getParameter(url, "removeParents"));
+                case HttpMethods.DELETE:
+                    drive.delete(fileId);
+                    sheets.delete(fileId);
+                    return null;
+                default:
+                    break;
+            }
+        }
+        throw new EmulatorException(404, "Unknown Drive call %s %s", method, url.getRawPath());
+    }
+
+    /**
+     * Returns the name of the operation a call is for, used to count the calls
+     *
+     * @param method HTTP method
+     * @param path   Decoded parts of the path
+     * @return Name of the operation e.g. values.append
+     */
+    protected static String getOperation(String method, List<String> path) {
+        if (path.size() >= 2 && path.get(0).equals(SHEETS_PATH)) {
+            if (path.size() == 2) {
+                return "spreadsheets.create";
+            }
+            else if (path.size() == 3) {
+                return path.get(2).endsWith(":batchUpdate") ? "spreadsheets.batchUpdate" : "spreadsheets.get";
+            }
+            else if (path.get(3).startsWith("values:")) {
+                return path.get(3).replace(':', '.');
+            }
+            else if (path.get(3).equals("values") && path.size() > 4) {
+                String range = path.get(4);
+                if (range.endsWith(":append")) {
+                    return "values.append";
+                }
+                else if (range.endsWith(":clear")) {
+                    return "values.clear";
+                }
+                return method.equals(HttpMethods.PUT) ? "values.update" : "values.get";
+            }
+            return "sheets.copyTo";
+        }
+        else if (path.size() >= 3 && path.get(0).equals(DRIVE_PATH)) {
+            if (path.size() == 3) {
+                return method.equals(HttpMethods.POST) ? "files.create" : "files.list";
+            }
+            switch (method) {
+                case HttpMethods.PATCH:
+                    return "files.update";
+                case HttpMethods.DELETE:
+                    return "files.delete";
+                default:
+                    return "files.get";
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * Returns the Google style error response for an exception
+     *
+     * @param e Exception to report
+     * @return Response
+     */
+    private static EmulatorResponse error(EmulatorException e) {
+        Map<String, Object> detail = new LinkedHashMap<>();
+        detail.put("message", e.getMessage());
+        detail.put("domain", "global");
+        detail.put("reason", getStatus(e.getStatusCode()));
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("code", e.getStatusCode());
+        error.put("message", e.getMessage());
+        error.put("errors", Collections.singletonList(detail));
+        error.put("status", getStatus(e.getStatusCode()));
+        try {
+            return new EmulatorResponse(e.getStatusCode(), JSON.toByteArray(Collections.singletonMap("error", error)));
+        }
+        catch (IOException e1) {
+            return new EmulatorResponse(e.getStatusCode(), new byte[0]);
+        }
+    }
+
+    /**
+     * Returns the Google status name for an HTTP status code
+     *
+     * @param statusCode HTTP status code
+     * @return Status e.g. NOT_FOUND
+     */
+    private static String getStatus(int statusCode) {
+        switch (statusCode) {
+            case 400:
+                return "INVALID_ARGUMENT";
+            case 403:
+                return "PERMISSION_DENIED";
+            case 404:
+                return "NOT_FOUND";
+            case 429:
+                return "RESOURCE_EXHAUSTED";
+            default:
+                return "INTERNAL";
+        }
+    }
+
+    /**
+     * Parses a JSON request body
+     *
+     * @param body  Body of the request
+     * @param clazz Class to parse into
+     * @param <T>   Type of the result
+     * @return Parsed body
+     * @throws EmulatorException If there is no body
+     * @throws IOException       If the body isn't valid JSON
+     */
+    private static <T> T parse(byte[] body, Class<T> clazz) throws EmulatorException, IOException {
+        if (body.length == 0) {
+            throw new EmulatorException(400, "A request body is required");
+        }
+        return JSON.fromInputStream(new ByteArrayInputStream(body), StandardCharsets.UTF_8, clazz);
+    }
+
+    /**
+     * Returns the first value of a query parameter
+     *
+     * @param url  URL of the call
+     * @param name Name of the parameter
+     * @return Value or null if it isn't given
+     */
+    private static String getParameter(GenericUrl url, String name) {
+        Object value = url.getFirst(name);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Returns all the values of a query parameter
+     *
+     * @param url  URL of the call
+     * @param name Name of the parameter
+     * @return Values, which may be empty
+     */
+    private static List<String> getParameters(GenericUrl url, String name) {
+        List<String> ret = new ArrayList<>();
+        for (Object value : url.getAll(name)) {
+            ret.add(value.toString());
+        }
+        return ret;
+    }
+
+    /**
+     * Removes the :method suffix from a part of a path
+     *
+     * @param part Part of the path e.g. Sheet1!A1:append
+     * @return Part without the suffix e.g. Sheet1!A1
+     */
+    private static String removeSuffix(String part) {
+        return part.substring(0, part.lastIndexOf(':'));
+    }
+
+    /**
+     * A call to the emulator, which is handled when it is executed
+     */
+    private class EmulatorRequest extends LowLevelHttpRequest {
+        private final String url;
+        private String method;
+
+        private EmulatorRequest(String method, String url) {
+            this.method = method;
+            this.url = url;
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if ("X-HTTP-Method-Override".equalsIgnoreCase(name)) {
+                method = value;
+            }
+        }
+
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (getStreamingContent() != null) {
+                getStreamingContent().writeTo(body);
+            }
+            byte[] content = body.toByteArray();
+            if ("gzip".equalsIgnoreCase(getContentEncoding()) && content.length > 0) {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, read);
+                    }
+                    content = out.toByteArray();
+                }
+            }
+            return handle(method, url, content);
+        }
+    }
+
+    /**
+     * A response from the emulator
+     */
+    protected static class EmulatorResponse extends LowLevelHttpResponse {
+        private final int statusCode;
+        private final byte[] content;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        private EmulatorResponse(int statusCode, byte[] content) {
+            this.statusCode = statusCode;
+            this.content = content;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public long getContentLength() {
+            return content.length;
+        }
+
+        @Override
+        public String getContentType() {
+            return content.length == 0 ? null : "application/json; charset=UTF-8";
+        }
+
+        @Override
+        public String getStatusLine() {
+            return "HTTP/1.1 " + statusCode + " " + getReasonPhrase();
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            switch (statusCode) {
+                case 200:
+                    return "OK";
+                case 204:
+                    return "No Content";
+                case 429:
+                    return "Too Many Requests";
+                default:
+                    return getStatus(statusCode);
+            }
+        }
+
+        @Override
+        public int getHeaderCount() {
+            return headers.size();
+        }
+
+        @Override
+        public String getHeaderName(int index) {
+            return new ArrayList<>(headers.keySet()).get(index);
+        }
+
+        @Override
+        public String getHeaderValue(int index) {
+            return new ArrayList<>(headers.values()).get(index);
+        }
+    }
+}
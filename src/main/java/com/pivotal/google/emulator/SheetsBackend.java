@@ -0,0 +1,1100 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.emulator;
+
+import com.google.api.services.sheets.v4.model.*;
+import com.pivotal.google.docs.GoogleDocsUtils;
+import com.pivotal.google.docs.GoogleException;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * The spreadsheets of the emulated Sheets API, held in memory
+ * Cell values are stored as strings, numbers and booleans, and formulas are stored as
+ * their text and never calculated, so they are returned as text whatever the render option.
+ * Formatting, merges and the other purely visual requests are accepted and ignored, but
+ * anything that changes the shape of a sheet is applied so that row and column numbers
+ * behave as they do in Google. Batch updates are all or nothing, as they are in Google.
+ * Callers must hold the emulator lock
+ */
+public class SheetsBackend {
+
+    // Size of a new sheet
+    public static final int DEFAULT_ROW_COUNT = 1000;
+    public static final int DEFAULT_COLUMN_COUNT = 26;
+
+    private static final Pattern NUMBER = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+    private static final Pattern PLAIN_SHEET_NAME = Pattern.compile("[A-Za-z0-9_]+");
+
+    private final DriveBackend drive;
+    private final Map<String, Book> books = new HashMap<>();
+    private int nextId = 1;
+
+    /**
+     * A spreadsheet and the values of its sheets
+     */
+    private static class Book {
+        private Spreadsheet spreadsheet;
+        private Map<Integer, List<List<Object>>> grids = new HashMap<>();
+
+        /**
+         * Returns a deep copy, used to undo a batch update that fails part way through
+         *
+         * @return Copy of the book
+         */
+        private Book copy() {
+            Book ret = new Book();
+            ret.spreadsheet = spreadsheet.clone();
+            for (Map.Entry<Integer, List<List<Object>>> entry : grids.entrySet()) {
+                ret.grids.put(entry.getKey(), copyGrid(entry.getValue()));
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * A range resolved to a sheet and zero based, end exclusive bounds
+     */
+    private static class Target {
+        private final Sheet sheet;
+        private final int startRow;
+        private final int endRow;
+        private final int startColumn;
+        private final int endColumn;
+
+        private Target(Sheet sheet, int startRow, int endRow, int startColumn, int endColumn) {
+            this.sheet = sheet;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.startColumn = startColumn;
+            this.endColumn = endColumn;
+        }
+    }
+
+    /**
+     * Creates an empty set of spreadsheets whose files are kept in the given Drive
+     *
+     * @param drive Drive to add the spreadsheet files to
+     */
+    protected SheetsBackend(DriveBackend drive) {
+        this.drive = drive;
+    }
+
+    /**
+     * Creates a spreadsheet with the sheets given, or a single empty sheet
+     *
+     * @param body Spreadsheet to create
+     * @return The new spreadsheet
+     * @throws EmulatorException If the sheets are invalid
+     */
+    protected Spreadsheet create(Spreadsheet body) throws EmulatorException {
+        Book book = new Book();
+        String spreadsheetId = UUID.randomUUID().toString();
+        SpreadsheetProperties properties = body.getProperties() == null ? new SpreadsheetProperties() : body.getProperties().clone();
+        if (properties.getTitle() == null) {
+            properties.setTitle("Untitled spreadsheet");
+        }
+        if (properties.getLocale() == null) {
+            properties.setLocale("en_US");
+        }
+        if (properties.getTimeZone() == null) {
+            properties.setTimeZone("Etc/GMT");
+        }
+        book.spreadsheet = new Spreadsheet()
+                .setSpreadsheetId(spreadsheetId)
+                .setProperties(properties)
+                .setSpreadsheetUrl("https://emulator.invalid/spreadsheets/d/" + spreadsheetId)
+                .setSheets(new ArrayList<>());
+        if (body.getSheets() == null || body.getSheets().isEmpty()) {
+            addSheet(book, new SheetProperties().setSheetId(0).setTitle("Sheet1"));
+        }
+        else {
+            for (Sheet sheet : body.getSheets()) {
+                addSheet(book, sheet.getProperties() == null ? new SheetProperties() : sheet.getProperties().clone());
+            }
+        }
+        books.put(spreadsheetId, book);
+        drive.addSpreadsheet(spreadsheetId, properties.getTitle());
+        return book.spreadsheet.clone();
+    }
+
+    /**
+     * Returns a spreadsheet without its grid data
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @return The spreadsheet
+     * @throws EmulatorException If there is no such spreadsheet
+     */
+    protected Spreadsheet get(String spreadsheetId) throws EmulatorException {
+        return getBook(spreadsheetId).spreadsheet.clone();
+    }
+
+    /**
+     * Removes a spreadsheet, called when its file is deleted
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     */
+    protected void delete(String spreadsheetId) {
+        books.remove(spreadsheetId);
+    }
+
+    /**
+     * Applies the requests in order, if any of them fail the spreadsheet is left as it was
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param body          Requests to apply
+     * @return Replies in the same order as the requests
+     * @throws EmulatorException If the spreadsheet doesn't exist or a request is invalid
+     */
+    protected BatchUpdateSpreadsheetResponse batchUpdate(String spreadsheetId, BatchUpdateSpreadsheetRequest body) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        Book undo = book.copy();
+        List<Response> replies = new ArrayList<>();
+        try {
+            if (body.getRequests() == null || body.getRequests().isEmpty()) {
+                throw new EmulatorException(400, "Invalid requests: must specify at least one request.");
+            }
+            for (int i = 0; i < body.getRequests().size(); i++) {
+                try {
+                    replies.add(apply(book, body.getRequests().get(i)));
+                }
+                catch (EmulatorException e) {
+                    throw new EmulatorException(e.getStatusCode(), "Invalid requests[%d]: %s", i, e.getMessage());
+                }
+            }
+        }
+        catch (EmulatorException e) {
+            books.put(spreadsheetId, undo);
+            throw e;
+        }
+        BatchUpdateSpreadsheetResponse ret = new BatchUpdateSpreadsheetResponse().setSpreadsheetId(spreadsheetId).setReplies(replies);
+        if (Boolean.TRUE.equals(body.getIncludeSpreadsheetInResponse())) {
+            ret.setUpdatedSpreadsheet(book.spreadsheet.clone());
+        }
+        return ret;
+    }
+
+    /**
+     * Copies a sheet, with its values, to the end of another spreadsheet
+     *
+     * @param spreadsheetId ID of the spreadsheet the sheet is in
+     * @param sheetId       ID of the sheet
+     * @param body          Request naming the destination spreadsheet
+     * @return Properties of the copy
+     * @throws EmulatorException If either spreadsheet or the sheet doesn't exist
+     */
+    protected SheetProperties copyTo(String spreadsheetId, int sheetId, CopySheetToAnotherSpreadsheetRequest body) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        Sheet sheet = getSheet(book, sheetId);
+        Book destination = getBook(body.getDestinationSpreadsheetId());
+        SheetProperties properties = sheet.getProperties().clone().setSheetId(null).setIndex(null).setTitle(getUniqueTitle(destination, "Copy of " + sheet.getProperties().getTitle()));
+        Sheet copy = addSheet(destination, properties);
+        destination.grids.put(copy.getProperties().getSheetId(), copyGrid(book.grids.get(sheetId)));
+        return copy.getProperties().clone();
+    }
+
+    /**
+     * Returns the values in a range
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param range         Range in A1 notation, optionally with the sheet name
+     * @param renderOption  How the values should be rendered
+     * @return Values of the range
+     * @throws EmulatorException If the spreadsheet doesn't exist or the range is invalid
+     */
+    protected ValueRange getValues(String spreadsheetId, String range, String renderOption) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        return getValues(book, resolve(book, range), renderOption);
+    }
+
+    /**
+     * Returns the values of several ranges
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param ranges        Ranges in A1 notation
+     * @param renderOption  How the values should be rendered
+     * @return Values of each range in the same order
+     * @throws EmulatorException If the spreadsheet doesn't exist or a range is invalid
+     */
+    protected BatchGetValuesResponse batchGet(String spreadsheetId, List<String> ranges, String renderOption) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        List<ValueRange> values = new ArrayList<>();
+        for (String range : ranges) {
+            values.add(getValues(book, resolve(book, range), renderOption));
+        }
+        return new BatchGetValuesResponse().setSpreadsheetId(spreadsheetId).setValueRanges(values);
+    }
+
+    /**
+     * Returns the values of the ranges in the data filters, only A1 ranges are supported
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param body          Request with the filters
+     * @return Values of each range in the same order
+     * @throws EmulatorException If the spreadsheet doesn't exist or a filter isn't an A1 range
+     */
+    protected BatchGetValuesByDataFilterResponse batchGetByDataFilter(String spreadsheetId, BatchGetValuesByDataFilterRequest body) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        List<MatchedValueRange> values = new ArrayList<>();
+        if (body.getDataFilters() != null) {
+            for (DataFilter filter : body.getDataFilters()) {
+                if (filter.getA1Range() == null) {
+                    throw new EmulatorException(400, "Only A1 range data filters are emulated");
+                }
+                ValueRange valueRange = getValues(book, resolve(book, filter.getA1Range()), body.getValueRenderOption());
+                values.add(new MatchedValueRange().setValueRange(valueRange).setDataFilters(Collections.singletonList(filter)));
+            }
+        }
+        return new BatchGetValuesByDataFilterResponse().setSpreadsheetId(spreadsheetId).setValueRanges(values);
+    }
+
+    /**
+     * Writes values starting at the top left of a range
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param range         Range in A1 notation
+     * @param body          Values to write
+     * @param inputOption   RAW or USER_ENTERED
+     * @return Description of what was written
+     * @throws EmulatorException If the spreadsheet doesn't exist or the range is invalid
+     */
+    protected UpdateValuesResponse update(String spreadsheetId, String range, ValueRange body, String inputOption) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        Target target = resolve(book, range);
+        return write(book, target.sheet, target.startRow, target.startColumn, body.getValues(), inputOption).setSpreadsheetId(spreadsheetId);
+    }
+
+    /**
+     * Writes the values of several ranges
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param body          Request with the ranges and how to interpret them
+     * @return Description of what was written
+     * @throws EmulatorException If the spreadsheet doesn't exist or a range is invalid
+     */
+    protected BatchUpdateValuesResponse batchUpdateValues(String spreadsheetId, BatchUpdateValuesRequest body) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        List<UpdateValuesResponse> responses = new ArrayList<>();
+        int cells = 0;
+        int rows = 0;
+        if (body.getData() != null) {
+            for (ValueRange valueRange : body.getData()) {
+                Target target = resolve(book, valueRange.getRange());
+                UpdateValuesResponse response = write(book, target.sheet, target.startRow, target.startColumn, valueRange.getValues(), body.getValueInputOption()).setSpreadsheetId(spreadsheetId);
+                responses.add(response);
+                cells += response.getUpdatedCells();
+                rows += response.getUpdatedRows();
+            }
+        }
+        return new BatchUpdateValuesResponse()
+                .setSpreadsheetId(spreadsheetId)
+                .setTotalUpdatedCells(cells)
+                .setTotalUpdatedRows(rows)
+                .setTotalUpdatedSheets(responses.isEmpty() ? 0 : 1)
+                .setResponses(responses);
+    }
+
+    /**
+     * Appends values after the last row of data in the sheet, growing the grid to fit
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param range         Range in A1 notation, the rows are added below it
+     * @param body          Values to append
+     * @param inputOption   RAW or USER_ENTERED
+     * @return Description of what was appended
+     * @throws EmulatorException If the spreadsheet doesn't exist or the range is invalid
+     */
+    protected AppendValuesResponse append(String spreadsheetId, String range, ValueRange body, String inputOption) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        Target target = resolve(book, range);
+        List<List<Object>> grid = book.grids.get(target.sheet.getProperties().getSheetId());
+        int lastRow = getLastRow(grid);
+        AppendValuesResponse ret = new AppendValuesResponse().setSpreadsheetId(spreadsheetId);
+        if (lastRow > target.startRow) {
+            ret.setTableRange(getRange(target.sheet, target.startRow, lastRow, target.startColumn, Math.max(target.startColumn + 1, getLastColumn(grid))));
+        }
+        return ret.setUpdates(write(book, target.sheet, Math.max(lastRow, target.startRow), target.startColumn, body.getValues(), inputOption).setSpreadsheetId(spreadsheetId));
+    }
+
+    /**
+     * Clears the values in a range, leaving the formatting
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @param range         Range in A1 notation
+     * @return The range that was cleared
+     * @throws EmulatorException If the spreadsheet doesn't exist or the range is invalid
+     */
+    protected ClearValuesResponse clear(String spreadsheetId, String range) throws EmulatorException {
+        Book book = getBook(spreadsheetId);
+        Target target = resolve(book, range);
+        setCells(book, target, null, false);
+        return new ClearValuesResponse().setSpreadsheetId(spreadsheetId).setClearedRange(getRange(target.sheet, target.startRow, target.endRow, target.startColumn, target.endColumn));
+    }
+
+    /**
+     * Applies a single batch update request
+     *
+     * @param book    Spreadsheet to change
+     * @param request Request to apply
+     * @return Reply to the request
+     * @throws EmulatorException If the request is invalid
+     */
+    private Response apply(Book book, Request request) throws EmulatorException {
+        Response ret = new Response();
+        if (request.getAddSheet() != null) {
+            SheetProperties properties = request.getAddSheet().getProperties() == null ? new SheetProperties() : request.getAddSheet().getProperties().clone();
+            ret.setAddSheet(new AddSheetResponse().setProperties(addSheet(book, properties).getProperties().clone()));
+        }
+        else if (request.getDeleteSheet() != null) {
+            Sheet sheet = getSheet(book, request.getDeleteSheet().getSheetId());
+            if (book.spreadsheet.getSheets().size() == 1) {
+                throw new EmulatorException(400, "You can't remove all the sheets in a document.");
+            }
+            book.spreadsheet.getSheets().remove(sheet);
+            book.grids.remove(sheet.getProperties().getSheetId());
+            reindex(book);
+        }
+        else if (request.getDuplicateSheet() != null) {
+            DuplicateSheetRequest duplicate = request.getDuplicateSheet();
+            Sheet sheet = getSheet(book, duplicate.getSourceSheetId());
+            String title = duplicate.getNewSheetName() == null ? getUniqueTitle(book, "Copy of " + sheet.getProperties().getTitle()) : duplicate.getNewSheetName();
+            SheetProperties properties = sheet.getProperties().clone().setSheetId(duplicate.getNewSheetId()).setIndex(duplicate.getInsertSheetIndex()).setTitle(title);
+            Sheet copy = addSheet(book, properties);
+            book.grids.put(copy.getProperties().getSheetId(), copyGrid(book.grids.get(sheet.getProperties().getSheetId())));
+            ret.setDuplicateSheet(new DuplicateSheetResponse().setProperties(copy.getProperties().clone()));
+        }
+        else if (request.getUpdateSheetProperties() != null) {
+            updateSheetProperties(book, request.getUpdateSheetProperties());
+        }
+        else if (request.getUpdateSpreadsheetProperties() != null) {
+            UpdateSpreadsheetPropertiesRequest update = request.getUpdateSpreadsheetProperties();
+            for (String field : getFields(update.getFields())) {
+                book.spreadsheet.getProperties().set(field, update.getProperties().get(field));
+            }
+            drive.renameSpreadsheet(book.spreadsheet.getSpreadsheetId(), book.spreadsheet.getProperties().getTitle());
+        }
+        else if (request.getInsertDimension() != null) {
+            changeDimension(book, request.getInsertDimension().getRange(), true);
+        }
+        else if (request.getDeleteDimension() != null) {
+            changeDimension(book, request.getDeleteDimension().getRange(), false);
+        }
+        else if (request.getAppendDimension() != null) {
+            AppendDimensionRequest append = request.getAppendDimension();
+            GridProperties grid = getSheet(book, append.getSheetId()).getProperties().getGridProperties();
+            if ("ROWS".equals(append.getDimension())) {
+                grid.setRowCount(grid.getRowCount() + append.getLength());
+            }
+            else {
+                grid.setColumnCount(grid.getColumnCount() + append.getLength());
+            }
+        }
+        else if (request.getRepeatCell() != null) {
+            RepeatCellRequest repeat = request.getRepeatCell();
+            if (hasField(repeat.getFields(), "userEnteredValue")) {
+                Object value = repeat.getCell() == null ? null : getValue(repeat.getCell().getUserEnteredValue());
+                setCells(book, getTarget(book, repeat.getRange()), value, true);
+            }
+            else {
+                getTarget(book, repeat.getRange());
+            }
+        }
+        else if (request.getUpdateCells() != null) {
+            updateCells(book, request.getUpdateCells());
+        }
+        else if (request.getSetBasicFilter() != null) {
+            BasicFilter filter = request.getSetBasicFilter().getFilter();
+            getSheet(book, filter.getRange().getSheetId()).setBasicFilter(filter.clone());
+        }
+        else if (request.getClearBasicFilter() != null) {
+            getSheet(book, request.getClearBasicFilter().getSheetId()).setBasicFilter(null);
+        }
+        else if (request.getAddFilterView() != null) {
+            FilterView filter = request.getAddFilterView().getFilter().clone();
+            if (filter.getFilterViewId() == null) {
+                filter.setFilterViewId(nextId++);
+            }
+            Sheet sheet = getSheet(book, filter.getRange().getSheetId());
+            if (sheet.getFilterViews() == null) {
+                sheet.setFilterViews(new ArrayList<>());
+            }
+            sheet.getFilterViews().add(filter);
+            ret.setAddFilterView(new AddFilterViewResponse().setFilter(filter.clone()));
+        }
+        else if (request.getDeleteFilterView() != null) {
+            boolean found = false;
+            for (Sheet sheet : book.spreadsheet.getSheets()) {
+                if (sheet.getFilterViews() != null) {
+                    found |= sheet.getFilterViews().removeIf(filter -> filter.getFilterViewId().equals(request.getDeleteFilterView().getFilterId()));
+                }
+            }
+            if (!found) {
+                throw new EmulatorException(400, "No filter with id: %d", request.getDeleteFilterView().getFilterId());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Applies the fields of an update to the properties of a sheet
+     *
+     * @param book   Spreadsheet to change
+     * @param update Request with the new properties and the fields to change
+     * @throws EmulatorException If the sheet doesn't exist or the new title is taken
+     */
+    private void updateSheetProperties(Book book, UpdateSheetPropertiesRequest update) throws EmulatorException {
+        SheetProperties properties = update.getProperties();
+        Sheet sheet = getSheet(book, properties.getSheetId());
+        SheetProperties target = sheet.getProperties();
+        for (String field : getFields(update.getFields())) {
+            if (field.equals("title") && !properties.getTitle().equals(target.getTitle()) && getSheet(book, properties.getTitle()) != null) {
+                throw new EmulatorException(400, "A sheet with the name \"%s\" already exists. Please enter another name.", properties.getTitle());
+            }
+            if (field.startsWith("gridProperties.")) {
+                String name = field.substring("gridProperties.".length());
+                target.getGridProperties().set(name, properties.getGridProperties() == null ? null : properties.getGridProperties().get(name));
+            }
+            else if (field.equals("index")) {
+                book.spreadsheet.getSheets().remove(sheet);
+                int index = properties.getIndex() == null ? 0 : Math.min(properties.getIndex(), book.spreadsheet.getSheets().size());
+                book.spreadsheet.getSheets().add(index, sheet);
+                reindex(book);
+            }
+            else {
+                target.set(field, properties.get(field));
+            }
+        }
+    }
+
+    /**
+     * Writes the values of the rows in an UpdateCells request, or clears the range if there are none
+     *
+     * @param book   Spreadsheet to change
+     * @param update Request to apply
+     * @throws EmulatorException If the range is invalid
+     */
+    private void updateCells(Book book, UpdateCellsRequest update) throws EmulatorException {
+        boolean values = hasField(update.getFields(), "userEnteredValue");
+        if (update.getRows() == null) {
+            if (values && update.getRange() != null) {
+                setCells(book, getTarget(book, update.getRange()), null, false);
+            }
+            return;
+        }
+        Sheet sheet;
+        int startRow;
+        int startColumn;
+        if (update.getStart() != null) {
+            sheet = getSheet(book, update.getStart().getSheetId());
+            startRow = update.getStart().getRowIndex() == null ? 0 : update.getStart().getRowIndex();
+            startColumn = update.getStart().getColumnIndex() == null ? 0 : update.getStart().getColumnIndex();
+        }
+        else {
+            Target target = getTarget(book, update.getRange());
+            sheet = target.sheet;
+            startRow = target.startRow;
+            startColumn = target.startColumn;
+        }
+        if (values) {
+            List<List<Object>> grid = book.grids.get(sheet.getProperties().getSheetId());
+            for (int row = 0; row < update.getRows().size(); row++) {
+                List<CellData> cells = update.getRows().get(row).getValues();
+                for (int column = 0; cells != null && column < cells.size(); column++) {
+                    checkGrid(sheet, startRow + row + 1, startColumn + column + 1);
+                    setCell(grid, startRow + row, startColumn + column, getValue(cells.get(column).getUserEnteredValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts or deletes rows or columns
+     *
+     * @param book   Spreadsheet to change
+     * @param range  Rows or columns to insert or delete
+     * @param insert True to insert, false to delete
+     * @throws EmulatorException If the range is outside the grid
+     */
+    private void changeDimension(Book book, DimensionRange range, boolean insert) throws EmulatorException {
+        Sheet sheet = getSheet(book, range.getSheetId());
+        GridProperties properties = sheet.getProperties().getGridProperties();
+        List<List<Object>> grid = book.grids.get(range.getSheetId());
+        boolean rows = "ROWS".equals(range.getDimension());
+        int start = range.getStartIndex() == null ? 0 : range.getStartIndex();
+        int size = rows ? properties.getRowCount() : properties.getColumnCount();
+        int end = range.getEndIndex() == null ? size : range.getEndIndex();
+        int count = end - start;
+        if (count <= 0 || start < 0 || (insert ? start > size : end > size)) {
+            throw new EmulatorException(400, "Invalid dimension range %d to %d for a sheet with %d %s", start, end, size, rows ? "rows" : "columns");
+        }
+        if (rows) {
+            if (!insert && count == size) {
+                throw new EmulatorException(400, "You can't delete all the rows on the sheet.");
+            }
+            if (insert && start < grid.size()) {
+                for (int i = 0; i < count; i++) {
+                    grid.add(start, new ArrayList<>());
+                }
+            }
+            else if (!insert && start < grid.size()) {
+                grid.subList(start, Math.min(end, grid.size())).clear();
+            }
+            properties.setRowCount(size + (insert ? count : -count));
+        }
+        else {
+            if (!insert && count == size) {
+                throw new EmulatorException(400, "You can't delete all the columns on the sheet.");
+            }
+            for (List<Object> row : grid) {
+                if (insert && start < row.size()) {
+                    row.addAll(start, Collections.nCopies(count, null));
+                }
+                else if (!insert && start < row.size()) {
+                    row.subList(start, Math.min(end, row.size())).clear();
+                }
+            }
+            properties.setColumnCount(size + (insert ? count : -count));
+        }
+    }
+
+    /**
+     * Writes rows of values, growing the grid if they don't fit
+     *
+     * @param book        Spreadsheet to change
+     * @param sheet       Sheet to write to
+     * @param startRow    Row of the first value
+     * @param startColumn Column of the first value
+     * @param values      Rows of values or null
+     * @param inputOption RAW or USER_ENTERED
+     * @return Description of what was written
+     * @throws EmulatorException If the input option is missing
+     */
+    private UpdateValuesResponse write(Book book, Sheet sheet, int startRow, int startColumn, List<List<Object>> values, String inputOption) throws EmulatorException {
+        if (inputOption == null) {
+            throw new EmulatorException(400, "'valueInputOption' is required but not specified");
+        }
+        boolean userEntered = "USER_ENTERED".equals(inputOption);
+        List<List<Object>> grid = book.grids.get(sheet.getProperties().getSheetId());
+        int rows = values == null ? 0 : values.size();
+        int columns = 0;
+        int cells = 0;
+        for (int row = 0; row < rows; row++) {
+            List<Object> rowValues = values.get(row);
+            for (int column = 0; rowValues != null && column < rowValues.size(); column++) {
+                setCell(grid, startRow + row, startColumn + column, parseInput(rowValues.get(column), userEntered));
+                cells++;
+            }
+            columns = Math.max(columns, rowValues == null ? 0 : rowValues.size());
+        }
+
+        // Writing values grows the grid rather than failing
+        GridProperties properties = sheet.getProperties().getGridProperties();
+        properties.setRowCount(Math.max(properties.getRowCount(), startRow + rows));
+        properties.setColumnCount(Math.max(properties.getColumnCount(), startColumn + columns));
+        return new UpdateValuesResponse()
+                .setUpdatedRange(getRange(sheet, startRow, startRow + Math.max(1, rows), startColumn, startColumn + Math.max(1, columns)))
+                .setUpdatedRows(rows)
+                .setUpdatedColumns(columns)
+                .setUpdatedCells(cells);
+    }
+
+    /**
+     * Returns the values in a range, without the empty cells at the end of each row or the empty rows at the end
+     *
+     * @param book         Spreadsheet to read
+     * @param target       Range to read
+     * @param renderOption How the values should be rendered
+     * @return Values of the range
+     */
+    private ValueRange getValues(Book book, Target target, String renderOption) {
+        List<List<Object>> grid = book.grids.get(target.sheet.getProperties().getSheetId());
+        boolean formatted = renderOption == null || "FORMATTED_VALUE".equals(renderOption);
+        List<List<Object>> rows = new ArrayList<>();
+        for (int row = target.startRow; row < Math.min(target.endRow, grid.size()); row++) {
+            List<Object> values = new ArrayList<>();
+            List<Object> gridRow = grid.get(row);
+            for (int column = target.startColumn; column < Math.min(target.endColumn, gridRow.size()); column++) {
+                Object value = gridRow.get(column);
+                values.add(value == null ? "" : render(value, formatted));
+            }
+            while (!values.isEmpty() && "".equals(values.get(values.size() - 1))) {
+                values.remove(values.size() - 1);
+            }
+            rows.add(values);
+        }
+        while (!rows.isEmpty() && rows.get(rows.size() - 1).isEmpty()) {
+            rows.remove(rows.size() - 1);
+        }
+        ValueRange ret = new ValueRange()
+                .setRange(getRange(target.sheet, target.startRow, target.endRow, target.startColumn, target.endColumn))
+                .setMajorDimension("ROWS");
+        if (!rows.isEmpty()) {
+            ret.setValues(rows);
+        }
+        return ret;
+    }
+
+    /**
+     * Sets every cell in a range to the same value
+     *
+     * @param book     Spreadsheet to change
+     * @param target   Range to set
+     * @param value    Value or null to clear the cells
+     * @param inBounds True if the range must be inside the grid
+     * @throws EmulatorException If the range must be inside the grid and isn't
+     */
+    private void setCells(Book book, Target target, Object value, boolean inBounds) throws EmulatorException {
+        if (inBounds) {
+            checkGrid(target.sheet, target.endRow, target.endColumn);
+        }
+        List<List<Object>> grid = book.grids.get(target.sheet.getProperties().getSheetId());
+        int endRow = value == null ? Math.min(target.endRow, grid.size()) : target.endRow;
+        for (int row = target.startRow; row < endRow; row++) {
+            for (int column = target.startColumn; column < target.endColumn; column++) {
+                if (value != null || column < grid.get(row).size()) {
+                    setCell(grid, row, column, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a sheet, filling in anything that isn't given
+     *
+     * @param book       Spreadsheet to add to
+     * @param properties Properties of the sheet
+     * @return The new sheet
+     * @throws EmulatorException If the title or ID is already used
+     */
+    private Sheet addSheet(Book book, SheetProperties properties) throws EmulatorException {
+        List<Sheet> sheets = book.spreadsheet.getSheets();
+        if (properties.getSheetId() == null) {
+            properties.setSheetId(nextId++);
+        }
+        else if (book.grids.containsKey(properties.getSheetId())) {
+            throw new EmulatorException(400, "Invalid sheet ID %d, a sheet with that ID already exists", properties.getSheetId());
+        }
+        if (properties.getTitle() == null) {
+            properties.setTitle(getUniqueTitle(book, "Sheet" + (sheets.size() + 1)));
+        }
+        else if (getSheet(book, properties.getTitle()) != null) {
+            throw new EmulatorException(400, "A sheet with the name \"%s\" already exists. Please enter another name.", properties.getTitle());
+        }
+        if (properties.getSheetType() == null) {
+            properties.setSheetType("GRID");
+        }
+        GridProperties grid = properties.getGridProperties() == null ? new GridProperties() : properties.getGridProperties();
+        if (grid.getRowCount() == null) {
+            grid.setRowCount(DEFAULT_ROW_COUNT);
+        }
+        if (grid.getColumnCount() == null) {
+            grid.setColumnCount(DEFAULT_COLUMN_COUNT);
+        }
+        properties.setGridProperties(grid);
+        Sheet sheet = new Sheet().setProperties(properties);
+        int index = properties.getIndex() == null ? sheets.size() : Math.max(0, Math.min(properties.getIndex(), sheets.size()));
+        sheets.add(index, sheet);
+        book.grids.put(properties.getSheetId(), new ArrayList<>());
+        reindex(book);
+        return sheet;
+    }
+
+    /**
+     * Resolves a range such as 'Sheet 1'!A1:B2, Sheet1!A:A, Sheet1 or A1:B2, which is in the first sheet
+     *
+     * @param book  Spreadsheet the range is in
+     * @param range Range in A1 notation
+     * @return Resolved range
+     * @throws EmulatorException If the sheet doesn't exist or the range can't be parsed
+     */
+    private Target resolve(Book book, String range) throws EmulatorException {
+        if (range == null || range.isEmpty()) {
+            throw new EmulatorException(400, "Unable to parse range: %s", range);
+        }
+        String sheetName = null;
+        String cells = range;
+        if (range.startsWith("'")) {
+            StringBuilder name = new StringBuilder();
+            int i = 1;
+            while (i < range.length()) {
+                char c = range.charAt(i);
+                if (c == '\'') {
+                    if (i + 1 < range.length() && range.charAt(i + 1) == '\'') {
+                        name.append(c);
+                        i += 2;
+                        continue;
+                    }
+                    break;
+                }
+                name.append(c);
+                i++;
+            }
+            sheetName = name.toString();
+            cells = i + 1 < range.length() && range.charAt(i + 1) == '!' ? range.substring(i + 2) : "";
+        }
+        else if (range.lastIndexOf('!') >= 0) {
+            sheetName = range.substring(0, range.lastIndexOf('!'));
+            cells = range.substring(range.lastIndexOf('!') + 1);
+        }
+        else if (getSheet(book, range) != null) {
+            sheetName = range;
+            cells = "";
+        }
+        Sheet sheet = sheetName == null ? book.spreadsheet.getSheets().get(0) : getSheet(book, sheetName);
+        if (sheet == null) {
+            throw new EmulatorException(400, "Unable to parse range: %s", range);
+        }
+        if (cells.isEmpty()) {
+            return getTarget(sheet, new GridRange());
+        }
+        try {
+            return getTarget(sheet, GoogleDocsUtils.getGridRange(sheet.getProperties().getSheetId(), cells));
+        }
+        catch (GoogleException e) {
+            throw new EmulatorException(400, "Unable to parse range: %s", range);
+        }
+    }
+
+    /**
+     * Resolves a grid range, open ends run to the edge of the grid
+     *
+     * @param book  Spreadsheet the range is in
+     * @param range Grid range
+     * @return Resolved range
+     * @throws EmulatorException If the range is missing or the sheet doesn't exist
+     */
+    private Target getTarget(Book book, GridRange range) throws EmulatorException {
+        if (range == null) {
+            throw new EmulatorException(400, "A range is required");
+        }
+        return getTarget(getSheet(book, range.getSheetId() == null ? 0 : range.getSheetId()), range);
+    }
+
+    /**
+     * Resolves a grid range on a sheet, open ends run to the edge of the grid
+     *
+     * @param sheet Sheet the range is on
+     * @param range Grid range
+     * @return Resolved range
+     */
+    private static Target getTarget(Sheet sheet, GridRange range) {
+        GridProperties grid = sheet.getProperties().getGridProperties();
+        return new Target(sheet,
+                range.getStartRowIndex() == null ? 0 : range.getStartRowIndex(),
+                range.getEndRowIndex() == null ? grid.getRowCount() : range.getEndRowIndex(),
+                range.getStartColumnIndex() == null ? 0 : range.getStartColumnIndex(),
+                range.getEndColumnIndex() == null ? grid.getColumnCount() : range.getEndColumnIndex());
+    }
+
+    /**
+     * Checks that a range ends inside the grid, as Google does for batch update requests
+     *
+     * @param sheet     Sheet the range is on
+     * @param endRow    Row after the last row
+     * @param endColumn Column after the last column
+     * @throws EmulatorException If the range is outside the grid
+     */
+    private static void checkGrid(Sheet sheet, int endRow, int endColumn) throws EmulatorException {
+        GridProperties grid = sheet.getProperties().getGridProperties();
+        if (endRow > grid.getRowCount() || endColumn > grid.getColumnCount()) {
+            throw new EmulatorException(400, "Range ('%s'!R%dC%d) exceeds grid limits. Max rows: %d, max columns: %d", sheet.getProperties().getTitle(), endRow, endColumn, grid.getRowCount(), grid.getColumnCount());
+        }
+    }
+
+    /**
+     * Returns a spreadsheet
+     *
+     * @param spreadsheetId ID of the spreadsheet
+     * @return The spreadsheet
+     * @throws EmulatorException If there is no such spreadsheet
+     */
+    private Book getBook(String spreadsheetId) throws EmulatorException {
+        Book book = books.get(spreadsheetId);
+        if (book == null) {
+            throw new EmulatorException(404, "Requested entity was not found.");
+        }
+        return book;
+    }
+
+    /**
+     * Returns a sheet by ID
+     *
+     * @param book    Spreadsheet the sheet is in
+     * @param sheetId ID of the sheet
+     * @return The sheet
+     * @throws EmulatorException If there is no such sheet
+     */
+    private static Sheet getSheet(Book book, Integer sheetId) throws EmulatorException {
+        for (Sheet sheet : book.spreadsheet.getSheets()) {
+            if (sheet.getProperties().getSheetId().equals(sheetId == null ? 0 : sheetId)) {
+                return sheet;
+            }
+        }
+        throw new EmulatorException(400, "No grid with id: %s", sheetId);
+    }
+
+    /**
+     * Returns a sheet by title
+     *
+     * @param book  Spreadsheet the sheet is in
+     * @param title Title of the sheet
+     * @return The sheet or null if there is no such sheet
+     */
+    private static Sheet getSheet(Book book, String title) {
+        for (Sheet sheet : book.spreadsheet.getSheets()) {
+            if (sheet.getProperties().getTitle().equalsIgnoreCase(title)) {
+                return sheet;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a title that isn't used by any sheet of the spreadsheet
+     *
+     * @param book  Spreadsheet
+     * @param title Title to start from
+     * @return The title, with a number added if it is already used
+     */
+    private static String getUniqueTitle(Book book, String title) {
+        String ret = title;
+        for (int i = 2; getSheet(book, ret) != null; i++) {
+            ret = title + " " + i;
+        }
+        return ret;
+    }
+
+    /**
+     * Sets the index of every sheet to its position
+     *
+     * @param book Spreadsheet
+     */
+    private static void reindex(Book book) {
+        for (int i = 0; i < book.spreadsheet.getSheets().size(); i++) {
+            book.spreadsheet.getSheets().get(i).getProperties().setIndex(i);
+        }
+    }
+
+    /**
+     * Returns a range in A1 notation qualified with the sheet name
+     *
+     * @param sheet       Sheet the range is on
+     * @param startRow    First row
+     * @param endRow      Row after the last row
+     * @param startColumn First column
+     * @param endColumn   Column after the last column
+     * @return Range e.g. Sheet1!A1:B2
+     */
+    private static String getRange(Sheet sheet, int startRow, int endRow, int startColumn, int endColumn) {
+        String title = sheet.getProperties().getTitle();
+        String name = PLAIN_SHEET_NAME.matcher(title).matches() ? title : "'" + title.replace("'", "''") + "'";
+        return name + '!' + GoogleDocsUtils.getColumnName(startColumn) + (startRow + 1) + ':' + GoogleDocsUtils.getColumnName(Math.max(startColumn, endColumn - 1)) + Math.max(startRow + 1, endRow);
+    }
+
+    /**
+     * Returns the fields named in a field mask, * is expanded to the common property names
+     *
+     * @param fields Comma separated field mask
+     * @return List of field names
+     */
+    private static List<String> getFields(String fields) {
+        List<String> ret = new ArrayList<>();
+        if (fields != null) {
+            for (String field : fields.split(",")) {
+                if (field.trim().equals("*")) {
+                    ret.addAll(Arrays.asList("title", "hidden", "tabColor", "rightToLeft"));
+                }
+                else if (!field.trim().isEmpty()) {
+                    ret.add(field.trim());
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns true if the field mask covers the field
+     *
+     * @param fields Comma separated field mask
+     * @param field  Field to look for
+     * @return True if the field is included
+     */
+    private static boolean hasField(String fields, String field) {
+        if (fields == null) {
+            return false;
+        }
+        for (String name : fields.split(",")) {
+            name = name.trim();
+            if (name.equals("*") || name.equals(field) || name.startsWith(field + '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index of the row after the last row that has a value
+     *
+     * @param grid Values of a sheet
+     * @return Number of rows of data
+     */
+    private static int getLastRow(List<List<Object>> grid) {
+        for (int row = grid.size() - 1; row >= 0; row--) {
+            for (Object value : grid.get(row)) {
+                if (value != null) {
+                    return row + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the index of the column after the last column that has a value
+     *
+     * @param grid Values of a sheet
+     * @return Number of columns of data
+     */
+    private static int getLastColumn(List<List<Object>> grid) {
+        int ret = 0;
+        for (List<Object> row : grid) {
+            for (int column = row.size() - 1; column >= ret; column--) {
+                if (row.get(column) != null) {
+                    ret = column + 1;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Sets a single cell, growing the rows as needed
+     *
+     * @param grid   Values of a sheet
+     * @param row    Row of the cell
+     * @param column Column of the cell
+     * @param value  Value or null to clear it
+     */
+    private static void setCell(List<List<Object>> grid, int row, int column, Object value) {
+        if (value == null && (row >= grid.size() || column >= grid.get(row).size())) {
+            return;
+        }
+        while (grid.size() <= row) {
+            grid.add(new ArrayList<>());
+        }
+        List<Object> values = grid.get(row);
+        while (values.size() <= column) {
+            values.add(null);
+        }
+        values.set(column, value);
+    }
+
+    /**
+     * Returns a deep copy of the values of a sheet
+     *
+     * @param grid Values of a sheet
+     * @return Copy
+     */
+    private static List<List<Object>> copyGrid(List<List<Object>> grid) {
+        List<List<Object>> ret = new ArrayList<>();
+        for (List<Object> row : grid) {
+            ret.add(new ArrayList<>(row));
+        }
+        return ret;
+    }
+
+    /**
+     * Converts a value sent by the client into the stored form
+     * USER_ENTERED strings are parsed into numbers and booleans where they look like them
+     *
+     * @param value       Value as sent
+     * @param userEntered True if the value should be parsed
+     * @return Stored value or null for an empty cell
+     */
+    protected static Object parseInput(Object value, boolean userEntered) {
+        if (value == null) {
+            return null;
+        }
+        else if (value instanceof String) {
+            String text = (String) value;
+            if (text.isEmpty()) {
+                return null;
+            }
+            if (userEntered) {
+                String trimmed = text.trim();
+                if (NUMBER.matcher(trimmed).matches()) {
+                    return normalize(new BigDecimal(trimmed));
+                }
+                if (trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("false")) {
+                    return Boolean.valueOf(trimmed);
+                }
+            }
+            return text;
+        }
+        else if (value instanceof Number) {
+            return normalize(new BigDecimal(value.toString()));
+        }
+        else if (value instanceof Boolean) {
+            return value;
+        }
+        return value.toString();
+    }
+
+    /**
+     * Renders a stored value for the client
+     *
+     * @param value     Stored value
+     * @param formatted True to return everything as the text that would be displayed
+     * @return Value to send
+     */
+    protected static Object render(Object value, boolean formatted) {
+        if (!formatted) {
+            return value;
+        }
+        else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        else if (value instanceof Boolean) {
+            return ((Boolean) value) ? "TRUE" : "FALSE";
+        }
+        return value.toString();
+    }
+
+    /**
+     * Converts the value of a cell in a batch update request into the stored form
+     *
+     * @param value Value from the request
+     * @return Stored value or null for an empty cell
+     */
+    private static Object getValue(ExtendedValue value) {
+        if (value == null) {
+            return null;
+        }
+        else if (value.getFormulaValue() != null) {
+            return value.getFormulaValue();
+        }
+        else if (value.getNumberValue() != null) {
+            return normalize(new BigDecimal(value.getNumberValue().toString()));
+        }
+        else if (value.getBoolValue() != null) {
+            return value.getBoolValue();
+        }
+        return value.getStringValue() == null || value.getStringValue().isEmpty() ? null : value.getStringValue();
+    }
+
+    /**
+     * Removes any trailing zeros from a number
+     *
+     * @param number Number
+     * @return Normalized number
+     */
+    private static BigDecimal normalize(BigDecimal number) {
+        return number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros();
+    }
+}
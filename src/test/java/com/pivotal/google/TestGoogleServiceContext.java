@@ -0,0 +1,49 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google;
+
+import com.pivotal.utils.EzGdocs4jException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ *
+ */
+@Slf4j
+class TestGoogleServiceContext {
+
+    @Test
+    void testRootUrl() throws IOException {
+        GoogleServiceContext context = GoogleServiceContext.builder()
+                .noCredentials()
+                .rootUrl("http://localhost:8080")
+                .applicationName("test")
+                .build();
+        assertEquals("http://localhost:8080/v4/spreadsheets/abc", context.getSheetsService().get("abc").buildHttpRequestUrl().build(), "Incorrect sheets URL");
+        assertEquals("http://localhost:8080/drive/v3/files/abc", context.getFilesService().get("abc").buildHttpRequestUrl().build(), "Incorrect drive URL");
+        assertEquals("test", context.getApplicationName(), "Incorrect application name");
+        assertEquals(GoogleServiceFactory.READ_TIMEOUT, context.getReadTimeout(), "Incorrect default timeout");
+    }
+
+    @Test
+    void testServicesCreatedOnce() {
+        GoogleServiceContext context = GoogleServiceContext.builder().noCredentials().build();
+        assertSame(context.getSheetsService(), context.getSheetsService(), "Sheets service created more than once");
+        assertSame(context.getFilesService(), context.getFilesService(), "Files service created more than once");
+    }
+
+    @Test
+    void testCredentialsRequired() {
+        assertThrows(EzGdocs4jException.class, () -> GoogleServiceContext.builder().build());
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestBatchRangeReader {
+
+    @Test
+    void testQualifiedRange() {
+        assertEquals("'Sheet1'!A1:B2", BatchRangeReader.getQualifiedRange("Sheet1", "A1:B2"), "Incorrect qualified range");
+        assertEquals("'Bob''s tab'!C", BatchRangeReader.getQualifiedRange("Bob's tab", "C"), "Quotes in sheet names should be doubled");
+        assertEquals("'Summary'", BatchRangeReader.getQualifiedRange("Summary", null), "Whole sheet should be just the name");
+    }
+
+    @Test
+    void testSplit() {
+        List<BatchRangeReader.RangeRequest> requests = new ArrayList<>();
+        for (long cells : new long[]{40, 40, 40, 500, 10}) {
+            requests.add(new BatchRangeReader.RangeRequest("Sheet1", "A1", "'Sheet1'!A1", cells));
+        }
+        List<List<BatchRangeReader.RangeRequest>> batches = BatchRangeReader.split(requests, 100);
+        assertEquals(4, batches.size(), "Incorrect number of batches");
+        assertEquals(Arrays.asList(requests.get(0), requests.get(1)), batches.get(0), "First batch should fill up to the limit");
+        assertEquals(1, batches.get(2).size(), "Oversize ranges should have a batch to themselves");
+        assertSame(requests.get(4), batches.get(3).get(0), "Batches out of order");
+        assertEquals(1, BatchRangeReader.split(requests, 1000).size(), "Small ranges should share one request");
+        assertTrue(BatchRangeReader.split(new ArrayList<>(), 100).isEmpty(), "No ranges should give no batches");
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestCsvSchema {
+
+    @Test
+    void testInfer() {
+        List<String[]> sample = Arrays.asList(
+                new String[]{"Fred", "12", "1.5", "true", "1980-06-21", "00123", "80173", ""},
+                new String[]{"Bill", "-7", "2e3", "FALSE", "2001-01-02", "00456", "19800621"},
+                new String[]{"", "", "", "", "", "", "", ""});
+        CsvSchema schema = CsvSchema.infer(sample);
+        assertEquals(CsvSchema.ColumnType.STRING, schema.getColumnType(0), "Text column not inferred");
+        assertEquals(CsvSchema.ColumnType.NUMBER, schema.getColumnType(1), "Integer column not inferred");
+        assertEquals(CsvSchema.ColumnType.NUMBER, schema.getColumnType(2), "Decimal column not inferred");
+        assertEquals(CsvSchema.ColumnType.BOOLEAN, schema.getColumnType(3), "Boolean column not inferred");
+        assertEquals(CsvSchema.ColumnType.DATE, schema.getColumnType(4), "Date column not inferred");
+        assertEquals(CsvSchema.ColumnType.STRING, schema.getColumnType(5), "Codes with leading zeros should stay as text");
+        assertEquals(CsvSchema.ColumnType.NUMBER, schema.getColumnType(6), "Plain numbers should not be dates");
+        assertEquals(CsvSchema.ColumnType.STRING, schema.getColumnType(7), "Empty column should be text");
+        assertEquals(CsvSchema.ColumnType.STRING, schema.getColumnType(20), "Columns beyond the schema should be text");
+    }
+
+    @Test
+    void testConvert() {
+        CsvSchema schema = new CsvSchema(CsvSchema.ColumnType.STRING, CsvSchema.ColumnType.NUMBER, CsvSchema.ColumnType.NUMBER,
+                CsvSchema.ColumnType.BOOLEAN, CsvSchema.ColumnType.DATE, CsvSchema.ColumnType.NUMBER);
+        List<Object> row = schema.convert(new String[]{"12", "42", "1.25", "True", "1980-06-21", "n/a", "extra"});
+        assertEquals("12", row.get(0), "Text should not be converted");
+        assertEquals(42L, row.get(1), "Integer not converted");
+        assertEquals(1.25, row.get(2), "Decimal not converted");
+        assertEquals(Boolean.TRUE, row.get(3), "Boolean not converted");
+        assertEquals(GoogleDocsUtils.getGoogleDateValue(LocalDate.of(1980, 6, 21)), row.get(4), "Date not converted to a serial");
+        assertEquals("n/a", row.get(5), "Values that don't fit should be left alone");
+        assertEquals("extra", row.get(6), "Columns beyond the schema should be left alone");
+        assertEquals("", schema.convert(new String[]{"", ""}).get(1), "Empty values should be left alone");
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.pivotal.google.GoogleServiceContext;
+import com.pivotal.google.emulator.GoogleEmulator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestGoogleAsyncExecutor {
+
+    @Test
+    void testRescheduledRead() throws Exception {
+        GoogleEmulator emulator = new GoogleEmulator().retryAfter(0);
+        GoogleSheet sheet = createSheet(emulator);
+        sheet.appendValues(null, Arrays.asList(Arrays.asList((Object) "value")));
+        GoogleAsyncExecutor executor = new GoogleAsyncExecutor(2);
+        AtomicInteger runs = new AtomicInteger();
+        try {
+            Object value = executor.submit(() -> {
+                if (runs.incrementAndGet() == 1) {
+                    refuseNextCall(emulator);
+                }
+                return sheet.getData("A1", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).get(0).get(0);
+            }).get(30, TimeUnit.SECONDS);
+            assertEquals("value", value, "Incorrect value read");
+            assertEquals(1, emulator.getThrottledCount(), "Read should have been refused once");
+            assertEquals(2, runs.get(), "Refused read should have been rescheduled and run again");
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testWrittenOperationNotRepeated() throws Exception {
+        GoogleEmulator emulator = new GoogleEmulator().retryAfter(0);
+        GoogleSheet sheet = createSheet(emulator);
+        GoogleAsyncExecutor executor = new GoogleAsyncExecutor(2);
+        AtomicInteger runs = new AtomicInteger();
+        try {
+            executor.submit(() -> {
+                sheet.appendValues(null, Arrays.asList(Arrays.asList((Object) "row")));
+                if (runs.incrementAndGet() == 1) {
+                    refuseNextCall(emulator);
+                }
+                return sheet.getData("A:A", GoogleSheet.ValueRenderOption.FORMATTED_VALUE);
+            }).get(30, TimeUnit.SECONDS);
+            assertEquals(1, emulator.getThrottledCount(), "Read should have been refused once");
+            assertEquals(1, runs.get(), "Operation that has written should wait rather than be run again");
+            assertEquals(1, sheet.getData("A:A", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).size(), "Row should only be appended once");
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testInOrderPerInstance() throws Exception {
+        GoogleEmulator emulator = new GoogleEmulator().retryAfter(0);
+        GoogleSheet sheet = createSheet(emulator);
+        GoogleAsyncExecutor executor = new GoogleAsyncExecutor(4);
+        AsyncGoogleSheet async = new AsyncGoogleSheet(sheet, executor);
+        AtomicInteger reruns = new AtomicInteger();
+        emulator.jitter(5);
+        try {
+
+            // One append in the middle is refused and rescheduled, the rest must wait for it
+            CompletableFuture<Void> last = null;
+            for (int i = 0; i < 20; i++) {
+                int row = i;
+                last = async.call(s -> {
+                    if (row == 10 && reruns.getAndIncrement() == 0) {
+                        refuseNextCall(emulator);
+                    }
+                    s.appendValues(null, Arrays.asList(Arrays.asList((Object) row)));
+                    return null;
+                });
+            }
+            last.get(30, TimeUnit.SECONDS);
+            assertEquals(2, reruns.get(), "Refused append should have been rescheduled");
+            List<List<Object>> values = sheet.getData("A:A", GoogleSheet.ValueRenderOption.FORMATTED_VALUE);
+            assertEquals(20, values.size(), "Every append should have been made once");
+            for (int i = 0; i < 20; i++) {
+                assertEquals(String.valueOf(i), values.get(i).get(0), "Appends made out of order");
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentImports() throws Exception {
+
+        // More imports than default workers, each of which waits for its chunks to be appended
+        GoogleEmulator emulator = new GoogleEmulator();
+        GoogleSpreadsheet spreadsheet = GoogleSpreadsheet.create(emulator.newContext(), "imports", null);
+        List<GoogleSheet> sheets = new ArrayList<>();
+        for (int i = 0; i < GoogleAsyncExecutor.DEFAULT_THREADS + 4; i++) {
+            sheets.add(spreadsheet.addSheet("Import " + i));
+        }
+        emulator.latency(20);
+        List<CompletableFuture<Void>> imports = new ArrayList<>();
+        for (GoogleSheet sheet : sheets) {
+            imports.add(new AsyncGoogleSheet(sheet).appendCsvValues(null, "name,value\na,1\nb,2\n", true));
+        }
+        CompletableFuture.allOf(imports.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        for (GoogleSheet sheet : sheets) {
+            assertEquals(3, sheet.getData("A:B", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).size(), "Import not appended once");
+        }
+    }
+
+    private static GoogleSheet createSheet(GoogleEmulator emulator) throws GoogleException {
+        GoogleServiceContext context = emulator.newContext(new RetryPolicy().maxAttempts(5).initialDelay(1).maxDelay(5));
+        return GoogleSpreadsheet.create(context, "async", null).getSheets().get(0);
+    }
+
+    /**
+     * Makes the emulator refuse the next call it receives and no others for a while
+     *
+     * @param emulator Emulator
+     */
+    private static void refuseNextCall(GoogleEmulator emulator) {
+        emulator.throttleEvery((int) emulator.getRequestCount() + 1);
+    }
+}
@@ -32,6 +32,17 @@ class TestGoogleServiceFactory {
             assertEquals("0,2,5,4", getRangeString(GoogleDocsUtils.getGridRange(1, "C1:D5")), "Incorrect coordinates");
             assertThrows(com.pivotal.google.docs.GoogleException.class, () -> GoogleDocsUtils.getGridRange(1, "C:^"));
             assertThrows(com.pivotal.google.docs.GoogleException.class, () -> GoogleDocsUtils.getGridRange(1, "1C"));
+            assertEquals("0,0,2,2", getRangeString(GoogleDocsUtils.getGridRange(1, "'It''s'!A1:B2")), "Incorrect coordinates");
+            assertEquals("0,0,3,3", getRangeString(GoogleDocsUtils.getGridRange(1, "Sheet1!$A$1:$C$3")), "Incorrect coordinates");
+            assertEquals("1,2,5,10", getRangeString(GoogleDocsUtils.getGridRange(1, "R2C3:R5C10")), "Incorrect coordinates");
+            assertEquals("1,null,4,null", getRangeString(GoogleDocsUtils.getGridRange(1, "2:4")), "Incorrect coordinates");
+            assertThrows(com.pivotal.google.docs.GoogleException.class, () -> GoogleDocsUtils.getGridRange(1, "A0"));
+            assertThrows(com.pivotal.google.docs.GoogleException.class, () -> GoogleDocsUtils.getGridRange(1, "A1:B2:C3"));
+
+            // Cached ranges must not be changed by callers changing the range they were given
+            GoogleDocsUtils.getGridRange(1, "C1:D5").setStartRowIndex(99);
+            assertEquals("0,2,5,4", getRangeString(GoogleDocsUtils.getGridRange(1, "C1:D5")), "Cached range was changed");
+            assertEquals(2, GoogleDocsUtils.getGridRange(2, "C1:D5").getSheetId(), "Cached range has the wrong sheet");
         }
         catch (com.pivotal.google.docs.GoogleException e) {
             throw new EzGdocs4jException(e);
@@ -39,6 +50,16 @@ class TestGoogleServiceFactory {
 
     }
 
+    @Test
+    void testColumnName() {
+        assertEquals("A", GoogleDocsUtils.getColumnName(0), "Incorrect column name");
+        assertEquals("Z", GoogleDocsUtils.getColumnName(25), "Incorrect column name");
+        assertEquals("AA", GoogleDocsUtils.getColumnName(26), "Incorrect column name");
+        assertEquals("AZ", GoogleDocsUtils.getColumnName(51), "Incorrect column name");
+        assertEquals("BB", GoogleDocsUtils.getColumnName(53), "Incorrect column name");
+        assertEquals("AAA", GoogleDocsUtils.getColumnName(702), "Incorrect column name");
+    }
+
     private String getRangeString(GridRange range) {
         return range.getStartRowIndex() + "," +
                 range.getStartColumnIndex() + "," +
@@ -6,11 +6,23 @@
  */
 package com.pivotal.google.docs;
 
+import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  *
@@ -59,4 +71,121 @@ class TestGoogleSheets {
         tmp.clear();
         tmp.delete();
     }
+
+    @Test
+    void testStreamData() throws GoogleException {
+        GoogleSpreadsheet tmp = GoogleSpreadsheet.create(String.format("test-%d", System.currentTimeMillis()));
+        GoogleSheet sheet = tmp.getSheets().get(0);
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            rows.add(i == 100 ? new ArrayList<>() : Arrays.asList("row" + i, String.valueOf(i)));
+        }
+        sheet.appendValues("A1", rows);
+        try (Stream<List<Object>> stream = sheet.streamData("A1:B", GoogleSheet.ValueRenderOption.FORMATTED_VALUE)) {
+            List<List<Object>> streamed = stream.collect(Collectors.toList());
+            assertEquals(sheet.getData("A1:B", GoogleSheet.ValueRenderOption.FORMATTED_VALUE), streamed, "Streamed rows differ from getData");
+        }
+        tmp.delete();
+    }
+
+    @Test
+    void testBulkLoad() throws GoogleException {
+        GoogleSpreadsheet tmp = GoogleSpreadsheet.create(String.format("test-%d", System.currentTimeMillis()));
+        GoogleSheet sheet = tmp.getSheets().get(0);
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 12000; i++) {
+            rows.add(Arrays.asList("row" + i, String.valueOf(i)));
+        }
+        AtomicInteger progress = new AtomicInteger();
+        sheet.bulkLoad("A1", rows, 3, (written, total) -> progress.set(written));
+        assertEquals(rows.size(), progress.get(), "Progress not reported for all the rows");
+        assertEquals(rows, sheet.getData("A1:B", GoogleSheet.ValueRenderOption.FORMATTED_VALUE), "Loaded rows differ");
+        tmp.delete();
+    }
+
+    @Test
+    void testMultiRangeData() throws GoogleException {
+        GoogleSpreadsheet tmp = GoogleSpreadsheet.create(String.format("test-%d", System.currentTimeMillis()));
+        GoogleSheet first = tmp.getSheets().get(0);
+        GoogleSheet second = tmp.addSheet("Second tab");
+        first.appendValues("A1", Arrays.asList(Arrays.asList((Object) "a", "b"), Arrays.asList((Object) "c", "d")));
+        second.appendValues("A1", "e", "f");
+        Map<String, List<String>> ranges = new LinkedHashMap<>();
+        ranges.put(first.getName(), Arrays.asList("A1:B1", "A2:B2"));
+        ranges.put(second.getName(), null);
+        Map<String, Map<String, List<List<Object>>>> data = tmp.getData(ranges, GoogleSheet.ValueRenderOption.FORMATTED_VALUE);
+        assertEquals(first.getData("A1:B1", GoogleSheet.ValueRenderOption.FORMATTED_VALUE), data.get(first.getName()).get("A1:B1"), "First range differs from getData");
+        assertEquals(first.getData("A2:B2", GoogleSheet.ValueRenderOption.FORMATTED_VALUE), data.get(first.getName()).get("A2:B2"), "Second range differs from getData");
+        assertEquals(second.getData(null, GoogleSheet.ValueRenderOption.FORMATTED_VALUE), data.get(second.getName()).get(null), "Whole sheet differs from getData");
+        tmp.delete();
+    }
+
+    @Test
+    void testSpreadsheetBatch() throws GoogleException {
+        GoogleSpreadsheet tmp = GoogleSpreadsheet.create(String.format("test-%d", System.currentTimeMillis()));
+        tmp.addSheet("Second");
+        tmp.batchStart();
+        for (GoogleSheet sheet : tmp.getSheets()) {
+            sheet.setText("A1", sheet.getName());
+            sheet.formatCells("A1").bold().apply();
+        }
+        BatchUpdateSpreadsheetResponse response = tmp.batchExecute();
+        assertNotNull(response, "Spreadsheet batch not sent");
+        assertEquals(4, response.getReplies().size(), "Requests from all the sheets should be in one batch");
+        for (GoogleSheet sheet : tmp.getSheets()) {
+            assertEquals(sheet.getName(), sheet.getData("A1", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).get(0).get(0), "Batched value not written");
+        }
+        tmp.delete();
+    }
+
+    @Test
+    void testWriteBehind() throws GoogleException {
+        GoogleSpreadsheet tmp = GoogleSpreadsheet.create(String.format("test-%d", System.currentTimeMillis()));
+        GoogleSheet sheet = tmp.getSheets().get(0);
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        sheet.writeBehindStart(new BatchLimits().maxRequests(10).maxAge(500), 20, (e, requests, rows) -> failures.add(e.getMessage()));
+        for (int i = 1; i <= 50; i++) {
+            sheet.appendValues(null, "Row", i);
+        }
+        sheet.setText("C1", "Done");
+        sheet.writeBehindStop();
+        assertTrue(failures.isEmpty(), "Queued changes failed " + failures);
+        assertEquals(50, sheet.getData("A1:B50", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).size(), "Queued rows not appended");
+        assertEquals("Done", sheet.getData("C1", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).get(0).get(0), "Queued request not sent");
+        tmp.delete();
+    }
+
+    @Test
+    void testSync() throws GoogleException {
+        GoogleSpreadsheet tmp = GoogleSpreadsheet.create(String.format("test-%d", System.currentTimeMillis()));
+        GoogleSheet sheet = tmp.getSheets().get(0);
+        List<List<Object>> desired = new ArrayList<>();
+        desired.add(Arrays.asList("Name", "Count"));
+        desired.add(Arrays.asList("a", 1));
+        desired.add(Arrays.asList("b", 2));
+        desired.add(Arrays.asList("c", 3));
+        sheet.sync(desired);
+        desired.set(2, Arrays.asList("b", 20));
+        desired.add(1, Arrays.asList("new", 0));
+        SheetDiff diff = sheet.sync(desired);
+        assertEquals(1, diff.getInsertedRows(), "Row should have been inserted");
+        assertEquals(3, diff.getChangedCells(), "Only the new row and changed cell should be written");
+        assertEquals(desired.size(), sheet.getData(null, GoogleSheet.ValueRenderOption.UNFORMATTED_VALUE).size(), "Sheet does not match");
+        assertTrue(sheet.sync(desired, true).isEmpty(), "Synced sheet should have nothing left to change");
+        tmp.delete();
+    }
+
+    @Test
+    void testUpsertRows() throws GoogleException {
+        GoogleSpreadsheet tmp = GoogleSpreadsheet.create(String.format("test-%d", System.currentTimeMillis()));
+        GoogleSheet sheet = tmp.getSheets().get(0);
+        sheet.appendValues(null, Arrays.asList(Arrays.asList("ID", "Stock"), Arrays.asList(1, 10), Arrays.asList(2, 20)));
+        assertEquals(1, sheet.upsertRows(0, Arrays.asList(Arrays.asList(2, 25), Arrays.asList(3, 30))), "Only one row should be new");
+        sheet.insertRows(1, 1);
+        assertEquals(0, sheet.upsertRows(0, Collections.singletonList(Arrays.asList(3, 35))), "Known key should be updated");
+        List<List<Object>> data = sheet.getData("A1:B5", GoogleSheet.ValueRenderOption.FORMATTED_VALUE);
+        assertEquals("25", data.get(3).get(1), "Existing row not updated");
+        assertEquals("35", data.get(4).get(1), "Moved row not updated");
+        tmp.delete();
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestRateLimiter {
+
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    void testTryTake() {
+        RateLimiter.TokenBucket bucket = new RateLimiter.TokenBucket(1, 2, 0);
+        assertEquals(0, bucket.tryTake(0), "First token not available");
+        assertEquals(0, bucket.tryTake(0), "Second token not available");
+        assertEquals(SECOND, bucket.tryTake(0), "Incorrect wait for an empty bucket");
+        assertEquals(0, bucket.tryTake(SECOND), "Token not refilled");
+    }
+
+    @Test
+    void testReserveQueues() {
+        RateLimiter.TokenBucket bucket = new RateLimiter.TokenBucket(1, 1, 0);
+        assertEquals(0, bucket.reserve(0), "First caller should not wait");
+        assertEquals(SECOND, bucket.reserve(0), "Second caller should wait for the next token");
+        assertEquals(2 * SECOND, bucket.reserve(0), "Third caller should queue behind the second");
+    }
+
+    @Test
+    void testAdaptiveRate() {
+        RateLimiter.TokenBucket bucket = new RateLimiter.TokenBucket(10, 10, 0);
+        bucket.decrease(0);
+        assertEquals(5, bucket.getRate(), 0.001, "Rate not halved after a rate limit error");
+        assertTrue(bucket.tryTake(SECOND / 10) > 0, "Bucket not emptied after a rate limit error");
+        bucket.decrease(SECOND / 2);
+        assertEquals(5, bucket.getRate(), 0.001, "A burst of errors should only halve the rate once");
+        for (int i = 0; i < 100; i++) {
+            bucket.increase();
+        }
+        assertEquals(10, bucket.getRate(), 0.001, "Rate should recover to the limit but not beyond");
+    }
+
+    @Test
+    void testUnlimited() throws GoogleException {
+        RateLimiter limiter = RateLimiter.unlimited();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire("abc", true);
+            limiter.acquireDrive();
+        }
+        assertTrue(System.currentTimeMillis() - start < 1000, "Unlimited limiter held calls back");
+        assertEquals(0, limiter.getCurrentRate(RateLimiter.Api.SHEETS, true), "Unlimited limiter has a rate");
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.Request;
+import com.google.api.services.sheets.v4.model.UpdateSheetPropertiesRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestRequestBatch {
+
+    @Test
+    void testConcurrentAdds() throws Exception {
+        RequestBatch batch = new RequestBatch(null, "test", BatchLimits.unbounded());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(pool.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        batch.add(newRequest());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertEquals(8000, batch.getPendingCount(), "Requests lost by concurrent adds");
+        assertTrue(batch.hasRequests(), "Batch should have requests");
+        batch.clear();
+        assertEquals(0, batch.getPendingCount(), "Clear should discard the pending requests");
+    }
+
+    @Test
+    void testClose() throws Exception {
+        RequestBatch batch = new RequestBatch(null, "test", BatchLimits.unbounded());
+        AtomicInteger added = new AtomicInteger();
+        Thread producer = new Thread(() -> {
+            try {
+                while (batch.offer(newRequest())) {
+                    added.incrementAndGet();
+                }
+            }
+            catch (GoogleException e) {
+                log.error("Unexpected flush", e);
+            }
+        });
+        producer.start();
+        while (added.get() < 100) {
+            Thread.yield();
+        }
+        batch.close();
+        int pending = batch.getPendingCount();
+        producer.join(10000);
+        assertFalse(producer.isAlive(), "Producer should stop once the batch is closed");
+        assertEquals(added.get(), pending, "Every accepted request should be pending when close returns");
+        assertTrue(batch.isClosed(), "Batch should be closed");
+        assertThrows(GoogleException.class, () -> batch.add(newRequest()), "Adding to a closed batch should fail");
+        batch.reopen();
+        assertTrue(batch.offer(newRequest()), "Reopened batch should accept requests");
+    }
+
+    private static Request newRequest() {
+        return new Request().setUpdateSheetProperties(new UpdateSheetPropertiesRequest().setFields("title"));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.*;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestRequestOptimizer {
+
+    @Test
+    void testDropOverwritten() {
+        List<Request> requests = Arrays.asList(
+                format(range(0, 5, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setRed(1F))),
+                format(range(0, 10, 0, 4), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setBlue(1F))));
+        List<Request> optimized = RequestOptimizer.optimize(requests);
+        assertEquals(1, optimized.size(), "Overwritten request not dropped");
+        assertSame(requests.get(1), optimized.get(0), "Wrong request dropped");
+    }
+
+    @Test
+    void testFoldSameRange() {
+        List<Request> requests = Arrays.asList(
+                format(range(0, 5, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setRed(1F))),
+                format(range(0, 5, 0, 2), "userEnteredFormat.textFormat", new CellFormat().setTextFormat(new TextFormat().setBold(true))));
+        List<Request> optimized = RequestOptimizer.optimize(requests);
+        assertEquals(1, optimized.size(), "Same range requests not folded");
+        RepeatCellRequest repeat = optimized.get(0).getRepeatCell();
+        assertEquals("userEnteredFormat.backgroundColor,userEnteredFormat.textFormat", repeat.getFields(), "Fields not merged");
+        assertEquals(1F, repeat.getCell().getUserEnteredFormat().getBackgroundColor().getRed(), "Background lost");
+        assertTrue(repeat.getCell().getUserEnteredFormat().getTextFormat().getBold(), "Text format lost");
+    }
+
+    @Test
+    void testMergeAdjacent() {
+        List<Request> requests = Arrays.asList(
+                format(range(0, 5, 0, 2), "userEnteredFormat.textFormat", new CellFormat().setTextFormat(new TextFormat().setBold(true))),
+                format(range(5, 10, 0, 2), "userEnteredFormat.textFormat", new CellFormat().setTextFormat(new TextFormat().setBold(true))),
+                format(range(0, 10, 2, null), "userEnteredFormat.textFormat", new CellFormat().setTextFormat(new TextFormat().setBold(true))));
+        List<Request> optimized = RequestOptimizer.optimize(requests);
+        assertEquals(1, optimized.size(), "Identical adjacent requests not merged");
+        GridRange range = optimized.get(0).getRepeatCell().getRange();
+        assertEquals(0, range.getStartRowIndex(), "Incorrect start row");
+        assertEquals(10, range.getEndRowIndex(), "Incorrect end row");
+        assertEquals(0, range.getStartColumnIndex(), "Incorrect start column");
+        assertNull(range.getEndColumnIndex(), "Incorrect end column");
+    }
+
+    @Test
+    void testConflictsPreserved() {
+
+        // The first and last are identical and adjacent, but the second overlaps the last
+        // and sets the same field so it cannot be moved in front of it
+        List<Request> requests = Arrays.asList(
+                format(range(0, 5, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setRed(1F))),
+                format(range(2, 8, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setBlue(1F))),
+                format(range(0, 2, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setGreen(1F))),
+                format(range(5, 8, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setRed(1F))));
+        assertEquals(requests, RequestOptimizer.optimize(requests), "Conflicting requests merged");
+    }
+
+    @Test
+    void testBarriers() {
+        List<Request> requests = new ArrayList<>();
+        requests.add(format(range(0, 5, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setRed(1F))));
+        requests.add(new Request().setInsertDimension(new InsertDimensionRequest().setRange(new DimensionRange().setSheetId(1).setDimension("ROWS").setStartIndex(0).setEndIndex(1))));
+        requests.add(format(range(0, 5, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setRed(1F))));
+        assertEquals(3, RequestOptimizer.optimize(requests).size(), "Requests merged across a barrier");
+    }
+
+    @Test
+    void testFormulasNotMerged() {
+
+        // Merging these into A1:A2 would give A2 the formula =B2
+        List<Request> requests = Arrays.asList(
+                formula(range(0, 1, 0, 1), "=B1"),
+                formula(range(1, 2, 0, 1), "=B1"));
+        assertEquals(requests, RequestOptimizer.optimize(requests), "Formulas merged");
+        assertEquals(1, requests.get(0).getRepeatCell().getRange().getEndRowIndex(), "Formula range changed");
+    }
+
+    @Test
+    void testSubFieldMasksNotOptimised() {
+
+        // The second overlaps the third and sets the same field, which is only visible if the mask is understood
+        List<Request> requests = Arrays.asList(
+                format(range(0, 5, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setRed(1F))),
+                format(range(2, 8, 0, 2), "userEnteredFormat(backgroundColor,textFormat)", new CellFormat().setBackgroundColor(new Color().setBlue(1F))),
+                format(range(5, 8, 0, 2), "userEnteredFormat.backgroundColor", new CellFormat().setBackgroundColor(new Color().setRed(1F))));
+        assertEquals(requests, RequestOptimizer.optimize(requests), "Request with a sub-field mask optimised");
+        assertEquals("userEnteredFormat(backgroundColor,textFormat)", requests.get(1).getRepeatCell().getFields(), "Sub-field mask changed");
+    }
+
+    private static Request formula(GridRange range, String formula) {
+        return new Request().setRepeatCell(new RepeatCellRequest()
+                .setRange(range)
+                .setFields("userEnteredValue")
+                .setCell(new CellData().setUserEnteredValue(new ExtendedValue().setFormulaValue(formula))));
+    }
+
+    private static Request format(GridRange range, String fields, CellFormat format) {
+        return new Request().setRepeatCell(new RepeatCellRequest()
+                .setRange(range)
+                .setFields(fields)
+                .setCell(new CellData().setUserEnteredFormat(format)));
+    }
+
+    private static GridRange range(Integer startRow, Integer endRow, Integer startColumn, Integer endColumn) {
+        return new GridRange().setSheetId(1)
+                .setStartRowIndex(startRow)
+                .setEndRowIndex(endRow)
+                .setStartColumnIndex(startColumn)
+                .setEndColumnIndex(endColumn);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestRetryPolicy {
+
+    @Test
+    void testStatusCodes() {
+        RetryPolicy policy = new RetryPolicy();
+        assertTrue(policy.isRetryable(error(429), false), "Rate limit errors should always be retried");
+        assertTrue(policy.isRetryable(error(503), true), "Idempotent requests should be retried after a server error");
+        assertFalse(policy.isRetryable(error(503), false), "Non-idempotent requests should not be retried after a server error");
+        assertFalse(policy.isRetryable(error(400), true), "Bad requests should not be retried");
+    }
+
+    @Test
+    void testNetworkErrors() {
+        RetryPolicy policy = new RetryPolicy();
+        assertTrue(policy.isRetryable(new ConnectException(), false), "A refused connection should always be retried");
+        assertTrue(policy.isRetryable(new SocketTimeoutException(), true), "Idempotent requests should be retried after a timeout");
+        assertFalse(policy.isRetryable(new SocketTimeoutException(), false), "Non-idempotent requests should not be retried after a timeout");
+        assertFalse(policy.retryNetworkErrors(false).isRetryable(new ConnectException(), true), "Network errors retried when turned off");
+    }
+
+    @Test
+    void testDelays() {
+        RetryPolicy policy = new RetryPolicy().initialDelay(100).maxDelay(1000).maxAttempts(3).deadline(0);
+        long delay = policy.getRetryDelay(error(503), 0, true, 0);
+        assertTrue(delay >= 100 && delay <= 200, "Incorrect first delay " + delay);
+        delay = policy.getRetryDelay(error(503), 1, true, 0);
+        assertTrue(delay >= 200 && delay <= 300, "Incorrect second delay " + delay);
+        assertEquals(-1, policy.getRetryDelay(error(503), 2, true, 0), "Retried after the maximum attempts");
+        assertEquals(1000, new RetryPolicy().initialDelay(100).maxDelay(1000).getRetryDelay(error(503), 8, true, 0), "Delay not capped");
+        assertEquals(-1, policy.deadline(1000).getRetryDelay(error(503), 0, true, 950), "Retried beyond the deadline");
+    }
+
+    @Test
+    void testRetryAfter() {
+        HttpResponseException e = new HttpResponseException.Builder(429, null, new HttpHeaders().set("Retry-After", "5")).build();
+        assertEquals(5000, new RetryPolicy().getRetryDelay(e, 0, false, 0), "Retry-After header not honoured");
+        assertTrue(new RetryPolicy().honourRetryAfter(false).getRetryDelay(e, 0, false, 0) < 5000, "Retry-After header used when turned off");
+        assertEquals(-1, RetryPolicy.getRetryAfter(new HttpHeaders().set("Retry-After", "soon")), "Invalid Retry-After header not ignored");
+    }
+
+    private static HttpResponseException error(int statusCode) {
+        return new HttpResponseException.Builder(statusCode, null, new HttpHeaders()).build();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.pivotal.google.emulator.GoogleEmulator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestSheetDiff {
+
+    @Test
+    void testUnchanged() {
+        List<List<Object>> current = Arrays.asList(Arrays.asList("a", new BigDecimal("1"), true), Arrays.asList("b", new BigDecimal("2.5")));
+        List<List<Object>> desired = Arrays.asList(Arrays.asList("a", 1.0, true, null), Arrays.asList("b", 2.50, ""), new ArrayList<>());
+        SheetDiff diff = new SheetDiff(current, desired);
+        assertTrue(diff.isEmpty(), "Equal numbers and trailing blanks should not be changes");
+    }
+
+    @Test
+    void testChangedCells() {
+        List<List<Object>> current = Arrays.asList(Arrays.asList("a", 1), Arrays.asList("b", 2, "gone"));
+        List<List<Object>> desired = Arrays.asList(Arrays.asList("a", 1), Arrays.asList("b", 3));
+        SheetDiff diff = new SheetDiff(current, desired);
+        assertTrue(diff.getRowChanges().isEmpty(), "Changed cells should not move rows");
+        assertEquals(2, diff.getChangedCells(), "Incorrect number of changed cells");
+        assertEquals(3, diff.getCells().get(ValueWriteBuffer.getKey(1, 1)), "Changed cell should have the desired value");
+        assertEquals("", diff.getCells().get(ValueWriteBuffer.getKey(1, 2)), "Removed cell should be cleared");
+    }
+
+    @Test
+    void testInsertAndDelete() {
+        List<List<Object>> current = rows("a", "b", "c");
+
+        SheetDiff diff = new SheetDiff(current, rows("a", "x", "b", "c"));
+        assertEquals(1, diff.getRowChanges().size(), "Incorrect number of row changes");
+        assertTrue(diff.getRowChanges().get(0).isInsert(), "Row should be inserted");
+        assertEquals(1, diff.getRowChanges().get(0).getStartRow(), "Row inserted in the wrong place");
+        assertEquals(1, diff.getChangedCells(), "Only the new row should be written");
+        assertEquals("x", diff.getCells().get(ValueWriteBuffer.getKey(1, 0)), "Incorrect inserted value");
+
+        diff = new SheetDiff(current, rows("a", "c"));
+        assertEquals(1, diff.getDeletedRows(), "Row should be deleted");
+        assertFalse(diff.getRowChanges().get(0).isInsert(), "Row should be deleted not inserted");
+        assertEquals(1, diff.getRowChanges().get(0).getStartRow(), "Row deleted in the wrong place");
+        assertEquals(0, diff.getChangedCells(), "Nothing should be written when a row is deleted");
+
+        // Changes to the rows are made from the bottom up
+        diff = new SheetDiff(rows("a", "b", "c", "d", "e"), rows("a", "c", "d", "x", "y", "e"));
+        assertEquals(2, diff.getRowChanges().size(), "Incorrect number of row changes");
+        assertEquals("insert 2 at 4", diff.getRowChanges().get(0).toString(), "Lower change should be made first");
+        assertEquals("delete 1 at 1", diff.getRowChanges().get(1).toString(), "Upper change should be made last");
+        assertEquals("x", diff.getCells().get(ValueWriteBuffer.getKey(3, 0)), "Inserted row written to the wrong place");
+        assertEquals("y", diff.getCells().get(ValueWriteBuffer.getKey(4, 0)), "Inserted row written to the wrong place");
+    }
+
+    @Test
+    void testEndOfData() {
+        SheetDiff diff = new SheetDiff(rows("a", "b", "c"), rows("a"));
+        assertTrue(diff.getRowChanges().isEmpty(), "Rows at the end should be cleared not deleted");
+        assertEquals("", diff.getCells().get(ValueWriteBuffer.getKey(1, 0)), "Row at the end not cleared");
+        assertEquals("", diff.getCells().get(ValueWriteBuffer.getKey(2, 0)), "Row at the end not cleared");
+
+        diff = new SheetDiff(null, rows("a", "b"));
+        assertTrue(diff.getRowChanges().isEmpty(), "Rows at the end should be written not inserted");
+        assertEquals(2, diff.getChangedCells(), "New rows not written");
+    }
+
+    @Test
+    void testSyncAfterChanges() throws GoogleException {
+        GoogleSheet sheet = GoogleSpreadsheet.create(new GoogleEmulator().newContext(), "sync", null).getSheets().get(0);
+        List<List<Object>> desired = Arrays.asList(Arrays.asList((Object) "a", "x"), Arrays.asList((Object) "b", "y"));
+        sheet.sync(desired);
+
+        // Clearing the sheet means the values from the last sync no longer hold
+        sheet.clearData();
+        assertFalse(sheet.sync(desired).isEmpty(), "Cleared rows should be written again");
+        assertEquals(desired, sheet.getData("A:B", GoogleSheet.ValueRenderOption.FORMATTED_VALUE), "Cleared rows not written again");
+
+        // Queued changes are sent before the values are compared
+        sheet.writeBehindStart();
+        sheet.setText("A1", "changed");
+        assertFalse(sheet.sync(desired).isEmpty(), "Changed cell should be written again");
+        sheet.writeBehindStop();
+        assertEquals(desired, sheet.getData("A:B", GoogleSheet.ValueRenderOption.FORMATTED_VALUE), "Changed cell not written again");
+
+        sheet.batchStart();
+        assertThrows(GoogleException.class, () -> sheet.sync(desired), "Sync should be refused in batch mode");
+        sheet.batchClear();
+    }
+
+    /**
+     * Returns rows of a single value each
+     *
+     * @param values Values of the rows
+     * @return List of rows
+     */
+    private static List<List<Object>> rows(String... values) {
+        List<List<Object>> ret = new ArrayList<>();
+        for (String value : values) {
+            ret.add(Arrays.asList((Object) value));
+        }
+        return ret;
+    }
+}
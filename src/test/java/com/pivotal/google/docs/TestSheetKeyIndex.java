@@ -0,0 +1,95 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.pivotal.google.emulator.GoogleEmulator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestSheetKeyIndex {
+
+    @Test
+    void testBuild() {
+        List<List<Object>> values = Arrays.asList(
+                Collections.singletonList("ID"),
+                Collections.singletonList(new BigDecimal("7")),
+                new ArrayList<>(),
+                Collections.singletonList("abc"),
+                Collections.singletonList("abc"));
+        SheetKeyIndex index = new SheetKeyIndex(0, values);
+        assertEquals(3, index.size(), "Blank and duplicate keys should not be indexed");
+        assertEquals(5, index.getNextRow(), "New keys should go after the last row");
+        assertEquals(1, index.getRow(7), "Numbers should match whatever their type");
+        assertEquals(1, index.getRow(7.0), "Numbers should match whatever their scale");
+        assertEquals(3, index.getRow("abc"), "Duplicate keys should use the first row");
+        assertNull(index.getRow("xyz"), "Unknown key should have no row");
+        assertEquals(5, index.add("xyz"), "New key should be added after the data");
+        assertEquals(5, index.add("xyz"), "Known key should keep its row");
+        assertEquals(6, index.getNextRow(), "Adding a key should move the next row on");
+    }
+
+    @Test
+    void testInsertAndDelete() {
+        SheetKeyIndex index = new SheetKeyIndex(1);
+        for (String key : new String[]{"a", "b", "c", "d"}) {
+            index.add(key);
+        }
+        index.insertRows(1, 2);
+        assertEquals(0, index.getRow("a"), "Rows above an insert should not move");
+        assertEquals(3, index.getRow("b"), "Rows below an insert should move down");
+        assertEquals(6, index.getNextRow(), "Next row should move down");
+        index.insertRows(10, 2);
+        assertEquals(6, index.getNextRow(), "Inserts after the data should not move anything");
+
+        index.deleteRows(2, 2);
+        assertNull(index.getRow("b"), "Deleted key should be gone");
+        assertEquals(2, index.getRow("c"), "Rows below a delete should move up");
+        assertEquals(3, index.getRow("d"), "Rows below a delete should move up");
+        assertEquals(4, index.getNextRow(), "Next row should move up");
+        index.deleteRows(3, 10);
+        assertEquals(3, index.getNextRow(), "Deleting past the data should only remove the rows there were");
+        assertEquals(2, index.size(), "Incorrect number of keys");
+    }
+
+    @Test
+    void testQueuedRowChanges() throws GoogleException {
+        GoogleSheet sheet = GoogleSpreadsheet.create(new GoogleEmulator().newContext(), "upsert", null).getSheets().get(0);
+        assertEquals(2, sheet.upsertRows(0, Arrays.asList(Arrays.asList((Object) "a", 1), Arrays.asList((Object) "b", 2))), "Both rows should be new");
+
+        // The insert is only queued, so the rows can't be written until it has been sent
+        sheet.batchStart();
+        sheet.insertRows(0, 1);
+        assertThrows(GoogleException.class, () -> sheet.upsertRows(0, Collections.singletonList(Arrays.asList((Object) "a", 3))), "Upsert should be refused in batch mode");
+        sheet.batchExecute();
+        assertEquals(0, sheet.upsertRows(0, Collections.singletonList(Arrays.asList((Object) "a", 3))), "Known key should be updated");
+
+        // Queued changes are sent before the rows are written
+        sheet.writeBehindStart();
+        sheet.insertRows(0, 1);
+        assertEquals(0, sheet.upsertRows(0, Collections.singletonList(Arrays.asList((Object) "b", 4))), "Known key should be updated");
+        sheet.writeBehindStop();
+        assertEquals(Arrays.asList(Collections.emptyList(), Collections.emptyList(), Arrays.asList("a", "3"), Arrays.asList("b", "4")),
+                sheet.getData("A:B", GoogleSheet.ValueRenderOption.FORMATTED_VALUE), "Rows written to the wrong place");
+
+        // A failed delete leaves the rows where they were
+        sheet.deleteRows(5000, 1);
+        assertEquals(0, sheet.upsertRows(0, Collections.singletonList(Arrays.asList((Object) "a", 5))), "Known key should be updated");
+        assertEquals(Arrays.asList("a", "5"), sheet.getData("A3:B3", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).get(0), "Row written to the wrong place");
+    }
+}
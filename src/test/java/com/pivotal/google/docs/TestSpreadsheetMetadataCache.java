@@ -0,0 +1,205 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.services.sheets.v4.model.*;
+import com.pivotal.google.GoogleServiceContext;
+import com.pivotal.google.emulator.GoogleEmulator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestSpreadsheetMetadataCache {
+
+    private static final GoogleServiceContext context = new GoogleEmulator().newContext();
+
+    @Test
+    void testAddAndDuplicateSheet() {
+        String id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        update(id, new Request().setAddSheet(new AddSheetRequest().setProperties(new SheetProperties().setTitle("New").setIndex(0))),
+                new Response().setAddSheet(new AddSheetResponse().setProperties(properties(5, "New", 0))));
+        update(id, new Request().setDuplicateSheet(new DuplicateSheetRequest().setSourceSheetId(1).setNewSheetName("Copy")),
+                new Response().setDuplicateSheet(new DuplicateSheetResponse().setProperties(properties(6, "Copy", 2))));
+
+        List<Sheet> sheets = get(id).getSheets();
+        assertEquals(Arrays.asList("New", "Sheet1", "Copy", "Two"), getTitles(sheets), "Sheets in the wrong order");
+        for (int i = 0; i < sheets.size(); i++) {
+            assertEquals(i, sheets.get(i).getProperties().getIndex(), "Index not shuffled along");
+        }
+        assertEquals(6, sheets.get(2).getProperties().getSheetId(), "Duplicate has the wrong ID");
+    }
+
+    @Test
+    void testDeleteSheet() {
+        String id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        update(id, new Request().setDeleteSheet(new DeleteSheetRequest().setSheetId(0)), new Response());
+        List<Sheet> sheets = get(id).getSheets();
+        assertEquals(Collections.singletonList("Two"), getTitles(sheets), "Sheet not removed");
+        assertEquals(0, sheets.get(0).getProperties().getIndex(), "Index not closed up");
+    }
+
+    @Test
+    void testUpdateSheetProperties() {
+        String id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        Spreadsheet original = get(id);
+        update(id, new Request().setUpdateSheetProperties(new UpdateSheetPropertiesRequest()
+                        .setProperties(new SheetProperties().setSheetId(1).setTitle("Renamed").setGridProperties(new GridProperties().setFrozenRowCount(2)))
+                        .setFields("title,gridProperties.frozenRowCount")),
+                new Response());
+        SheetProperties properties = get(id).getSheets().get(1).getProperties();
+        assertEquals("Renamed", properties.getTitle(), "Title not updated");
+        assertEquals(2, properties.getGridProperties().getFrozenRowCount(), "Frozen rows not updated");
+        assertEquals(1000, properties.getGridProperties().getRowCount(), "Fields outside the mask changed");
+        assertEquals("Two", original.getSheets().get(1).getProperties().getTitle(), "Previously cached copy changed");
+
+        // Moving a sheet re-orders all of them, which isn't attempted
+        update(id, new Request().setUpdateSheetProperties(new UpdateSheetPropertiesRequest()
+                        .setProperties(new SheetProperties().setSheetId(1).setIndex(0))
+                        .setFields("index")),
+                new Response());
+        assertNull(get(id), "Index change should invalidate the entry");
+    }
+
+    @Test
+    void testDimensions() {
+        String id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        update(id, new Request().setAppendDimension(new AppendDimensionRequest().setSheetId(0).setDimension("ROWS").setLength(10)), new Response());
+        update(id, new Request().setInsertDimension(new InsertDimensionRequest().setRange(new DimensionRange().setSheetId(0).setDimension("COLUMNS").setStartIndex(2).setEndIndex(5))), new Response());
+        update(id, new Request().setDeleteDimension(new DeleteDimensionRequest().setRange(new DimensionRange().setSheetId(1).setDimension("ROWS").setStartIndex(0).setEndIndex(100))), new Response());
+
+        List<Sheet> sheets = get(id).getSheets();
+        assertEquals(1010, sheets.get(0).getProperties().getGridProperties().getRowCount(), "Rows not appended");
+        assertEquals(29, sheets.get(0).getProperties().getGridProperties().getColumnCount(), "Columns not inserted");
+        assertEquals(900, sheets.get(1).getProperties().getGridProperties().getRowCount(), "Rows not deleted");
+        assertEquals(26, sheets.get(1).getProperties().getGridProperties().getColumnCount(), "Columns changed");
+    }
+
+    @Test
+    void testFilterViews() {
+        String id = cache(GoogleDocsUtils.FetchProfile.FILTER_VIEWS);
+        FilterView view = new FilterView().setFilterViewId(7).setTitle("View").setRange(new GridRange().setSheetId(1));
+        update(id, new Request().setAddFilterView(new AddFilterViewRequest().setFilter(view.clone().setFilterViewId(null))),
+                new Response().setAddFilterView(new AddFilterViewResponse().setFilter(view)));
+        assertEquals(1, get(id).getSheets().get(1).getFilterViews().size(), "Filter view not added");
+
+        update(id, new Request().setDeleteFilterView(new DeleteFilterViewRequest().setFilterId(7)), new Response());
+        assertTrue(get(id).getSheets().get(1).getFilterViews().isEmpty(), "Filter view not deleted");
+
+        // Shifting cells would move the ranges of the filter views
+        update(id, new Request().setAddFilterView(new AddFilterViewRequest().setFilter(view.clone().setFilterViewId(null))),
+                new Response().setAddFilterView(new AddFilterViewResponse().setFilter(view)));
+        update(id, new Request().setInsertDimension(new InsertDimensionRequest().setRange(new DimensionRange().setSheetId(1).setDimension("ROWS").setStartIndex(0).setEndIndex(1))), new Response());
+        assertNull(get(id), "Shifting cells under a filter view should invalidate the entry");
+    }
+
+    @Test
+    void testInvalidation() {
+
+        // Missing replies
+        String id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        update(id, new Request().setAddSheet(new AddSheetRequest().setProperties(new SheetProperties().setTitle("New"))), null);
+        assertNull(get(id), "Add without a reply should invalidate the entry");
+
+        // Unknown sheet
+        id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        update(id, new Request().setAppendDimension(new AppendDimensionRequest().setSheetId(99).setDimension("ROWS").setLength(10)), new Response());
+        assertNull(get(id), "Change to an unknown sheet should invalidate the entry");
+
+        // Filter view changes we can't follow
+        id = cache(GoogleDocsUtils.FetchProfile.FILTER_VIEWS);
+        update(id, new Request().setUpdateFilterView(new UpdateFilterViewRequest().setFilter(new FilterView().setFilterViewId(1)).setFields("title")), new Response());
+        assertNull(get(id), "Filter view update should invalidate the entry");
+
+        // Masks with sub-field lists
+        id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        update(id, new Request().setUpdateSheetProperties(new UpdateSheetPropertiesRequest()
+                        .setProperties(new SheetProperties().setSheetId(1).setGridProperties(new GridProperties().setFrozenRowCount(1).setFrozenColumnCount(1)))
+                        .setFields("gridProperties(frozenRowCount,frozenColumnCount)")),
+                new Response());
+        assertNull(get(id), "Sub-field mask should invalidate the entry");
+    }
+
+    @Test
+    void testNonStructuralRequests() {
+        String id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        Spreadsheet original = get(id);
+        update(id, new Request().setRepeatCell(new RepeatCellRequest().setRange(new GridRange().setSheetId(0)).setCell(new CellData()).setFields("userEnteredValue")), new Response());
+        assertSame(original, get(id), "Formatting and values should leave the entry alone");
+    }
+
+    @Test
+    void testContextsKeptApart() {
+        String id = cache(GoogleDocsUtils.FetchProfile.PROPERTIES);
+        GoogleServiceContext other = new GoogleEmulator().newContext();
+        assertNull(SpreadsheetMetadataCache.get(other, id, GoogleDocsUtils.FetchProfile.PROPERTIES), "Another context should not see the entry");
+
+        // A change made through another context is only applied to its own entry
+        SpreadsheetMetadataCache.put(other, id, get(id), GoogleDocsUtils.FetchProfile.PROPERTIES);
+        SpreadsheetMetadataCache.update(other, id, Collections.singletonList(new Request().setAppendDimension(new AppendDimensionRequest().setSheetId(0).setDimension("ROWS").setLength(10))),
+                new BatchUpdateSpreadsheetResponse().setReplies(Collections.singletonList(new Response())));
+        Spreadsheet spreadsheet = SpreadsheetMetadataCache.get(other, id, GoogleDocsUtils.FetchProfile.PROPERTIES);
+        assertEquals(1010, spreadsheet.getSheets().get(0).getProperties().getGridProperties().getRowCount(), "Rows not appended");
+        assertNull(get(id), "Change through another context should drop the entry");
+
+        SpreadsheetMetadataCache.invalidate(id);
+        assertNull(SpreadsheetMetadataCache.get(other, id, GoogleDocsUtils.FetchProfile.PROPERTIES), "Entry should be dropped for every context");
+    }
+
+    /**
+     * Caches a spreadsheet with two sheets of 1000 rows and 26 columns under a new ID
+     *
+     * @param profile Profile the spreadsheet was fetched with
+     * @return ID of the spreadsheet
+     */
+    private static String cache(GoogleDocsUtils.FetchProfile profile) {
+        String id = UUID.randomUUID().toString();
+        Spreadsheet spreadsheet = new Spreadsheet().setSpreadsheetId(id).setSheets(new ArrayList<>(Arrays.asList(
+                new Sheet().setProperties(properties(0, "Sheet1", 0)),
+                new Sheet().setProperties(properties(1, "Two", 1)))));
+        if (profile == GoogleDocsUtils.FetchProfile.FILTER_VIEWS) {
+            for (Sheet sheet : spreadsheet.getSheets()) {
+                sheet.setFilterViews(new ArrayList<>());
+            }
+        }
+        SpreadsheetMetadataCache.put(context, id, spreadsheet, profile);
+        assertNotNull(get(id), "Spreadsheet not cached");
+        return id;
+    }
+
+    private static void update(String id, Request request, Response reply) {
+        SpreadsheetMetadataCache.update(context, id, Collections.singletonList(request),
+                reply == null ? null : new BatchUpdateSpreadsheetResponse().setReplies(Collections.singletonList(reply)));
+    }
+
+    private static Spreadsheet get(String id) {
+        return SpreadsheetMetadataCache.get(context, id, GoogleDocsUtils.FetchProfile.PROPERTIES);
+    }
+
+    private static SheetProperties properties(int sheetId, String title, int index) {
+        return new SheetProperties().setSheetId(sheetId).setTitle(title).setIndex(index)
+                .setGridProperties(new GridProperties().setRowCount(1000).setColumnCount(26));
+    }
+
+    private static List<String> getTitles(List<Sheet> sheets) {
+        List<String> ret = new ArrayList<>();
+        for (Sheet sheet : sheets) {
+            ret.add(sheet.getProperties().getTitle());
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.google.api.client.json.gson.GsonFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestValueChunker {
+
+    @Test
+    void testEstimate() throws IOException {
+        List<Object> row = Arrays.asList("plain", "quote\"d", "caf\u00e9", 12.5, true, null, "\u20ac100");
+        assertEquals(GsonFactory.getDefaultInstance().toString(row).getBytes(StandardCharsets.UTF_8).length, ValueChunker.estimateRowBytes(row), "Incorrect row size estimate");
+    }
+
+    @Test
+    void testByteBudget() {
+        List<List<Object>> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(Collections.singletonList(i % 10 == 0 ? repeat('x', 500) : "y"));
+        }
+        List<List<List<Object>>> chunks = new ValueChunker().maxBytes(1000).split(values);
+        int rows = 0;
+        for (List<List<Object>> chunk : chunks) {
+            long bytes = 0;
+            for (List<Object> row : chunk) {
+                bytes += ValueChunker.estimateRowBytes(row) + 1;
+            }
+            assertTrue(bytes <= 1000, "Chunk exceeds the byte budget");
+            rows += chunk.size();
+        }
+        assertEquals(values.size(), rows, "Rows lost while chunking");
+        assertTrue(chunks.size() < 20, "Narrow rows should share chunks");
+    }
+
+    @Test
+    void testLimits() {
+        List<List<Object>> values = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            values.add(Collections.singletonList("value" + i));
+        }
+        List<List<List<Object>>> chunks = new ValueChunker().maxRows(10).split(values);
+        assertEquals(3, chunks.size(), "Incorrect number of chunks for the row limit");
+        assertEquals(5, chunks.get(2).size(), "Incorrect size of the last chunk");
+        assertEquals(values.get(20), chunks.get(2).get(0), "Chunks out of order");
+        assertEquals(25, new ValueChunker().maxBytes(10).split(values).size(), "Oversize rows should each have their own chunk");
+        assertTrue(new ValueChunker().split(null).isEmpty(), "Null values should give no chunks");
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestValueWriteBuffer {
+
+    @Test
+    void testBlocks() {
+        TreeMap<Long, Object> cells = new TreeMap<>();
+
+        // A 2x2 square at B2, a lone cell at E1 and a row at A10 that is wider than the one above it
+        cells.put(ValueWriteBuffer.getKey(1, 1), "b2");
+        cells.put(ValueWriteBuffer.getKey(1, 2), "c2");
+        cells.put(ValueWriteBuffer.getKey(2, 1), "b3");
+        cells.put(ValueWriteBuffer.getKey(2, 2), "c3");
+        cells.put(ValueWriteBuffer.getKey(0, 4), 5.0);
+        cells.put(ValueWriteBuffer.getKey(8, 0), "a9");
+        cells.put(ValueWriteBuffer.getKey(9, 0), "a10");
+        cells.put(ValueWriteBuffer.getKey(9, 1), "b10");
+        List<ValueWriteBuffer.Block> blocks = ValueWriteBuffer.getBlocks(cells);
+        assertEquals(4, blocks.size(), "Incorrect number of blocks");
+        assertEquals("E1:E1", blocks.get(0).getRange(), "Blocks should be ordered by their top left cell");
+        assertEquals(Collections.singletonList(Collections.singletonList((Object) 5.0)), blocks.get(0).getRows(), "Incorrect lone cell");
+        assertEquals("B2:C3", blocks.get(1).getRange(), "Adjacent cells not merged into a rectangle");
+        assertEquals(Arrays.asList(Arrays.asList((Object) "b2", "c2"), Arrays.asList((Object) "b3", "c3")), blocks.get(1).getRows(), "Incorrect rectangle values");
+        assertEquals("A9:A9", blocks.get(2).getRange(), "Rows of different widths should not be merged");
+        assertEquals("A10:B10", blocks.get(3).getRange(), "Incorrect row block");
+        assertFalse(blocks.get(3).isFormula(), "Values should not be formulas");
+        assertTrue(ValueWriteBuffer.getBlocks(new TreeMap<>()).isEmpty(), "No cells should give no blocks");
+    }
+
+    @Test
+    void testPending() throws GoogleException {
+        ValueWriteBuffer buffer = new ValueWriteBuffer(null, "test");
+        buffer.setValue("Sheet1", "A1:B2", "x");
+        buffer.setValue("Sheet1", 0, 0, "y");
+        buffer.setFormula("Other", "C3", "=A1");
+        assertEquals(5, buffer.getPendingCount(), "Overwritten cells should only be counted once");
+        assertThrows(GoogleException.class, () -> buffer.setValue("Sheet1", "A:A", "z"), "Open-ended ranges cannot be buffered");
+        buffer.clear();
+        assertEquals(0, buffer.getPendingCount(), "Clear should discard the pending cells");
+        assertEquals(0, buffer.flush(), "Nothing should be sent when there is nothing pending");
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.docs;
+
+import com.pivotal.google.emulator.GoogleEmulator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestWriteBehindWriter {
+
+    @Test
+    void testDuplicate() throws GoogleException {
+        GoogleSpreadsheet spreadsheet = GoogleSpreadsheet.create(new GoogleEmulator().newContext(), "write-behind", null);
+        GoogleSheet sheet = spreadsheet.getSheets().get(0);
+        sheet.writeBehindStart();
+        sheet.setText("A1", "queued");
+        GoogleSheet copy = sheet.duplicate("Copy");
+        assertNotNull(copy, "Duplicate should be sent straight away");
+        assertEquals("queued", copy.getData("A1", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).get(0).get(0), "Queued changes should be sent before the duplicate");
+        sheet.writeBehindStop();
+        assertEquals(2, spreadsheet.getSheets().size(), "Sheet should only be duplicated once");
+    }
+
+    @Test
+    void testWritesRecorded() throws GoogleException {
+        GoogleSheet sheet = GoogleSpreadsheet.create(new GoogleEmulator().newContext(), "write-behind", null).getSheets().get(0);
+        try (WriteBehindWriter writer = new WriteBehindWriter(sheet, null, 10, null)) {
+            DeferredBackOff.start(0);
+            try {
+                assertTrue(DeferredBackOff.canDefer(), "Nothing written yet");
+                writer.append(null, Collections.singletonList(Arrays.asList((Object) "a", 1)));
+                assertFalse(DeferredBackOff.canDefer(), "Queued rows would be queued again if the operation was re-run");
+            }
+            finally {
+                DeferredBackOff.end();
+            }
+        }
+    }
+
+    @Test
+    void testRuntimeFailuresReported() throws GoogleException {
+        GoogleSheet sheet = GoogleSpreadsheet.create(new GoogleEmulator().newContext(), "write-behind", null).getSheets().get(0);
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        WriteBehindWriter writer = new WriteBehindWriter(sheet, null, 10, (e, requests, rows) -> failures.add(e.getMessage()));
+
+        // A null request blows up on the background thread, which must report it and carry on
+        writer.add(null);
+        writer.flush();
+        assertEquals(1, failures.size(), "Failure not reported");
+        writer.append(null, Collections.singletonList(Arrays.asList((Object) "after", 1)));
+        writer.close();
+        assertEquals(1, writer.getSentCount().get(), "Changes after the failure not sent");
+        assertEquals("after", sheet.getData("A1", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).get(0).get(0), "Changes after the failure not sent");
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ * Copyright (c) 2025, Pivotal Solutions Ltd and/or its affiliates. All rights reserved.
+ * Pivotal Solutions PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ */
+package com.pivotal.google.emulator;
+
+import com.pivotal.google.GoogleServiceContext;
+import com.pivotal.google.docs.GoogleException;
+import com.pivotal.google.docs.GoogleFile;
+import com.pivotal.google.docs.GoogleSheet;
+import com.pivotal.google.docs.GoogleSpreadsheet;
+import com.pivotal.google.docs.RetryPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@Slf4j
+class TestGoogleEmulator {
+
+    @Test
+    void testValues() throws GoogleException {
+        GoogleEmulator emulator = new GoogleEmulator();
+        GoogleSpreadsheet spreadsheet = GoogleSpreadsheet.create(emulator.newContext(), "emulated", null);
+        GoogleSheet sheet = spreadsheet.getSheets().get(0);
+        sheet.appendValues(null, Arrays.asList(Arrays.asList("a", 1), Arrays.asList("b", "2.50")));
+        sheet.appendValues(null, Arrays.asList(Arrays.asList("c", true)));
+
+        List<List<Object>> values = sheet.getData("A1:B", GoogleSheet.ValueRenderOption.UNFORMATTED_VALUE);
+        assertEquals(3, values.size(), "Appended rows should follow each other");
+        assertEquals("a", values.get(0).get(0), "Incorrect string value");
+        assertEquals(new BigDecimal("2.5"), values.get(1).get(1), "Entered number should be stored as a number");
+        assertEquals(Boolean.TRUE, values.get(2).get(1), "Incorrect boolean value");
+        assertEquals("2.5", sheet.getData("B2", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).get(0).get(0), "Formatted values should be strings");
+
+        sheet.clear("A1:A3");
+        values = sheet.getData("A1:B", GoogleSheet.ValueRenderOption.UNFORMATTED_VALUE);
+        assertEquals("", values.get(0).get(0), "Cleared cell should be empty");
+        assertEquals(3, values.size(), "Clearing a column should not remove the rows");
+        spreadsheet.delete();
+        assertEquals(0, emulator.getDrive().size(), "Deleted spreadsheet should not be in the drive");
+    }
+
+    @Test
+    void testSheetsAndFiles() throws GoogleException {
+        GoogleEmulator emulator = new GoogleEmulator();
+        GoogleServiceContext context = emulator.newContext();
+        GoogleSpreadsheet spreadsheet = GoogleSpreadsheet.create(context, "emulated", null);
+        spreadsheet.addSheet("Second");
+        assertEquals(2, spreadsheet.getSheets().size(), "Sheet not added");
+        assertNotNull(spreadsheet.getSheetByName("Second"), "Added sheet not found by name");
+        assertThrows(GoogleException.class, () -> spreadsheet.getSheetByName("Second").insertRows(5000, 1), "Rows outside the grid should be refused");
+
+        GoogleFile folder = GoogleFile.createFolder(context, "folder", null);
+        spreadsheet.move(folder.getFileId());
+        List<GoogleFile> files = folder.list();
+        assertEquals(1, files.size(), "Spreadsheet not moved into the folder");
+        assertEquals("emulated", files.get(0).getName(), "Incorrect file name");
+        spreadsheet.rename("renamed");
+        assertEquals("renamed", spreadsheet.getName(), "Spreadsheet not renamed");
+        assertTrue(emulator.getOperationCounts().get("spreadsheets.batchUpdate") > 0, "Batch updates not counted");
+    }
+
+    @Test
+    void testThrottling() throws GoogleException {
+        GoogleEmulator emulator = new GoogleEmulator().throttleEvery(3).retryAfter(0);
+        GoogleServiceContext context = emulator.newContext(new RetryPolicy().maxAttempts(5).initialDelay(1).maxDelay(5));
+        GoogleSpreadsheet spreadsheet = GoogleSpreadsheet.create(context, "throttled", null);
+        GoogleSheet sheet = spreadsheet.getSheets().get(0);
+        for (int i = 0; i < 5; i++) {
+            sheet.appendValues(null, Arrays.asList(Arrays.asList((Object) ("row" + i))));
+        }
+        assertEquals(5, sheet.getData("A:A", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).size(), "Refused calls should have been retried");
+        assertTrue(emulator.getThrottledCount() > 0, "Some calls should have been refused");
+        assertTrue(emulator.getBytesReceived() > 0 && emulator.getBytesSent() > 0, "Bytes not counted");
+    }
+
+    @Test
+    void testQuotas() throws GoogleException {
+        GoogleEmulator emulator = new GoogleEmulator();
+        GoogleServiceContext context = emulator.newContext(new RetryPolicy().maxAttempts(20).initialDelay(5).maxDelay(20));
+        GoogleSheet sheet = GoogleSpreadsheet.create(context, "quotas", null).getSheets().get(0);
+        sheet.appendValues(null, Arrays.asList(Arrays.asList((Object) "value")));
+        emulator.resetStats();
+        emulator.readQuota(2).quotaWindow(50).latency(1);
+        for (int i = 0; i < 6; i++) {
+            assertEquals("value", sheet.getData("A1", GoogleSheet.ValueRenderOption.FORMATTED_VALUE).get(0).get(0), "Read over the quota should be retried");
+        }
+        assertTrue(emulator.getThrottledCount() > 0, "Reads over the quota should have been refused");
+        assertTrue(emulator.getLatencyPercentile("values.get", 50) >= 1, "Latency not recorded");
+        assertEquals(0, emulator.getLatencyPercentile("files.list", 50), "No latency for calls that weren't made");
+    }
+}